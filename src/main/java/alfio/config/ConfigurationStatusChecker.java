@@ -91,6 +91,8 @@ public class ConfigurationStatusChecker implements ApplicationListener<ContextRe
             log.info("initialized alf.io version {} ", version);
         } catch (Exception e) {
             log.error("unable to perform data migration. Please report this issue.", e);
+            // do not start with partially migrated data
+            throw e;
         }
     }
 }
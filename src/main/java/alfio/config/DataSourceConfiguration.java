@@ -19,7 +19,11 @@ package alfio.config;
 import alfio.config.support.ArrayColumnMapper;
 import alfio.config.support.EnumTypeColumnMapper;
 import alfio.config.support.JSONColumnMapper;
+import alfio.config.support.OrganizationScopeCache;
 import alfio.config.support.PlatformProvider;
+import alfio.config.support.PromoCodeDiscountCache;
+import alfio.config.support.ViewDefinitionsUpdater;
+import alfio.extension.ExtensionEventBuffer;
 import alfio.extension.ExtensionService;
 import alfio.job.Jobs;
 import alfio.job.executor.*;
@@ -27,7 +31,9 @@ import alfio.manager.*;
 import alfio.manager.i18n.MessageSourceManager;
 import alfio.manager.system.AdminJobManager;
 import alfio.manager.system.ConfigurationManager;
+import alfio.manager.system.DataDeletionManager;
 import alfio.repository.*;
+import alfio.repository.audit.AuditingBuffer;
 import alfio.repository.system.AdminJobQueueRepository;
 import alfio.repository.system.ConfigurationRepository;
 import alfio.repository.user.OrganizationRepository;
@@ -36,6 +42,7 @@ import alfio.repository.user.join.UserOrganizationRepository;
 import alfio.util.ClockProvider;
 import alfio.util.CustomResourceBundleMessageSource;
 import alfio.util.Json;
+import alfio.util.PostgresNotificationListener;
 import alfio.util.TemplateManager;
 import ch.digitalfondue.npjt.EnableNpjt;
 import ch.digitalfondue.npjt.mapper.ColumnMapperFactory;
@@ -53,13 +60,17 @@ import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.datasource.AbstractDataSource;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.SavepointManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.sql.DataSource;
 import java.net.http.HttpClient;
@@ -127,20 +138,113 @@ public class DataSourceConfiguration {
         }
     }
 
+    @Bean(destroyMethod = "stop")
+    public PostgresNotificationListener postgresNotificationListener(DataSource dataSource) {
+        return new PostgresNotificationListener(notificationDataSource(dataSource));
+    }
+
+    /**
+     * The notification listener holds its connection forever, so it must not take it from the connection pool.
+     * The connection is opened with the same settings, through the driver.
+     */
+    private static DataSource notificationDataSource(DataSource dataSource) {
+        try {
+            if(dataSource.isWrapperFor(HikariDataSource.class)) {
+                var pool = dataSource.unwrap(HikariDataSource.class);
+                return new DriverManagerDataSource(pool.getJdbcUrl(), pool.getUsername(), pool.getPassword());
+            }
+        } catch (SQLException e) {
+            log.warn("cannot read the connection pool settings", e);
+        }
+        log.warn("cannot open a dedicated connection for listening to notifications. Using a connection from the pool.");
+        return dataSource;
+    }
+
+    @Bean
+    public OrganizationScopeCache organizationScopeCache(PostgresNotificationListener postgresNotificationListener, Environment environment) {
+        return new OrganizationScopeCache(postgresNotificationListener, environment);
+    }
+
+    @Bean
+    public PromoCodeDiscountCache promoCodeDiscountCache(PostgresNotificationListener postgresNotificationListener,
+                                                         PromoCodeDiscountRepository promoCodeDiscountRepository,
+                                                         Environment environment) {
+        return new PromoCodeDiscountCache(postgresNotificationListener, promoCodeDiscountRepository, environment);
+    }
+
     @Bean
-    public PlatformTransactionManager platformTransactionManager(DataSource dataSource) {
-        return new CustomDataSourceTransactionManager(dataSource);
+    public PlatformTransactionManager platformTransactionManager(DataSource dataSource, OrganizationScopeCache organizationScopeCache) {
+        return new CustomDataSourceTransactionManager(dataSource, organizationScopeCache);
     }
 
     private static class CustomDataSourceTransactionManager extends DataSourceTransactionManager {
-        CustomDataSourceTransactionManager(DataSource dataSource) {
+        private final OrganizationScopeCache organizationScopeCache;
+
+        CustomDataSourceTransactionManager(DataSource dataSource, OrganizationScopeCache organizationScopeCache) {
             super(dataSource);
+            this.organizationScopeCache = organizationScopeCache;
         }
 
         @Override
         protected void prepareTransactionalConnection(Connection con, TransactionDefinition definition) throws SQLException {
             super.prepareTransactionalConnection(con, definition);
-            RoleAndOrganizationsTransactionPreparer.prepareTransactionalConnection(con);
+            RoleAndOrganizationsTransactionPreparer.prepareTransactionalConnection(con, organizationScopeCache);
+        }
+
+        @Override
+        protected DefaultTransactionStatus newTransactionStatus(TransactionDefinition definition,
+                                                                Object transaction,
+                                                                boolean newTransaction,
+                                                                boolean newSynchronization,
+                                                                boolean debug,
+                                                                Object suspendedResources) {
+            boolean actualNewSynchronization = newSynchronization && !TransactionSynchronizationManager.isSynchronizationActive();
+            return new AuditingAwareTransactionStatus(transaction, newTransaction, actualNewSynchronization,
+                definition.isReadOnly(), debug, suspendedResources);
+        }
+    }
+
+    /**
+     * Notifies the {@link AuditingBuffer} and the {@link ExtensionEventBuffer} about savepoints, so that buffered
+     * auditing rows and extension events follow the same lifecycle as the rows written on the database.
+     */
+    private static class AuditingAwareTransactionStatus extends DefaultTransactionStatus {
+
+        AuditingAwareTransactionStatus(Object transaction,
+                                       boolean newTransaction,
+                                       boolean newSynchronization,
+                                       boolean readOnly,
+                                       boolean debug,
+                                       Object suspendedResources) {
+            super(transaction, newTransaction, newSynchronization, readOnly, debug, suspendedResources);
+        }
+
+        @Override
+        protected SavepointManager getSavepointManager() {
+            var delegate = super.getSavepointManager();
+            return new SavepointManager() {
+                @Override
+                public Object createSavepoint() {
+                    var savepoint = delegate.createSavepoint();
+                    AuditingBuffer.savepointCreated(savepoint);
+                    ExtensionEventBuffer.savepointCreated(savepoint);
+                    return savepoint;
+                }
+
+                @Override
+                public void rollbackToSavepoint(Object savepoint) {
+                    delegate.rollbackToSavepoint(savepoint);
+                    AuditingBuffer.rolledBackToSavepoint(savepoint);
+                    ExtensionEventBuffer.rolledBackToSavepoint(savepoint);
+                }
+
+                @Override
+                public void releaseSavepoint(Object savepoint) {
+                    delegate.releaseSavepoint(savepoint);
+                    AuditingBuffer.savepointReleased(savepoint);
+                    ExtensionEventBuffer.savepointReleased(savepoint);
+                }
+            };
         }
     }
 
@@ -176,9 +280,12 @@ public class DataSourceConfiguration {
             .validateOnMigrate(false)
             .target(MigrationVersion.LATEST)
             .outOfOrder(true)
+            // the afterMigrate scripts are executed by ViewDefinitionsUpdater, only if needed
+            .skipDefaultCallbacks(true)
             .locations("alfio/db/PGSQL/");
         Flyway migration = new Flyway(configuration);
-        migration.migrate();
+        var result = migration.migrate();
+        ViewDefinitionsUpdater.updateIfNeeded(jdbcTemplate, result.migrationsExecuted > 0);
         return migration;
     }
     
@@ -236,12 +343,18 @@ public class DataSourceConfiguration {
                      SpecialPriceTokenGenerator specialPriceTokenGenerator,
                      WaitingQueueSubscriptionProcessor waitingQueueSubscriptionProcessor,
                      TicketReservationManager ticketReservationManager,
-                     AdminJobManager adminJobManager
+                     AdminJobManager adminJobManager,
+                     AuditingArchiveManager auditingArchiveManager,
+                     ExpiredReservationSweeper expiredReservationSweeper,
+                     DataDeletionManager dataDeletionManager
                      ) {
         return new Jobs(adminReservationRequestManager, fileUploadManager,
             notificationManager, specialPriceTokenGenerator, ticketReservationManager,
             waitingQueueSubscriptionProcessor,
-            adminJobManager);
+            adminJobManager,
+            auditingArchiveManager,
+            expiredReservationSweeper,
+            dataDeletionManager);
     }
 
     @Bean
@@ -17,6 +17,7 @@
 package alfio.config;
 
 import alfio.config.authentication.support.OpenIdAlfioAuthentication;
+import alfio.config.support.OrganizationScopeCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.GrantedAuthority;
@@ -98,7 +99,9 @@ class RoleAndOrganizationsTransactionPreparer {
         " union " +
         "(select organization.id from organization where 'ROLE_ADMIN' in (select role from ba_user inner join authority on ba_user.username = authority.username where ba_user.username = ?))";
 
-    public static void prepareTransactionalConnection(Connection connection) throws SQLException {
+    private static final String SET_ROW_ACCESS_SETTINGS = "select set_config('alfio.checkRowAccess', 'true', true), set_config('alfio.currentUserOrgs', ?, true)";
+
+    public static void prepareTransactionalConnection(Connection connection, OrganizationScopeCache organizationScopeCache) throws SQLException {
         if (!isInAHttpRequest()) {
             return;
         }
@@ -107,16 +110,24 @@ class RoleAndOrganizationsTransactionPreparer {
             return;
         }
 
-        try (var s = connection.createStatement()) {
-            s.execute("reset alfio.checkRowAccess");
-        }
-        try (var s = connection.createStatement()) {
-            s.execute("reset alfio.currentUserOrgs");
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        Set<Integer> orgIds = organizationScopeCache.get(username, u -> loadOrganizations(connection, u));
+
+        if (orgIds.isEmpty()) {
+            log.warn("orgIds is empty, was not able to apply currentUserOrgs");
+        } else {
+            // both settings are transaction-local, so they're applied with a single round trip at the beginning of each transaction
+            try (var s = connection.prepareStatement(SET_ROW_ACCESS_SETTINGS)) {
+                String formattedOrgIds = new TreeSet<>(orgIds).stream().map(orgId -> Integer.toString(orgId)).collect(Collectors.joining(","));
+                s.setString(1, formattedOrgIds);
+                s.execute();
+            }
         }
+    }
 
+    private static Set<Integer> loadOrganizations(Connection connection, String username) throws SQLException {
         Set<Integer> orgIds = new TreeSet<>();
         try (var s = connection.prepareStatement(QUERY_ORG_FOR_USER)) {
-            String username = SecurityContextHolder.getContext().getAuthentication().getName();
             s.setString(1, username);
             s.setString(2, username);
             try (var rs = s.executeQuery()) {
@@ -125,18 +136,6 @@ class RoleAndOrganizationsTransactionPreparer {
                 }
             }
         }
-
-        if (orgIds.isEmpty()) {
-            log.warn("orgIds is empty, was not able to apply currentUserOrgs");
-        } else {
-            try (var s = connection.createStatement()) {
-                s.execute("set local alfio.checkRowAccess = true");
-            }
-            try (var s = connection.createStatement()) {
-                String formattedOrgIds = orgIds.stream().map(orgId -> Integer.toString(orgId)).collect(Collectors.joining(","));
-                //can't use placeholder in a prepared statement when using 'set ...', but cannot be sql injected as the source is a set of integers
-                s.execute("set local alfio.currentUserOrgs = '" + formattedOrgIds + "'");
-            }
-        }
+        return orgIds;
     }
 }
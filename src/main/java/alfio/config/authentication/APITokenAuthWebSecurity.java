@@ -17,11 +17,8 @@
 package alfio.config.authentication;
 
 import alfio.config.authentication.support.*;
-import alfio.model.system.ConfigurationKeys;
+import alfio.manager.user.ApiKeyAuthenticationCache;
 import alfio.model.user.User;
-import alfio.repository.system.ConfigurationRepository;
-import alfio.repository.user.AuthorityRepository;
-import alfio.repository.user.UserRepository;
 import alfio.util.ClockProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -35,8 +32,6 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.web.SecurityFilterChain;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.time.ZonedDateTime;
 import java.util.List;
 
@@ -47,16 +42,10 @@ import static alfio.config.authentication.support.AuthenticationConstants.*;
 public class APITokenAuthWebSecurity {
 
     public static final String API_KEY = "Api key ";
-    private final UserRepository userRepository;
-    private final AuthorityRepository authorityRepository;
-    private final ConfigurationRepository configurationRepository;
+    private final ApiKeyAuthenticationCache apiKeyAuthenticationCache;
 
-    public APITokenAuthWebSecurity(UserRepository userRepository,
-                                   AuthorityRepository authorityRepository,
-                                   ConfigurationRepository configurationRepository) {
-        this.userRepository = userRepository;
-        this.authorityRepository = authorityRepository;
-        this.configurationRepository = configurationRepository;
+    public APITokenAuthWebSecurity(ApiKeyAuthenticationCache apiKeyAuthenticationCache) {
+        this.apiKeyAuthenticationCache = apiKeyAuthenticationCache;
     }
 
     //https://stackoverflow.com/a/48448901
@@ -68,10 +57,11 @@ public class APITokenAuthWebSecurity {
             //
             String apiKey = (String) authentication.getPrincipal();
 
-            // check if API Key is system
-            var systemApiKeyOptional = configurationRepository.findOptionalByKey(ConfigurationKeys.SYSTEM_API_KEY.name());
+            var apiKeyDetails = apiKeyAuthenticationCache.find(apiKey)
+                .orElseThrow(() -> new BadCredentialsException(API_KEY + apiKey + " don't exists"));
 
-            if (systemApiKeyOptional.isPresent() && apiKeyMatches(apiKey, systemApiKeyOptional.get())) {
+            // check if API Key is system
+            if (apiKeyDetails.system()) {
                 return new APITokenAuthentication(
                     authentication.getPrincipal(),
                     authentication.getCredentials(),
@@ -79,7 +69,7 @@ public class APITokenAuthWebSecurity {
             }
 
             //check if user type ->
-            User user = userRepository.findByUsername(apiKey).orElseThrow(() -> new BadCredentialsException(API_KEY + apiKey + " don't exists"));
+            User user = apiKeyDetails.user();
             if (!user.isEnabled()) {
                 throw new DisabledException(API_KEY + apiKey + " is disabled");
             }
@@ -93,7 +83,7 @@ public class APITokenAuthWebSecurity {
             return new APITokenAuthentication(
                 authentication.getPrincipal(),
                 authentication.getCredentials(),
-                authorityRepository.findRoles(apiKey).stream().map(SimpleGrantedAuthority::new).toList());
+                apiKeyDetails.roles().stream().map(SimpleGrantedAuthority::new).toList());
         });
 
 
@@ -118,9 +108,4 @@ public class APITokenAuthWebSecurity {
             .antMatchers(HttpMethod.GET, "/api/attendees/*/ticket/*").hasAnyRole(OPERATOR, SUPERVISOR, API_CLIENT)
             .antMatchers("/**").authenticated();
     }
-
-    private static boolean apiKeyMatches(String input, alfio.model.system.Configuration systemApiKeyConfiguration) {
-        return MessageDigest.isEqual(input.getBytes(StandardCharsets.UTF_8),
-            systemApiKeyConfiguration.getValue().getBytes(StandardCharsets.UTF_8));
-    }
 }
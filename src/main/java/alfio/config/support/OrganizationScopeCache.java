@@ -0,0 +1,112 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.config.support;
+
+import alfio.util.PostgresNotificationListener;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the organizations a user can access, used for applying the row-level security checks.
+ * <p>
+ * Changes to users, roles, organizations or memberships trigger a PostgreSQL notification
+ * (see V205_2.0.0.59__ORGANIZATION_SCOPE_NOTIFY.sql), which clears the cache on all nodes once the transaction commits.
+ * The cache is bypassed while this node is not listening for notifications.
+ */
+public class OrganizationScopeCache {
+
+    private static final Logger log = LoggerFactory.getLogger(OrganizationScopeCache.class);
+    static final String CHANNEL = "alfio_organization_scope";
+
+    private final Cache<String, Set<Integer>> cache;
+    // incremented on each invalidation, so that scopes loaded in the meantime are not cached
+    private final AtomicLong generation = new AtomicLong();
+    private volatile boolean listening = false;
+
+    public OrganizationScopeCache(PostgresNotificationListener notificationListener, Environment environment) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(environment.getProperty("alfio.organizationScope.cacheSize", Integer.class, 1000))
+            .expireAfterWrite(Duration.ofSeconds(environment.getProperty("alfio.organizationScope.cacheTtlSeconds", Integer.class, 60)))
+            .build();
+        notificationListener.addHandler(CHANNEL, new PostgresNotificationListener.Handler() {
+            @Override
+            public void connected() {
+                listenerConnected();
+            }
+
+            @Override
+            public void disconnected() {
+                listenerDisconnected();
+            }
+
+            @Override
+            public void notificationsReceived(PGNotification[] notifications) {
+                log.trace("received {} organization scope changes", notifications.length);
+                invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * @param username the current user
+     * @param loader loads the organization ids if they are not cached
+     * @return the ids of the organizations the user can access
+     */
+    public Set<Integer> get(String username, ScopeLoader loader) throws SQLException {
+        if(listening) {
+            var cached = cache.getIfPresent(username);
+            if(cached != null) {
+                return cached;
+            }
+        }
+        long currentGeneration = generation.get();
+        var organizationIds = Set.copyOf(loader.load(username));
+        if(listening && generation.get() == currentGeneration) {
+            cache.put(username, organizationIds);
+        }
+        return organizationIds;
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    void listenerConnected() {
+        invalidateAll();
+        listening = true;
+    }
+
+    void listenerDisconnected() {
+        listening = false;
+        invalidateAll();
+    }
+
+    @FunctionalInterface
+    public interface ScopeLoader {
+        Set<Integer> load(String username) throws SQLException;
+    }
+}
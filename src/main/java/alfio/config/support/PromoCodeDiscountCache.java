@@ -0,0 +1,128 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.config.support;
+
+import alfio.model.PromoCodeDiscount;
+import alfio.repository.PromoCodeDiscountRepository;
+import alfio.util.PostgresNotificationListener;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches the promo code definitions looked up while validating codes and creating reservations.
+ * <p>
+ * Changes to promo codes trigger a PostgreSQL notification (see V205_2.0.0.64__PROMO_CODE_USAGE_COUNTER.sql),
+ * which clears the cache on all nodes once the transaction commits. The usage counter is not part of the
+ * cached definition, and must always be read from the database.
+ * The cache is bypassed while this node is not listening for notifications.
+ */
+public class PromoCodeDiscountCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PromoCodeDiscountCache.class);
+    static final String CHANNEL = "alfio_promo_code";
+
+    private final Cache<LookupKey, Optional<PromoCodeDiscount>> cache;
+    // incremented on each invalidation, so that definitions loaded in the meantime are not cached
+    private final AtomicLong generation = new AtomicLong();
+    private final PromoCodeDiscountRepository promoCodeDiscountRepository;
+    private volatile boolean listening = false;
+
+    public PromoCodeDiscountCache(PostgresNotificationListener notificationListener,
+                                  PromoCodeDiscountRepository promoCodeDiscountRepository,
+                                  Environment environment) {
+        this.promoCodeDiscountRepository = promoCodeDiscountRepository;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(environment.getProperty("alfio.promoCode.cacheSize", Integer.class, 10_000))
+            .expireAfterWrite(Duration.ofSeconds(environment.getProperty("alfio.promoCode.cacheTtlSeconds", Integer.class, 60)))
+            .build();
+        notificationListener.addHandler(CHANNEL, new PostgresNotificationListener.Handler() {
+            @Override
+            public void connected() {
+                listenerConnected();
+            }
+
+            @Override
+            public void disconnected() {
+                listenerDisconnected();
+            }
+
+            @Override
+            public void notificationsReceived(PGNotification[] notifications) {
+                log.trace("received {} promo code changes", notifications.length);
+                invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * Cached version of {@link PromoCodeDiscountRepository#findPromoCodeInEventOrOrganization(int, String)}
+     */
+    public Optional<PromoCodeDiscount> findPromoCodeInEventOrOrganization(int eventId, String promoCode) {
+        return get(new LookupKey(eventId, promoCode, false),
+            () -> promoCodeDiscountRepository.findPromoCodeInEventOrOrganization(eventId, promoCode));
+    }
+
+    /**
+     * Cached version of {@link PromoCodeDiscountRepository#findPublicPromoCodeInEventOrOrganization(int, String)}
+     */
+    public Optional<PromoCodeDiscount> findPublicPromoCodeInEventOrOrganization(int eventId, String promoCode) {
+        return get(new LookupKey(eventId, promoCode, true),
+            () -> promoCodeDiscountRepository.findPublicPromoCodeInEventOrOrganization(eventId, promoCode));
+    }
+
+    private Optional<PromoCodeDiscount> get(LookupKey key, Supplier<Optional<PromoCodeDiscount>> loader) {
+        if(listening) {
+            var cached = cache.getIfPresent(key);
+            if(cached != null) {
+                return cached;
+            }
+        }
+        long currentGeneration = generation.get();
+        var result = loader.get();
+        if(listening && generation.get() == currentGeneration) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    void listenerConnected() {
+        invalidateAll();
+        listening = true;
+    }
+
+    void listenerDisconnected() {
+        listening = false;
+        invalidateAll();
+    }
+
+    private record LookupKey(int eventId, String promoCode, boolean publicOnly) {
+    }
+}
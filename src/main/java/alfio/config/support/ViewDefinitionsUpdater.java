@@ -0,0 +1,117 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.config.support;
+
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Executes the {@code afterMigrate__*.sql} scripts, which drop and recreate the views, only if their content has been
+ * modified or if a migration has been applied in the current run.
+ * <p>
+ * The checksum of the scripts is stored in the {@code data_migration_checkpoint} table.
+ */
+public final class ViewDefinitionsUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(ViewDefinitionsUpdater.class);
+    static final String CHECKPOINT_NAME = "afterMigrate";
+    private static final String SCRIPTS_LOCATION = "classpath*:alfio/db/PGSQL/afterMigrate__*.sql";
+
+    private ViewDefinitionsUpdater() {
+    }
+
+    public static void updateIfNeeded(JdbcTemplate jdbcTemplate, boolean migrationsApplied) {
+        var scripts = loadScripts();
+        var checksum = checksum(scripts);
+        var storedChecksum = jdbcTemplate.queryForList("select checksum from data_migration_checkpoint where name = ?", String.class, CHECKPOINT_NAME);
+        if(!migrationsApplied && storedChecksum.size() == 1 && checksum.equals(storedChecksum.get(0))) {
+            log.debug("view definitions are up to date");
+            return;
+        }
+        log.info("recreating views ({} scripts)", scripts.size());
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try(var statement = connection.createStatement()) {
+                for (String script : scripts) {
+                    statement.execute(script);
+                }
+                try(var insert = connection.prepareStatement("insert into data_migration_checkpoint(name, checksum, completed_ts) values(?, ?, now())" +
+                    " on conflict(name) do update set checksum = excluded.checksum, completed_ts = excluded.completed_ts")) {
+                    insert.setString(1, CHECKPOINT_NAME);
+                    insert.setString(2, checksum);
+                    insert.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    static List<String> loadScripts() {
+        try {
+            var resources = new PathMatchingResourcePatternResolver().getResources(SCRIPTS_LOCATION);
+            // same order used by Flyway for its callbacks
+            return Arrays.stream(resources)
+                .sorted(Comparator.comparing(r -> Objects.requireNonNull(r.getFilename())))
+                .map(ViewDefinitionsUpdater::read)
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String checksum(List<String> scripts) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            scripts.forEach(script -> digest.update(script.getBytes(StandardCharsets.UTF_8)));
+            return Hex.encodeHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String read(Resource resource) {
+        try(var in = resource.getInputStream()) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
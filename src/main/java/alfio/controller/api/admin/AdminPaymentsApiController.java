@@ -75,13 +75,14 @@ public class AdminPaymentsApiController {
     PageAndContent<List<ReservationPaymentDetail>> getPaymentsForPurchaseContext(@PathVariable("purchaseContextType") PurchaseContext.PurchaseContextType purchaseContextType,
                                                                                  @PathVariable("publicIdentifier") String publicIdentifier,
                                                                                  @RequestParam(value = "page", required = false) Integer page,
+                                                                                 @RequestParam(value = "after", required = false) String after,
                                                                                  @RequestParam(value = "search", required = false) String search,
                                                                                  Principal principal) {
         return purchaseContextManager.findBy(purchaseContextType, publicIdentifier)
             .filter(purchaseContext -> purchaseContextManager.validateAccess(purchaseContext, principal))
             .map(purchaseContext -> {
-                var res = purchaseContextSearchManager.findAllPaymentsFor(purchaseContext, page, search);
-                return new PageAndContent<>(res.getLeft(), res.getRight());
+                var res = purchaseContextSearchManager.findAllPaymentsFor(purchaseContext, page, after, search);
+                return new PageAndContent<>(res.results(), res.totalResults(), res.nextPageCursor(), res.totalEstimated());
             }).orElseGet(() -> new PageAndContent<>(List.of(), 0));
     }
 
@@ -29,7 +29,6 @@ import alfio.model.subscription.SubscriptionWithUsageDetails;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -87,13 +86,14 @@ public class AdminReservationApiController {
     public PageAndContent<List<TicketReservation>> findAll(@PathVariable("purchaseContextType") PurchaseContextType purchaseContextType,
                                                            @PathVariable("publicIdentifier") String publicIdentifier,
                                                            @RequestParam(value = "page", required = false) Integer page,
+                                                           @RequestParam(value = "after", required = false) String after,
                                                            @RequestParam(value = "search", required = false) String search,
                                                            @RequestParam(value = "status", required = false) List<TicketReservation.TicketReservationStatus> status) {
 
         return purchaseContextManager.findBy(purchaseContextType, publicIdentifier)
             .map(purchaseContext -> {
-                Pair<List<TicketReservation>, Integer> res = purchaseContextSearchManager.findAllReservationsFor(purchaseContext, page, search, status);
-                return new PageAndContent<>(res.getLeft(), res.getRight());
+                var res = purchaseContextSearchManager.findAllReservationsFor(purchaseContext, page, after, search, status);
+                return new PageAndContent<>(res.results(), res.totalResults(), res.nextPageCursor(), res.totalEstimated());
             }).orElseGet(() -> new PageAndContent<>(Collections.emptyList(), 0));
     }
 
@@ -32,7 +32,6 @@ import lombok.Getter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.time.DateUtils;
-import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -42,7 +41,6 @@ import org.springframework.web.bind.annotation.*;
 import javax.servlet.http.HttpServletResponse;
 import java.security.Principal;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static alfio.util.Wrappers.optionally;
 
@@ -137,15 +135,10 @@ public class CheckInApiController {
                                                            Principal principal) {
         String username = principal.getName();
         String auditUser = StringUtils.defaultIfBlank(offlineUser, username);
-        return ticketIdentifierCodes.stream()
-            .distinct()
-            .map(t -> {
-                TicketAndCheckInResult res = checkInManager.checkIn(eventName, t.getIdentifier(),
-                    Optional.ofNullable(t.getCode()),
-                    username, auditUser, forceCheckInPaymentOnSite);
-                return Pair.of(t.identifier, res);
-            })
-            .collect(Collectors.toMap(Pair::getKey, Pair::getValue));
+        // scanners may upload the same ticket more than once: the first code wins
+        Map<String, String> codesByIdentifier = new LinkedHashMap<>();
+        ticketIdentifierCodes.forEach(t -> codesByIdentifier.putIfAbsent(t.getIdentifier(), t.getCode()));
+        return checkInManager.bulkCheckIn(eventName, codesByIdentifier, username, auditUser, forceCheckInPaymentOnSite);
     }
 
     @PostMapping("/check-in/{eventId}/ticket/{ticketIdentifier}/manual-check-in")
@@ -216,13 +209,14 @@ public class CheckInApiController {
     public ResponseEntity<AttendeeSearchResults> searchAttendees(@PathVariable("publicIdentifier") String publicIdentifier,
                                                                  @RequestParam(value = "query", required = false) String query,
                                                                  @RequestParam(value = "page", required = false, defaultValue = "0") int page,
+                                                                 @RequestParam(value = "after", required = false) String after,
                                                                  Principal principal) {
         if (StringUtils.isBlank(query) || StringUtils.isBlank(publicIdentifier)) {
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         }
 
         return ResponseEntity.of(eventManager.getOptionalByName(publicIdentifier, principal.getName())
-            .map(event -> checkInManager.searchAttendees(event, query, page)));
+            .map(event -> checkInManager.searchAttendees(event, query, page, after)));
 
     }
 
@@ -19,7 +19,6 @@ package alfio.controller.api.admin;
 import alfio.controller.api.support.EventListItem;
 import alfio.controller.api.support.PageAndContent;
 import alfio.controller.api.support.TicketHelper;
-import alfio.controller.support.TemplateProcessor;
 import alfio.extension.exception.AlfioScriptingException;
 import alfio.manager.*;
 import alfio.manager.i18n.I18nManager;
@@ -46,16 +45,19 @@ import alfio.util.*;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvException;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StreamUtils;
 import org.springframework.validation.Errors;
 import org.springframework.web.bind.annotation.*;
 
@@ -78,8 +80,6 @@ import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import static alfio.util.Validator.*;
 import static alfio.util.Wrappers.optionally;
@@ -105,11 +105,9 @@ public class EventApiController {
     private final UserManager userManager;
     private final SponsorScanRepository sponsorScanRepository;
     private final PaymentManager paymentManager;
-    private final TemplateManager templateManager;
-    private final FileUploadManager fileUploadManager;
     private final ConfigurationManager configurationManager;
-    private final ExtensionManager extensionManager;
     private final ClockProvider clockProvider;
+    private final BillingDocumentExportManager billingDocumentExportManager;
 
     public EventApiController(EventManager eventManager,
                               EventStatisticsManager eventStatisticsManager,
@@ -122,11 +120,9 @@ public class EventApiController {
                               UserManager userManager,
                               SponsorScanRepository sponsorScanRepository,
                               PaymentManager paymentManager,
-                              TemplateManager templateManager,
-                              FileUploadManager fileUploadManager,
                               ConfigurationManager configurationManager,
-                              ExtensionManager extensionManager,
-                              ClockProvider clockProvider) {
+                              ClockProvider clockProvider,
+                              BillingDocumentExportManager billingDocumentExportManager) {
         this.eventManager = eventManager;
         this.eventStatisticsManager = eventStatisticsManager;
         this.i18nManager = i18nManager;
@@ -138,11 +134,9 @@ public class EventApiController {
         this.userManager = userManager;
         this.sponsorScanRepository = sponsorScanRepository;
         this.paymentManager = paymentManager;
-        this.templateManager = templateManager;
-        this.fileUploadManager = fileUploadManager;
         this.configurationManager = configurationManager;
-        this.extensionManager = extensionManager;
         this.clockProvider = clockProvider;
+        this.billingDocumentExportManager = billingDocumentExportManager;
     }
 
 
@@ -392,7 +386,8 @@ public class EventApiController {
         var username = principal.getName();
         var eInvoicingEnabled = configurationManager.isItalianEInvoicingEnabled(eventManager.getEventAndOrganizationId(eventName, username));
 
-        return eventManager.findAllConfirmedTicketsForCSV(eventName, username).stream().map(trs -> {
+        return eventManager.streamConfirmedTicketsForExport(eventName, username).map(p -> {
+            var trs = p.getLeft();
             Ticket t = trs.getTicket();
             var currencyCode = t.getCurrencyCode();
             TicketReservation reservation = trs.getTicketReservation();
@@ -432,8 +427,7 @@ public class EventApiController {
                 if(fields.contains("PEC")) {line.add(optionalInvoicingData.map(ItalianEInvoicing::getPec).orElse(""));}
             }
 
-            //obviously not optimized
-            Map<String, String> additionalValues = ticketFieldRepository.findAllValuesForTicketId(t.getId());
+            Map<String, String> additionalValues = p.getRight();
 
             Predicate<String> contains = FIXED_FIELDS::contains;
 
@@ -462,21 +456,24 @@ public class EventApiController {
         header.add("Lead Status");
         header.add("Operator");
 
+        // scans are already filtered by sponsor, and the additional field values are loaded in batches
         Stream<String[]> sponsorScans = userManager.findAllEnabledUsers(principal.getName()).stream()
-            .map(u -> Pair.of(u, userManager.getUserRole(u)))
-            .filter(p -> p.getRight() == Role.SPONSOR)
-            .flatMap(p -> sponsorScanRepository.loadSponsorData(event.getId(), p.getKey().getId(), SponsorScanRepository.DEFAULT_TIMESTAMP)
+            .filter(u -> userManager.getUserRole(u) == Role.SPONSOR)
+            .flatMap(u -> ListUtils.partition(sponsorScanRepository.loadSponsorData(event.getId(), u.getId(), SponsorScanRepository.DEFAULT_TIMESTAMP), eventManager.getExportBatchSize())
                 .stream()
-                .map(v -> Pair.of(v, ticketFieldRepository.findAllValuesForTicketId(v.getTicket().getId()))))
+                .flatMap(scans -> {
+                    var values = ticketFieldRepository.findAllValuesByTicketIdsGrouped(scans.stream().map(s -> s.getTicket().getId()).collect(Collectors.toSet()));
+                    return scans.stream().map(v -> Triple.of(u, v, values.getOrDefault(v.getTicket().getId(), Map.of())));
+                }))
             .map(p -> {
-                DetailedScanData data = p.getLeft();
+                DetailedScanData data = p.getMiddle();
                 Map<String, String> descriptions = p.getRight();
-                return Pair.of(data, fields.stream().map(x -> descriptions.getOrDefault(x.getName(), "")).toList());
+                return Triple.of(p.getLeft(), data, fields.stream().map(x -> descriptions.getOrDefault(x.getName(), "")).toList());
             }).map(p -> {
             List<String> line = new ArrayList<>();
-            Ticket ticket = p.getLeft().getTicket();
-            SponsorScan sponsorScan = p.getLeft().getSponsorScan();
-            User user = userManager.findUser(sponsorScan.getUserId(), principal);
+            Ticket ticket = p.getMiddle().getTicket();
+            SponsorScan sponsorScan = p.getMiddle().getSponsorScan();
+            User user = p.getLeft();
             line.add(user.getUsername());
             line.add(user.getDescription());
             line.add(sponsorScan.getTimestamp().toString());
@@ -672,42 +669,37 @@ public class EventApiController {
         response.setContentType("application/zip");
         response.setHeader("Content-Disposition", "attachment; filename=" + event.getShortName() + "-invoices.zip");
 
-        try(OutputStream os = response.getOutputStream(); ZipOutputStream zipOS = new ZipOutputStream(os)) {
-            ticketReservationManager.streamAllDocumentsFor(event.getId())
-                .forEach(pair -> {
-                    var reservation = pair.getLeft().getTicketReservation();
-                    for (BillingDocument document : pair.getRight()) {
-                        addPdfToZip(event, zipOS, reservation, document);
-                    }
-                });
+        try(OutputStream os = response.getOutputStream()) {
+            billingDocumentExportManager.writeAllDocuments(event, os);
         }
     }
 
-    private void addPdfToZip(Event event, ZipOutputStream zipOS, TicketReservation reservation, BillingDocument document) {
-        Map<String, Object> reservationModel = document.getModel();
-        Optional<byte[]> pdf;
-        var language = LocaleUtil.forLanguageTag(reservation.getUserLanguage());
-
-        pdf = switch (document.getType()) {
-            case CREDIT_NOTE ->
-                TemplateProcessor.buildCreditNotePdf(event, fileUploadManager, language, templateManager, reservationModel, extensionManager);
-            case RECEIPT ->
-                TemplateProcessor.buildReceiptPdf(event, fileUploadManager, language, templateManager, reservationModel, extensionManager);
-            default ->
-                TemplateProcessor.buildInvoicePdf(event, fileUploadManager, language, templateManager, reservationModel, extensionManager);
-        };
-
-        if (pdf.isPresent()) {
-            String fileName = FileUtil.getBillingDocumentFileName(event.getShortName(), reservation.getId(), document);
-            var entry = new ZipEntry(fileName);
-            entry.setTimeLocal(document.getGenerationTimestamp().withZoneSameInstant(event.getZoneId()).toLocalDateTime());
-            try {
-                zipOS.putNextEntry(entry);
-                StreamUtils.copy(pdf.get(), zipOS);
-            } catch (IOException e) {
-                throw new IllegalStateException(e);
-            }
-        }
+    @PostMapping("/events/{eventName}/all-documents/export")
+    public BillingDocumentExportManager.ExportStatus startDocumentsExport(@PathVariable("eventName") String eventName, Principal principal) {
+        Event event = loadEvent(eventName, principal);
+        return billingDocumentExportManager.startExport(event, principal.getName());
+    }
+
+    @GetMapping("/events/{eventName}/all-documents/export/{exportId}")
+    public ResponseEntity<BillingDocumentExportManager.ExportStatus> getDocumentsExportStatus(@PathVariable("eventName") String eventName,
+                                                                                           @PathVariable("exportId") String exportId,
+                                                                                           Principal principal) {
+        Event event = loadEvent(eventName, principal);
+        return ResponseEntity.of(billingDocumentExportManager.getStatus(exportId, event.getId(), principal.getName()));
+    }
+
+    @GetMapping("/events/{eventName}/all-documents/export/{exportId}/download")
+    public ResponseEntity<Resource> downloadDocumentsExport(@PathVariable("eventName") String eventName,
+                                                            @PathVariable("exportId") String exportId,
+                                                            Principal principal) {
+        Event event = loadEvent(eventName, principal);
+        // returning a Resource enables Range requests, so that interrupted downloads can be resumed
+        return billingDocumentExportManager.getExportedFile(exportId, event.getId(), principal.getName())
+            .map(path -> ResponseEntity.ok()
+                .contentType(MediaType.valueOf("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + event.getShortName() + "-invoices.zip")
+                .body((Resource) new FileSystemResource(path)))
+            .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @GetMapping("/events/{eventName}/all-documents-xls")
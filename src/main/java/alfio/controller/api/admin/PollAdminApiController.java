@@ -17,6 +17,7 @@
 package alfio.controller.api.admin;
 
 import alfio.manager.PollManager;
+import alfio.manager.PollStatisticsNotifier;
 import alfio.model.modification.PollModification;
 import alfio.model.poll.Poll;
 import alfio.model.poll.PollParticipant;
@@ -25,9 +26,14 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -35,10 +41,14 @@ import java.util.stream.Collectors;
 @RequestMapping("/admin/api/{eventName}/poll")
 public class PollAdminApiController {
 
+    private static final long STATISTICS_STREAM_TIMEOUT_MILLIS = 30 * 60 * 1000L;
     private final PollManager pollManager;
+    private final PollStatisticsNotifier pollStatisticsNotifier;
 
-    public PollAdminApiController(PollManager pollManager) {
+    public PollAdminApiController(PollManager pollManager,
+                                  PollStatisticsNotifier pollStatisticsNotifier) {
         this.pollManager = pollManager;
+        this.pollStatisticsNotifier = pollStatisticsNotifier;
     }
 
     @GetMapping
@@ -141,6 +151,51 @@ public class PollAdminApiController {
         return ResponseEntity.of(pollManager.getStatisticsFor(eventName, pollId));
     }
 
+    /**
+     * Pushes the statistics of the poll, as Server-Sent Events, every time a vote is registered.
+     * If this node cannot accept more subscribers, returns 503 and the client should keep polling
+     * {@link #getStatisticsForEvent(String, Long)}
+     */
+    @GetMapping(value = "/{pollId}/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    ResponseEntity<SseEmitter> streamStatistics(@PathVariable("eventName") String eventName,
+                                                @PathVariable("pollId") Long pollId) {
+        var emitter = new SseEmitter(STATISTICS_STREAM_TIMEOUT_MILLIS);
+        // subscribe before loading the current statistics, so that no vote can be lost
+        var optionalSubscription = pollStatisticsNotifier.subscribe(pollId,
+            () -> pollManager.getStatisticsFor(eventName, pollId),
+            statistics -> sendStatistics(emitter, statistics));
+        if(optionalSubscription.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        }
+        var subscription = optionalSubscription.get();
+        var currentStatistics = pollManager.getStatisticsFor(eventName, pollId);
+        if(currentStatistics.isEmpty()) {
+            subscription.cancel();
+            return ResponseEntity.notFound().build();
+        }
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        try {
+            sendStatistics(emitter, currentStatistics.get());
+        } catch (IOException e) {
+            subscription.cancel();
+            emitter.completeWithError(e);
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    private static void sendStatistics(SseEmitter emitter, PollStatistics statistics) throws IOException {
+        if(statistics == null) {
+            // poll has been deleted
+            emitter.complete();
+            return;
+        }
+        emitter.send(SseEmitter.event()
+            .name("statistics")
+            .data(statistics, MediaType.APPLICATION_JSON));
+    }
+
     static class UpdatePollStatusForm {
         private final Poll.PollStatus status;
 
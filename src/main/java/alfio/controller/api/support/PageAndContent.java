@@ -19,10 +19,18 @@ package alfio.controller.api.support;
 public class PageAndContent<T> {
     private final T left;
     private final Integer right;
+    private final String nextPageCursor;
+    private final boolean totalEstimated;
 
     public PageAndContent(T left, Integer right) {
+        this(left, right, null, false);
+    }
+
+    public PageAndContent(T left, Integer right, String nextPageCursor, boolean totalEstimated) {
         this.left = left;
         this.right = right;
+        this.nextPageCursor = nextPageCursor;
+        this.totalEstimated = totalEstimated;
     }
 
     public Integer getRight() {
@@ -32,4 +40,12 @@ public class PageAndContent<T> {
     public T getLeft() {
         return left;
     }
+
+    public String getNextPageCursor() {
+        return nextPageCursor;
+    }
+
+    public boolean isTotalEstimated() {
+        return totalEstimated;
+    }
 }
@@ -18,6 +18,7 @@ package alfio.controller.api.v1;
 
 import alfio.manager.AttendeeManager;
 import alfio.manager.support.SponsorAttendeeData;
+import alfio.manager.support.SponsorLeadsDelta;
 import alfio.manager.support.TicketAndCheckInResult;
 import alfio.model.SponsorScan;
 import alfio.model.result.Result;
@@ -100,6 +101,17 @@ public class AttendeeApiController {
         return attendeeManager.retrieveScannedAttendees(eventShortName, principal.getName(), start).map(ResponseEntity::ok).orElse(notFound());
     }
 
+    /**
+     * Incremental version of {@link #getScannedBadges(String, String, Principal)}: returns the leads created or modified
+     * since the given cursor, and the cursor to be used for the next call. Omit the cursor to retrieve all the leads.
+     */
+    @GetMapping("/{eventKey}/sponsor-scan/mine/changes")
+    public ResponseEntity<SponsorLeadsDelta> getChangedLeads(@PathVariable("eventKey") String eventShortName,
+                                                             @RequestParam(value = "cursor", required = false, defaultValue = "0") long cursor,
+                                                             Principal principal) {
+        return attendeeManager.retrieveChangedLeads(eventShortName, principal.getName(), cursor).map(ResponseEntity::ok).orElse(notFound());
+    }
+
     /**
      * API for external apps that load the ticket using its UUID. It is possible to retrieve a ticket only if <b>all</b> the following conditions are met:
      *
@@ -19,6 +19,7 @@ package alfio.controller.api.v1.admin;
 import alfio.manager.OrganizationDeleter;
 import alfio.manager.user.UserManager;
 import alfio.model.modification.OrganizationModification;
+import alfio.model.system.DataDeletionJob;
 import alfio.model.user.Organization;
 import alfio.model.user.Role;
 import alfio.model.user.User;
@@ -82,12 +83,17 @@ public class OrganizationsApiV1Controller {
     public ResponseEntity<Void> delete(@PathVariable("id") int organizationId, Principal principal) {
         boolean result = organizationDeleter.deleteOrganization(organizationId, principal);
         if (result) {
-            return ResponseEntity.ok().build();
+            return ResponseEntity.accepted().build();
         } else {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @GetMapping("/{id}/deletion")
+    public ResponseEntity<DataDeletionJob> getDeletionStatus(@PathVariable("id") int organizationId) {
+        return ResponseEntity.of(organizationDeleter.findDeletionJob(organizationId));
+    }
+
     static class OrganizationApiKey {
         private final int organizationId;
         private final String apiKey;
@@ -61,7 +61,6 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-import static alfio.model.PromoCodeDiscount.categoriesOrNull;
 import static alfio.model.system.ConfigurationKeys.*;
 import static java.util.stream.Collectors.*;
 
@@ -205,7 +204,7 @@ public class EventApiV2Controller {
                     if (specialCode.isPresent()) {
                         maxTickets = Math.min(1, maxTickets);
                     } else if (filteredPromoCode != null && filteredPromoCode.getMaxUsage() != null) {
-                        maxTickets = filteredPromoCode.getMaxUsage() - promoCodeRepository.countConfirmedPromoCode(filteredPromoCode.getId(), categoriesOrNull(filteredPromoCode), null, categoriesOrNull(filteredPromoCode) != null ? "X" : null);
+                        maxTickets = filteredPromoCode.getMaxUsage() - promoCodeRepository.getConfirmedUsage(filteredPromoCode.getId());
                     }
                     return new SaleableTicketCategory(category,
                         now, event, ticketReservationManager.countAvailableTickets(event, category), maxTickets,
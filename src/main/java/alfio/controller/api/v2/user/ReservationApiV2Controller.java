@@ -52,7 +52,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSourceResolvable;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -60,6 +62,7 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.Errors;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -81,8 +84,8 @@ import static java.util.stream.Collectors.toMap;
 public class ReservationApiV2Controller {
 
     private static final Logger log = LoggerFactory.getLogger(ReservationApiV2Controller.class);
+    private static final long STATUS_STREAM_TIMEOUT_MILLIS = 5 * 60 * 1000L;
 
-    private final EventManager eventManager;
     private final EventRepository eventRepository;
     private final TicketReservationManager ticketReservationManager;
     private final TicketReservationRepository ticketReservationRepository;
@@ -104,9 +107,9 @@ public class ReservationApiV2Controller {
     private final PublicUserManager publicUserManager;
     private final ReverseChargeManager reverseChargeManager;
     private final TicketCategoryRepository ticketCategoryRepository;
+    private final ReservationStatusNotifier reservationStatusNotifier;
 
-    public ReservationApiV2Controller(EventManager eventManager,
-                                      EventRepository eventRepository,
+    public ReservationApiV2Controller(EventRepository eventRepository,
                                       TicketReservationManager ticketReservationManager,
                                       TicketReservationRepository ticketReservationRepository,
                                       TicketFieldRepository ticketFieldRepository,
@@ -126,8 +129,8 @@ public class ReservationApiV2Controller {
                                       TicketRepository ticketRepository,
                                       PublicUserManager publicUserManager,
                                       ReverseChargeManager reverseChargeManager,
-                                      TicketCategoryRepository ticketCategoryRepository) {
-        this.eventManager = eventManager;
+                                      TicketCategoryRepository ticketCategoryRepository,
+                                      ReservationStatusNotifier reservationStatusNotifier) {
         this.eventRepository = eventRepository;
         this.ticketReservationManager = ticketReservationManager;
         this.ticketReservationRepository = ticketReservationRepository;
@@ -149,6 +152,7 @@ public class ReservationApiV2Controller {
         this.publicUserManager = publicUserManager;
         this.reverseChargeManager = reverseChargeManager;
         this.ticketCategoryRepository = ticketCategoryRepository;
+        this.reservationStatusNotifier = reservationStatusNotifier;
     }
 
     /**
@@ -162,8 +166,9 @@ public class ReservationApiV2Controller {
     })
     public ResponseEntity<ReservationInfo> getReservationInfo(@PathVariable("reservationId") String reservationId, Principal principal) {
 
-        Optional<ReservationInfo> res = purchaseContextManager.findByReservationId(reservationId).flatMap(purchaseContext -> ticketReservationManager.findById(reservationId).flatMap(reservation -> {
+        Optional<ReservationInfo> res = purchaseContextManager.findByReservationId(reservationId).flatMap(purchaseContext -> ticketReservationManager.findReservationInfoSnapshot(reservationId).flatMap(snapshot -> {
 
+            var reservation = snapshot.getReservation();
             validateAccessToReservation(principal, reservation);
 
             var orderSummary = ticketReservationManager.orderSummaryForReservationId(reservationId, purchaseContext);
@@ -174,7 +179,7 @@ public class ReservationApiV2Controller {
 
 
             // check if the user can cancel ticket
-            boolean hasPaidSupplement = ticketReservationManager.hasPaidSupplements(reservationId);
+            boolean hasPaidSupplement = snapshot.isPaidSupplements();
             //
 
             var ticketsInfo = purchaseContext.event().filter(e -> !ticketIds.isEmpty()).map(event -> {
@@ -188,16 +193,14 @@ public class ReservationApiV2Controller {
 
                 var ticketFieldsFilterer = bookingInfoTicketLoader.getTicketFieldsFilterer(reservationId, event);
                 var ticketsByCategory = tickets.stream().collect(Collectors.groupingBy(Ticket::getCategoryId));
-                //TODO: cleanup this transformation, we most likely don't need to fully load the ticket category
-                var ticketsInReservation = ticketsByCategory
-                    .entrySet()
+                var ticketsInReservation = snapshot.getCategories()
                     .stream()
-                    .map(e -> {
-                        var tc = eventManager.getTicketCategoryById(e.getKey(), event.getId());
-                        var ts = e.getValue().stream()
+                    .filter(tc -> ticketsByCategory.containsKey(tc.id()))
+                    .map(tc -> {
+                        var ts = ticketsByCategory.get(tc.id()).stream()
                             .map(t -> bookingInfoTicketLoader.toBookingInfoTicket(t, hasPaidSupplement, event, ticketFieldsFilterer, descriptionsByTicketFieldId, valuesByTicketIds, Map.of(), false))
                             .collect(Collectors.toList());
-                        return new TicketsByTicketCategory(tc.getName(), tc.getTicketAccessType(), ts);
+                        return new TicketsByTicketCategory(tc.name(), tc.ticketAccessType(), ts);
                     })
                     .collect(Collectors.toList());
                 return Pair.of(ticketsByCategory, ticketsInReservation);
@@ -206,7 +209,7 @@ public class ReservationApiV2Controller {
             var ticketsInReservation = ticketsInfo.map(Pair::getRight).orElse(List.of());
 
 
-            var additionalInfo = ticketReservationRepository.getAdditionalInfo(reservationId);
+            var additionalInfo = snapshot.getAdditionalInfo();
 
             var shortReservationId =  configurationManager.getShortReservationID(purchaseContext, reservation);
             //
@@ -214,12 +217,13 @@ public class ReservationApiV2Controller {
 
             var formattedExpirationDate = reservation.getValidity() != null ? formatDateForLocales(purchaseContext, ZonedDateTime.ofInstant(reservation.getValidity().toInstant(), purchaseContext.getZoneId()), "datetime.pattern") : null;
 
-            var paymentToken = paymentManager.getPaymentToken(reservationId);
+            // the transaction is loaded only if it contains a payment token
+            var paymentToken = snapshot.isPendingPaymentToken() ? paymentManager.getPaymentToken(reservationId) : Optional.<PaymentToken>empty();
             boolean tokenAcquired = paymentToken.isPresent();
             PaymentProxy selectedPaymentProxy = paymentToken.map(PaymentToken::getPaymentProvider).orElse(null);
 
             //
-            var containsCategoriesLinkedToGroups = purchaseContext.event().map(event -> ticketReservationManager.containsCategoriesLinkedToGroups(reservationId, event.getId())).orElse(false);
+            var containsCategoriesLinkedToGroups = purchaseContext.event().isPresent() && snapshot.isLinkedToGroups();
             //
             List<ReservationInfo.SubscriptionInfo> subscriptionInfos = null;
             if (purchaseContext.ofType(PurchaseContextType.subscription)) {
@@ -258,9 +262,9 @@ public class ReservationApiV2Controller {
                 additionalInfo.getBillingDetails(),
                 //
                 containsCategoriesLinkedToGroups,
-                getActivePaymentMethods(purchaseContext, ticketsByCategory.keySet(), orderSummary, reservationId),
+                getActivePaymentMethods(purchaseContext, ticketsByCategory.keySet(), orderSummary, additionalInfo.getBillingDetails()),
                 subscriptionInfos,
-                ticketReservationRepository.getMetadata(reservationId)
+                snapshot.getMetadata()
                 ));
         }));
 
@@ -271,10 +275,10 @@ public class ReservationApiV2Controller {
     private Map<PaymentMethod, PaymentProxyWithParameters> getActivePaymentMethods(PurchaseContext purchaseContext,
                                                                                    Collection<Integer> categoryIds,
                                                                                    OrderSummary orderSummary,
-                                                                                   String reservationId) {
+                                                                                   BillingDetails billingDetails) {
         if(!purchaseContext.isFreeOfCharge()) {
             var blacklistedMethodsForReservation = configurationManager.getBlacklistedMethodsForReservation(purchaseContext, categoryIds);
-            return paymentManager.getPaymentMethods(purchaseContext, new TransactionRequest(orderSummary.getOriginalTotalPrice(), ticketReservationRepository.getBillingDetailsForReservation(reservationId)))
+            return paymentManager.getPaymentMethods(purchaseContext, new TransactionRequest(orderSummary.getOriginalTotalPrice(), billingDetails))
                 .stream()
                 .filter(p -> !blacklistedMethodsForReservation.contains(p.getPaymentMethod()))
                 .filter(p -> TicketReservationManager.isValidPaymentMethod(p, purchaseContext, configurationManager))
@@ -295,6 +299,48 @@ public class ReservationApiV2Controller {
         return res.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Pushes the status of the reservation, as Server-Sent Events, every time it changes.
+     * If this node cannot accept more subscribers, returns 503 and the client should keep polling
+     * {@link #getReservationStatus(String)}
+     */
+    @GetMapping(value = "/reservation/{reservationId}/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamReservationStatus(@PathVariable("reservationId") String reservationId) {
+        var emitter = new SseEmitter(STATUS_STREAM_TIMEOUT_MILLIS);
+        // subscribe before loading the current status, so that no change can be lost
+        var optionalSubscription = reservationStatusNotifier.subscribe(reservationId, status -> sendStatus(emitter, status));
+        if(optionalSubscription.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        }
+        var subscription = optionalSubscription.get();
+        var currentStatus = ticketReservationRepository.findOptionalStatusAndValidationById(reservationId);
+        if(currentStatus.isEmpty()) {
+            subscription.cancel();
+            return ResponseEntity.notFound().build();
+        }
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        try {
+            sendStatus(emitter, currentStatus.get());
+        } catch (IOException e) {
+            subscription.cancel();
+            emitter.completeWithError(e);
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    private static void sendStatus(SseEmitter emitter, TicketReservationStatusAndValidation status) throws IOException {
+        if(status == null) {
+            // reservation has been deleted
+            emitter.complete();
+            return;
+        }
+        emitter.send(SseEmitter.event()
+            .name("status")
+            .data(new ReservationStatusInfo(status.getStatus(), Boolean.TRUE.equals(status.getValidated())), MediaType.APPLICATION_JSON));
+    }
+
 
     @DeleteMapping({
         "/reservation/{reservationId}",
@@ -58,12 +58,15 @@ import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static alfio.util.EventUtil.firstMatchingCallLink;
 
 @RestController
 public class TicketApiV2Controller {
 
+    private static final int QR_CODE_SVG_SIZE = 200;
+
     private final TicketHelper ticketHelper;
     private final TicketReservationManager ticketReservationManager;
     private final TicketCategoryRepository ticketCategoryRepository;
@@ -113,6 +116,20 @@ public class TicketApiV2Controller {
     })
     public void showQrCode(@PathVariable("eventName") String eventName,
                            @PathVariable("ticketIdentifier") String ticketIdentifier, HttpServletResponse response) throws IOException {
+        writeQrCode(eventName, ticketIdentifier, response, "image/png", ImageUtil::createQRCode);
+    }
+
+    @GetMapping("/api/v2/public/event/{eventName}/ticket/{ticketIdentifier}/code.svg")
+    public void showQrCodeSvg(@PathVariable("eventName") String eventName,
+                              @PathVariable("ticketIdentifier") String ticketIdentifier, HttpServletResponse response) throws IOException {
+        writeQrCode(eventName, ticketIdentifier, response, "image/svg+xml", qrCodeText -> ImageUtil.createQRCodeSvg(qrCodeText, QR_CODE_SVG_SIZE));
+    }
+
+    private void writeQrCode(String eventName,
+                             String ticketIdentifier,
+                             HttpServletResponse response,
+                             String contentType,
+                             Function<String, byte[]> qrCodeGenerator) throws IOException {
         var oData = ticketReservationManager.fetchCompleteAndAssigned(eventName, ticketIdentifier);
         if (oData.isEmpty()) {
             response.sendError(HttpServletResponse.SC_FORBIDDEN);
@@ -123,10 +140,10 @@ public class TicketApiV2Controller {
 
         String qrCodeText = ticket.ticketCode(event.getPrivateKey(), event.supportsQRCodeCaseInsensitive());
 
-        response.setContentType("image/png");
+        response.setContentType(contentType);
 
         try (var os = response.getOutputStream()) {
-            os.write(ImageUtil.createQRCode(qrCodeText));
+            os.write(qrCodeGenerator.apply(qrCodeText));
             response.flushBuffer();
         }
     }
@@ -0,0 +1,32 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.controller.support;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the {@code alfio.pdf.maxConcurrentRenderings} property to the shared {@link PdfRenderingEngine}.
+ */
+@Component
+public class PdfRenderingConfigurer {
+
+    public PdfRenderingConfigurer(Environment environment) {
+        PdfRenderingEngine.setMaxConcurrentRenderings(environment.getProperty("alfio.pdf.maxConcurrentRenderings",
+            Integer.class, PdfRenderingEngine.DEFAULT_MAX_CONCURRENT_RENDERINGS));
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.controller.support;
+
+import ch.digitalfondue.jfiveparse.Parser;
+import ch.digitalfondue.jfiveparse.W3CDom;
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.extend.FSStreamFactory;
+import com.openhtmltopdf.extend.FSSupplier;
+import com.openhtmltopdf.pdfboxout.PdfBoxFontResolver;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared HTML to PDF rendering engine.
+ * <p>
+ * Fonts and internal resources are loaded once and kept in memory, documents are buffered in memory up to {@link #MAX_MAIN_MEMORY_BYTES}
+ * and the number of concurrent renderings is limited, so that a burst of PDF generations (e.g. bulk exports)
+ * cannot monopolize the CPU. The limit can be configured using the {@code alfio.pdf.maxConcurrentRenderings}
+ * property, see {@link PdfRenderingConfigurer}.
+ */
+final class PdfRenderingEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfRenderingEngine.class);
+    static final long MAX_MAIN_MEMORY_BYTES = 4L * 1024 * 1024;
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 60;
+    private static final String DEJA_VU_SANS = "/alfio/font/DejaVuSansMono.ttf";
+    static final int DEFAULT_MAX_CONCURRENT_RENDERINGS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static volatile Semaphore permits = new Semaphore(DEFAULT_MAX_CONCURRENT_RENDERINGS, true);
+    // resources referenced by the templates using the "alfio-internal" protocol (i.e. fonts)
+    private static final Map<String, byte[]> INTERNAL_RESOURCES = new ConcurrentHashMap<>();
+
+    private PdfRenderingEngine() {
+    }
+
+    static void setMaxConcurrentRenderings(int maxConcurrentRenderings) {
+        permits = new Semaphore(Math.max(1, maxConcurrentRenderings), true);
+    }
+
+    static void render(String page, OutputStream os) throws IOException {
+        // keep a reference, so that the permit is released to the same semaphore it was acquired from
+        Semaphore currentPermits = permits;
+        acquirePermit(currentPermits);
+        try {
+            PdfRendererBuilder builder = new PdfRendererBuilder();
+            // documents are kept in memory unless they become too big. In that case, a temp file is used.
+            PDDocument doc = new PDDocument(MemoryUsageSetting.setupMixed(MAX_MAIN_MEMORY_BYTES));
+            builder.usePDDocument(doc);
+            builder.toStream(os);
+            builder.useProtocolsStreamImplementation(new AlfioInternalFSStreamFactory(), "alfio-internal");
+            builder.useProtocolsStreamImplementation(new InvalidProtocolFSStreamFactory(), "http", "https", "file", "jar");
+            builder.useFastMode();
+            builder.usePdfUaAccessbility(true);
+            builder.usePdfAConformance(PdfRendererBuilder.PdfAConformance.PDFA_3_U);
+            builder.withW3cDocument(W3CDom.toW3CDocument(new Parser().parse(page)), "");
+            try (PdfBoxRenderer renderer = builder.buildPdfRenderer()) {
+                byte[] defaultFont = FontHolder.DEJA_VU_SANS_MONO;
+                if (defaultFont != null) {
+                    FSSupplier<InputStream> fontSupplier = () -> new ByteArrayInputStream(defaultFont);
+                    renderer.getFontResolver().addFont(fontSupplier, "DejaVu Sans Mono", null, null, false, PdfBoxFontResolver.FontGroup.MAIN);
+                }
+                renderer.layout();
+                renderer.createPDF();
+            }
+        } finally {
+            currentPermits.release();
+        }
+    }
+
+    static int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private static void acquirePermit(Semaphore currentPermits) throws IOException {
+        try {
+            if (!currentPermits.tryAcquire(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("Timeout while waiting for a free PDF rendering slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free PDF rendering slot");
+        }
+    }
+
+    private static byte[] loadInternalResource(String name) {
+        try (InputStream is = new ClassPathResource("/alfio/font/" + name).getInputStream()) {
+            return is.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] loadFont(String classPathResource) {
+        try (InputStream is = new ClassPathResource(classPathResource).getInputStream()) {
+            return is.readAllBytes();
+        } catch (IOException e) {
+            log.warn("error while loading font {}", classPathResource, e);
+            return null;
+        }
+    }
+
+    /**
+     * Font data is loaded lazily, the first time a PDF is rendered, then shared between all renderings.
+     */
+    private static final class FontHolder {
+        private static final byte[] DEJA_VU_SANS_MONO = loadFont(DEJA_VU_SANS);
+    }
+
+    private static class AlfioInternalFSStreamFactory implements FSStreamFactory {
+
+        @Override
+        public FSStream getUrl(String url) {
+            return new FSStream() {
+                @Override
+                public InputStream getStream() {
+                    String urlWithoutProtocol = url.substring("alfio-internal:/".length());
+                    byte[] content = INTERNAL_RESOURCES.computeIfAbsent(urlWithoutProtocol, PdfRenderingEngine::loadInternalResource);
+                    return new ByteArrayInputStream(content);
+                }
+
+                @Override
+                public Reader getReader() {
+                    return new InputStreamReader(getStream(), StandardCharsets.UTF_8);
+                }
+            };
+        }
+    }
+
+    private static class InvalidProtocolFSStreamFactory implements FSStreamFactory {
+
+        @Override
+        public FSStream getUrl(String url) {
+            throw new IllegalStateException(new TemplateProcessor.TemplateAccessException("Protocol for resource '" + url + "' is not supported"));
+        }
+    }
+}
@@ -25,22 +25,10 @@ import alfio.model.subscription.Subscription;
 import alfio.model.subscription.SubscriptionDescriptor;
 import alfio.model.user.Organization;
 import alfio.util.EventUtil;
-import alfio.util.ImageUtil;
 import alfio.util.TemplateManager;
 import alfio.util.TemplateResource;
-import ch.digitalfondue.jfiveparse.Parser;
-import ch.digitalfondue.jfiveparse.W3CDom;
-import com.openhtmltopdf.extend.FSStream;
-import com.openhtmltopdf.extend.FSStreamFactory;
-import com.openhtmltopdf.pdfboxout.PdfBoxFontResolver;
-import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
-import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
-import org.apache.pdfbox.io.MemoryUsageSetting;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.springframework.core.io.ClassPathResource;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -136,58 +124,7 @@ public final class TemplateProcessor {
         if(extensionManager.handlePdfTransformation(page, purchaseContext, os)) {
             return;
         }
-        PdfRendererBuilder builder = new PdfRendererBuilder();
-        PDDocument doc = new PDDocument(MemoryUsageSetting.setupTempFileOnly());
-        builder.usePDDocument(doc);
-        builder.toStream(os);
-        builder.useProtocolsStreamImplementation(new AlfioInternalFSStreamFactory(), "alfio-internal");
-        builder.useProtocolsStreamImplementation(new InvalidProtocolFSStreamFactory(), "http", "https", "file", "jar");
-        builder.useFastMode();
-        builder.usePdfUaAccessbility(true);
-        builder.usePdfAConformance(PdfRendererBuilder.PdfAConformance.PDFA_3_U);
-
-        var parser = new Parser();
-
-        builder.withW3cDocument(W3CDom.toW3CDocument(parser.parse(page)), "");
-        try (PdfBoxRenderer renderer = builder.buildPdfRenderer()) {
-            File defaultFont = ImageUtil.getDejaVuSansMonoFont();
-            if (defaultFont != null) {
-                renderer.getFontResolver().addFont(defaultFont, "DejaVu Sans Mono", null, null, false, PdfBoxFontResolver.FontGroup.MAIN);
-            }
-            renderer.layout();
-            renderer.createPDF();
-        }
-    }
-
-    private static class AlfioInternalFSStreamFactory implements FSStreamFactory {
-
-        @Override
-        public FSStream getUrl(String url) {
-            return new FSStream() {
-                @Override
-                public InputStream getStream() {
-                    String urlWithoutProtocol = url.substring("alfio-internal:/".length());
-                    try {
-                        return new ClassPathResource("/alfio/font/" + urlWithoutProtocol).getInputStream();
-                    } catch (IOException e) {
-                        throw new IllegalStateException(e);
-                    }
-                }
-
-                @Override
-                public Reader getReader() {
-                    return new InputStreamReader(getStream(), StandardCharsets.UTF_8);
-                }
-            };
-        }
-    }
-
-    private static class InvalidProtocolFSStreamFactory implements FSStreamFactory {
-
-        @Override
-        public FSStream getUrl(String url) {
-            throw new IllegalStateException(new TemplateAccessException("Protocol for resource '" + url + "' is not supported"));
-        }
+        PdfRenderingEngine.render(page, os);
     }
 
     public static class TemplateAccessException  extends IllegalStateException {
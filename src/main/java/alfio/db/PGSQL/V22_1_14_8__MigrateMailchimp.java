@@ -28,6 +28,7 @@ import ch.digitalfondue.npjt.Query;
 import ch.digitalfondue.npjt.QueryFactory;
 import org.flywaydb.core.api.migration.BaseJavaMigration;
 import org.flywaydb.core.api.migration.Context;
+import org.springframework.core.env.StandardEnvironment;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -74,7 +75,8 @@ public class V22_1_14_8__MigrateMailchimp extends BaseJavaMigration {
             extensionLogRepository,
             new DataSourceTransactionManager(dataSource),
             new ExternalConfiguration(),
-            new NamedParameterJdbcTemplate(jdbcTemplate));
+            new NamedParameterJdbcTemplate(jdbcTemplate),
+            new StandardEnvironment());
 
         extensionService.createOrUpdate(null, null, new Extension("-", "mailchimp", getMailChimpScript(), true));
 
@@ -0,0 +1,144 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.extension;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Collects the asynchronous extension events raised during a transaction and hands them over to the dispatcher
+ * once the transaction has been committed.
+ * <p>
+ * Events raised within a rolled back transaction (or after a rollback to savepoint) are discarded, since the
+ * changes they describe have not been persisted. Savepoints are tracked by {@code DataSourceConfiguration}.
+ */
+public class ExtensionEventBuffer implements TransactionSynchronization {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtensionEventBuffer.class);
+
+    private final List<PendingEvent> pending = new ArrayList<>();
+    private final Map<Object, Integer> savepointMarks = new LinkedHashMap<>();
+    private Consumer<List<PendingEvent>> dispatcher;
+    private boolean completed = false;
+
+    private ExtensionEventBuffer() {
+    }
+
+    /**
+     * Adds the given event to the buffer bound to the current transaction.
+     *
+     * @return {@code false} if there is no active transaction, and therefore the event must be dispatched immediately
+     */
+    public static boolean enqueue(PendingEvent event, Consumer<List<PendingEvent>> dispatcher) {
+        var buffer = currentBuffer(true);
+        if(buffer == null || buffer.completed) {
+            return false;
+        }
+        buffer.dispatcher = dispatcher;
+        buffer.pending.add(event);
+        return true;
+    }
+
+    public static void savepointCreated(Object savepoint) {
+        var buffer = currentBuffer(true);
+        if(buffer != null) {
+            buffer.savepointMarks.put(savepoint, buffer.pending.size());
+        }
+    }
+
+    public static void rolledBackToSavepoint(Object savepoint) {
+        var buffer = currentBuffer(false);
+        if(buffer == null) {
+            return;
+        }
+        Integer mark = buffer.savepointMarks.get(savepoint);
+        if(mark == null) {
+            return;
+        }
+        if(mark < buffer.pending.size()) {
+            log.trace("discarding {} extension events after rollback to savepoint", buffer.pending.size() - mark);
+            buffer.pending.subList(mark, buffer.pending.size()).clear();
+        }
+        // savepoints created after the given one are not valid anymore
+        boolean found = false;
+        for (Iterator<Object> iterator = buffer.savepointMarks.keySet().iterator(); iterator.hasNext();) {
+            var key = iterator.next();
+            if(found) {
+                iterator.remove();
+            }
+            found = found || key == savepoint;
+        }
+    }
+
+    public static void savepointReleased(Object savepoint) {
+        var buffer = currentBuffer(false);
+        if(buffer != null) {
+            buffer.savepointMarks.remove(savepoint);
+        }
+    }
+
+    private static ExtensionEventBuffer currentBuffer(boolean create) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive() || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if(synchronization instanceof ExtensionEventBuffer) {
+                return (ExtensionEventBuffer) synchronization;
+            }
+        }
+        if(!create) {
+            return null;
+        }
+        var buffer = new ExtensionEventBuffer();
+        TransactionSynchronizationManager.registerSynchronization(buffer);
+        return buffer;
+    }
+
+    @Override
+    public void afterCommit() {
+        completed = true;
+        if(pending.isEmpty()) {
+            return;
+        }
+        var events = List.copyOf(pending);
+        pending.clear();
+        log.trace("dispatching {} extension events", events.size());
+        dispatcher.accept(events);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        completed = true;
+        if(status != STATUS_COMMITTED && !pending.isEmpty()) {
+            log.trace("discarding {} extension events after rollback", pending.size());
+        }
+        pending.clear();
+        savepointMarks.clear();
+    }
+
+    public record PendingEvent(String event, String basePath, Map<String, Object> payload) {
+    }
+}
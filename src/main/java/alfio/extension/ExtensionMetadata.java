@@ -31,6 +31,10 @@ public class ExtensionMetadata {
     private final String displayName;
     private final Integer version;
     private final boolean async;
+    /**
+     * if true, the asynchronous events raised within the same transaction are delivered with a single invocation
+     */
+    private final boolean batch;
     private final List<String> events;
     private final Parameters parameters;
     private final List<String> capabilities;
@@ -41,6 +45,7 @@ public class ExtensionMetadata {
                              @JsonProperty("displayName") String displayName,
                              @JsonProperty("version") Integer version,
                              @JsonProperty("async") boolean async,
+                             @JsonProperty("batch") boolean batch,
                              @JsonProperty("events") List<String> events,
                              @JsonProperty("parameters") Parameters parameters,
                              @JsonProperty("capabilities") List<String> capabilities,
@@ -49,6 +54,7 @@ public class ExtensionMetadata {
         this.displayName = displayName;
         this.version = version;
         this.async = async;
+        this.batch = batch;
         this.events = requireNonNullElse(events, List.of());
         this.parameters = parameters;
         this.capabilities = requireNonNullElse(capabilities, List.of());
@@ -17,6 +17,7 @@
 
 package alfio.extension;
 
+import alfio.extension.ExtensionEventBuffer.PendingEvent;
 import alfio.manager.support.extension.ExtensionCapability;
 import alfio.manager.support.extension.ExtensionEvent;
 import alfio.manager.system.ExternalConfiguration;
@@ -29,6 +30,9 @@ import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -51,6 +55,8 @@ import static java.util.stream.Collectors.toSet;
 @Service
 public class ExtensionService {
 
+    private static final Logger log = LoggerFactory.getLogger(ExtensionService.class);
+
     private static final String EVALUATE_RESULT = "res = GSON.fromJson(JSON.stringify(res), returnClass);";
     private static final String PROCESS_EXTENSION_RESULT  = "var res = executeScript(extensionEvent); " + EVALUATE_RESULT;
     private static final String PROCESS_CAPABILITY_RESULT = "var res = executeCapability(capability); " + EVALUATE_RESULT;
@@ -58,6 +64,7 @@ public class ExtensionService {
     private static final String OUTPUT = "output";
     private static final String EXECUTION_KEY = "executionKey";
     private static final String EXTENSION_EVENT = "extensionEvent";
+    private static final String BATCH_EVENTS = "events";
 
     private final ScriptingExecutionService scriptingExecutionService;
     private final ExtensionRepository extensionRepository;
@@ -65,19 +72,22 @@ public class ExtensionService {
     private final PlatformTransactionManager platformTransactionManager;
     private final ExternalConfiguration externalConfiguration;
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final int maxBatchSize;
 
     public ExtensionService(ScriptingExecutionService scriptingExecutionService,
                             ExtensionRepository extensionRepository,
                             ExtensionLogRepository extensionLogRepository,
                             PlatformTransactionManager platformTransactionManager,
                             ExternalConfiguration externalConfiguration,
-                            NamedParameterJdbcTemplate jdbcTemplate) {
+                            NamedParameterJdbcTemplate jdbcTemplate,
+                            Environment environment) {
         this.scriptingExecutionService = scriptingExecutionService;
         this.extensionRepository = extensionRepository;
         this.extensionLogRepository = extensionLogRepository;
         this.platformTransactionManager = platformTransactionManager;
         this.externalConfiguration = externalConfiguration;
         this.jdbcTemplate = jdbcTemplate;
+        this.maxBatchSize = environment.getProperty("alfio.extensions.maxBatchSize", Integer.class, 500);
     }
 
 
@@ -152,6 +162,8 @@ public class ExtensionService {
 
         Validate.notBlank(extensionMetadata.getDisplayName(), "Display Name is mandatory");
 
+        Validate.isTrue(extensionMetadata.isAsync() || !extensionMetadata.isBatch(), "Only asynchronous extensions can receive events in batch");
+
         validateCapabilities(extensionMetadata);
 
         if(previousPath != null && previousName != null) {
@@ -334,13 +346,84 @@ public class ExtensionService {
         return clazz.cast(context.get(OUTPUT));
     }
 
+    /**
+     * Schedules the asynchronous execution of the scripts registered for the given event.
+     * If there is an active transaction, the event is delivered only after commit, together with the other events
+     * raised within the same transaction.
+     */
     public void executeScriptAsync(String event, String basePath, Map<String, Object> payload) {
-        List<ScriptPathNameHash> activePaths = getActiveScriptsForEvent(event, basePath, true);
-        Map<String, Object> input = new HashMap<>(payload);
-        input.put(EXTENSION_EVENT, event);
-        input.put(EXECUTION_KEY, UUID.randomUUID().toString());
-        for (ScriptPathNameHash activePath : activePaths) {
-            input = internalExecuteScript(activePath, input, basePath, true, EXECUTE_SCRIPT, Void.class);
+        var pendingEvent = new PendingEvent(event, basePath, payload);
+        if(!ExtensionEventBuffer.enqueue(pendingEvent, this::dispatchAfterCommit)) {
+            dispatchAsyncEvents(List.of(pendingEvent));
+        }
+    }
+
+    private void dispatchAfterCommit(List<PendingEvent> events) {
+        // the committed transaction is still bound to the current thread, so we need a new one for retrieving the scripts
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        definition.setReadOnly(true);
+        try {
+            new TransactionTemplate(platformTransactionManager, definition).executeWithoutResult(status -> dispatchAsyncEvents(events));
+        } catch(Exception e) {
+            // the original transaction has already been committed, so we must not propagate the error to the caller
+            log.error("cannot dispatch {} extension events", events.size(), e);
+        }
+    }
+
+    /**
+     * Dispatches the given events, grouped by event and path.
+     * Scripts which declare {@code batch: true} in their metadata are invoked once per group with the list of payloads,
+     * the other ones are invoked once per event.
+     */
+    void dispatchAsyncEvents(List<PendingEvent> events) {
+        var groups = events.stream()
+            .collect(Collectors.groupingBy(e -> Pair.of(e.event(), e.basePath()), LinkedHashMap::new, Collectors.toList()));
+        groups.forEach((key, groupEvents) -> {
+            var event = key.getLeft();
+            var basePath = key.getRight();
+            List<ScriptPathNameHash> activePaths = getActiveScriptsForEvent(event, basePath, true);
+            if(activePaths.isEmpty()) {
+                return;
+            }
+            var inputs = groupEvents.stream()
+                .map(e -> {
+                    Map<String, Object> input = new HashMap<>(e.payload());
+                    input.put(EXTENSION_EVENT, event);
+                    input.put(EXECUTION_KEY, UUID.randomUUID().toString());
+                    return input;
+                })
+                .collect(Collectors.toList());
+            for (ScriptPathNameHash activePath : activePaths) {
+                var params = addExtensionParameters(Map.of(), basePath, activePath);
+                if(activePath.isBatch()) {
+                    for (int i = 0; i < inputs.size(); i += maxBatchSize) {
+                        Map<String, Object> input = new HashMap<>();
+                        input.put(EXTENSION_EVENT, event);
+                        input.put(EXECUTION_KEY, UUID.randomUUID().toString());
+                        input.put(BATCH_EVENTS, List.copyOf(inputs.subList(i, Math.min(i + maxBatchSize, inputs.size()))));
+                        executeAsync(activePath, input, basePath, params);
+                    }
+                } else {
+                    inputs.forEach(input -> executeAsync(activePath, input, basePath, params));
+                }
+            }
+        });
+    }
+
+    private void executeAsync(ScriptPathNameHash activePath,
+                              Map<String, Object> input,
+                              String basePath,
+                              Pair<Set<String>, Map<String, Object>> params) {
+        String path = activePath.getPath();
+        String name = activePath.getName();
+        ExtensionLogger extLogger = new ExtensionLoggerImpl(extensionLogRepository, platformTransactionManager, basePath, path, name);
+        if(params.getLeft().isEmpty()) {
+            Map<String, Object> context = new HashMap<>(input);
+            context.put(EXTENSION_CONFIGURATION_PARAMETERS, params.getRight().get(EXTENSION_CONFIGURATION_PARAMETERS));
+            Supplier<String> scriptGetter = () -> getScript(path, name)+"\n;"+EXECUTE_SCRIPT;
+            scriptingExecutionService.executeScriptAsync(path, name, activePath.getHash(), scriptGetter, context, extLogger);
+        } else {
+            extLogger.logWarning("script not run, missing parameters: " + params.getLeft());
         }
     }
 
@@ -20,6 +20,7 @@ import alfio.config.Initializer;
 import alfio.manager.*;
 import alfio.manager.system.AdminJobExecutor;
 import alfio.manager.system.AdminJobManager;
+import alfio.manager.system.DataDeletionManager;
 import org.apache.commons.lang3.time.DateUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
@@ -29,6 +30,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.Date;
 import java.util.Map;
 
@@ -51,6 +53,7 @@ public class Jobs {
     private static final int FIVE_SECONDS = 1000 * 5;
     private static final int THIRTY_MINUTES = 30 * ONE_MINUTE;
     private static final String EVERY_HOUR = "0 0 0/1 * * ?";
+    private static final String EVERY_NIGHT = "0 30 2 * * ?";
 
     private final AdminReservationRequestManager adminReservationRequestManager;
     private final FileUploadManager fileUploadManager;
@@ -59,6 +62,9 @@ public class Jobs {
     private final TicketReservationManager ticketReservationManager;
     private final WaitingQueueSubscriptionProcessor waitingQueueSubscriptionProcessor;
     private final AdminJobManager adminJobManager;
+    private final AuditingArchiveManager auditingArchiveManager;
+    private final ExpiredReservationSweeper expiredReservationSweeper;
+    private final DataDeletionManager dataDeletionManager;
 
     public Jobs(AdminReservationRequestManager adminReservationRequestManager,
                 FileUploadManager fileUploadManager,
@@ -66,7 +72,10 @@ public class Jobs {
                 SpecialPriceTokenGenerator specialPriceTokenGenerator,
                 TicketReservationManager ticketReservationManager,
                 WaitingQueueSubscriptionProcessor waitingQueueSubscriptionProcessor,
-                AdminJobManager adminJobManager) {
+                AdminJobManager adminJobManager,
+                AuditingArchiveManager auditingArchiveManager,
+                ExpiredReservationSweeper expiredReservationSweeper,
+                DataDeletionManager dataDeletionManager) {
         this.adminReservationRequestManager = adminReservationRequestManager;
         this.fileUploadManager = fileUploadManager;
         this.notificationManager = notificationManager;
@@ -74,6 +83,9 @@ public class Jobs {
         this.ticketReservationManager = ticketReservationManager;
         this.waitingQueueSubscriptionProcessor = waitingQueueSubscriptionProcessor;
         this.adminJobManager = adminJobManager;
+        this.auditingArchiveManager = auditingArchiveManager;
+        this.expiredReservationSweeper = expiredReservationSweeper;
+        this.dataDeletionManager = dataDeletionManager;
     }
 
 
@@ -175,7 +187,7 @@ public class Jobs {
         try {
             //cleanup reservation that have a expiration older than "now minus 10 minutes": this give some additional slack.
             final Date expirationDate = DateUtils.addMinutes(new Date(), -10);
-            ticketReservationManager.cleanupExpiredReservations(expirationDate);
+            expiredReservationSweeper.sweep(expirationDate);
             ticketReservationManager.cleanupExpiredOfflineReservations(expirationDate);
             ticketReservationManager.markExpiredInPaymentReservationAsStuck(expirationDate);
         } finally {
@@ -194,6 +206,27 @@ public class Jobs {
         }
     }
 
+    @Scheduled(fixedDelay = FIVE_SECONDS)
+    public void processDataDeletionJobs() {
+        log.trace("running job processDataDeletionJobs");
+        try {
+            // the time budget is short, as the scheduler thread is shared with the other jobs
+            dataDeletionManager.processPendingJobs(Duration.ofSeconds(5));
+        } finally {
+            log.trace("end job processDataDeletionJobs");
+        }
+    }
+
+    @Scheduled(cron = EVERY_NIGHT)
+    public void archiveAuditing() {
+        log.trace("running job archiveAuditing");
+        try {
+            auditingArchiveManager.archiveAndPurge();
+        } finally {
+            log.trace("end job archiveAuditing");
+        }
+    }
+
     @Scheduled(fixedRateString = "#{environment.acceptsProfiles('dev') ? (1000 * 60) : (30 * 60 * 1000)}")
     public void checkOfflinePaymentsStatus() {
         log.trace("running job checkOfflinePaymentsStatus");
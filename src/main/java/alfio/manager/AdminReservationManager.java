@@ -38,6 +38,7 @@ import alfio.model.modification.TicketCategoryModification;
 import alfio.model.result.ErrorCode;
 import alfio.model.result.Result;
 import alfio.model.result.Result.ResultStatus;
+import alfio.model.system.command.NotifyReservationStatusChange;
 import alfio.model.transaction.PaymentProxy;
 import alfio.model.user.Organization;
 import alfio.model.user.User;
@@ -51,6 +52,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -121,6 +123,7 @@ public class AdminReservationManager {
     private final ClockProvider clockProvider;
     private final SubscriptionRepository subscriptionRepository;
     private final ReservationEmailContentHelper reservationEmailContentHelper;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     public AdminReservationManager(PurchaseContextManager purchaseContextManager,
                                    EventManager eventManager,
@@ -148,7 +151,8 @@ public class AdminReservationManager {
                                    BillingDocumentManager billingDocumentManager,
                                    ClockProvider clockProvider,
                                    SubscriptionRepository subscriptionRepository,
-                                   ReservationEmailContentHelper reservationEmailContentHelper) {
+                                   ReservationEmailContentHelper reservationEmailContentHelper,
+                                   ApplicationEventPublisher applicationEventPublisher) {
         this.purchaseContextManager = purchaseContextManager;
         this.eventManager = eventManager;
         this.ticketReservationManager = ticketReservationManager;
@@ -176,6 +180,7 @@ public class AdminReservationManager {
         this.clockProvider = clockProvider;
         this.subscriptionRepository = subscriptionRepository;
         this.reservationEmailContentHelper = reservationEmailContentHelper;
+        this.applicationEventPublisher = applicationEventPublisher;
     }
 
     //the following methods have an explicit transaction handling, therefore the @Transactional annotation is not helpful here
@@ -987,6 +992,8 @@ public class AdminReservationManager {
 
         List<String> reservationIds = ticketRepository.findReservationIds(ticketIds);
         List<String> ticketUUIDs = ticketRepository.findUUIDs(ticketIds);
+        // the reservation itself is not updated when some tickets are removed, so we have to invalidate the cached totals
+        ticketReservationRepository.bumpVersion(List.of(reservationId));
         int[] results = ticketRepository.batchReleaseTickets(reservationId, ticketIds, purchaseContext);
         Validate.isTrue(Arrays.stream(results).sum() == ticketIds.size(), "Failed to update tickets");
         if(!removeReservation) {
@@ -1007,6 +1014,7 @@ public class AdminReservationManager {
 
     private void markAsCancelled(TicketReservation ticketReservation, String username, PurchaseContext purchaseContext) {
         ticketReservationRepository.updateReservationStatus(ticketReservation.getId(), TicketReservationStatus.CANCELLED.toString());
+        applicationEventPublisher.publishEvent(new NotifyReservationStatusChange(ticketReservation.getId()));
         auditingRepository.insert(ticketReservation.getId(), userRepository.nullSafeFindIdByUserName(username).orElse(null),
             purchaseContext, Audit.EventType.CANCEL_RESERVATION, new Date(), Audit.EntityType.RESERVATION, ticketReservation.getId());
     }
@@ -19,6 +19,8 @@ package alfio.manager;
 import alfio.manager.support.CheckInStatus;
 import alfio.manager.support.DefaultCheckInResult;
 import alfio.manager.support.SponsorAttendeeData;
+import alfio.manager.support.SponsorLeadChange;
+import alfio.manager.support.SponsorLeadsDelta;
 import alfio.manager.support.TicketAndCheckInResult;
 import alfio.manager.user.UserManager;
 import alfio.model.*;
@@ -31,7 +33,6 @@ import alfio.util.ClockProvider;
 import alfio.util.EventUtil;
 import org.springframework.stereotype.Component;
 
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Objects;
@@ -89,13 +90,8 @@ public class AttendeeManager {
             return new TicketAndCheckInResult(new TicketWithCategory(ticket, null), new DefaultCheckInResult(CheckInStatus.INVALID_TICKET_STATE, "not checked-in"));
         }
         var operator = Objects.requireNonNullElse(operatorId, DEFAULT_OPERATOR_ID);
-        Optional<ZonedDateTime> existingRegistration = sponsorScanRepository.getRegistrationTimestamp(userId, event.getId(), ticket.getId(), operator);
-        if(existingRegistration.isEmpty()) {
-            ZoneId eventZoneId = eventRepository.getZoneIdByEventId(event.getId());
-            sponsorScanRepository.insert(userId, ZonedDateTime.now(clockProvider.withZone(eventZoneId)), event.getId(), ticket.getId(), notes, leadStatus, operator);
-        } else {
-            sponsorScanRepository.updateNotesAndLeadStatus(userId, event.getId(), ticket.getId(), notes, leadStatus, operator);
-        }
+        // creation is kept unchanged if the ticket has already been scanned
+        sponsorScanRepository.upsert(userId, ZonedDateTime.now(clockProvider.getClock()), event.getId(), ticket.getId(), notes, leadStatus, operator);
         return new TicketAndCheckInResult(new TicketWithCategory(ticket, null), new DefaultCheckInResult(CheckInStatus.SUCCESS, "success"));
     }
 
@@ -125,6 +121,27 @@ public class AttendeeManager {
         return maybeEvent.map(event -> loadAttendeesData(event, userId, start));
     }
 
+    /**
+     * Returns the leads created or modified since the given cursor, together with the cursor to be used for the next request.
+     * Changes are identified by the id of the transaction which wrote them, so that a change committed after a request
+     * cannot end up behind the returned cursor.
+     */
+    public Optional<SponsorLeadsDelta> retrieveChangedLeads(String eventShortName, String username, long cursor) {
+        int userId = userRepository.getByUsername(username).getId();
+        return eventRepository.findOptionalEventAndOrganizationIdByShortName(eventShortName)
+            .map(event -> {
+                long upperBound = sponsorScanRepository.getCompletedChangesUpperBound();
+                if(upperBound <= cursor) {
+                    return new SponsorLeadsDelta(cursor, List.of());
+                }
+                var leads = sponsorScanRepository.loadChangedLeads(event.getId(), userId, cursor, upperBound).stream()
+                    .map(lead -> new SponsorLeadChange(lead.getTicketUuid(), lead.getTimestamp().format(EventUtil.JSON_DATETIME_FORMATTER),
+                        lead.getFullName(), lead.getEmail(), lead.getNotes(), lead.getLeadStatus(), lead.getOperator()))
+                    .toList();
+                return new SponsorLeadsDelta(upperBound, leads);
+            });
+    }
+
     private List<SponsorAttendeeData> loadAttendeesData(EventAndOrganizationId event, int userId, ZonedDateTime start) {
         return sponsorScanRepository.loadSponsorData(event.getId(), userId, start).stream()
             .map(scan -> {
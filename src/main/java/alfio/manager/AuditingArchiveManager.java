@@ -0,0 +1,105 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.manager.system.ConfigurationManager;
+import alfio.repository.audit.AuditingArchiveRepository;
+import alfio.util.ClockProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+import static alfio.model.system.ConfigurationKeys.AUDITING_ARCHIVE_AFTER_MONTHS;
+import static alfio.model.system.ConfigurationKeys.AUDITING_RETENTION_MONTHS;
+
+/**
+ * Moves old auditing rows from the "hot" auditing table to the monthly partitions of auditing_archive,
+ * and drops archived partitions once they exceed the retention period.
+ * Each batch is committed separately in order to keep row locks short-lived.
+ */
+@Component
+public class AuditingArchiveManager {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditingArchiveManager.class);
+    static final int BATCH_SIZE = 5000;
+
+    private final AuditingArchiveRepository auditingArchiveRepository;
+    private final ConfigurationManager configurationManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ClockProvider clockProvider;
+
+    public AuditingArchiveManager(AuditingArchiveRepository auditingArchiveRepository,
+                                  ConfigurationManager configurationManager,
+                                  PlatformTransactionManager transactionManager,
+                                  ClockProvider clockProvider) {
+        this.auditingArchiveRepository = auditingArchiveRepository;
+        this.configurationManager = configurationManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clockProvider = clockProvider;
+    }
+
+    public void archiveAndPurge() {
+        var now = ZonedDateTime.now(clockProvider.getClock());
+        int archiveAfterMonths = configurationManager.getForSystem(AUDITING_ARCHIVE_AFTER_MONTHS).getValueAsIntOrDefault(12);
+        if(archiveAfterMonths > 0) {
+            archive(now.minusMonths(archiveAfterMonths));
+        }
+        int retentionMonths = configurationManager.getForSystem(AUDITING_RETENTION_MONTHS).getValueAsIntOrDefault(0);
+        if(retentionMonths > 0) {
+            purge(YearMonth.from(now.minusMonths(retentionMonths)));
+        }
+    }
+
+    int archive(ZonedDateTime threshold) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> auditingArchiveRepository.findMonthsToArchive(threshold).stream()
+                .map(month -> YearMonth.parse(month, AuditingArchiveRepository.PARTITION_SUFFIX_FORMAT))
+                .forEach(auditingArchiveRepository::createPartitionIfNeeded));
+        } catch (DataAccessException e) {
+            // another node might be creating the same partition. We'll try again at the next run
+            log.warn("Cannot create auditing archive partitions", e);
+            return 0;
+        }
+        int total = 0;
+        int moved;
+        do {
+            moved = Objects.requireNonNull(transactionTemplate.execute(status -> auditingArchiveRepository.moveToArchive(threshold, BATCH_SIZE)));
+            total += moved;
+        } while (moved == BATCH_SIZE);
+        if(total > 0) {
+            log.info("Archived {} auditing rows older than {}", total, threshold);
+        }
+        return total;
+    }
+
+    void purge(YearMonth limit) {
+        auditingArchiveRepository.findPartitions().stream()
+            .map(AuditingArchiveRepository::parsePartitionMonth)
+            .filter(month -> month.isBefore(limit))
+            .forEach(month -> {
+                log.info("Dropping auditing archive for {}", month);
+                transactionTemplate.executeWithoutResult(status -> auditingArchiveRepository.dropPartition(month));
+            });
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.controller.support.TemplateProcessor;
+import alfio.model.BillingDocument;
+import alfio.model.Event;
+import alfio.model.TicketReservation;
+import alfio.repository.BillingDocumentRepository;
+import alfio.util.FileUtil;
+import alfio.util.LocaleUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds the ZIP archive containing all the billing documents of an event.
+ * <p>
+ * PDFs are rendered in parallel on a bounded pool, while entries are written to the archive in the same order
+ * in which the documents are loaded. Rendered PDFs are stored in the database, so that subsequent exports
+ * don't need to generate them again.
+ * <p>
+ * Exports can either be streamed directly to the client or prepared in background into a temporary file,
+ * which can then be downloaded (and resumed) using HTTP Range requests.
+ */
+@Component
+public class BillingDocumentExportManager implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BillingDocumentExportManager.class);
+    private static final int CHUNK_SIZE = 50;
+    private static final int RENDER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int MAX_CONCURRENT_EXPORTS = 2;
+
+    private final TicketReservationManager ticketReservationManager;
+    private final BillingDocumentRepository billingDocumentRepository;
+    private final TemplateManager templateManager;
+    private final FileUploadManager fileUploadManager;
+    private final ExtensionManager extensionManager;
+    private final ExecutorService renderExecutor = Executors.newFixedThreadPool(RENDER_THREADS, new BasicThreadFactory.Builder()
+        .namingPattern("billing-document-render-%d")
+        .build());
+    private final ExecutorService exportExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_EXPORTS, new BasicThreadFactory.Builder()
+        .namingPattern("billing-document-export-%d")
+        .build());
+    private final Cache<String, ExportJob> exports = Caffeine.newBuilder()
+        .expireAfterAccess(Duration.ofHours(2))
+        .removalListener(removalListener())
+        .build();
+
+    public BillingDocumentExportManager(TicketReservationManager ticketReservationManager,
+                                        BillingDocumentRepository billingDocumentRepository,
+                                        TemplateManager templateManager,
+                                        FileUploadManager fileUploadManager,
+                                        ExtensionManager extensionManager) {
+        this.ticketReservationManager = ticketReservationManager;
+        this.billingDocumentRepository = billingDocumentRepository;
+        this.templateManager = templateManager;
+        this.fileUploadManager = fileUploadManager;
+        this.extensionManager = extensionManager;
+    }
+
+    private static RemovalListener<String, ExportJob> removalListener() {
+        return (String key, ExportJob value, RemovalCause cause) -> {
+            if (value != null && value.file != null) {
+                try {
+                    Files.deleteIfExists(value.file);
+                    log.trace("deleted export {}", key);
+                } catch(Exception ex) {
+                    log.trace("Error while deleting file", ex);
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes the archive directly to the given {@link OutputStream}.
+     */
+    public void writeAllDocuments(Event event, OutputStream os) {
+        writeAllDocuments(event, loadDocuments(event), os, new AtomicInteger());
+    }
+
+    /**
+     * Starts preparing the archive in background.
+     *
+     * @return the current status of the export
+     */
+    public ExportStatus startExport(Event event, String username) {
+        var documents = loadDocuments(event);
+        var job = new ExportJob(UUID.randomUUID().toString(), event.getId(), username, documents.size());
+        exports.put(job.id, job);
+        exportExecutor.submit(() -> runExport(job, event, documents));
+        return job.toStatus();
+    }
+
+    public Optional<ExportStatus> getStatus(String exportId, int eventId, String username) {
+        return findJob(exportId, eventId, username).map(ExportJob::toStatus);
+    }
+
+    /**
+     * @return the archive, if the export has been completed successfully
+     */
+    public Optional<Path> getExportedFile(String exportId, int eventId, String username) {
+        return findJob(exportId, eventId, username)
+            .filter(job -> job.state == ExportState.COMPLETED)
+            .map(job -> job.file)
+            .filter(Files::exists);
+    }
+
+    @Override
+    public void destroy() {
+        exportExecutor.shutdownNow();
+        renderExecutor.shutdownNow();
+        exports.invalidateAll();
+    }
+
+    private Optional<ExportJob> findJob(String exportId, int eventId, String username) {
+        return Optional.ofNullable(exports.getIfPresent(exportId))
+            .filter(job -> job.eventId == eventId && job.username.equals(username));
+    }
+
+    private void runExport(ExportJob job, Event event, List<Pair<TicketReservation, BillingDocument>> documents) {
+        try {
+            var file = Files.createTempFile("alfio-billing-documents-", ".zip");
+            job.file = file;
+            job.state = ExportState.RUNNING;
+            try (var os = Files.newOutputStream(file)) {
+                writeAllDocuments(event, documents, os, job.processed);
+            }
+            job.state = ExportState.COMPLETED;
+        } catch (Exception e) {
+            log.warn("Error while exporting billing documents for event {}", event.getShortName(), e);
+            job.state = ExportState.FAILED;
+        }
+    }
+
+    private List<Pair<TicketReservation, BillingDocument>> loadDocuments(Event event) {
+        return ticketReservationManager.streamAllDocumentsFor(event.getId())
+            .flatMap(pair -> pair.getRight().stream().map(document -> Pair.of(pair.getLeft().getTicketReservation(), document)))
+            .collect(Collectors.toList());
+    }
+
+    private void writeAllDocuments(Event event,
+                                   List<Pair<TicketReservation, BillingDocument>> documents,
+                                   OutputStream os,
+                                   AtomicInteger processed) {
+        try (var zipOS = new ZipOutputStream(os)) {
+            // the next chunk is being rendered while the current one is written,
+            // so that at most two chunks of PDFs are kept in memory
+            List<Pair<BillingDocument, Future<Optional<byte[]>>>> current = List.of();
+            for (int i = 0; i < documents.size() || !current.isEmpty(); i += CHUNK_SIZE) {
+                var next = i < documents.size() ? submitChunk(event, documents.subList(i, Math.min(i + CHUNK_SIZE, documents.size()))) : List.<Pair<BillingDocument, Future<Optional<byte[]>>>>of();
+                for (var entry : current) {
+                    writeEntry(event, zipOS, entry.getLeft(), entry.getRight());
+                    processed.incrementAndGet();
+                }
+                current = next;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<Pair<BillingDocument, Future<Optional<byte[]>>>> submitChunk(Event event, List<Pair<TicketReservation, BillingDocument>> chunk) {
+        var storedPdfs = billingDocumentRepository.findPdfContent(chunk.stream().map(p -> p.getRight().getId()).collect(Collectors.toList()));
+        return chunk.stream()
+            .map(p -> {
+                var document = p.getRight();
+                var stored = storedPdfs.get(document.getId());
+                Future<Optional<byte[]>> pdf = stored != null
+                    ? CompletableFuture.completedFuture(Optional.of(stored))
+                    : renderExecutor.submit(() -> renderAndStore(event, p.getLeft(), document));
+                return Pair.of(document, pdf);
+            })
+            .collect(Collectors.toList());
+    }
+
+    private Optional<byte[]> renderAndStore(Event event, TicketReservation reservation, BillingDocument document) {
+        var language = LocaleUtil.forLanguageTag(reservation.getUserLanguage());
+        Map<String, Object> reservationModel = document.getModel();
+        var pdf = switch (document.getType()) {
+            case CREDIT_NOTE ->
+                TemplateProcessor.buildCreditNotePdf(event, fileUploadManager, language, templateManager, reservationModel, extensionManager);
+            case RECEIPT ->
+                TemplateProcessor.buildReceiptPdf(event, fileUploadManager, language, templateManager, reservationModel, extensionManager);
+            default ->
+                TemplateProcessor.buildInvoicePdf(event, fileUploadManager, language, templateManager, reservationModel, extensionManager);
+        };
+        pdf.ifPresent(content -> billingDocumentRepository.savePdfContent(document.getId(), content));
+        return pdf;
+    }
+
+    private void writeEntry(Event event, ZipOutputStream zipOS, BillingDocument document, Future<Optional<byte[]>> futurePdf) throws IOException {
+        Optional<byte[]> pdf;
+        try {
+            pdf = futurePdf.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        if (pdf.isPresent()) {
+            String fileName = FileUtil.getBillingDocumentFileName(event.getShortName(), document.getReservationId(), document);
+            var entry = new ZipEntry(fileName);
+            entry.setTimeLocal(document.getGenerationTimestamp().withZoneSameInstant(event.getZoneId()).toLocalDateTime());
+            zipOS.putNextEntry(entry);
+            zipOS.write(pdf.get());
+        }
+    }
+
+    public enum ExportState {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    public record ExportStatus(String id, int total, int processed, ExportState state) {
+    }
+
+    private static class ExportJob {
+        private final String id;
+        private final int eventId;
+        private final String username;
+        private final int total;
+        private final AtomicInteger processed = new AtomicInteger();
+        private volatile ExportState state = ExportState.PENDING;
+        private volatile Path file;
+
+        private ExportJob(String id, int eventId, String username, int total) {
+            this.id = id;
+            this.eventId = eventId;
+            this.username = username;
+            this.total = total;
+        }
+
+        private ExportStatus toStatus() {
+            return new ExportStatus(id, total, processed.get(), state);
+        }
+    }
+}
@@ -199,8 +199,8 @@ public class BillingDocumentManager {
         });
 
         return optionalInvoiceNumber.or(() -> {
-            int invoiceSequence = invoiceSequencesRepository.lockSequenceForUpdate(spec.getPurchaseContext().getOrganizationId());
-            invoiceSequencesRepository.incrementSequenceFor(spec.getPurchaseContext().getOrganizationId());
+            // the number is drawn in the caller's transaction, so that it is released if the finalization is rolled back
+            int invoiceSequence = invoiceSequencesRepository.getAndIncrement(spec.getPurchaseContext().getOrganizationId(), INVOICE);
             return Optional.of(formatDocumentNumber(spec.getPurchaseContext(), invoiceSequence));
         });
     }
@@ -74,6 +74,8 @@ public class CheckInManager {
 
     static final Pattern CYPHER_SPLITTER = Pattern.compile("\\|");
     private static final int SEARCH_ATTENDEES_LIMIT = 20;
+    // counting stops after this many matches, so that very broad searches stay cheap
+    private static final int SEARCH_ATTENDEES_MAX_COUNT = 1000;
     private final TicketRepository ticketRepository;
     private final EventRepository eventRepository;
     private final TicketReservationRepository ticketReservationRepository;
@@ -138,14 +140,21 @@ public class CheckInManager {
         ticketReservationManager.registerAlfioTransactionForOnsitePayment(eventRepository.findById(ticket.getEventId()), ticket.getTicketsReservationId());
     }
 
-    public AttendeeSearchResults searchAttendees(Event event, String query, int page) {
+    public AttendeeSearchResults searchAttendees(Event event, String query, int page, String after) {
         if (StringUtils.isBlank(query)) {
             return new AttendeeSearchResults(0, 0, 0, 0, List.of());
         }
         int eventId = event.getId();
         var search = "%" + query + "%";
-        var results = ticketRepository.searchAttendees(eventId, search, SEARCH_ATTENDEES_LIMIT, SEARCH_ATTENDEES_LIMIT * page);
-        var statistics = ticketRepository.countSearchResults(eventId, search);
+        var cursor = StringUtils.trimToNull(after);
+        // we load one more result in order to know if there is a next page
+        var results = ticketRepository.searchAttendees(eventId, search, cursor, SEARCH_ATTENDEES_LIMIT + 1, cursor == null ? SEARCH_ATTENDEES_LIMIT * page : 0);
+        boolean hasMoreResults = results.size() > SEARCH_ATTENDEES_LIMIT;
+        if(hasMoreResults) {
+            results = results.subList(0, SEARCH_ATTENDEES_LIMIT);
+        }
+        // we count one more result in order to know if the count has been truncated
+        var statistics = ticketRepository.countSearchResults(eventId, search, SEARCH_ATTENDEES_MAX_COUNT + 1);
         var attendees = results.stream().map(fi -> {
             var ticket = fi.getTicket();
             var reservation = fi.getTicketReservation();
@@ -159,7 +168,9 @@ public class CheckInManager {
                 ticket.getStatus(), amountToPay);
         }).collect(Collectors.toList());
         int totalPages = (int) Math.ceil((statistics.getTotal() / (double) SEARCH_ATTENDEES_LIMIT));
-        return new AttendeeSearchResults(statistics.getTotal(), statistics.getCheckedIn(), totalPages, page, attendees);
+        String nextPageCursor = hasMoreResults ? attendees.get(attendees.size() - 1).getUuid() : null;
+        return new AttendeeSearchResults(statistics.getTotal(), statistics.getCheckedIn(), totalPages, page, attendees,
+            nextPageCursor, statistics.getTotal() > SEARCH_ATTENDEES_MAX_COUNT);
     }
 
     /**
@@ -242,6 +253,74 @@ public class CheckInManager {
         return descriptor;
     }
 
+    /**
+     * Checks in a batch of tickets, as uploaded by offline scanners.
+     * Tickets are locked and loaded with a single query, codes are validated in memory and
+     * the status changes and scan audits are written using batch statements.
+     *
+     * @param codesByIdentifier the scanned code, by ticket UUID
+     * @return the check-in result, by ticket UUID
+     */
+    public Map<String, TicketAndCheckInResult> bulkCheckIn(String eventShortName,
+                                                           Map<String, String> codesByIdentifier,
+                                                           String username,
+                                                           String auditUser,
+                                                           boolean automaticallyConfirmOnSitePayment) {
+        var maybeEvent = eventRepository.findOptionalByShortName(eventShortName)
+            .filter(EventManager.checkOwnership(username, organizationRepository));
+        if(maybeEvent.isEmpty()) {
+            return codesByIdentifier.keySet().stream()
+                .collect(toMap(Function.identity(), id -> new TicketAndCheckInResult(null, new DefaultCheckInResult(CheckInStatus.EVENT_NOT_FOUND, "event not found"))));
+        }
+        var event = maybeEvent.get();
+        var tickets = ticketRepository.findByUUIDsForUpdate(codesByIdentifier.keySet()).stream()
+            .collect(toMap(Ticket::getUuid, Function.identity()));
+        var categoryIds = tickets.values().stream().map(Ticket::getCategoryId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Integer, TicketCategory> categories = categoryIds.isEmpty() ? Map.of() : ticketCategoryRepository.findByIds(categoryIds).stream()
+            .collect(toMap(TicketCategory::getId, Function.identity()));
+        Integer userId = userRepository.findIdByUserName(auditUser).orElse(null);
+
+        var results = new HashMap<String, TicketAndCheckInResult>();
+        var scans = new HashMap<String, CheckInStatus>();
+        var toBeCheckedIn = new ArrayList<TicketWithCategory>();
+        codesByIdentifier.forEach((ticketIdentifier, code) -> {
+            var ticketCode = Optional.ofNullable(code);
+            var descriptor = extractStatus(maybeEvent, Optional.ofNullable(tickets.get(ticketIdentifier)), ticketIdentifier, ticketCode, categories::get);
+            var checkInStatus = descriptor.getResult().getStatus();
+            if(checkInStatus == OK_READY_TO_BE_CHECKED_IN) {
+                toBeCheckedIn.add(descriptor.getTicket());
+            } else if(checkInStatus == MUST_PAY && automaticallyConfirmOnSitePayment) {
+                // confirming the payment registers a transaction for the reservation, so we go through the single-ticket flow
+                results.put(ticketIdentifier, checkIn(eventShortName, ticketIdentifier, ticketCode, username, auditUser, true));
+            } else if(checkInStatus == BADGE_SCAN_ALREADY_DONE || checkInStatus == OK_READY_FOR_BADGE_SCAN) {
+                var auditingStatus = checkInStatus == OK_READY_FOR_BADGE_SCAN ? BADGE_SCAN_SUCCESS : checkInStatus;
+                scans.put(ticketIdentifier, auditingStatus);
+                // audited right away, so that the next badge of the same reservation sees this scan
+                auditingRepository.insert(descriptor.getTicket().getTicketsReservationId(), userId, event.getId(), BADGE_SCAN, new Date(), Audit.EntityType.TICKET, Integer.toString(descriptor.getTicket().getId()));
+                results.put(ticketIdentifier, new TicketAndCheckInResult(null, new DefaultCheckInResult(auditingStatus, checkInStatus == OK_READY_FOR_BADGE_SCAN ? "scan successful" : "already scanned")));
+            } else {
+                results.put(ticketIdentifier, descriptor);
+            }
+        });
+
+        if(!toBeCheckedIn.isEmpty()) {
+            var ticketIds = toBeCheckedIn.stream().map(TicketWithCategory::getId).collect(Collectors.toList());
+            int checkedIn = ticketRepository.checkInTickets(ticketIds);
+            Validate.isTrue(checkedIn == ticketIds.size(), "Expected %d tickets to be checked in, got %d", ticketIds.size(), checkedIn);
+            var firstTicketIds = new HashSet<>(ticketRepository.findFirstTicketIdInReservations(toBeCheckedIn.stream().map(TicketWithCategory::getTicketsReservationId).collect(Collectors.toSet())));
+            var outputColorConfiguration = getOutputColorConfiguration(event, configurationManager);
+            for (TicketWithCategory ticket : toBeCheckedIn) {
+                scans.put(ticket.getUuid(), SUCCESS);
+                auditingRepository.insert(ticket.getTicketsReservationId(), userId, event.getId(), CHECK_IN, new Date(), Audit.EntityType.TICKET, Integer.toString(ticket.getId()));
+                var additionalServices = firstTicketIds.contains(ticket.getId()) ? loadAdditionalServices(ticket) : List.<AdditionalServiceInfo>of();
+                results.put(ticket.getUuid(), new SuccessfulCheckIn(ticket, additionalServices, detectBoxColor(outputColorConfiguration, ticket.getCategoryId())));
+            }
+            ticketRepository.findByIds(ticketIds).forEach(extensionManager::handleTicketCheckedIn);
+        }
+        scanAuditRepository.insertAll(scans, event.getId(), ZonedDateTime.now(clockProvider.getClock()), auditUser, ScanAudit.Operation.SCAN);
+        return results;
+    }
+
     public boolean manualCheckIn(int eventId, String ticketIdentifier, String user) {
         Optional<Ticket> ticket = findAndLockTicket(ticketIdentifier);
         return ticket.map(t -> {
@@ -289,6 +368,14 @@ public class CheckInManager {
     }
 
     private TicketAndCheckInResult extractStatus(Optional<? extends EventCheckInInfo> maybeEvent, Optional<Ticket> maybeTicket, String ticketIdentifier, Optional<String> ticketCode) {
+        return extractStatus(maybeEvent, maybeTicket, ticketIdentifier, ticketCode, ticketCategoryRepository::getById);
+    }
+
+    private TicketAndCheckInResult extractStatus(Optional<? extends EventCheckInInfo> maybeEvent,
+                                                 Optional<Ticket> maybeTicket,
+                                                 String ticketIdentifier,
+                                                 Optional<String> ticketCode,
+                                                 Function<Integer, TicketCategory> categoryLoader) {
 
         if (maybeEvent.isEmpty()) {
             return new TicketAndCheckInResult(null, new DefaultCheckInResult(EVENT_NOT_FOUND, "Event not found"));
@@ -303,7 +390,7 @@ public class CheckInManager {
             return new TicketAndCheckInResult(new TicketWithCategory(ticket, null), new DefaultCheckInResult(INVALID_TICKET_STATE, "Invalid ticket state"));
         }
 
-        TicketCategory tc = ticketCategoryRepository.getById(ticket.getCategoryId());
+        TicketCategory tc = categoryLoader.apply(ticket.getCategoryId());
 
         EventCheckInInfo event = maybeEvent.get();
         if(ticketCode.filter(StringUtils::isNotBlank).isEmpty()) {
@@ -543,7 +630,11 @@ public class CheckInManager {
         if(ticket.getId() != firstId) {
             return List.of();
         }
+        return loadAdditionalServices(ticket);
+    }
 
+    private List<AdditionalServiceInfo> loadAdditionalServices(TicketInfoContainer ticket) {
+        String ticketsReservationId = ticket.getTicketsReservationId();
         List<BookedAdditionalService> additionalServices = additionalServiceItemRepository.getAdditionalServicesBookedForReservation(ticketsReservationId, ticket.getUserLanguage(), ticket.getEventId());
         boolean additionalServicesEmpty = additionalServices.isEmpty();
         if(!additionalServicesEmpty) {
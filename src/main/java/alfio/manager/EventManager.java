@@ -21,6 +21,7 @@ import alfio.controller.form.SearchOptions;
 import alfio.manager.support.CategoryEvaluator;
 import alfio.manager.support.extension.ExtensionCapability;
 import alfio.manager.system.ConfigurationManager;
+import alfio.manager.system.DataDeletionManager;
 import alfio.manager.user.UserManager;
 import alfio.model.*;
 import alfio.model.Event.EventFormat;
@@ -49,9 +50,11 @@ import alfio.util.RequestUtils;
 import ch.digitalfondue.npjt.AffectedRowCountAndKey;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.IterableUtils;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.flywaydb.core.Flyway;
 import org.slf4j.Logger;
@@ -108,7 +111,7 @@ public class EventManager {
     private final PromoCodeDiscountRepository promoCodeRepository;
     private final ConfigurationManager configurationManager;
     private final TicketFieldRepository ticketFieldRepository;
-    private final EventDeleterRepository eventDeleterRepository;
+    private final DataDeletionManager dataDeletionManager;
     private final AdditionalServiceRepository additionalServiceRepository;
     private final AdditionalServiceTextRepository additionalServiceTextRepository;
     private final Flyway flyway;
@@ -133,7 +136,7 @@ public class EventManager {
                         PromoCodeDiscountRepository promoCodeRepository,
                         ConfigurationManager configurationManager,
                         TicketFieldRepository ticketFieldRepository,
-                        EventDeleterRepository eventDeleterRepository,
+                        DataDeletionManager dataDeletionManager,
                         AdditionalServiceRepository additionalServiceRepository,
                         AdditionalServiceTextRepository additionalServiceTextRepository,
                         Flyway flyway,
@@ -157,7 +160,7 @@ public class EventManager {
         this.promoCodeRepository = promoCodeRepository;
         this.configurationManager = configurationManager;
         this.ticketFieldRepository = ticketFieldRepository;
-        this.eventDeleterRepository = eventDeleterRepository;
+        this.dataDeletionManager = dataDeletionManager;
         this.additionalServiceRepository = additionalServiceRepository;
         this.additionalServiceTextRepository = additionalServiceTextRepository;
         this.flyway = flyway;
@@ -1073,6 +1076,8 @@ public class EventManager {
         String categoriesJson = CollectionUtils.isEmpty(categories) ? null : Json.toJson(categories);
 
         promoCodeRepository.updateEventPromoCode(promoCodeId, start, end, maxUsage, categoriesJson, description, emailReference, hiddenCategoryId);
+        // categories might have been changed
+        promoCodeRepository.recalculateUsage(promoCodeId);
     }
     
     public List<PromoCodeDiscountWithFormattedTimeAndAmount> findPromoCodesInEvent(int eventId) {
@@ -1090,10 +1095,32 @@ public class EventManager {
         return StringUtils.removeEnd(baseUrl, "/") + "/event/" + event.getShortName() + "/";
     }
 
-    public List<TicketWithReservationAndTransaction> findAllConfirmedTicketsForCSV(String eventName, String username) {
+    /**
+     * @return the number of rows loaded at once while exporting data
+     */
+    public int getExportBatchSize() {
+        return environment.getProperty("alfio.export.batchSize", Integer.class, 500);
+    }
+
+    /**
+     * Returns all the confirmed tickets of the event, along with their additional field values.
+     * The returned Stream is lazy: tickets and field values are loaded in batches while consuming it, so that the
+     * memory footprint doesn't depend on the size of the event.
+     *
+     * @param eventName the event
+     * @param username the current user
+     * @return the tickets, each with its additional field values, by name
+     */
+    public Stream<Pair<TicketWithReservationAndTransaction, Map<String, String>>> streamConfirmedTicketsForExport(String eventName, String username) {
         EventAndOrganizationId event = getEventAndOrganizationId(eventName, username);
         checkOwnership(event, username, event.getOrganizationId());
-        return ticketRepository.findAllConfirmedForCSV(event.getId());
+        int eventId = event.getId();
+        return ListUtils.partition(ticketRepository.findAllConfirmedIdsForExport(eventId), getExportBatchSize()).stream()
+            .flatMap(ids -> {
+                var values = ticketFieldRepository.findAllValuesByTicketIdsGrouped(ids);
+                return ticketRepository.findAllForExport(eventId, ids).stream()
+                    .map(t -> Pair.of(t, values.getOrDefault(t.getTicket().getId(), Map.of())));
+            });
     }
 
     public List<Event> getPublishedEvents(SearchOptions searchOptions) {
@@ -1165,7 +1192,7 @@ public class EventManager {
 	public void deleteEvent(int eventId, String username) {
 		final Event event = eventRepository.findById(eventId);
 		checkOwnership(event, username, event.getOrganizationId());
-        eventDeleterRepository.deleteAllForEvent(eventId);
+        dataDeletionManager.scheduleEventDeletion(eventId, username);
     }
 
     public Optional<TicketCategory> getOptionalByIdAndActive(int ticketCategoryId, int eventId) {
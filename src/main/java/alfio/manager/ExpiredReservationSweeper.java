@@ -0,0 +1,254 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.manager.support.PaymentWebhookResult;
+import alfio.model.PurchaseContext;
+import alfio.model.TicketReservation;
+import alfio.model.transaction.PaymentProvider;
+import alfio.repository.TicketReservationRepository;
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Removes expired, pending reservations in bounded chunks.
+ * <p>
+ * For each chunk, the reservations having a pending transaction are checked against the payment provider first,
+ * concurrently and with a timeout. Only then the chunk is locked, the results of the checks are applied and the
+ * remaining reservations are deleted. Each chunk is committed in its own transaction, so that locks are held
+ * only for a short time.
+ * <p>
+ * A reservation is not deleted if it has a pending transaction which could not be checked (timeout, error, or
+ * transaction created after the check); it will be processed again during the next run.
+ */
+@Component
+public class ExpiredReservationSweeper implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpiredReservationSweeper.class);
+    static final int CHUNK_SIZE = 100;
+    static final int MAX_RESERVATIONS_PER_RUN = 5000;
+    private static final int PROVIDER_CHECK_THREADS = 4;
+    private static final long PROVIDER_CHECK_TIMEOUT_SECONDS = 20;
+    private static final long SLOW_CHUNK_THRESHOLD_MS = 5000;
+
+    private final TicketReservationManager ticketReservationManager;
+    private final TicketReservationRepository ticketReservationRepository;
+    private final PurchaseContextManager purchaseContextManager;
+    private final TransactionTemplate requiresNewTransactionTemplate;
+    private final ExecutorService providerCheckExecutor = Executors.newFixedThreadPool(PROVIDER_CHECK_THREADS, new BasicThreadFactory.Builder()
+        .namingPattern("expired-reservation-check-%d")
+        .build());
+
+    public ExpiredReservationSweeper(TicketReservationManager ticketReservationManager,
+                                     TicketReservationRepository ticketReservationRepository,
+                                     PurchaseContextManager purchaseContextManager,
+                                     PlatformTransactionManager transactionManager) {
+        this.ticketReservationManager = ticketReservationManager;
+        this.ticketReservationRepository = ticketReservationRepository;
+        this.purchaseContextManager = purchaseContextManager;
+        this.requiresNewTransactionTemplate = new TransactionTemplate(transactionManager, new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    public SweepStatistics sweep(Date expirationDate) {
+        return sweep(ticketReservationRepository.findExpiredReservationIds(expirationDate, MAX_RESERVATIONS_PER_RUN), expirationDate);
+    }
+
+    /**
+     * Removes the given reservations, if they are still pending and their validity is before the given date
+     */
+    public SweepStatistics sweep(List<String> expiredReservationIds, Date expirationDate) {
+        var statistics = new SweepStatistics();
+        for (List<String> chunk : ListUtils.partition(expiredReservationIds, CHUNK_SIZE)) {
+            try {
+                processChunk(chunk, expirationDate, statistics);
+            } catch (Exception e) {
+                log.error("error while removing expired reservations", e);
+                statistics.failedChunks++;
+            }
+        }
+        if (statistics.chunks > 0) {
+            log.info("expired reservations sweep completed: {}", statistics);
+        }
+        return statistics;
+    }
+
+    @Override
+    public void destroy() {
+        providerCheckExecutor.shutdownNow();
+    }
+
+    private void processChunk(List<String> chunk, Date expirationDate, SweepStatistics statistics) {
+        long start = System.nanoTime();
+        var checks = checkPendingTransactions(chunk);
+        long checked = System.nanoTime();
+        var result = requiresNewTransactionTemplate.execute(status -> deleteChunk(chunk, expirationDate, checks));
+        long end = System.nanoTime();
+        long checkMillis = TimeUnit.NANOSECONDS.toMillis(checked - start);
+        long writeMillis = TimeUnit.NANOSECONDS.toMillis(end - checked);
+        statistics.record(Objects.requireNonNull(result), checkMillis, writeMillis);
+        if (writeMillis > SLOW_CHUNK_THRESHOLD_MS) {
+            log.warn("slow chunk while removing expired reservations: {} ms spent holding locks on {} reservations", writeMillis, chunk.size());
+        } else {
+            log.debug("chunk of {} expired reservations processed. Provider checks: {} ms, removal: {} ms", chunk.size(), checkMillis, writeMillis);
+        }
+    }
+
+    /**
+     * Checks the pending transactions, if any, before locking the reservations
+     *
+     * @return the result of the check, by reservation ID. Reservations which could not be checked are not included
+     */
+    private Map<String, PendingTransactionCheck> checkPendingTransactions(List<String> reservationIds) {
+        var reservations = ticketReservationRepository.findReservationsWithPendingTransaction(reservationIds);
+        if (reservations.isEmpty()) {
+            return Map.of();
+        }
+        List<Callable<PendingTransactionCheck>> tasks = reservations.stream()
+            .map(reservation -> (Callable<PendingTransactionCheck>) () -> checkPendingTransaction(reservation))
+            .collect(Collectors.toList());
+        try {
+            var futures = providerCheckExecutor.invokeAll(tasks, PROVIDER_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            var result = new HashMap<String, PendingTransactionCheck>();
+            for (int i = 0; i < futures.size(); i++) {
+                var reservationId = reservations.get(i).getId();
+                try {
+                    result.put(reservationId, futures.get(i).get());
+                } catch (CancellationException e) {
+                    log.warn("Timeout while checking pending transaction for expired reservation ID {}", reservationId);
+                } catch (ExecutionException e) {
+                    log.warn("Error while checking pending transaction for expired reservation ID {}", reservationId, e.getCause());
+                }
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private PendingTransactionCheck checkPendingTransaction(TicketReservation reservation) {
+        var purchaseContext = purchaseContextManager.findByReservationId(reservation.getId());
+        if (purchaseContext.isEmpty()) {
+            log.warn("PurchaseContext not found for reservation ID {}", reservation.getId());
+            return new PendingTransactionCheck(null, Optional.empty());
+        }
+        return new PendingTransactionCheck(purchaseContext.get(), ticketReservationManager.checkPendingTransactionStatus(purchaseContext.get(), reservation));
+    }
+
+    private ChunkResult deleteChunk(List<String> chunk, Date expirationDate, Map<String, PendingTransactionCheck> checks) {
+        var lockedIds = ticketReservationRepository.lockExpiredReservations(chunk, expirationDate);
+        if (lockedIds.isEmpty()) {
+            return new ChunkResult(0, chunk.size(), Set.of());
+        }
+        var toIgnore = new HashSet<String>();
+        // reload the reservations with pending transactions after locking, their status might have changed
+        ticketReservationRepository.findReservationsWithPendingTransaction(lockedIds).forEach(reservation -> {
+            var reservationId = reservation.getId();
+            var check = checks.get(reservationId);
+            if (check == null) {
+                log.debug("Pending transaction for expired reservation ID {} has not been checked. Will retry later.", reservationId);
+                toIgnore.add(reservationId);
+            } else if (check.providerResult().isPresent()) {
+                var purchaseContext = check.purchaseContext();
+                var resultOptional = ticketReservationManager.applyTransactionCheckResult(purchaseContext, reservation, check.providerResult().get());
+                if (resultOptional.isPresent()) {
+                    if (resultOptional.get().isSuccessful()) {
+                        // payment is successful, so reservation must not be deleted
+                        log.debug("Force check for expired reservation ID {} revealed a completed transaction. Will not delete.", reservationId);
+                        toIgnore.add(reservationId);
+                    } else {
+                        // we need to cancel the pending payment, otherwise we could end up with a mismatch
+                        boolean cancelPendingPaymentResult = ticketReservationManager.cancelPendingPayment(reservationId, purchaseContext);
+                        log.warn("Trying to force pending payment cancellation for reservation ID {}. Successful: {}", reservationId, cancelPendingPaymentResult);
+                    }
+                }
+            } else {
+                log.trace("No result from forceTransactionCheck for reservation ID {}", reservationId);
+            }
+        });
+        var toDelete = lockedIds.stream().filter(Function.not(toIgnore::contains)).collect(Collectors.toList());
+        var eventIds = ticketReservationManager.deleteExpiredReservations(toDelete);
+        return new ChunkResult(toDelete.size(), chunk.size() - toDelete.size(), eventIds);
+    }
+
+    private record ChunkResult(int deleted, int skipped, Set<Integer> eventIds) {
+    }
+
+    private record PendingTransactionCheck(PurchaseContext purchaseContext,
+                                           Optional<Pair<PaymentProvider, PaymentWebhookResult>> providerResult) {
+    }
+
+    public static class SweepStatistics {
+        private int chunks;
+        private int failedChunks;
+        private int deleted;
+        private int skipped;
+        private long totalCheckMillis;
+        private long totalWriteMillis;
+        private long maxWriteMillis;
+        private final Set<Integer> releasedEventIds = new HashSet<>();
+
+        private void record(ChunkResult result, long checkMillis, long writeMillis) {
+            this.chunks++;
+            this.deleted += result.deleted();
+            this.skipped += result.skipped();
+            this.releasedEventIds.addAll(result.eventIds());
+            this.totalCheckMillis += checkMillis;
+            this.totalWriteMillis += writeMillis;
+            this.maxWriteMillis = Math.max(this.maxWriteMillis, writeMillis);
+        }
+
+        public int getDeleted() {
+            return deleted;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public int getFailedChunks() {
+            return failedChunks;
+        }
+
+        /**
+         * @return the IDs of the events for which seats have been released
+         */
+        public Set<Integer> getReleasedEventIds() {
+            return releasedEventIds;
+        }
+
+        @Override
+        public String toString() {
+            return "chunks=" + chunks + ", failed=" + failedChunks + ", deleted=" + deleted + ", skipped=" + skipped
+                + ", provider checks=" + totalCheckMillis + "ms, removal=" + totalWriteMillis + "ms, slowest removal=" + maxWriteMillis + "ms";
+        }
+    }
+}
@@ -30,21 +30,28 @@ import alfio.repository.AuditingRepository;
 import alfio.repository.GroupRepository;
 import alfio.repository.TicketRepository;
 import ch.digitalfondue.npjt.AffectedRowCountAndKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static alfio.model.group.LinkedGroup.MatchType.FULL;
 import static alfio.model.group.LinkedGroup.Type.*;
@@ -60,15 +67,29 @@ public class GroupManager {
     private final TicketRepository ticketRepository;
     private final AuditingRepository auditingRepository;
     private final TransactionTemplate requiresNewTransactionTemplate;
+    // snapshots of the active links of each event and of the active members of each group, used for validation.
+    // Local changes evict them, changes made by other nodes become visible on expiration.
+    // A value missing from the snapshot is not allowed, only the acquisition of a member is checked against the database.
+    private final Cache<Integer, List<LinkedGroup>> linksCache;
+    private final Cache<Integer, GroupMembership> membershipCache;
 
     public GroupManager(GroupRepository groupRepository,
                         TicketRepository ticketRepository,
                         AuditingRepository auditingRepository,
-                        PlatformTransactionManager transactionManager) {
+                        PlatformTransactionManager transactionManager,
+                        Environment environment) {
         this.groupRepository = groupRepository;
         this.ticketRepository = ticketRepository;
         this.auditingRepository = auditingRepository;
         this.requiresNewTransactionTemplate = new TransactionTemplate(transactionManager, new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        this.linksCache = Caffeine.newBuilder()
+            .maximumSize(environment.getProperty("alfio.groupLinks.cacheSize", Integer.class, 1000))
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+        this.membershipCache = Caffeine.newBuilder()
+            .maximumSize(environment.getProperty("alfio.groupMembership.cacheSize", Integer.class, 50))
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
     }
 
     public Result<Integer> createNew(GroupModification input) {
@@ -95,6 +116,7 @@ public class GroupManager {
         Validate.isTrue(modification.getType() != LIMITED_QUANTITY || modification.getMaxAllocation() != null, "Missing max allocation");
         AffectedRowCountAndKey<Integer> configuration = groupRepository.createConfiguration(groupId, eventId,
             modification.getTicketCategoryId(), modification.getType(), modification.getMatchType(), modification.getMaxAllocation());
+        evictLinks(eventId);
         return groupRepository.getConfiguration(configuration.getKey());
     }
 
@@ -105,6 +127,7 @@ public class GroupManager {
             Validate.isTrue(groupRepository.countWhitelistedTicketsForConfiguration(original.getId()) == 0, "Cannot update as there are already confirmed tickets.");
         }
         groupRepository.updateConfiguration(id, modification.getGroupId(), original.getEventId(), modification.getTicketCategoryId(), modification.getType(), modification.getMatchType(), modification.getMaxAllocation());
+        evictLinks(original.getEventId());
         return groupRepository.getConfiguration(id);
     }
 
@@ -145,12 +168,40 @@ public class GroupManager {
     @Transactional
     public boolean isAllowed(String value, int eventId, int categoryId) {
 
-        List<LinkedGroup> configurations = findLinks(eventId, categoryId);
+        List<LinkedGroup> configurations = findCachedLinks(eventId, categoryId);
         if(CollectionUtils.isEmpty(configurations)) {
             return true;
         }
-        LinkedGroup configuration = configurations.get(0);
-        return getMatchingMember(configuration, value).isPresent();
+        return isMember(configurations.get(0), value);
+    }
+
+    /**
+     * Validates all the given items at once, using the snapshots of the links and of the members.
+     *
+     * @param eventId the event
+     * @param items the values to validate
+     * @return the items which are not allowed
+     */
+    @Transactional(readOnly = true)
+    public Set<WhitelistValidationItem> findNotAllowed(int eventId, Collection<WhitelistValidationItem> items) {
+        return items.stream()
+            .filter(item -> {
+                var configurations = findCachedLinks(eventId, item.categoryId);
+                return !configurations.isEmpty() && !isMember(configurations.get(0), item.value);
+            })
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private boolean isMember(LinkedGroup configuration, String value) {
+        return findCachedMemberId(configuration, value).isPresent();
+    }
+
+    private List<LinkedGroup> findCachedLinks(int eventId, int categoryId) {
+        var links = linksCache.get(eventId, groupRepository::findActiveConfigurationsForEvent);
+        // same order as findLinks: links for the category first, then links for the whole event
+        return Stream.concat(links.stream().filter(l -> Objects.equals(l.getTicketCategoryId(), categoryId)),
+                links.stream().filter(l -> l.getTicketCategoryId() == null))
+            .toList();
     }
 
     @Transactional
@@ -170,7 +221,11 @@ public class GroupManager {
 
         return new Result.Builder<Integer>()
             .checkPrecondition(duplicates::isEmpty, ErrorCode.lazy(() -> ErrorCode.custom("value.duplicate", duplicates.stream().limit(10).collect(Collectors.joining(", ")))))
-            .build(() -> Arrays.stream(groupRepository.insert(groupId, members)).sum());
+            .build(() -> {
+                int result = Arrays.stream(groupRepository.insert(groupId, members)).sum();
+                evictMembership(groupId);
+                return result;
+            });
     }
 
     @Transactional
@@ -180,7 +235,7 @@ public class GroupManager {
             return true;
         }
         LinkedGroup configuration = configurations.get(0);
-        Optional<GroupMember> optionalItem = getMatchingMember(configuration, ticket.getEmail());
+        Optional<GroupMember> optionalItem = findMember(configuration, ticket.getEmail());
         if(optionalItem.isEmpty()) {
             return false;
         }
@@ -215,6 +270,53 @@ public class GroupManager {
         return partial.length() > 0 ? groupRepository.findItemEndsWith(configuration.getId(), configuration.getGroupId(), "%@"+partial) : Optional.empty();
     }
 
+    private Optional<GroupMember> findMember(LinkedGroup configuration, String email) {
+        // the snapshot could be stale, so we always reload the member before acquiring it
+        return findCachedMemberId(configuration, email)
+            .flatMap(memberId -> groupRepository.findActiveItemById(memberId, configuration.getGroupId()))
+            .or(() -> getMatchingMember(configuration, email));
+    }
+
+    private Optional<Integer> findCachedMemberId(LinkedGroup configuration, String email) {
+        return membershipCache.get(configuration.getGroupId(), this::loadMembership)
+            .find(StringUtils.trimToEmpty(email), configuration.getMatchType() != FULL);
+    }
+
+    private GroupMembership loadMembership(int groupId) {
+        Map<String, Integer> byValue = new HashMap<>();
+        Map<String, Integer> byDomain = new HashMap<>();
+        for (GroupMember member : groupRepository.getActiveValues(groupId)) {
+            String value = member.getValue().toLowerCase(Locale.ROOT);
+            byValue.put(value, member.getId());
+            if(value.contains("@")) {
+                byDomain.putIfAbsent(StringUtils.substringAfterLast(value, "@"), member.getId());
+            }
+        }
+        log.trace("loaded {} members for group {}", byValue.size(), groupId);
+        return new GroupMembership(byValue, byDomain);
+    }
+
+    private void evictMembership(int groupId) {
+        evict(() -> membershipCache.invalidate(groupId));
+    }
+
+    private void evictLinks(int eventId) {
+        evict(() -> linksCache.invalidate(eventId));
+    }
+
+    private static void evict(Runnable eviction) {
+        eviction.run();
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            // the snapshot could have been reloaded by someone else before the current transaction was completed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
     @Transactional
     public void deleteWhitelistedTicketsForReservation(String reservationId) {
         List<Integer> tickets = ticketRepository.findTicketsInReservation(reservationId).stream().map(Ticket::getId).toList();
@@ -227,6 +329,7 @@ public class GroupManager {
     @Transactional
     public void disableLink(int linkId) {
         Validate.isTrue(groupRepository.disableLink(linkId) == 1, "Error while disabling link");
+        evict(linksCache::invalidateAll);
     }
 
     @Transactional
@@ -259,6 +362,7 @@ public class GroupManager {
             return false;
         }
         groupRepository.deactivateGroupMember(memberIds, groupId);
+        evictMembership(groupId);
         return true;
     }
 
@@ -269,6 +373,7 @@ public class GroupManager {
             Validate.isTrue(deactivateMembers(members, groupId), "error while disabling group members");
         }
         groupRepository.disableAllLinks(groupId);
+        evict(linksCache::invalidateAll);
         Validate.isTrue(groupRepository.deactivateGroup(groupId) == 1, "unexpected error while disabling group");
         return true;
     }
@@ -286,6 +391,19 @@ public class GroupManager {
     public record WhitelistValidationItem(int categoryId, String value) {
     }
 
+    private record GroupMembership(Map<String, Integer> byValue, Map<String, Integer> byDomain) {
+
+        Optional<Integer> find(String value, boolean matchDomain) {
+            String normalized = value.toLowerCase(Locale.ROOT);
+            Integer memberId = byValue.get(normalized);
+            if(memberId == null && matchDomain) {
+                String domain = StringUtils.substringAfterLast(normalized, "@");
+                memberId = domain.isEmpty() ? null : byDomain.get(domain);
+            }
+            return Optional.ofNullable(memberId);
+        }
+    }
+
     public static class DuplicateGroupItemException extends RuntimeException {
         public DuplicateGroupItemException(String message) {
             super(message);
@@ -42,6 +42,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.security.crypto.codec.Hex;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -344,6 +345,54 @@ public class NotificationManager {
             });
     }
 
+    /**
+     * Enqueues multiple simple emails for the given event, looking up duplicates with a single query and
+     * inserting the new messages in a single batch.
+     *
+     * @param event the event
+     * @param emails the emails to enqueue
+     */
+    public void sendSimpleEmails(Event event, List<SimpleEmail> emails) {
+        if(emails.isEmpty()) {
+            return;
+        }
+        var rendered = new LinkedHashMap<String, Pair<SimpleEmail, RenderedTemplate>>();
+        for (SimpleEmail email : emails) {
+            var renderedTemplate = email.textBuilder().generate();
+            rendered.putIfAbsent(calculateChecksum(email.recipient(), null, email.subject(), renderedTemplate), Pair.of(email, renderedTemplate));
+        }
+        var existing = emailMessageRepository.findIdsByEventIdAndChecksums(event.getId(), rendered.keySet());
+        var requestTimestamp = ZonedDateTime.now(clockProvider.getClock()).toOffsetDateTime();
+        String encodedCC = Json.toJson(List.of());
+        var toBeInserted = new ArrayList<MapSqlParameterSource>();
+        rendered.forEach((checksum, pair) -> {
+            var email = pair.getLeft();
+            var renderedTemplate = pair.getRight();
+            Integer existingId = existing.get(checksum);
+            if(existingId != null) {
+                //see issue #967
+                emailMessageRepository.updateStatusToWaitingWithHtml(existingId, renderedTemplate.getHtmlPart());
+            } else {
+                toBeInserted.add(new MapSqlParameterSource("eventId", event.getId())
+                    .addValue("organizationId", event.getOrganizationId())
+                    .addValue("subscriptionDescriptorId", null)
+                    .addValue("reservationId", email.reservationId())
+                    .addValue("recipient", email.recipient())
+                    .addValue("subject", email.subject())
+                    .addValue("message", renderedTemplate.getTextPart())
+                    .addValue("htmlMessage", renderedTemplate.getHtmlPart())
+                    .addValue("attachments", null)
+                    .addValue("checksum", checksum)
+                    .addValue("timestamp", requestTimestamp)
+                    .addValue("emailCC", encodedCC));
+            }
+        });
+        emailMessageRepository.bulkInsert(toBeInserted);
+    }
+
+    public record SimpleEmail(String reservationId, String recipient, String subject, TemplateGenerator textBuilder) {
+    }
+
     private static Pair<Integer, UUID> getEventIdSubscriptionId(PurchaseContext purchaseContext) {
         if(purchaseContext.ofType(PurchaseContextType.event)) {
             return Pair.of(((Event)purchaseContext).getId(), null);
@@ -16,9 +16,10 @@
  */
 package alfio.manager;
 
-import alfio.repository.*;
+import alfio.manager.system.DataDeletionManager;
+import alfio.model.system.DataDeletionJob;
+import alfio.model.system.DataDeletionJob.TargetType;
 import alfio.repository.user.OrganizationRepository;
-import alfio.repository.user.join.UserOrganizationRepository;
 import alfio.util.RequestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,7 +27,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.security.Principal;
-import java.util.List;
+import java.util.Optional;
 
 @Component
 @Transactional
@@ -34,42 +35,34 @@ public class OrganizationDeleter {
 
     private static final Logger log = LoggerFactory.getLogger(OrganizationDeleter.class);
 
-    private final UserOrganizationRepository userOrganizationRepository;
     private final OrganizationRepository organizationRepository;
-    private final EventRepository eventRepository;
-    private final EventDeleterRepository eventDeleterRepository;
-    private final OrganizationDeleterRepository organizationDeleterRepository;
+    private final DataDeletionManager dataDeletionManager;
 
-    public OrganizationDeleter(UserOrganizationRepository userOrganizationRepository,
-                               OrganizationRepository organizationRepository,
-                               EventRepository eventRepository,
-                               EventDeleterRepository eventDeleterRepository,
-                               OrganizationDeleterRepository organizationDeleterRepository) {
-        this.userOrganizationRepository = userOrganizationRepository;
+    public OrganizationDeleter(OrganizationRepository organizationRepository,
+                               DataDeletionManager dataDeletionManager) {
         this.organizationRepository = organizationRepository;
-        this.eventRepository = eventRepository;
-        this.eventDeleterRepository = eventDeleterRepository;
-        this.organizationDeleterRepository = organizationDeleterRepository;
+        this.dataDeletionManager = dataDeletionManager;
     }
 
 
+    /**
+     * Hides the organization and its events, and schedules the deletion of their data in background.
+     *
+     * @see DataDeletionManager
+     */
     public boolean deleteOrganization(int organizationId, Principal principal) {
         boolean isAdmin = RequestUtils.isAdmin(principal) || RequestUtils.isSystemApiKey(principal);
         if (isAdmin) {
             var originalOrg = organizationRepository.getById(organizationId);
             log.warn("Delete organization {} ({}) initiated by user {}", organizationId, originalOrg.getName(), principal.getName());
-            var disabledEventIds = eventRepository.disableEventsForOrganization(organizationId);
-            if (!disabledEventIds.isEmpty()) {
-                log.warn("deleting {} events linked to organization {}", disabledEventIds.size(), organizationId);
-                disabledEventIds.forEach(eventDeleterRepository::deleteAllForEvent);
-            }
-            int users = userOrganizationRepository.cleanupOrganization(organizationId);
-            log.warn("removed {} user(s) from organization {}", users, organizationId);
-            organizationDeleterRepository.deleteEmptyOrganizations(List.of(organizationId));
+            dataDeletionManager.scheduleOrganizationDeletion(organizationId, principal.getName());
             return true;
         }
         return false;
     }
 
+    public Optional<DataDeletionJob> findDeletionJob(int organizationId) {
+        return dataDeletionManager.findLatestJob(TargetType.ORGANIZATION, organizationId);
+    }
 
 }
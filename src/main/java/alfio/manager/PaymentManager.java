@@ -27,6 +27,7 @@ import alfio.model.transaction.capabilities.ExtractPaymentTokenFromTransaction;
 import alfio.model.transaction.capabilities.PaymentInfo;
 import alfio.model.transaction.capabilities.RefundRequest;
 import alfio.repository.AuditingRepository;
+import alfio.repository.TicketReservationRepository;
 import alfio.repository.TransactionRepository;
 import alfio.repository.user.UserRepository;
 import org.apache.commons.lang3.tuple.Pair;
@@ -56,6 +57,7 @@ public class PaymentManager {
     private final AuditingRepository auditingRepository;
     private final UserRepository userRepository;
     private final ExtensionManager extensionManager;
+    private final TicketReservationRepository ticketReservationRepository;
 
     private final List<PaymentProvider> paymentProviders; // injected by Spring
 
@@ -64,12 +66,14 @@ public class PaymentManager {
                           AuditingRepository auditingRepository,
                           UserRepository userRepository,
                           ExtensionManager extensionManager,
+                          TicketReservationRepository ticketReservationRepository,
                           List<PaymentProvider> paymentProviders) {
         this.transactionRepository = transactionRepository;
         this.configurationManager = configurationManager;
         this.auditingRepository = auditingRepository;
         this.userRepository = userRepository;
         this.extensionManager = extensionManager;
+        this.ticketReservationRepository = ticketReservationRepository;
         this.paymentProviders = paymentProviders;
     }
 
@@ -172,6 +176,8 @@ public class PaymentManager {
             "paymentMethod", reservation.getPaymentMethod().toString()
         );
         if(res) {
+            // the order summary shows the refunded amount
+            ticketReservationRepository.bumpVersion(List.of(reservation.getId()));
             auditingRepository.insert(reservation.getId(), userRepository.findIdByUserName(username).orElse(null),
                     purchaseContext,
                 Audit.EventType.REFUND, new Date(), Audit.EntityType.RESERVATION, reservation.getId(),
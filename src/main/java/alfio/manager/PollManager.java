@@ -50,19 +50,22 @@ public class PollManager {
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final TicketSearchRepository ticketSearchRepository;
     private final AuditingRepository auditingRepository;
+    private final PollStatisticsNotifier pollStatisticsNotifier;
 
     public PollManager(PollRepository pollRepository,
                        EventRepository eventRepository,
                        TicketRepository ticketRepository,
                        NamedParameterJdbcTemplate jdbcTemplate,
                        TicketSearchRepository ticketSearchRepository,
-                       AuditingRepository auditingRepository) {
+                       AuditingRepository auditingRepository,
+                       PollStatisticsNotifier pollStatisticsNotifier) {
         this.pollRepository = pollRepository;
         this.eventRepository = eventRepository;
         this.ticketRepository = ticketRepository;
         this.jdbcTemplate = jdbcTemplate;
         this.ticketSearchRepository = ticketSearchRepository;
         this.auditingRepository = auditingRepository;
+        this.pollStatisticsNotifier = pollStatisticsNotifier;
     }
 
     public Result<List<Poll>> getActiveForEvent(String eventName, String pin) {
@@ -91,9 +94,8 @@ public class PollManager {
         return validatePinAndEvent(pin, eventName)
             .flatMap(eventAndTicket -> {
                 var event = eventAndTicket.getLeft();
-                var ticket = eventAndTicket.getRight();
-                Validate.isTrue(pollRepository.checkPollOption(optionId, pollId, event.getId()) == 1, "Invalid selection");
-                Validate.isTrue(pollRepository.registerAnswer(pollId, optionId, ticket.getId(), event.getOrganizationId()) == 1, "Unexpected error while inserting answer");
+                var ticketId = eventAndTicket.getRight();
+                Validate.isTrue(pollRepository.registerAnswer(pollId, optionId, ticketId, event.getId()) == 1, "Invalid selection");
                 return Result.success(true);
             });
     }
@@ -245,7 +247,7 @@ public class PollManager {
                     } else {
                         allowedParticipants = ticketRepository.countTicketsMatchingTagsAndStatus(event.getId(), p.allowedTags(), List.of(Ticket.TicketStatus.CHECKED_IN.name()));
                     }
-                    var statistics = pollRepository.getStatisticsFor(p.id(), event.getId());
+                    var statistics = pollStatisticsNotifier.getVotes(p.id(), () -> pollRepository.getStatisticsFor(p.id(), event.getId()));
                     return new PollStatistics(statistics.stream().mapToInt(PollOptionStatistics::votes).sum(), allowedParticipants, statistics);
                 }));
     }
@@ -280,7 +282,7 @@ public class PollManager {
         Validate.isTrue(IntStream.of(results).sum() == existingOptions.size(), "Unexpected result from update.");
     }
 
-    private Result<Pair<EventAndOrganizationId, Ticket>> validatePinAndEvent(String pin, String eventName) {
+    private Result<Pair<EventAndOrganizationId, Integer>> validatePinAndEvent(String pin, String eventName) {
         var eventOptional = eventRepository.findOptionalEventAndOrganizationIdByShortName(eventName);
         return new Result.Builder<EventAndOrganizationId>()
             .checkPrecondition(eventOptional::isPresent, ErrorCode.EventError.NOT_FOUND)
@@ -288,13 +290,16 @@ public class PollManager {
             .build(eventOptional::get)
             .flatMap(event -> {
                 var partialUuid = PinGenerator.pinToPartialUuid(pin);
+                if(partialUuid.length() != PinGenerator.UUID_PREFIX_LENGTH) {
+                    return Result.error(ErrorCode.custom("pin.invalid", ""));
+                }
                 // find checkedIn ticket
-                var tickets = ticketRepository.findByEventIdAndPartialUUIDForUpdate(event.getId(), partialUuid + "%", Ticket.TicketStatus.CHECKED_IN);
-                int numResults = tickets.size();
+                var ticketIds = ticketRepository.findCheckedInTicketIdsByUUIDPrefix(event.getId(), partialUuid);
+                int numResults = ticketIds.size();
                 if(numResults != 1) {
                     return Result.error(ErrorCode.custom(numResults > 1 ? "pin.duplicate" : "pin.invalid", ""));
                 }
-                return Result.success(Pair.of(event, tickets.get(0)));
+                return Result.success(Pair.of(event, ticketIds.get(0)));
             });
     }
 
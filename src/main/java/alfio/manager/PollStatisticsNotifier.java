@@ -0,0 +1,278 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.model.poll.PollOptionStatistics;
+import alfio.model.poll.PollStatistics;
+import alfio.util.PostgresNotificationListener;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the vote tallies of the polls in memory and pushes the updated statistics to the subscribers connected to this node.
+ * <p>
+ * Every answer triggers a PostgreSQL notification carrying the poll id (see V205_2.0.0.60__POLL_VOTES.sql),
+ * delivered to all nodes once the transaction commits. A notification invalidates the tally of the poll, and
+ * subscribers get the new statistics at most once per second, regardless of the number
+ * of votes received in the meantime.
+ * <p>
+ * Tallies are not cached while this node is not listening for notifications.
+ */
+@Component
+public class PollStatisticsNotifier implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PollStatisticsNotifier.class);
+    static final String CHANNEL = "alfio_poll_answer";
+    private static final long DISPATCH_INTERVAL_MILLIS = 1_000;
+    private static final int MAX_SUBSCRIBERS_PER_POLL = 50;
+    private static final int CACHE_SIZE = 1_000;
+
+    private final Cache<Long, VersionedTally> tallies;
+    // incremented on each change, so that tallies loaded in the meantime are not cached
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Long, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Set<Long> changedPolls = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dispatchStarted = new AtomicBoolean();
+    private final ScheduledExecutorService dispatchExecutor = Executors.newSingleThreadScheduledExecutor(new BasicThreadFactory.Builder()
+        .namingPattern("poll-statistics-dispatch-%d")
+        .daemon(true)
+        .build());
+    private final long dispatchIntervalMillis;
+    private final int maxSubscribers;
+    private volatile boolean listening = false;
+
+    @Autowired
+    public PollStatisticsNotifier(PostgresNotificationListener notificationListener, Environment environment) {
+        this(notificationListener, environment, DISPATCH_INTERVAL_MILLIS);
+    }
+
+    PollStatisticsNotifier(PostgresNotificationListener notificationListener, Environment environment, long dispatchIntervalMillis) {
+        this.dispatchIntervalMillis = dispatchIntervalMillis;
+        this.maxSubscribers = environment.getProperty("alfio.pollStatistics.maxSubscribers", Integer.class, 1_000);
+        this.tallies = Caffeine.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .expireAfterWrite(Duration.ofSeconds(environment.getProperty("alfio.pollStatistics.cacheTtlSeconds", Integer.class, 600)))
+            .build();
+        notificationListener.addHandler(CHANNEL, new PostgresNotificationListener.Handler() {
+            @Override
+            public void connected() {
+                listenerConnected();
+            }
+
+            @Override
+            public void disconnected() {
+                listenerDisconnected();
+            }
+
+            @Override
+            public void notificationsReceived(PGNotification[] notifications) {
+                for (PGNotification notification : notifications) {
+                    pollChanged(Long.parseLong(notification.getParameter()));
+                }
+            }
+        });
+    }
+
+    /**
+     * @param pollId the poll
+     * @param loader loads the votes if they are not cached
+     * @return the number of votes for each option
+     */
+    public List<PollOptionStatistics> getVotes(long pollId, Supplier<List<PollOptionStatistics>> loader) {
+        long currentGeneration = generation.get();
+        long currentVersion = versions.getOrDefault(pollId, 0L);
+        if(listening) {
+            var cached = tallies.getIfPresent(pollId);
+            if(cached != null && cached.generation == currentGeneration && cached.version == currentVersion) {
+                return cached.votes;
+            }
+        }
+        var votes = List.copyOf(loader.get());
+        if(listening && generation.get() == currentGeneration && versions.getOrDefault(pollId, 0L) == currentVersion) {
+            tallies.put(pollId, new VersionedTally(currentGeneration, currentVersion, votes));
+        }
+        return votes;
+    }
+
+    /**
+     * Registers a listener for the statistics of the given poll.
+     *
+     * @param loader loads the current statistics. It is called once per change, regardless of the number of subscribers
+     * @return the subscription, or an empty Optional if the limits for this node have been reached
+     */
+    public Optional<Subscription> subscribe(long pollId, Supplier<Optional<PollStatistics>> loader, StatisticsListener statisticsListener) {
+        if(subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            log.debug("cannot accept subscription for poll {}: too many subscribers", pollId);
+            return Optional.empty();
+        }
+        var subscription = new Subscription(pollId, loader, statisticsListener);
+        var accepted = new AtomicBoolean();
+        subscriptions.compute(pollId, (k, list) -> {
+            var result = list != null ? list : new CopyOnWriteArrayList<Subscription>();
+            if(result.size() < MAX_SUBSCRIBERS_PER_POLL) {
+                result.add(subscription);
+                accepted.set(true);
+            }
+            return result;
+        });
+        if(!accepted.get()) {
+            subscriberCount.decrementAndGet();
+            return Optional.empty();
+        }
+        if(dispatchStarted.compareAndSet(false, true)) {
+            dispatchExecutor.scheduleWithFixedDelay(this::dispatchChanges, dispatchIntervalMillis, dispatchIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return Optional.of(subscription);
+    }
+
+    int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.pollId, (k, list) -> {
+            if(list.remove(subscription)) {
+                subscriberCount.decrementAndGet();
+            }
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    void pollChanged(long pollId) {
+        versions.merge(pollId, 1L, Long::sum);
+        tallies.invalidate(pollId);
+        if(subscriptions.containsKey(pollId)) {
+            changedPolls.add(pollId);
+        }
+    }
+
+    void dispatchChanges() {
+        Collection<Long> pollIds;
+        if(listening) {
+            pollIds = new ArrayList<>(changedPolls);
+            changedPolls.removeAll(pollIds);
+        } else {
+            // changes cannot be detected, so we refresh all the subscribers
+            changedPolls.clear();
+            pollIds = new ArrayList<>(subscriptions.keySet());
+        }
+        pollIds.forEach(this::dispatch);
+    }
+
+    private void dispatch(long pollId) {
+        var pollSubscriptions = subscriptions.getOrDefault(pollId, List.of());
+        if(pollSubscriptions.isEmpty()) {
+            return;
+        }
+        Optional<PollStatistics> statistics;
+        try {
+            statistics = pollSubscriptions.get(0).loader.get();
+        } catch(Exception e) {
+            log.error("cannot load statistics for poll {}", pollId, e);
+            return;
+        }
+        pollSubscriptions.forEach(subscription -> subscription.deliver(statistics.orElse(null)));
+    }
+
+    void listenerConnected() {
+        invalidateAll();
+        listening = true;
+        // notifications might have been missed while disconnected
+        changedPolls.addAll(subscriptions.keySet());
+    }
+
+    void listenerDisconnected() {
+        listening = false;
+        invalidateAll();
+    }
+
+    private void invalidateAll() {
+        generation.incrementAndGet();
+        tallies.invalidateAll();
+    }
+
+    @Override
+    public void destroy() {
+        listenerDisconnected();
+        dispatchExecutor.shutdownNow();
+    }
+
+    private static final class VersionedTally {
+        private final long generation;
+        private final long version;
+        private final List<PollOptionStatistics> votes;
+
+        private VersionedTally(long generation, long version, List<PollOptionStatistics> votes) {
+            this.generation = generation;
+            this.version = version;
+            this.votes = votes;
+        }
+    }
+
+    @FunctionalInterface
+    public interface StatisticsListener {
+        /**
+         * @param statistics the updated statistics, or {@code null} if the poll doesn't exist anymore
+         */
+        void statisticsChanged(PollStatistics statistics) throws IOException;
+    }
+
+    public final class Subscription {
+        private final long pollId;
+        private final Supplier<Optional<PollStatistics>> loader;
+        private final StatisticsListener listener;
+
+        private Subscription(long pollId, Supplier<Optional<PollStatistics>> loader, StatisticsListener listener) {
+            this.pollId = pollId;
+            this.loader = loader;
+            this.listener = listener;
+        }
+
+        private void deliver(PollStatistics statistics) {
+            try {
+                listener.statisticsChanged(statistics);
+            } catch(Exception e) {
+                log.trace("cannot deliver statistics for poll {}", pollId, e);
+                cancel();
+            }
+        }
+
+        public void cancel() {
+            unsubscribe(this);
+        }
+    }
+}
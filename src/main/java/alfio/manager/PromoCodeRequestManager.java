@@ -16,6 +16,7 @@
  */
 package alfio.manager;
 
+import alfio.config.support.PromoCodeDiscountCache;
 import alfio.controller.form.ReservationForm;
 import alfio.manager.support.response.ValidatedResponse;
 import alfio.model.Event;
@@ -50,13 +51,13 @@ import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
-import static alfio.model.PromoCodeDiscount.categoriesOrNull;
 
 @Component
 public class PromoCodeRequestManager {
 
     private final SpecialPriceRepository specialPriceRepository;
     private final PromoCodeDiscountRepository promoCodeRepository;
+    private final PromoCodeDiscountCache promoCodeDiscountCache;
     private final TicketCategoryRepository ticketCategoryRepository;
     private final EventManager eventManager;
     private final EventRepository eventRepository;
@@ -65,6 +66,7 @@ public class PromoCodeRequestManager {
 
     public PromoCodeRequestManager(SpecialPriceRepository specialPriceRepository,
                                    PromoCodeDiscountRepository promoCodeRepository,
+                                   PromoCodeDiscountCache promoCodeDiscountCache,
                                    TicketCategoryRepository ticketCategoryRepository,
                                    EventManager eventManager,
                                    EventRepository eventRepository,
@@ -72,6 +74,7 @@ public class PromoCodeRequestManager {
                                    ClockProvider clockProvider) {
         this.specialPriceRepository = specialPriceRepository;
         this.promoCodeRepository = promoCodeRepository;
+        this.promoCodeDiscountCache = promoCodeDiscountCache;
         this.ticketCategoryRepository = ticketCategoryRepository;
         this.eventManager = eventManager;
         this.eventRepository = eventRepository;
@@ -152,7 +155,7 @@ public class PromoCodeRequestManager {
         ZonedDateTime now = ZonedDateTime.now(clockProvider.withZone(eventZoneId));
         Optional<String> maybeSpecialCode = Optional.ofNullable(StringUtils.trimToNull(promoCode));
         Optional<SpecialPrice> specialCode = maybeSpecialCode.flatMap(specialPriceRepository::getByCode);
-        Optional<PromoCodeDiscount> promotionCodeDiscount = maybeSpecialCode.flatMap(trimmedCode -> promoCodeRepository.findPublicPromoCodeInEventOrOrganization(event.getId(), trimmedCode));
+        Optional<PromoCodeDiscount> promotionCodeDiscount = maybeSpecialCode.flatMap(trimmedCode -> promoCodeDiscountCache.findPublicPromoCodeInEventOrOrganization(event.getId(), trimmedCode));
 
         var result = Pair.of(specialCode, promotionCodeDiscount);
 
@@ -187,7 +190,7 @@ public class PromoCodeRequestManager {
             return PromoCodeType.NOT_FOUND;
         }  else if(specialPriceRepository.getByCode(trimmedCode).isPresent()) {
             return PromoCodeType.SPECIAL_PRICE;
-        } else if (promoCodeRepository.findPublicPromoCodeInEventOrOrganization(eventId, trimmedCode).isPresent()) {
+        } else if (promoCodeDiscountCache.findPublicPromoCodeInEventOrOrganization(eventId, trimmedCode).isPresent()) {
             return PromoCodeType.PROMO_CODE_DISCOUNT;
         } else if (ticketCategoryRepository.findCodeInEvent(eventId, trimmedCode).isPresent()) {
             return PromoCodeType.TICKET_CATEGORY_CODE;
@@ -197,7 +200,7 @@ public class PromoCodeRequestManager {
     }
 
     private boolean isDiscountCodeUsageExceeded(PromoCodeDiscount discount) {
-        return discount.getMaxUsage() != null && discount.getMaxUsage() <= promoCodeRepository.countConfirmedPromoCode(discount.getId(), categoriesOrNull(discount), null, categoriesOrNull(discount) != null ? "X" : null);
+        return discount.getMaxUsage() != null && discount.getMaxUsage() <= promoCodeRepository.getConfirmedUsage(discount.getId());
     }
 
     private Pair<Optional<String>, BindingResult> makeSimpleReservation(Event event,
@@ -237,11 +240,10 @@ public class PromoCodeRequestManager {
     }
 
     public int countUsage(int promoCodeId) {
-        Optional<PromoCodeDiscount> code = findById(promoCodeId);
-        if(code.isEmpty()) {
+        if(findById(promoCodeId).isEmpty()) {
             return 0;
         }
-        return promoCodeRepository.countConfirmedPromoCode(promoCodeId, categoriesOrNull(code.get()), null, categoriesOrNull(code.get()) != null ? "X" : null);
+        return promoCodeRepository.getConfirmedUsage(promoCodeId);
     }
 
     public List<PromoCodeUsageResult> retrieveDetailedUsage(int promoCodeId, Integer eventId) {
@@ -16,6 +16,7 @@
  */
 package alfio.manager;
 
+import alfio.manager.support.PagedResults;
 import alfio.model.Event;
 import alfio.model.PurchaseContext;
 import alfio.model.ReservationPaymentDetail;
@@ -24,13 +25,14 @@ import alfio.model.subscription.SubscriptionDescriptor;
 import alfio.model.transaction.PaymentProxy;
 import alfio.repository.TicketSearchRepository;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
@@ -45,37 +47,54 @@ public class PurchaseContextSearchManager {
         .map(PaymentProxy::name)
         .collect(Collectors.toUnmodifiableList());
     private final TicketSearchRepository ticketSearchRepository;
+    // totals are counted up to this value, so that the cost of the count is bounded
+    private final int maxCount;
 
-    public PurchaseContextSearchManager(TicketSearchRepository ticketSearchRepository) {
+    public PurchaseContextSearchManager(TicketSearchRepository ticketSearchRepository, Environment environment) {
         this.ticketSearchRepository = ticketSearchRepository;
+        this.maxCount = environment.getProperty("alfio.purchaseContextSearch.maxCount", Integer.class, 10_000);
     }
 
-    public Pair<List<TicketReservation>, Integer> findAllReservationsFor(PurchaseContext purchaseContext, Integer page, String search, List<TicketReservation.TicketReservationStatus> status) {
-        int offset = page == null ? 0 : page * PAGE_SIZE;
+    /**
+     * Loads a page of reservations. If {@code after} is defined, the page starts after the given reservation,
+     * otherwise {@code page} is used as offset.
+     */
+    public PagedResults<TicketReservation> findAllReservationsFor(PurchaseContext purchaseContext, Integer page, String after, String search, List<TicketReservation.TicketReservationStatus> status) {
+        int pageNumber = page == null ? 0 : page;
         String toSearch = StringUtils.trimToNull(search);
         toSearch = toSearch == null ? null : ("%" + toSearch + "%");
         List<String> toFilter = (status == null || status.isEmpty() ? Arrays.asList(TicketReservation.TicketReservationStatus.values()) : status).stream().map(TicketReservation.TicketReservationStatus::toString).collect(toList());
         if(purchaseContext.ofType(PurchaseContext.PurchaseContextType.event)) {
             var event = (Event)purchaseContext;
-            List<TicketReservation> reservationsForEvent = ticketSearchRepository.findReservationsForEvent(event.getId(), offset, PAGE_SIZE, toSearch, toFilter);
-            return Pair.of(reservationsForEvent, ticketSearchRepository.countReservationsForEvent(event.getId(), toSearch, toFilter));
+            var cursor = StringUtils.trimToNull(after);
+            // we load one more result in order to know if there is a next page
+            List<TicketReservation> reservationsForEvent = ticketSearchRepository.findReservationsForEvent(event.getId(), toSearch, toFilter, cursor, PAGE_SIZE + 1, cursor == null ? pageNumber * PAGE_SIZE : 0);
+            int total = ticketSearchRepository.countReservationsForEvent(event.getId(), toSearch, toFilter, maxCount);
+            return toPagedResults(reservationsForEvent, total, TicketReservation::getId);
         } else {
             var subscription = (SubscriptionDescriptor) purchaseContext;
-            List<TicketReservation> reservationsForSubscription = ticketSearchRepository.findReservationsForSubscription(subscription.getId(), offset, PAGE_SIZE, toSearch, toFilter);
-            return Pair.of(reservationsForSubscription, ticketSearchRepository.countReservationsForSubscription(subscription.getId(), toSearch, toFilter));
+            List<TicketReservation> reservationsForSubscription = ticketSearchRepository.findReservationsForSubscription(subscription.getId(), pageNumber * PAGE_SIZE, PAGE_SIZE, toSearch, toFilter);
+            return new PagedResults<>(reservationsForSubscription, ticketSearchRepository.countReservationsForSubscription(subscription.getId(), toSearch, toFilter), false, null);
         }
     }
 
-    public Pair<List<ReservationPaymentDetail>, Integer> findAllPaymentsFor(PurchaseContext purchaseContext, Integer page, String search) {
-        int offset = page == null ? 0 : page * PAGE_SIZE;
+    /**
+     * Loads a page of payments. If {@code after} is defined, the page starts after the given transaction,
+     * otherwise {@code page} is used as offset.
+     */
+    public PagedResults<ReservationPaymentDetail> findAllPaymentsFor(PurchaseContext purchaseContext, Integer page, String after, String search) {
+        int pageNumber = page == null ? 0 : page;
         String toSearch = StringUtils.trimToNull(search);
         toSearch = toSearch == null ? null : ("%" + toSearch + "%");
         var toFilter = List.of(TicketReservation.TicketReservationStatus.COMPLETE.name());
 
         if(purchaseContext.ofType(PurchaseContext.PurchaseContextType.event)) {
             var event = (Event)purchaseContext;
-            List<ReservationPaymentDetail> reservationsForEvent = ticketSearchRepository.findAllPaymentsForEvent(event.getId(), offset, PAGE_SIZE, toSearch, toFilter, SUPPORTED_PAYMENT_METHODS);
-            return Pair.of(reservationsForEvent, ticketSearchRepository.countConfirmedPaymentsForEvent(event.getId(), toSearch, toFilter, SUPPORTED_PAYMENT_METHODS));
+            // the cursor is a transaction id
+            var cursor = StringUtils.isNumeric(after) ? after : null;
+            List<ReservationPaymentDetail> reservationsForEvent = ticketSearchRepository.findAllPaymentsForEvent(event.getId(), toSearch, toFilter, SUPPORTED_PAYMENT_METHODS, cursor, PAGE_SIZE + 1, cursor == null ? pageNumber * PAGE_SIZE : 0);
+            int total = ticketSearchRepository.countConfirmedPaymentsForEvent(event.getId(), toSearch, toFilter, SUPPORTED_PAYMENT_METHODS, maxCount);
+            return toPagedResults(reservationsForEvent, total, p -> String.valueOf(p.getTransactionId()));
         } else {
             // functionality is not yet available for subscriptions
             throw new UnsupportedOperationException("not implemented");
@@ -94,4 +113,11 @@ public class PurchaseContextSearchManager {
             throw new UnsupportedOperationException("not implemented");
         }
     }
+
+    private static <T> PagedResults<T> toPagedResults(List<T> results, int total, Function<T, String> cursorExtractor) {
+        boolean hasMoreResults = results.size() > PAGE_SIZE;
+        var pageResults = hasMoreResults ? results.subList(0, PAGE_SIZE) : results;
+        String nextPageCursor = hasMoreResults ? cursorExtractor.apply(pageResults.get(pageResults.size() - 1)) : null;
+        return new PagedResults<>(pageResults, total, total >= maxCount, nextPageCursor);
+    }
 }
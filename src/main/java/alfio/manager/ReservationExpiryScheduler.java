@@ -0,0 +1,148 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.config.Initializer;
+import alfio.manager.system.ConfigurationManager;
+import alfio.model.ReservationIdAndValidity;
+import alfio.model.system.command.ScheduleReservationExpiration;
+import alfio.repository.TicketReservationRepository;
+import alfio.util.ClockProvider;
+import alfio.util.HierarchicalTimingWheel;
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static alfio.model.system.ConfigurationKeys.RESERVATION_EXPIRATION_GRACE_PERIOD_SECONDS;
+
+/**
+ * Releases pending reservations shortly after their expiration, instead of waiting for the next run of
+ * {@link alfio.job.Jobs#cleanupExpiredPendingReservation()}.
+ * <p>
+ * Reservations are kept in a node-local {@link HierarchicalTimingWheel}, fed by the reservations created on this node
+ * and periodically synchronized with the database, so that reservations created on other nodes are covered as well.
+ * The actual removal is delegated to the {@link ExpiredReservationSweeper}, which locks the reservations with
+ * {@code skip locked}: if more than one node processes the same reservation, only one of them will release it.
+ */
+@Component
+@DependsOn("migrator")
+@Profile("!" + Initializer.PROFILE_DISABLE_JOBS)
+public class ReservationExpiryScheduler implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationExpiryScheduler.class);
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 64;
+    private static final long RELOAD_INTERVAL_MILLIS = Duration.ofMinutes(5).toMillis();
+    private static final long RELOAD_HORIZON_MILLIS = Duration.ofHours(1).toMillis();
+    private static final int RELOAD_LIMIT = 50_000;
+    private static final long RETRY_DELAY_MILLIS = Duration.ofSeconds(30).toMillis();
+    private static final int RESCHEDULE_CHUNK_SIZE = 1000;
+
+    private final TicketReservationRepository ticketReservationRepository;
+    private final ExpiredReservationSweeper expiredReservationSweeper;
+    private final WaitingQueueSubscriptionProcessor waitingQueueSubscriptionProcessor;
+    private final ConfigurationManager configurationManager;
+    private final ClockProvider clockProvider;
+    private final HierarchicalTimingWheel<String> wheel;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new BasicThreadFactory.Builder()
+        .namingPattern("reservation-expiry-%d")
+        .build());
+
+    public ReservationExpiryScheduler(TicketReservationRepository ticketReservationRepository,
+                                      ExpiredReservationSweeper expiredReservationSweeper,
+                                      WaitingQueueSubscriptionProcessor waitingQueueSubscriptionProcessor,
+                                      ConfigurationManager configurationManager,
+                                      ClockProvider clockProvider) {
+        this.ticketReservationRepository = ticketReservationRepository;
+        this.expiredReservationSweeper = expiredReservationSweeper;
+        this.waitingQueueSubscriptionProcessor = waitingQueueSubscriptionProcessor;
+        this.configurationManager = configurationManager;
+        this.clockProvider = clockProvider;
+        this.wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, WHEEL_SIZE, clockProvider.getClock().millis());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        executor.scheduleWithFixedDelay(this::reload, 0, RELOAD_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void reservationCreated(ScheduleReservationExpiration command) {
+        wheel.schedule(command.reservationId(), command.expiration().getTime() + gracePeriodMillis());
+    }
+
+    void reload() {
+        try {
+            long now = clockProvider.getClock().millis();
+            long gracePeriod = gracePeriodMillis();
+            // reservations already expired are released at the next tick
+            var reservations = ticketReservationRepository.findPendingReservationsExpiringBefore(new Date(now + RELOAD_HORIZON_MILLIS), RELOAD_LIMIT);
+            reservations.forEach(r -> wheel.schedule(r.id(), r.validity().getTime() + gracePeriod));
+            log.trace("scheduled expiration of {} pending reservations", reservations.size());
+        } catch (Exception e) {
+            log.error("cannot load pending reservations", e);
+        }
+    }
+
+    void tick() {
+        try {
+            long now = clockProvider.getClock().millis();
+            List<String> due = wheel.advance(now);
+            if (due.isEmpty()) {
+                return;
+            }
+            long gracePeriod = gracePeriodMillis();
+            var statistics = expiredReservationSweeper.sweep(due, new Date(now - gracePeriod));
+            waitingQueueSubscriptionProcessor.handleReleasedSeats(statistics.getReleasedEventIds());
+            // reservations which have been extended, or which could not be released, are scheduled again
+            ListUtils.partition(due, RESCHEDULE_CHUNK_SIZE).forEach(ids ->
+                ticketReservationRepository.findPendingReservationsValidity(ids).forEach(r -> reschedule(r, now, gracePeriod)));
+        } catch (Exception e) {
+            log.error("error while releasing expired reservations", e);
+        }
+    }
+
+    private void reschedule(ReservationIdAndValidity reservation, long now, long gracePeriod) {
+        long deadline = reservation.validity().getTime() + gracePeriod;
+        wheel.schedule(reservation.id(), deadline > now ? deadline : now + RETRY_DELAY_MILLIS);
+    }
+
+    private long gracePeriodMillis() {
+        return TimeUnit.SECONDS.toMillis(configurationManager.getForSystem(RESERVATION_EXPIRATION_GRACE_PERIOD_SECONDS).getValueAsIntOrDefault(30));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
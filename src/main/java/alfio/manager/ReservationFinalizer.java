@@ -34,6 +34,7 @@ import alfio.model.modification.TransactionMetadataModification;
 import alfio.model.subscription.SubscriptionDescriptor;
 import alfio.model.support.UserIdAndOrganizationId;
 import alfio.model.system.command.FinalizeReservation;
+import alfio.model.system.command.NotifyReservationStatusChange;
 import alfio.model.transaction.PaymentProxy;
 import alfio.model.transaction.Transaction;
 import alfio.repository.*;
@@ -48,6 +49,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
@@ -98,6 +100,7 @@ public class ReservationFinalizer {
     private final AdminJobQueueRepository adminJobQueueRepository;
     private final PurchaseContextManager purchaseContextManager;
     private final Json json;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
 
     public ReservationFinalizer(PlatformTransactionManager transactionManager,
@@ -120,7 +123,8 @@ public class ReservationFinalizer {
                                 TransactionRepository transactionRepository,
                                 AdminJobQueueRepository adminJobQueueRepository,
                                 PurchaseContextManager purchaseContextManager,
-                                Json json) {
+                                Json json,
+                                ApplicationEventPublisher applicationEventPublisher) {
         this.ticketReservationRepository = ticketReservationRepository;
         this.userRepository = userRepository;
         this.extensionManager = extensionManager;
@@ -137,6 +141,7 @@ public class ReservationFinalizer {
         this.billingDocumentManager = billingDocumentManager;
         this.additionalServiceItemRepository = additionalServiceItemRepository;
         this.transactionRepository = transactionRepository;
+        this.applicationEventPublisher = applicationEventPublisher;
         DefaultTransactionDefinition definition = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
         this.transactionTemplate = new TransactionTemplate(transactionManager, definition);
         this.orderSummaryGenerator = orderSummaryGenerator;
@@ -250,6 +255,7 @@ public class ReservationFinalizer {
             // if paymentProxy is offline, we set the appropriate status to wait for payment
             ticketReservationRepository.updateReservationStatus(reservationId, finalizeReservation.getOriginalStatus().name());
         }
+        applicationEventPublisher.publishEvent(new NotifyReservationStatusChange(reservationId));
 
         Date eventTime = new Date();
         auditingRepository.insert(reservationId, userId, purchaseContext, Audit.EventType.RESERVATION_COMPLETE, eventTime, Audit.EntityType.RESERVATION, reservationId);
@@ -413,6 +419,7 @@ public class ReservationFinalizer {
 
 
         ticketReservationRepository.confirmOfflinePayment(reservationId, COMPLETE.name(), event.now(clockProvider));
+        applicationEventPublisher.publishEvent(new NotifyReservationStatusChange(reservationId));
 
         registerAlfioTransaction(event, reservationId, transactionMetadataModification, PaymentProxy.OFFLINE);
 
@@ -0,0 +1,231 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.model.ReservationIdStatusAndValidation;
+import alfio.model.TicketReservationStatusAndValidation;
+import alfio.model.system.command.NotifyReservationStatusChange;
+import alfio.repository.TicketReservationRepository;
+import alfio.util.PostgresNotificationListener;
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes reservation status changes to the subscribers connected to this node.
+ * <p>
+ * Status changes are broadcast to all nodes through PostgreSQL {@code LISTEN/NOTIFY}. Since the notification is sent
+ * within the transaction which changes the status, it is delivered only if (and when) the transaction commits.
+ * Each node listens through the shared {@link PostgresNotificationListener} and reloads the status of the
+ * notified reservations having local subscribers, in batches. After a reconnection, all local subscribers are refreshed,
+ * since notifications might have been missed.
+ * <p>
+ * The number of subscribers per node and per reservation is limited. When a limit is reached, or when too many
+ * notifications are waiting to be dispatched, clients are expected to fall back to polling.
+ */
+@Component
+public class ReservationStatusNotifier implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationStatusNotifier.class);
+    static final String CHANNEL = "alfio_reservation_status";
+    private static final int MAX_SUBSCRIBERS_PER_RESERVATION = 5;
+    private static final int MAX_PENDING_NOTIFICATIONS = 10_000;
+    private static final int DISPATCH_BATCH_SIZE = 500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TicketReservationRepository ticketReservationRepository;
+    private final int maxSubscribers;
+    private final Map<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Set<String> pendingNotifications = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+    private final ExecutorService dispatchExecutor = Executors.newSingleThreadExecutor(new BasicThreadFactory.Builder()
+        .namingPattern("reservation-status-dispatch-%d")
+        .build());
+
+    public ReservationStatusNotifier(PostgresNotificationListener notificationListener,
+                                     NamedParameterJdbcTemplate jdbcTemplate,
+                                     TicketReservationRepository ticketReservationRepository,
+                                     Environment environment) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ticketReservationRepository = ticketReservationRepository;
+        this.maxSubscribers = environment.getProperty("alfio.reservationStatus.maxSubscribers", Integer.class, 10_000);
+        notificationListener.addHandler(CHANNEL, new PostgresNotificationListener.Handler() {
+            @Override
+            public void connected() {
+                listenerConnected();
+            }
+
+            @Override
+            public void disconnected() {
+                // nothing to do: subscribers are refreshed once the listener is connected again
+            }
+
+            @Override
+            public void notificationsReceived(PGNotification[] notifications) {
+                for (PGNotification notification : notifications) {
+                    notificationReceived(notification.getParameter());
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends the notification to all nodes. If a transaction is active, the notification is delivered after commit.
+     */
+    @EventListener
+    public void statusChanged(NotifyReservationStatusChange command) {
+        jdbcTemplate.query("select pg_notify(:channel, :reservationId)",
+            new MapSqlParameterSource("channel", CHANNEL).addValue("reservationId", command.reservationId()),
+            rs -> null);
+    }
+
+    /**
+     * Registers a listener for the status changes of the given reservation.
+     *
+     * @return the subscription, or an empty Optional if the limits for this node have been reached
+     */
+    public Optional<Subscription> subscribe(String reservationId, StatusListener statusListener) {
+        if(subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            log.debug("cannot accept subscription for reservation {}: too many subscribers", reservationId);
+            return Optional.empty();
+        }
+        var subscription = new Subscription(reservationId, statusListener);
+        var accepted = new AtomicBoolean();
+        subscriptions.compute(reservationId, (k, list) -> {
+            var result = list != null ? list : new CopyOnWriteArrayList<Subscription>();
+            if(result.size() < MAX_SUBSCRIBERS_PER_RESERVATION) {
+                result.add(subscription);
+                accepted.set(true);
+            }
+            return result;
+        });
+        if(!accepted.get()) {
+            subscriberCount.decrementAndGet();
+            return Optional.empty();
+        }
+        return Optional.of(subscription);
+    }
+
+    int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.reservationId, (k, list) -> {
+            if(list.remove(subscription)) {
+                subscriberCount.decrementAndGet();
+            }
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    void notificationReceived(String reservationId) {
+        if(!subscriptions.containsKey(reservationId)) {
+            return;
+        }
+        if(pendingNotifications.size() >= MAX_PENDING_NOTIFICATIONS) {
+            // subscribers will get the current status when they reconnect
+            log.warn("too many pending notifications, ignoring status change for reservation {}", reservationId);
+            return;
+        }
+        pendingNotifications.add(reservationId);
+        if(dispatchScheduled.compareAndSet(false, true)) {
+            dispatchExecutor.execute(this::dispatchPending);
+        }
+    }
+
+    private void dispatchPending() {
+        dispatchScheduled.set(false);
+        var reservationIds = new ArrayList<>(pendingNotifications);
+        pendingNotifications.removeAll(reservationIds);
+        if(reservationIds.isEmpty()) {
+            return;
+        }
+        try {
+            ListUtils.partition(reservationIds, DISPATCH_BATCH_SIZE).forEach(this::dispatch);
+        } catch(Exception e) {
+            log.error("cannot dispatch reservation status changes", e);
+        }
+    }
+
+    void dispatch(List<String> reservationIds) {
+        var statuses = new HashMap<String, TicketReservationStatusAndValidation>();
+        for (ReservationIdStatusAndValidation s : ticketReservationRepository.findStatusAndValidationByIds(reservationIds)) {
+            statuses.put(s.id(), new TicketReservationStatusAndValidation(s.status(), s.validated()));
+        }
+        reservationIds.forEach(id -> {
+            var status = statuses.get(id);
+            subscriptions.getOrDefault(id, List.of()).forEach(subscription -> subscription.deliver(status));
+        });
+    }
+
+    void listenerConnected() {
+        subscriptions.keySet().forEach(this::notificationReceived);
+    }
+
+    @Override
+    public void destroy() {
+        dispatchExecutor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface StatusListener {
+        /**
+         * @param status the new status, or {@code null} if the reservation doesn't exist anymore
+         */
+        void statusChanged(TicketReservationStatusAndValidation status) throws IOException;
+    }
+
+    public final class Subscription {
+        private final String reservationId;
+        private final StatusListener listener;
+
+        private Subscription(String reservationId, StatusListener listener) {
+            this.reservationId = reservationId;
+            this.listener = listener;
+        }
+
+        private void deliver(TicketReservationStatusAndValidation status) {
+            try {
+                listener.statusChanged(status);
+            } catch(Exception e) {
+                log.trace("cannot deliver status change for reservation {}", reservationId, e);
+                cancel();
+            }
+        }
+
+        public void cancel() {
+            unsubscribe(this);
+        }
+    }
+}
@@ -290,6 +290,7 @@ public class ReverseChargeManager {
                 event,
                 List.of());
             // update all tickets in reservation to match the VAT_STATUS
+            ticketReservationRepository.bumpVersion(List.of(reservationId));
             ticketRepository.updateVatStatusForReservation(reservationId, reservation.getVatStatus());
             updateTicketPricesByCategory(reservationId, reservation.getCurrencyCode(), event, priceContainers);
         }
@@ -25,16 +25,24 @@ import alfio.model.system.ConfigurationKeys;
 import alfio.repository.EventRepository;
 import alfio.repository.SpecialPriceRepository;
 import alfio.repository.TicketCategoryRepository;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.commons.text.RandomStringGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.security.SecureRandom;
+import java.util.*;
+
+import static java.util.stream.Collectors.*;
 
 /**
  * Class SpecialPriceTokenGenerator.
@@ -60,60 +68,102 @@ public class SpecialPriceTokenGenerator {
         .usingRandom(RANDOM::nextInt)
         .build();
 
+    /**
+     * codes are generated, checked and written in chunks of this size
+     */
+    static final int CHUNK_SIZE = 1000;
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
     private final SpecialPriceRepository specialPriceRepository;
     private final TicketCategoryRepository ticketCategoryRepository;
     private final EventRepository eventRepository;
     private final ConfigurationManager configurationManager;
+    private final TransactionTemplate nestedTransactionTemplate;
 
     @Autowired
     public SpecialPriceTokenGenerator(ConfigurationManager configurationManager,
                                       SpecialPriceRepository specialPriceRepository,
                                       TicketCategoryRepository ticketCategoryRepository,
-                                      EventRepository eventRepository) {
+                                      EventRepository eventRepository,
+                                      PlatformTransactionManager transactionManager) {
         this.specialPriceRepository = specialPriceRepository;
         this.configurationManager = configurationManager;
         this.ticketCategoryRepository = ticketCategoryRepository;
         this.eventRepository = eventRepository;
+        this.nestedTransactionTemplate = new TransactionTemplate(transactionManager, new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NESTED));
     }
 
     public void generatePendingCodes() {
         StopWatch stopWatch = new StopWatch();
         log.trace("start pending codes generation");
         stopWatch.start();
-        specialPriceRepository.findWaitingElements().forEach(this::generateCode);
+        generateCodes(specialPriceRepository.findWaitingElements());
         stopWatch.stop();
         log.trace("end. Took {} ms", stopWatch.getTime());
     }
 
     public void generatePendingCodesForCategory(int categoryId) {
-        specialPriceRepository.findWaitingElementsForCategory(categoryId).forEach(this::generateCode);
+        generateCodes(specialPriceRepository.findWaitingElementsForCategory(categoryId));
     }
 
-    private void generateCode(SpecialPrice.SpecialPriceTicketCategoryId specialPrice) {
+    private void generateCodes(List<SpecialPrice.SpecialPriceTicketCategoryId> waitingElements) {
+        waitingElements.stream()
+            .collect(groupingBy(SpecialPrice.SpecialPriceTicketCategoryId::getTicketCategoryId, LinkedHashMap::new,
+                mapping(SpecialPrice.SpecialPriceTicketCategoryId::getId, toList())))
+            .forEach(this::generateCodesForCategory);
+    }
 
-        TicketCategory ticketCategory = ticketCategoryRepository.getByIdAndActive(specialPrice.getTicketCategoryId()).orElseThrow(IllegalStateException::new);
+    private void generateCodesForCategory(int categoryId, List<Integer> specialPriceIds) {
+        TicketCategory ticketCategory = ticketCategoryRepository.getByIdAndActive(categoryId).orElseThrow(IllegalStateException::new);
         EventAndOrganizationId event = eventRepository.findEventAndOrganizationIdById(ticketCategory.getEventId());
         int maxLength = configurationManager.getFor(ConfigurationKeys.SPECIAL_PRICE_CODE_LENGTH, ConfigurationLevel.ticketCategory(event, ticketCategory.getId())).getValueAsIntOrDefault(6);
 
-        while (true) {
+        // codes generated during this run, across all chunks
+        Set<String> generated = new HashSet<>();
+        int processed = 0;
+        for (List<Integer> chunk : ListUtils.partition(specialPriceIds, CHUNK_SIZE)) {
+            writeCodes(chunk, maxLength, generated);
+            processed += chunk.size();
+            log.debug("generated {}/{} codes for category {}", processed, specialPriceIds.size(), categoryId);
+        }
+    }
+
+    private void writeCodes(List<Integer> specialPriceIds, int maxLength, Set<String> generated) {
+        for (int attempt = 1; ; attempt++) {
+            List<String> codes = nextValidCodes(specialPriceIds.size(), maxLength, generated);
             try {
-                log.trace("generate code for special price with id {}", specialPrice.getId());
-                specialPriceRepository.updateCode(nextValidCode(maxLength), specialPrice.getId());
-                log.trace("done.");
+                // a concurrent generation could have written the same code in the meantime.
+                // The savepoint allows us to retry without aborting the whole transaction
+                nestedTransactionTemplate.executeWithoutResult(status -> specialPriceRepository.bulkUpdateCodes(specialPriceIds, codes));
                 return;
-            } catch (DataAccessException e) {
+            } catch (DuplicateKeyException e) {
+                if (attempt == MAX_WRITE_ATTEMPTS) {
+                    throw e;
+                }
                 log.warn("got a duplicate. Retrying...", e);
             }
         }
     }
 
-    private String nextValidCode(int maxLength) {
-        while (true) {
-            String code = generateRandomCode(maxLength);
-            if (specialPriceRepository.countByCode(code) == 0) {
-                return code;
+    private List<String> nextValidCodes(int count, int maxLength, Set<String> generated) {
+        List<String> result = new ArrayList<>(count);
+        while (result.size() < count) {
+            Set<String> candidates = new LinkedHashSet<>();
+            while (candidates.size() < count - result.size()) {
+                String code = generateRandomCode(maxLength);
+                if (!generated.contains(code)) {
+                    candidates.add(code);
+                }
+            }
+            Set<String> existing = new HashSet<>(specialPriceRepository.findExistingCodes(candidates));
+            for (String code : candidates) {
+                if (!existing.contains(code)) {
+                    generated.add(code);
+                    result.add(code);
+                }
             }
         }
+        return result;
     }
 
     private String generateRandomCode(int maxLength) {
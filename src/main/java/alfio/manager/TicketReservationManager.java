@@ -16,6 +16,7 @@
  */
 package alfio.manager;
 
+import alfio.config.support.PromoCodeDiscountCache;
 import alfio.controller.api.support.TicketHelper;
 import alfio.controller.form.UpdateTicketOwnerForm;
 import alfio.manager.PaymentManager.PaymentMethodDTO.PaymentMethodStatus;
@@ -50,6 +51,8 @@ import alfio.model.result.WarningMessage;
 import alfio.model.subscription.*;
 import alfio.model.system.command.FinalizeReservation;
 import alfio.model.system.command.InvalidateAccess;
+import alfio.model.system.command.NotifyReservationStatusChange;
+import alfio.model.system.command.ScheduleReservationExpiration;
 import alfio.model.transaction.*;
 import alfio.model.transaction.capabilities.OfflineProcessor;
 import alfio.model.transaction.capabilities.ServerInitiatedTransaction;
@@ -72,6 +75,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.MessageSource;
 import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -79,6 +83,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
@@ -96,6 +101,7 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -103,7 +109,6 @@ import java.util.stream.Stream;
 import static alfio.model.Audit.EntityType.RESERVATION;
 import static alfio.model.Audit.EventType.*;
 import static alfio.model.BillingDocument.Type.CREDIT_NOTE;
-import static alfio.model.PromoCodeDiscount.categoriesOrNull;
 import static alfio.model.TicketReservation.TicketReservationStatus.*;
 import static alfio.model.subscription.SubscriptionDescriptor.SubscriptionUsageType.ONCE_PER_EVENT;
 import static alfio.model.system.ConfigurationKeys.*;
@@ -151,7 +156,6 @@ public class TicketReservationManager {
     private final MessageSourceManager messageSourceManager;
     private final TemplateManager templateManager;
     private final TransactionTemplate requiresNewTransactionTemplate;
-    private final TransactionTemplate serializedTransactionTemplate;
     private final TransactionTemplate nestedTransactionTemplate;
     private final WaitingQueueManager waitingQueueManager;
     private final TicketFieldRepository ticketFieldRepository;
@@ -177,6 +181,7 @@ public class TicketReservationManager {
     private final OrderSummaryGenerator orderSummaryGenerator;
     private final ReservationAuditingHelper auditingHelper;
     private final ReservationFinalizer reservationFinalizer;
+    private final PromoCodeDiscountCache promoCodeDiscountCache;
 
     public TicketReservationManager(EventRepository eventRepository,
                                     OrganizationRepository organizationRepository,
@@ -214,7 +219,8 @@ public class TicketReservationManager {
                                     ReservationCostCalculator reservationCostCalculator,
                                     ReservationEmailContentHelper reservationHelper,
                                     ReservationFinalizer reservationFinalizer,
-                                    OrderSummaryGenerator orderSummaryGenerator) {
+                                    OrderSummaryGenerator orderSummaryGenerator,
+                                    PromoCodeDiscountCache promoCodeDiscountCache) {
         this.eventRepository = eventRepository;
         this.organizationRepository = organizationRepository;
         this.ticketRepository = ticketRepository;
@@ -231,9 +237,6 @@ public class TicketReservationManager {
         this.templateManager = templateManager;
         this.waitingQueueManager = waitingQueueManager;
         this.requiresNewTransactionTemplate = new TransactionTemplate(transactionManager, new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
-        DefaultTransactionDefinition serialized = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
-        serialized.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
-        this.serializedTransactionTemplate = new TransactionTemplate(transactionManager, serialized);
         this.nestedTransactionTemplate = new TransactionTemplate(transactionManager, new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NESTED));
         this.ticketFieldRepository = ticketFieldRepository;
         this.additionalServiceRepository = additionalServiceRepository;
@@ -258,6 +261,7 @@ public class TicketReservationManager {
         this.reservationHelper = reservationHelper;
         this.auditingHelper = new ReservationAuditingHelper(auditingRepository);
         this.reservationFinalizer = reservationFinalizer;
+        this.promoCodeDiscountCache = promoCodeDiscountCache;
     }
 
     private String createSubscriptionReservation(SubscriptionDescriptor subscriptionDescriptor,
@@ -326,7 +330,7 @@ public class TicketReservationManager {
         String reservationId = UUID.randomUUID().toString();
 
         Optional<PromoCodeDiscount> discount = promotionCodeDiscount
-            .flatMap(promoCodeDiscount -> promoCodeDiscountRepository.findPromoCodeInEventOrOrganization(event.getId(), promoCodeDiscount));
+            .flatMap(promoCodeDiscount -> promoCodeDiscountCache.findPromoCodeInEventOrOrganization(event.getId(), promoCodeDiscount));
 
         Optional<PromoCodeDiscount> dynamicDiscount = createDynamicPromoCode(discount, event, list, reservationId);
 
@@ -372,6 +376,7 @@ public class TicketReservationManager {
             throw new CannotProceedWithPayment("No payment method applicable for categories "+list.stream().map(t -> String.valueOf(t.getTicketCategoryId())).collect(Collectors.joining(", ")));
         }
 
+        applicationEventPublisher.publishEvent(new ScheduleReservationExpiration(reservationId, reservationExpiration));
         return reservationId;
     }
 
@@ -641,8 +646,12 @@ public class TicketReservationManager {
             return PaymentResult.failed("error.STEP2_UNABLE_TO_TRANSITION");
         }
 
-        if(!initPaymentProcess(reservationCost, paymentProxy, spec, principal)) {
-            return PaymentResult.failed("error.STEP2_UNABLE_TO_TRANSITION");
+        try {
+            if(!initPaymentProcess(reservationCost, paymentProxy, spec, principal)) {
+                return PaymentResult.failed("error.STEP2_UNABLE_TO_TRANSITION");
+            }
+        } catch(TooManyTicketsForDiscountCodeException e) {
+            return PaymentResult.failed(ErrorsCode.STEP_2_DISCOUNT_CODE_USAGE_EXCEEDED);
         }
 
         TicketReservation reservation = null;
@@ -662,22 +671,31 @@ public class TicketReservationManager {
             if(reservationCost.requiresPayment()) {
                 var transactionRequest = new TransactionRequest(reservationCost, ticketReservationRepository.getBillingDetailsForReservation(spec.getReservationId()));
                 PaymentContext paymentContext = spec.getPaymentContext();
-                paymentResult = paymentManager.streamActiveProvidersByProxy(paymentProxy, paymentContext)
+                // offline and redirect-based providers change the reservation status while initializing the payment
+                paymentResult = enforcePromoCodeUsage(() -> paymentManager.streamActiveProvidersByProxy(paymentProxy, paymentContext)
                     .filter(paymentProvider -> paymentProvider.accept(paymentMethod, paymentContext, transactionRequest))
                     .findFirst()
                     .map(paymentProvider -> paymentProvider.getTokenAndPay(spec))
-                    .orElseGet(() -> PaymentResult.failed("error.STEP2_STRIPE_unexpected"));
+                    .orElseGet(() -> PaymentResult.failed("error.STEP2_STRIPE_unexpected")));
             } else {
                 paymentResult = PaymentResult.successful(NOT_YET_PAID_TRANSACTION_ID);
             }
 
             if (paymentResult.isSuccessful()) {
                 reservation = ticketReservationRepository.findReservationById(spec.getReservationId());
-                transitionToComplete(spec, paymentProxy, null);
+                enforcePromoCodeUsage(() -> {
+                    transitionToComplete(spec, paymentProxy, null);
+                    return null;
+                });
             } else if(paymentResult.isFailed()) {
                 reTransitionToPending(spec.getReservationId());
             }
             return paymentResult;
+        } catch(TooManyTicketsForDiscountCodeException ex) {
+            // the status change has been rolled back
+            log.debug("max usage exceeded for the promo code of reservation {}", spec.getReservationId());
+            reTransitionToPending(spec.getReservationId());
+            return PaymentResult.failed(ErrorsCode.STEP_2_DISCOUNT_CODE_USAGE_EXCEEDED);
         } catch(Exception ex) {
             if(reservation != null && reservation.getStatus() != IN_PAYMENT) {
                 reTransitionToPending(spec.getReservationId());
@@ -734,19 +752,33 @@ public class TicketReservationManager {
     }
 
     private boolean isDiscountCodeUsageExceeded(String reservationId) {
-        TicketReservation reservation = ticketReservationRepository.findReservationById(reservationId);
-        if(reservation.getPromoCodeDiscountId() != null) {
-            final PromoCodeDiscount promoCode = promoCodeDiscountRepository.findById(reservation.getPromoCodeDiscountId());
-            if(promoCode.getMaxUsage() == null) {
-                return false;
+        // early check. The limit is enforced by the database when the reservation status changes
+        return promoCodeDiscountRepository.isUsageLimitExceeded(reservationId);
+    }
+
+    /**
+     * Runs the given step in a nested transaction. The database rejects the step if it moves the reservation to a status
+     * which counts towards the max usage of its promo code, and the max usage would be exceeded
+     * (see V205_2.0.0.64__PROMO_CODE_USAGE_COUNTER.sql). In that case, the step is rolled back.
+     *
+     * @throws TooManyTicketsForDiscountCodeException if the max usage of the promo code would be exceeded
+     */
+    private <T> T enforcePromoCodeUsage(Supplier<T> step) {
+        try {
+            return nestedTransactionTemplate.execute(status -> step.get());
+        } catch(UncategorizedSQLException sqlException) {
+            if(isPromoCodeUsageExceeded(sqlException)) {
+                throw new TooManyTicketsForDiscountCodeException();
             }
-            int currentTickets = ticketReservationRepository.countTicketsInReservationForCategories(reservationId, categoriesOrNull(promoCode));
-            return Boolean.TRUE.equals(serializedTransactionTemplate.execute(status -> {
-                Integer confirmedPromoCode = promoCodeDiscountRepository.countConfirmedPromoCode(promoCode.getId(), categoriesOrNull(promoCode), reservationId, categoriesOrNull(promoCode) != null ? "X" : null);
-                return promoCode.getMaxUsage() < currentTickets + confirmedPromoCode;
-            }));
+            throw sqlException;
         }
-        return false;
+    }
+
+    private static boolean isPromoCodeUsageExceeded(Exception e) {
+        return e instanceof UncategorizedSQLException sqlException
+            && SqlUtils.findServerError(sqlException)
+                .filter(serverError -> TooManyTicketsForDiscountCodeException.ERROR.equals(serverError.getMessage()))
+                .isPresent();
     }
 
     public boolean containsCategoriesLinkedToGroups(String reservationId, int eventId) {
@@ -776,6 +808,9 @@ public class TicketReservationManager {
             try {
                 transitionToInPayment(spec, principal);
             } catch (Exception e) {
+                if(isPromoCodeUsageExceeded(e)) {
+                    throw new TooManyTicketsForDiscountCodeException();
+                }
                 //unable to do the transition. Exiting.
                 log.debug(String.format("unable to flag the reservation %s as IN_PAYMENT", spec.getReservationId()), e);
                 return false;
@@ -787,11 +822,17 @@ public class TicketReservationManager {
     private boolean acquireGroupMembers(String reservationId, PurchaseContext purchaseContext) {
         List<LinkedGroup> linkedGroups = purchaseContext.event().map(event -> groupManager.getLinksForEvent(event.getId())).orElse(List.of());
         if(!linkedGroups.isEmpty()) {
-            List<Ticket> ticketsInReservation = ticketRepository.findTicketsInReservation(reservationId);
+            List<Ticket> ticketsInReservation = ticketRepository.findTicketsInReservation(reservationId).stream()
+                .filter(ticket -> linkedGroups.stream().anyMatch(c -> c.getTicketCategoryId() == null || c.getTicketCategoryId().equals(ticket.getCategoryId())))
+                .toList();
+            // validate the whole reservation up-front, so that we don't need to open a transaction if any ticket is not allowed
+            var items = ticketsInReservation.stream().map(t -> new GroupManager.WhitelistValidationItem(t.getCategoryId(), t.getEmail())).toList();
+            if(!groupManager.findNotAllowed(linkedGroups.get(0).getEventId(), items).isEmpty()) {
+                return false;
+            }
             return Boolean.TRUE.equals(requiresNewTransactionTemplate.execute(status ->
                 ticketsInReservation
                     .stream()
-                    .filter(ticket -> linkedGroups.stream().anyMatch(c -> c.getTicketCategoryId() == null || c.getTicketCategoryId().equals(ticket.getCategoryId())))
                     .map(groupManager::acquireMemberForTicket)
                     .reduce(true, Boolean::logicalAnd)));
         }
@@ -839,6 +880,7 @@ public class TicketReservationManager {
     public void issueCreditNoteForReservation(PurchaseContext purchaseContext, TicketReservation reservation, String username, boolean sendEmail) {
         var reservationId = reservation.getId();
         ticketReservationRepository.updateReservationStatus(reservationId, TicketReservationStatus.CREDIT_NOTE_ISSUED.toString());
+        notifyStatusChange(reservationId);
         auditingRepository.insert(reservationId, userRepository.nullSafeFindIdByUserName(username).orElse(null), purchaseContext, Audit.EventType.CREDIT_NOTE_ISSUED, new Date(), RESERVATION, reservationId);
         var model = prepareModelForReservationEmail(purchaseContext, reservation, reservationHelper.getVAT(purchaseContext), orderSummaryForReservation(reservation, purchaseContext), ticketRepository.findTicketsInReservation(reservation.getId()), Map.of());
         BillingDocument billingDocument = billingDocumentManager.createBillingDocument(purchaseContext, reservation, username, BillingDocument.Type.CREDIT_NOTE, orderSummaryForReservation(reservation, purchaseContext));
@@ -929,6 +971,7 @@ public class TicketReservationManager {
                     spec.getCustomerName().getFirstName(), spec.getCustomerName().getLastName(),
                     spec.getLocale().getLanguage(), spec.getBillingAddress(),null, PaymentProxy.STRIPE.toString(), spec.getCustomerReference());
                 Validate.isTrue(updatedReservation == 1, "expected exactly one updated reservation, got " + updatedReservation);
+                notifyStatusChange(spec.getReservationId());
                 if(principal != null && configurationManager.isPublicOpenIdEnabled()) {
                     ticketReservationRepository.setReservationOwner(spec.getReservationId(), retrievePublicUserId(principal));
                 }
@@ -959,6 +1002,7 @@ public class TicketReservationManager {
     private void reTransitionToPending(String reservationId, boolean deleteTransactions) {
         int updatedReservation = ticketReservationRepository.updateReservationStatus(reservationId, TicketReservationStatus.PENDING.toString());
         Validate.isTrue(updatedReservation == 1, "expected exactly one updated reservation, got "+updatedReservation);
+        notifyStatusChange(reservationId);
         if(deleteTransactions) {
             // delete all pending transactions, if any
             transactionRepository.deleteForReservationsWithStatus(List.of(reservationId), Transaction.Status.PENDING);
@@ -998,6 +1042,7 @@ public class TicketReservationManager {
             targetStatus = OFFLINE_FINALIZING;
         }
         ticketReservationRepository.updateReservationStatus(spec.getReservationId(), targetStatus.name());
+        notifyStatusChange(spec.getReservationId());
         // run detached reservation confirmation
         this.applicationEventPublisher.publishEvent(new FinalizeReservation(spec, paymentProxy, sendReservationConfirmationEmail, sendTickets, username, currentStatus));
     }
@@ -1050,6 +1095,20 @@ public class TicketReservationManager {
             .filter(id -> !reservationsToIgnore.contains(id))
             .toList();
 
+        deleteExpiredReservations(toDelete);
+    }
+
+    /**
+     * Deletes the given expired reservations, releasing the tickets and the other resources bound to them.
+     * The reservations must have been locked by the caller.
+     *
+     * @param toDelete the IDs of the reservations to delete
+     * @return the IDs of the events for which tickets have been released
+     */
+    public Set<Integer> deleteExpiredReservations(List<String> toDelete) {
+        if(toDelete.isEmpty()) {
+            return Set.of();
+        }
         subscriptionRepository.deleteSubscriptionWithReservationId(toDelete);
         specialPriceRepository.resetToFreeAndCleanupForReservation(toDelete);
         ticketRepository.resetCategoryIdForUnboundedCategories(toDelete);
@@ -1071,6 +1130,8 @@ public class TicketReservationManager {
         });
         //
         ticketReservationRepository.remove(toDelete);
+        toDelete.forEach(this::notifyStatusChange);
+        return reservationIdsByEvent.keySet();
     }
 
     public void cleanupExpiredOfflineReservations(Date expirationDate) {
@@ -1217,7 +1278,7 @@ public class TicketReservationManager {
     public int maxAmountOfTicketsForCategory(EventAndOrganizationId eventAndOrganizationId, int ticketCategoryId, String promoCode) {
         // verify if the promo code is present and if it's actually an access code
         if(StringUtils.isNotBlank(promoCode)) {
-            Integer maxTicketsPerAccessCode = promoCodeDiscountRepository.findPromoCodeInEventOrOrganization(eventAndOrganizationId.getId(), promoCode)
+            Integer maxTicketsPerAccessCode = promoCodeDiscountCache.findPromoCodeInEventOrOrganization(eventAndOrganizationId.getId(), promoCode)
                 .filter(d -> d.getCodeType() == CodeType.ACCESS)
                 .map(PromoCodeDiscount::getMaxUsage).orElse(null);
             if(maxTicketsPerAccessCode != null) {
@@ -1235,6 +1296,16 @@ public class TicketReservationManager {
         return ticketReservationRepository.findOptionalReservationById(reservationId);
     }
 
+    /**
+     * Loads the reservation, together with the information needed by the checkout page, using a single query
+     *
+     * @param reservationId the reservation ID
+     * @return the snapshot, if the reservation exists
+     */
+    public Optional<ReservationInfoSnapshot> findReservationInfoSnapshot(String reservationId) {
+        return ticketReservationRepository.findReservationInfoSnapshot(reservationId);
+    }
+
     private Optional<TicketReservation> findByIdForNotification(String reservationId, Clock clock, int quietPeriod) {
         return findById(reservationId).filter(notificationNotSent(clock, quietPeriod));
     }
@@ -1309,6 +1380,7 @@ public class TicketReservationManager {
         }
         int removedReservation = ticketReservationRepository.remove(wrappedReservationIdToRemove);
         Validate.isTrue(removedReservation == 1, "expected exactly one removed reservation, got " + removedReservation);
+        notifyStatusChange(reservationIdToRemove);
         auditingRepository.insert(reservationIdToRemove, userRepository.nullSafeFindIdByUserName(username).orElse(null), purchaseContext.event().map(Event::getId).orElse(null), expired ? Audit.EventType.CANCEL_RESERVATION_EXPIRED : Audit.EventType.CANCEL_RESERVATION, new Date(), Audit.EntityType.RESERVATION, reservationIdToRemove);
     }
 
@@ -1593,6 +1665,7 @@ public class TicketReservationManager {
         invalidateAccess(event, ticket);
 
         String reservationId = ticketReservation.getId();
+        ticketReservationRepository.bumpVersion(List.of(reservationId));
         //#365 - reset UUID when releasing a ticket
         int result = ticketRepository.releaseTicket(reservationId, UUID.randomUUID().toString(), event.getId(), ticket.getId());
         Validate.isTrue(result == 1, String.format("Expected 1 row to be updated, got %d", result));
@@ -1665,7 +1738,7 @@ public class TicketReservationManager {
 
     public Stream<Pair<TicketReservationWithTransaction, List<BillingDocument>>> streamAllDocumentsFor(int eventId) {
         var documentsByReservationId = billingDocumentRepository.findAllForEvent(eventId).stream()
-            .collect(groupingBy(BillingDocument::getReservationId));
+            .collect(groupingBy(BillingDocument::getReservationId, LinkedHashMap::new, toList()));
         var reservations = ticketSearchRepository.findAllReservationsById(documentsByReservationId.keySet()).stream()
             .collect(toMap(trt -> trt.getTicketReservation().getId(), Function.identity()));
         return documentsByReservationId.entrySet().stream()
@@ -1677,6 +1750,10 @@ public class TicketReservationManager {
     }
 
 
+    private void notifyStatusChange(String reservationId) {
+        applicationEventPublisher.publishEvent(new NotifyReservationStatusChange(reservationId));
+    }
+
     public boolean hasPaidSupplements(String reservationId) {
         return additionalServiceItemRepository.hasPaidSupplements(reservationId);
     }
@@ -1881,6 +1958,7 @@ public class TicketReservationManager {
                     String status = WAITING_EXTERNAL_CONFIRMATION.name();
                     log.trace("Event {} received. Setting status {} for reservation {}", operationType, status, reservation.getId());
                     ticketReservationRepository.updateReservationStatus(reservation.getId(), status);
+                    notifyStatusChange(reservation.getId());
                 } else {
                     log.trace("Ignoring Event {}, as it cannot be applied for reservation {} ({})", operationType, reservation.getId(), reservation.getStatus());
                 }
@@ -1943,19 +2021,59 @@ public class TicketReservationManager {
             .map(providerAndWebhookResult -> {
                 var paymentWebhookResult = providerAndWebhookResult.getRight();
                 handlePaymentWebhookResult(purchaseContext, providerAndWebhookResult.getLeft(), paymentWebhookResult, reservation, transaction, paymentContext, "force-check", true);
+                return toPaymentResult(paymentWebhookResult, transaction);
+            });
+    }
 
-                return switch (paymentWebhookResult.getType()) {
-                    case FAILED, REJECTED, CANCELLED -> PaymentResult.failed(paymentWebhookResult.getReason());
-                    case NOT_RELEVANT, ERROR ->
-                        // to be on the safe side, we ignore errors when trying to reload the payment
-                        // because they could be caused by network/availability problems
-                        PaymentResult.pending(transaction.getPaymentId());
-                    case TRANSACTION_INITIATED ->
-                        StringUtils.isNotEmpty(paymentWebhookResult.getRedirectUrl()) ? PaymentResult.redirect(paymentWebhookResult.getRedirectUrl()) : PaymentResult.pending(transaction.getPaymentId());
-                    default -> PaymentResult.successful(paymentWebhookResult.getPaymentToken().getToken());
-                };
+    /**
+     * Retrieves the status of the pending transaction from the payment provider, without locking the transaction.
+     * No database transaction is kept open here, so that no connection is held during the (potentially slow) remote call.
+     * The result must then be applied in a short transaction, using {@link #applyTransactionCheckResult(PurchaseContext, TicketReservation, Pair)}
+     *
+     * @return the provider and the remote status, or empty if there is no pending transaction, or if the provider doesn't support status checks
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<Pair<PaymentProvider, PaymentWebhookResult>> checkPendingTransactionStatus(PurchaseContext purchaseContext, TicketReservation reservation) {
+        var optionalTransaction = transactionRepository.loadOptionalByReservationIdAndStatus(reservation.getId(), Transaction.Status.PENDING);
+        if(optionalTransaction.isEmpty()) {
+            return Optional.empty();
+        }
+        var transaction = optionalTransaction.get();
+        PaymentContext paymentContext = new PaymentContext(purchaseContext, reservation.getId());
+        return paymentManager.lookupProviderByTransactionAndCapabilities(transaction, List.of(WebhookHandler.class))
+            .map(provider -> Pair.of(provider, ((WebhookHandler)provider).forceTransactionCheck(reservation, transaction, paymentContext)));
+    }
 
-            });
+    /**
+     * Applies the result of {@link #checkPendingTransactionStatus(PurchaseContext, TicketReservation)}.
+     *
+     * @return the payment result, or empty if the transaction is not pending anymore
+     */
+    public Optional<PaymentResult> applyTransactionCheckResult(PurchaseContext purchaseContext,
+                                                               TicketReservation reservation,
+                                                               Pair<PaymentProvider, PaymentWebhookResult> providerAndWebhookResult) {
+        var optionalTransaction = transactionRepository.loadOptionalByReservationIdAndStatusForUpdate(reservation.getId(), Transaction.Status.PENDING);
+        if(optionalTransaction.isEmpty()) {
+            return Optional.empty();
+        }
+        var transaction = optionalTransaction.get();
+        PaymentContext paymentContext = new PaymentContext(purchaseContext, reservation.getId());
+        var paymentWebhookResult = providerAndWebhookResult.getRight();
+        handlePaymentWebhookResult(purchaseContext, providerAndWebhookResult.getLeft(), paymentWebhookResult, reservation, transaction, paymentContext, "force-check", true);
+        return Optional.of(toPaymentResult(paymentWebhookResult, transaction));
+    }
+
+    private static PaymentResult toPaymentResult(PaymentWebhookResult paymentWebhookResult, Transaction transaction) {
+        return switch (paymentWebhookResult.getType()) {
+            case FAILED, REJECTED, CANCELLED -> PaymentResult.failed(paymentWebhookResult.getReason());
+            case NOT_RELEVANT, ERROR ->
+                // to be on the safe side, we ignore errors when trying to reload the payment
+                // because they could be caused by network/availability problems
+                PaymentResult.pending(transaction.getPaymentId());
+            case TRANSACTION_INITIATED ->
+                StringUtils.isNotEmpty(paymentWebhookResult.getRedirectUrl()) ? PaymentResult.redirect(paymentWebhookResult.getRedirectUrl()) : PaymentResult.pending(transaction.getPaymentId());
+            default -> PaymentResult.successful(paymentWebhookResult.getPaymentToken().getToken());
+        };
     }
 
     private Optional<Pair<PaymentProvider, PaymentWebhookResult>> checkTransactionStatus(PurchaseContext purchaseContext, TicketReservation reservation) {
@@ -2020,13 +2138,24 @@ public class TicketReservationManager {
             var errorMessage = messageSource.getMessage("error.STEP2_WHITELIST", null, LocaleUtil.forLanguageTag(reservation.getUserLanguage()));
             return Optional.of(provider.errorToken(errorMessage, false));
         }
+        if(isDiscountCodeUsageExceeded(reservationId)) {
+            return Optional.of(provider.errorToken(promoCodeUsageExceededMessage(messageSource, reservation), false));
+        }
         var transactionToken = provider.initTransaction(paymentSpecification, params);
-        if(transitionToExternalProcessingPayment(reservation)) {
-           auditingRepository.insert(reservationId, null, purchaseContext, INIT_PAYMENT, new Date(), RESERVATION, reservationId);
+        try {
+            if(enforcePromoCodeUsage(() -> transitionToExternalProcessingPayment(reservation))) {
+               auditingRepository.insert(reservationId, null, purchaseContext, INIT_PAYMENT, new Date(), RESERVATION, reservationId);
+            }
+        } catch(TooManyTicketsForDiscountCodeException e) {
+            return Optional.of(provider.errorToken(promoCodeUsageExceededMessage(messageSource, reservation), false));
         }
         return Optional.of(transactionToken);
     }
 
+    private static String promoCodeUsageExceededMessage(MessageSource messageSource, TicketReservation reservation) {
+        return messageSource.getMessage(ErrorsCode.STEP_2_DISCOUNT_CODE_USAGE_EXCEEDED, null, LocaleUtil.forLanguageTag(reservation.getUserLanguage()));
+    }
+
     private boolean transitionToExternalProcessingPayment(TicketReservation reservation) {
         var reservationId = reservation.getId();
         var optionalTransaction = transactionRepository.loadOptionalByReservationId(reservation.getId());
@@ -2039,6 +2168,7 @@ public class TicketReservationManager {
             return false;
         }
         ticketReservationRepository.updateReservationStatus(reservation.getId(), EXTERNAL_PROCESSING_PAYMENT.name());
+        notifyStatusChange(reservation.getId());
         return true;
     }
 
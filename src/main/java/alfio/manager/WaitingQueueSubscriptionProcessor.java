@@ -29,20 +29,27 @@ import alfio.repository.WaitingQueueRepository;
 import alfio.util.ClockProvider;
 import alfio.util.TemplateManager;
 import alfio.util.TemplateResource;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import java.sql.Date;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import static alfio.model.system.ConfigurationKeys.ENABLE_PRE_REGISTRATION;
@@ -51,7 +58,7 @@ import static java.util.stream.Collectors.toList;
 
 @Component
 @Transactional
-public class WaitingQueueSubscriptionProcessor {
+public class WaitingQueueSubscriptionProcessor implements DisposableBean {
 
     private static final Logger log = LoggerFactory.getLogger(WaitingQueueSubscriptionProcessor.class);
 
@@ -66,6 +73,7 @@ public class WaitingQueueSubscriptionProcessor {
     private final TicketRepository ticketRepository;
     private final PlatformTransactionManager transactionManager;
     private final ClockProvider clockProvider;
+    private final ExecutorService distributionExecutor;
 
     public WaitingQueueSubscriptionProcessor(EventManager eventManager,
                                              TicketReservationManager ticketReservationManager,
@@ -77,7 +85,8 @@ public class WaitingQueueSubscriptionProcessor {
                                              TemplateManager templateManager,
                                              TicketRepository ticketRepository,
                                              PlatformTransactionManager transactionManager,
-                                             ClockProvider clockProvider) {
+                                             ClockProvider clockProvider,
+                                             Environment environment) {
         this.eventManager = eventManager;
         this.ticketReservationManager = ticketReservationManager;
         this.configurationManager = configurationManager;
@@ -89,26 +98,67 @@ public class WaitingQueueSubscriptionProcessor {
         this.ticketRepository = ticketRepository;
         this.transactionManager = transactionManager;
         this.clockProvider = clockProvider;
+        int threads = environment.getProperty("alfio.waitingQueue.threads", Integer.class, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        this.distributionExecutor = Executors.newFixedThreadPool(threads, new BasicThreadFactory.Builder()
+            .namingPattern("waiting-queue-distribution-%d")
+            .build());
     }
 
+    /**
+     * Processes the waiting list of all the active events. Events are handled concurrently, each one in its own
+     * transaction, so that a big release wave on a single event doesn't delay the others.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void handleWaitingTickets() {
-        Map<Boolean, List<Event>> activeEvents = eventManager.getActiveEvents().stream()
-            .collect(Collectors.partitioningBy(this::isWaitingListFormEnabled));
-        activeEvents.get(true).forEach(event -> {
-            TransactionStatus transaction = transactionManager.getTransaction(new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
-            try {
+        processConcurrently(eventManager.getActiveEvents(), true);
+    }
+
+    /**
+     * Distributes the seats released by expired reservations to the waiting list of the given events, without waiting
+     * for the next run of {@link #handleWaitingTickets()}
+     *
+     * @param eventIds the events for which seats have been released
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void handleReleasedSeats(Collection<Integer> eventIds) {
+        if(eventIds.isEmpty()) {
+            return;
+        }
+        var events = eventManager.getActiveEvents().stream()
+            .filter(event -> eventIds.contains(event.getId()))
+            .toList();
+        processConcurrently(events, false);
+    }
+
+    private void processConcurrently(List<Event> events, boolean resetIfDisabled) {
+        var futures = events.stream()
+            .map(event -> CompletableFuture.runAsync(() -> processWaitingList(event, resetIfDisabled), distributionExecutor))
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private void processWaitingList(Event event, boolean resetIfDisabled) {
+        TransactionStatus transaction = transactionManager.getTransaction(new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        try {
+            if(!isWaitingListFormEnabled(event)) {
+                if(resetIfDisabled) {
+                    eventManager.resetReleasedTickets(event);
+                }
+            } else if(waitingQueueRepository.tryLockForDistribution(event.getId())) {
                 ticketReservationManager.revertTicketsToFreeIfAccessRestricted(event.getId());
                 revertTicketToFreeIfCategoryIsExpired(event);
                 distributeAvailableSeats(event);
-                transactionManager.commit(transaction);
-            } catch(Exception ex) {
-                if(!(ex instanceof TransactionException)) {
-                    transactionManager.rollback(transaction);
-                }
-                log.error("cannot process waiting list for event {}", event.getShortName(), ex);
+            } else {
+                // another thread (or node) is already processing this event
+                log.debug("waiting list for event {} is locked, skipping", event.getShortName());
             }
-        });
-        activeEvents.get(false).forEach(eventManager::resetReleasedTickets);
+            transactionManager.commit(transaction);
+        } catch(Exception ex) {
+            if(!(ex instanceof TransactionException)) {
+                transactionManager.rollback(transaction);
+            }
+            log.error("cannot process waiting list for event {}", event.getShortName(), ex);
+        }
     }
 
     public void revertTicketToFreeIfCategoryIsExpired(Event event) {
@@ -137,23 +187,30 @@ public class WaitingQueueSubscriptionProcessor {
     }
 
     public void distributeAvailableSeats(Event event) {
+        var assignments = waitingQueueManager.distributeSeats(event).toList();
+        if(assignments.isEmpty()) {
+            return;
+        }
         var messageSource = messageSourceManager.getMessageSourceFor(event);
-        waitingQueueManager.distributeSeats(event).forEach(triple -> {
+        Organization organization = eventManager.loadOrganizerUsingSystemPrincipal(event);
+        var emails = new ArrayList<NotificationManager.SimpleEmail>(assignments.size());
+        var pendingSubscriptions = new ArrayList<Pair<Integer, String>>(assignments.size());
+        assignments.forEach(triple -> {
             WaitingQueueSubscription subscription = triple.getLeft();
             Locale locale = subscription.getLocale();
             ZonedDateTime expiration = triple.getRight();
-            Organization organization = eventManager.loadOrganizerUsingSystemPrincipal(event);
             String reservationId = createReservation(event, triple.getMiddle(), expiration, locale);
             String subject = messageSource.getMessage("email-waiting-queue-acquired.subject", new Object[]{event.getDisplayName()}, locale);
             String reservationUrl = ticketReservationManager.reservationUrl(reservationId, event);
             Map<String, Object> model = TemplateResource.buildModelForWaitingQueueReservationEmail(organization, event, subscription, reservationUrl, expiration);
-            notificationManager.sendSimpleEmail(event,
-                    reservationId,
-                    subscription.getEmailAddress(),
-                    subject,
-                    () -> templateManager.renderTemplate(event, TemplateResource.WAITING_QUEUE_RESERVATION_EMAIL, model, locale));
-            waitingQueueRepository.flagAsPending(reservationId, subscription.getId());
+            emails.add(new NotificationManager.SimpleEmail(reservationId,
+                subscription.getEmailAddress(),
+                subject,
+                () -> templateManager.renderTemplate(event, TemplateResource.WAITING_QUEUE_RESERVATION_EMAIL, model, locale)));
+            pendingSubscriptions.add(Pair.of(subscription.getId(), reservationId));
         });
+        waitingQueueRepository.bulkFlagAsPending(pendingSubscriptions);
+        notificationManager.sendSimpleEmails(event, emails);
     }
 
     private String createReservation(Event event, TicketReservationWithOptionalCodeModification reservation, ZonedDateTime expiration, Locale locale) {
@@ -167,4 +224,8 @@ public class WaitingQueueSubscriptionProcessor {
             null); // set principal to null because this happens in a job
     }
 
+    @Override
+    public void destroy() {
+        distributionExecutor.shutdownNow();
+    }
 }
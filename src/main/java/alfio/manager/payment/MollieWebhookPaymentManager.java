@@ -27,6 +27,7 @@ import alfio.model.PaymentInformation;
 import alfio.model.PurchaseContext;
 import alfio.model.TicketReservation;
 import alfio.model.system.ConfigurationKeys;
+import alfio.model.system.command.NotifyReservationStatusChange;
 import alfio.model.transaction.*;
 import alfio.model.transaction.capabilities.PaymentInfo;
 import alfio.model.transaction.capabilities.RefundRequest;
@@ -47,6 +48,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -122,6 +124,7 @@ public class MollieWebhookPaymentManager implements PaymentProvider, WebhookHand
     private final MollieConnectManager mollieConnectManager;
     private final ClockProvider clockProvider;
     private final PurchaseContextManager purchaseContextManager;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     public MollieWebhookPaymentManager(HttpClient client,
                                        ConfigurationManager configurationManager,
@@ -130,7 +133,8 @@ public class MollieWebhookPaymentManager implements PaymentProvider, WebhookHand
                                        TransactionRepository transactionRepository,
                                        MollieConnectManager mollieConnectManager,
                                        ClockProvider clockProvider,
-                                       PurchaseContextManager purchaseContextManager) {
+                                       PurchaseContextManager purchaseContextManager,
+                                       ApplicationEventPublisher applicationEventPublisher) {
         this.client = client;
         this.configurationManager = configurationManager;
         this.ticketReservationRepository = ticketReservationRepository;
@@ -139,6 +143,7 @@ public class MollieWebhookPaymentManager implements PaymentProvider, WebhookHand
         this.mollieConnectManager = mollieConnectManager;
         this.clockProvider = clockProvider;
         this.purchaseContextManager = purchaseContextManager;
+        this.applicationEventPublisher = applicationEventPublisher;
     }
 
     private HttpRequest.Builder requestFor(String url, Map<ConfigurationKeys, MaybeConfiguration> configuration, ConfigurationLevel configurationLevel) {
@@ -367,6 +372,7 @@ public class MollieWebhookPaymentManager implements PaymentProvider, WebhookHand
                 var expiration = body.getExpiresAt().orElseThrow().plusMinutes(5); // we give an additional slack to process the payment
                 ticketReservationRepository.updateReservationStatus(reservationId, EXTERNAL_PROCESSING_PAYMENT.toString());
                 ticketReservationRepository.updateValidity(reservationId, Date.from(expiration.toInstant()));
+                applicationEventPublisher.publishEvent(new NotifyReservationStatusChange(reservationId));
                 invalidateExistingTransactions(reservationId, transactionRepository);
                 transactionRepository.insert(paymentId, paymentId,
                     reservationId, ZonedDateTime.now(clockProvider.withZone(spec.getPurchaseContext().getZoneId())),
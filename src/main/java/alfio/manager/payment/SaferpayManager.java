@@ -24,6 +24,7 @@ import alfio.model.PaymentInformation;
 import alfio.model.PurchaseContext;
 import alfio.model.TicketReservation;
 import alfio.model.system.ConfigurationKeys;
+import alfio.model.system.command.NotifyReservationStatusChange;
 import alfio.model.transaction.*;
 import alfio.model.transaction.capabilities.PaymentInfo;
 import alfio.model.transaction.capabilities.WebhookHandler;
@@ -41,6 +42,7 @@ import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.time.DateUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -74,19 +76,22 @@ public class SaferpayManager implements PaymentProvider, /*RefundRequest,*/ Paym
     private final TransactionRepository transactionRepository;
     private final TicketRepository ticketRepository;
     private final ClockProvider clockProvider;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     public SaferpayManager(ConfigurationManager configurationManager,
                            HttpClient httpClient,
                            TicketReservationRepository ticketReservationRepository,
                            TransactionRepository transactionRepository,
                            TicketRepository ticketRepository,
-                           ClockProvider clockProvider) {
+                           ClockProvider clockProvider,
+                           ApplicationEventPublisher applicationEventPublisher) {
         this.configurationManager = configurationManager;
         this.httpClient = httpClient;
         this.ticketReservationRepository = ticketReservationRepository;
         this.transactionRepository = transactionRepository;
         this.ticketRepository = ticketRepository;
         this.clockProvider = clockProvider;
+        this.applicationEventPublisher = applicationEventPublisher;
     }
 
     @Override
@@ -384,6 +389,7 @@ public class SaferpayManager implements PaymentProvider, /*RefundRequest,*/ Paym
 
         ticketReservationRepository.updateReservationStatus(reservationId, EXTERNAL_PROCESSING_PAYMENT.toString());
         ticketReservationRepository.updateValidity(reservationId, Date.from(expiration.toInstant()));
+        applicationEventPublisher.publishEvent(new NotifyReservationStatusChange(reservationId));
         invalidateExistingTransactions(reservationId, transactionRepository);
         transactionRepository.insert(paymentToken, paymentToken,
             reservationId, ZonedDateTime.now(clockProvider.withZone(spec.getPurchaseContext().getZoneId())),
@@ -0,0 +1,31 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager.support;
+
+import java.util.List;
+
+/**
+ * A page of results.
+ *
+ * @param totalResults the number of results, or a lower bound if {@code totalEstimated} is true
+ * @param nextPageCursor the cursor for loading the next page, or {@code null} if this is the last page
+ */
+public record PagedResults<T>(List<T> results,
+                              int totalResults,
+                              boolean totalEstimated,
+                              String nextPageCursor) {
+}
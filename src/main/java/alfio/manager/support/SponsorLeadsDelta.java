@@ -0,0 +1,33 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager.support;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SponsorLeadsDelta {
+    /**
+     * The cursor to be sent with the next request, in order to receive only the leads created or modified afterwards
+     */
+    private final long cursor;
+    /**
+     * Leads created or modified since the previous cursor
+     */
+    private final List<SponsorLeadChange> leads;
+}
@@ -28,13 +28,17 @@ import alfio.model.transaction.PaymentProxy;
 import alfio.repository.*;
 import alfio.util.LocaleUtil;
 import alfio.util.MonetaryUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -61,6 +65,8 @@ public class OrderSummaryGenerator {
     private final TicketRepository ticketRepository;
     private final MessageSourceManager messageSourceManager;
     private final ReservationCostCalculator reservationCostCalculator;
+    // entries are keyed by reservation version, so they never become stale. The TTL is there only to release memory
+    private final Cache<ReservationCacheKey, CachedOrderSummary> orderSummaryCache;
 
     public OrderSummaryGenerator(TicketReservationRepository ticketReservationRepository,
                                  AuditingRepository auditingRepository,
@@ -70,7 +76,8 @@ public class OrderSummaryGenerator {
                                  SubscriptionRepository subscriptionRepository,
                                  TicketRepository ticketRepository,
                                  MessageSourceManager messageSourceManager,
-                                 ReservationCostCalculator reservationCostCalculator) {
+                                 ReservationCostCalculator reservationCostCalculator,
+                                 Environment environment) {
         this.ticketReservationRepository = ticketReservationRepository;
         this.auditingRepository = auditingRepository;
         this.paymentManager = paymentManager;
@@ -80,25 +87,47 @@ public class OrderSummaryGenerator {
         this.ticketRepository = ticketRepository;
         this.messageSourceManager = messageSourceManager;
         this.reservationCostCalculator = reservationCostCalculator;
+        this.orderSummaryCache = Caffeine.newBuilder()
+            .maximumSize(environment.getProperty(ReservationCostCalculator.CACHE_SIZE_PROPERTY, Integer.class, ReservationCostCalculator.DEFAULT_CACHE_SIZE))
+            .expireAfterWrite(Duration.ofMinutes(30))
+            .build();
     }
 
     public OrderSummary orderSummaryForReservationId(String reservationId, PurchaseContext purchaseContext) {
         TicketReservation reservation = ticketReservationRepository.findReservationById(reservationId);
         return orderSummaryForReservation(reservation, purchaseContext);
     }
+
+    /**
+     * Generates the order summary for the given reservation. The result is cached until the reservation is modified,
+     * unless the reservation has been refunded, in which case the refunded amount must be retrieved from the payment provider.
+     *
+     * @param reservation the reservation
+     * @param context the purchase context
+     * @return the order summary
+     */
     public OrderSummary orderSummaryForReservation(TicketReservation reservation, PurchaseContext context) {
+        var cached = ticketReservationRepository.findVersion(reservation.getId())
+            .map(version -> orderSummaryCache.get(ReservationCacheKey.of(reservation, version), k -> computeOrderSummary(reservation, context)))
+            .orElseGet(() -> computeOrderSummary(reservation, context));
+        if(cached.refunded()) {
+            return generateOrderSummary(reservation, context, paymentManager.getInfo(reservation, context).paymentInformation().getRefundedAmount());
+        }
+        return cached.orderSummary();
+    }
+
+    private CachedOrderSummary computeOrderSummary(TicketReservation reservation, PurchaseContext context) {
+        // a refund bumps the reservation version, so the flag can be cached along with the summary
+        boolean refunded = auditingRepository.countAuditsOfTypeForReservation(reservation.getId(), Audit.EventType.REFUND) > 0;
+        return new CachedOrderSummary(refunded ? null : generateOrderSummary(reservation, context, null), refunded);
+    }
+
+    private OrderSummary generateOrderSummary(TicketReservation reservation, PurchaseContext context, String refundedAmount) {
         var totalPriceAndDiscount = reservationCostCalculator.totalReservationCostWithVAT(reservation);
         TotalPrice reservationCost = totalPriceAndDiscount.getLeft();
         PromoCodeDiscount discount = totalPriceAndDiscount.getRight().orElse(null);
         //
         boolean free = reservationCost.priceWithVAT() == 0;
-        String refundedAmount = null;
-
-        boolean hasRefund = auditingRepository.countAuditsOfTypeForReservation(reservation.getId(), Audit.EventType.REFUND) > 0;
-
-        if(hasRefund) {
-            refundedAmount = paymentManager.getInfo(reservation, context).paymentInformation().getRefundedAmount();
-        }
 
         var currencyCode = reservation.getCurrencyCode();
         return new OrderSummary(reservationCost,
@@ -309,4 +338,7 @@ public class OrderSummaryGenerator {
     private static Function<Pair<AdditionalService, List<AdditionalServiceItem>>, Stream<? extends AdditionalServiceItemPriceContainer>> generateASIPriceContainers(PurchaseContext purchaseContext, PromoCodeDiscount discount) {
         return p -> p.getValue().stream().map(asi -> AdditionalServiceItemPriceContainer.from(asi, p.getKey(), purchaseContext, discount));
     }
+
+    private record CachedOrderSummary(OrderSummary orderSummary, boolean refunded) {
+    }
 }
@@ -0,0 +1,52 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager.support.reservation;
+
+import alfio.model.PriceContainer;
+import alfio.model.TicketReservation;
+import alfio.model.transaction.PaymentProxy;
+
+import java.math.BigDecimal;
+
+/**
+ * Identifies a computation made on a given version of a reservation.
+ * The reservation attributes are part of the key, so that a stale {@link TicketReservation} won't pollute the cache.
+ */
+record ReservationCacheKey(String reservationId,
+                           long version,
+                           TicketReservation.TicketReservationStatus status,
+                           PaymentProxy paymentMethod,
+                           PriceContainer.VatStatus vatStatus,
+                           BigDecimal usedVatPercent,
+                           Boolean vatIncluded,
+                           Integer promoCodeDiscountId,
+                           String currencyCode,
+                           String userLanguage) {
+
+    static ReservationCacheKey of(TicketReservation reservation, long version) {
+        return new ReservationCacheKey(reservation.getId(),
+            version,
+            reservation.getStatus(),
+            reservation.getPaymentMethod(),
+            reservation.getVatStatus(),
+            reservation.getUsedVatPercent(),
+            reservation.getVatIncluded(),
+            reservation.getPromoCodeDiscountId(),
+            reservation.getCurrencyCode(),
+            reservation.getUserLanguage());
+    }
+}
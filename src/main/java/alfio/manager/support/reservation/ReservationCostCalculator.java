@@ -22,12 +22,18 @@ import alfio.model.decorator.TicketPriceContainer;
 import alfio.model.subscription.Subscription;
 import alfio.repository.*;
 import alfio.util.MonetaryUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -37,6 +43,9 @@ import static java.util.stream.Collectors.toList;
 @Component
 public class ReservationCostCalculator {
 
+    static final String CACHE_SIZE_PROPERTY = "alfio.orderSummary.cacheSize";
+    static final int DEFAULT_CACHE_SIZE = 10_000;
+
     private final TicketReservationRepository ticketReservationRepository;
     private final PurchaseContextManager purchaseContextManager;
     private final PromoCodeDiscountRepository promoCodeDiscountRepository;
@@ -44,6 +53,8 @@ public class ReservationCostCalculator {
     private final TicketRepository ticketRepository;
     private final AdditionalServiceRepository additionalServiceRepository;
     private final AdditionalServiceItemRepository additionalServiceItemRepository;
+    // entries are keyed by reservation version, so they never become stale. The TTL is there only to release memory
+    private final Cache<ReservationCacheKey, Pair<TotalPrice, Optional<PromoCodeDiscount>>> costCache;
 
     public ReservationCostCalculator(TicketReservationRepository ticketReservationRepository,
                                      PurchaseContextManager purchaseContextManager,
@@ -51,7 +62,8 @@ public class ReservationCostCalculator {
                                      SubscriptionRepository subscriptionRepository,
                                      TicketRepository ticketRepository,
                                      AdditionalServiceRepository additionalServiceRepository,
-                                     AdditionalServiceItemRepository additionalServiceItemRepository) {
+                                     AdditionalServiceItemRepository additionalServiceItemRepository,
+                                     Environment environment) {
         this.ticketReservationRepository = ticketReservationRepository;
         this.purchaseContextManager = purchaseContextManager;
         this.promoCodeDiscountRepository = promoCodeDiscountRepository;
@@ -60,6 +72,10 @@ public class ReservationCostCalculator {
         this.ticketRepository = ticketRepository;
         this.additionalServiceRepository = additionalServiceRepository;
         this.additionalServiceItemRepository = additionalServiceItemRepository;
+        this.costCache = Caffeine.newBuilder()
+            .maximumSize(environment.getProperty(CACHE_SIZE_PROPERTY, Integer.class, DEFAULT_CACHE_SIZE))
+            .expireAfterWrite(Duration.ofMinutes(30))
+            .build();
     }
 
     /**
@@ -72,7 +88,19 @@ public class ReservationCostCalculator {
         return totalReservationCostWithVAT(ticketReservationRepository.findReservationById(reservationId));
     }
 
+    /**
+     * Get the total cost with VAT for the given reservation. The result is cached until the reservation is modified.
+     *
+     * @param reservation the reservation
+     * @return total price and applied discount
+     */
     public Pair<TotalPrice, Optional<PromoCodeDiscount>> totalReservationCostWithVAT(TicketReservation reservation) {
+        return ticketReservationRepository.findVersion(reservation.getId())
+            .map(version -> costCache.get(ReservationCacheKey.of(reservation, version), k -> computeTotalReservationCostWithVAT(reservation)))
+            .orElseGet(() -> computeTotalReservationCostWithVAT(reservation));
+    }
+
+    private Pair<TotalPrice, Optional<PromoCodeDiscount>> computeTotalReservationCostWithVAT(TicketReservation reservation) {
         return totalReservationCostWithVAT(purchaseContextManager.findByReservationId(reservation.getId()).orElseThrow(), reservation, ticketRepository.findTicketsInReservation(reservation.getId()));
     }
 
@@ -112,12 +140,17 @@ public class ReservationCostCalculator {
 
     Stream<Pair<AdditionalService, List<AdditionalServiceItem>>> streamAdditionalServiceItems(String reservationId, PurchaseContext purchaseContext) {
         return purchaseContext.event().map(event -> {
-            return additionalServiceItemRepository.findByReservationUuid(reservationId)
+            var itemsByService = additionalServiceItemRepository.findByReservationUuid(reservationId)
                 .stream()
-                .collect(Collectors.groupingBy(AdditionalServiceItem::getAdditionalServiceId))
-                .entrySet()
+                .collect(Collectors.groupingBy(AdditionalServiceItem::getAdditionalServiceId));
+            if(itemsByService.isEmpty()) {
+                return Stream.<Pair<AdditionalService, List<AdditionalServiceItem>>>empty();
+            }
+            Map<Integer, AdditionalService> servicesById = additionalServiceRepository.getByIds(itemsByService.keySet(), event.getId()).stream()
+                .collect(Collectors.toMap(AdditionalService::getId, Function.identity()));
+            return itemsByService.entrySet()
                 .stream()
-                .map(entry -> Pair.of(additionalServiceRepository.getById(entry.getKey(), event.getId()), entry.getValue()));
+                .map(entry -> Pair.of(servicesById.get(entry.getKey()), entry.getValue()));
         }).orElse(Stream.empty());
     }
     public List<Pair<AdditionalService, List<AdditionalServiceItem>>> collectAdditionalServiceItems(String reservationId, Event event) {
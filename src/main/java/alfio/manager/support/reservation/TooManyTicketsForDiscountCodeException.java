@@ -17,4 +17,8 @@
 package alfio.manager.support.reservation;
 
 public class TooManyTicketsForDiscountCodeException extends RuntimeException {
+    /**
+     * Raised by the database when a reservation status change would exceed the max usage of the promo code
+     */
+    public static final String ERROR = "PROMO_CODE_USAGE_EXCEEDED";
 }
@@ -0,0 +1,223 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager.system;
+
+import alfio.model.Event;
+import alfio.model.system.DataDeletionJob;
+import alfio.model.system.DataDeletionJob.TargetType;
+import alfio.repository.EventRepository;
+import alfio.repository.SubscriptionRepository;
+import alfio.repository.system.DataDeletionRepository;
+import alfio.repository.system.DataDeletionStep;
+import alfio.repository.system.DataDeletionStep.Scope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes events and organizations in the background.
+ * <p>
+ * The target is hidden as soon as the deletion is scheduled. Then its rows are removed in bounded batches, following
+ * the order defined by {@link DataDeletionStep}; each batch is committed in its own transaction together with the
+ * position of the next batch, so that the job can be resumed after a crash. Batches don't wait on the locks held by
+ * the public traffic: on timeout, the batch is retried later.
+ * <p>
+ * Jobs are processed by one node at a time, which holds a lease on them.
+ */
+@Component
+public class DataDeletionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(DataDeletionManager.class);
+    static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int LEASE_SECONDS = 120;
+    private static final String LOCK_TIMEOUT = "2s";
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final DataDeletionRepository dataDeletionRepository;
+    private final EventRepository eventRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final TransactionTemplate requiresNewTransactionTemplate;
+    private final int batchSize;
+    private final long pauseBetweenBatchesMillis;
+
+    public DataDeletionManager(DataDeletionRepository dataDeletionRepository,
+                               EventRepository eventRepository,
+                               SubscriptionRepository subscriptionRepository,
+                               PlatformTransactionManager transactionManager,
+                               Environment environment) {
+        this.dataDeletionRepository = dataDeletionRepository;
+        this.eventRepository = eventRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.requiresNewTransactionTemplate = new TransactionTemplate(transactionManager, new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        this.batchSize = environment.getProperty("alfio.dataDeletion.batchSize", Integer.class, DEFAULT_BATCH_SIZE);
+        this.pauseBetweenBatchesMillis = environment.getProperty("alfio.dataDeletion.pauseMillis", Long.class, 50L);
+    }
+
+    @Transactional
+    public DataDeletionJob scheduleEventDeletion(int eventId, String username) {
+        eventRepository.updateEventStatus(eventId, Event.Status.DISABLED);
+        return schedule(TargetType.EVENT, eventId, username);
+    }
+
+    @Transactional
+    public DataDeletionJob scheduleOrganizationDeletion(int organizationId, String username) {
+        int events = eventRepository.disableEventsForOrganization(organizationId).size();
+        int descriptors = subscriptionRepository.deactivateAllDescriptorsForOrganization(organizationId);
+        log.info("organization {}: disabled {} event(s) and {} subscription descriptor(s)", organizationId, events, descriptors);
+        return schedule(TargetType.ORGANIZATION, organizationId, username);
+    }
+
+    public Optional<DataDeletionJob> findLatestJob(TargetType targetType, int targetId) {
+        return dataDeletionRepository.findLatest(targetType, targetId);
+    }
+
+    /**
+     * Processes the pending jobs until there's nothing left to do or the given time budget is exhausted.
+     *
+     * @return the number of deleted rows
+     */
+    public long processPendingJobs(Duration timeBudget) {
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+        long deleted = 0;
+        Optional<Integer> jobId;
+        while (System.nanoTime() < deadline && (jobId = acquireNext()).isPresent()) {
+            deleted += processJob(dataDeletionRepository.findById(jobId.get()), deadline);
+        }
+        return deleted;
+    }
+
+    private DataDeletionJob schedule(TargetType targetType, int targetId, String username) {
+        if (dataDeletionRepository.schedule(targetType, targetId, username) == 0) {
+            log.info("deletion of {} {} has already been scheduled", targetType, targetId);
+        } else {
+            log.warn("scheduled deletion of {} {}, requested by {}", targetType, targetId, username);
+        }
+        return dataDeletionRepository.findLatest(targetType, targetId).orElseThrow();
+    }
+
+    private Optional<Integer> acquireNext() {
+        var ids = requiresNewTransactionTemplate.execute(status -> dataDeletionRepository.acquireNext(LEASE_SECONDS));
+        return Objects.requireNonNull(ids).stream().findFirst();
+    }
+
+    private long processJob(DataDeletionJob job, long deadline) {
+        var position = new Position(job.getCurrentEventId(), job.getCurrentStep() != null ? DataDeletionStep.valueOf(job.getCurrentStep()) : null);
+        long deleted = 0;
+        int previousAttempts = job.getAttempts();
+        try {
+            while (position != null) {
+                var current = position;
+                var result = Objects.requireNonNull(requiresNewTransactionTemplate.execute(status -> processBatch(job, current)));
+                deleted += result.deleted();
+                position = result.next();
+                // a successful batch resets the attempts counter
+                previousAttempts = 0;
+                if (position != null && System.nanoTime() >= deadline) {
+                    requiresNewTransactionTemplate.execute(status -> dataDeletionRepository.releaseLease(job.getId()));
+                    log.info("deletion of {} {} in progress: {} rows deleted in this run, next step: {}", job.getTargetType(), job.getTargetId(), deleted, position);
+                    return deleted;
+                }
+                if (result.deleted() >= batchSize) {
+                    // give the database some room to breathe between full batches
+                    TimeUnit.MILLISECONDS.sleep(pauseBetweenBatchesMillis);
+                }
+            }
+            log.warn("deletion of {} {} completed. {} rows deleted in total", job.getTargetType(), job.getTargetId(), job.getDeletedRows() + deleted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            requiresNewTransactionTemplate.execute(status -> dataDeletionRepository.releaseLease(job.getId()));
+        } catch (Exception e) {
+            registerFailure(job, position, previousAttempts + 1, e);
+        }
+        return deleted;
+    }
+
+    private BatchResult processBatch(DataDeletionJob job, Position position) {
+        dataDeletionRepository.setLocalLockTimeout(LOCK_TIMEOUT);
+        var current = position.step() != null ? position : firstPosition(job);
+        var step = current.step();
+        int targetId = step.getScope() == Scope.EVENT ? current.eventId() : job.getTargetId();
+        int deleted = dataDeletionRepository.deleteBatch(step, targetId, batchSize);
+        Position next;
+        if (deleted >= batchSize) {
+            next = current;
+        } else {
+            next = step.next()
+                .map(s -> new Position(current.eventId(), s))
+                // the organization's events are deleted one by one, then we look for the next one
+                .orElse(step.getScope() == Scope.EVENT && job.getTargetType() == TargetType.ORGANIZATION ? Position.START : null);
+        }
+        if (next == null) {
+            dataDeletionRepository.markAsCompleted(job.getId(), deleted);
+        } else {
+            dataDeletionRepository.updateProgress(job.getId(), next.eventId(), next.stepName(), deleted, LEASE_SECONDS);
+        }
+        return new BatchResult(deleted, next);
+    }
+
+    private Position firstPosition(DataDeletionJob job) {
+        if (job.getTargetType() == TargetType.EVENT) {
+            return new Position(job.getTargetId(), DataDeletionStep.first(Scope.EVENT));
+        }
+        var nextEventId = dataDeletionRepository.findNextEventForOrganization(job.getTargetId());
+        if (nextEventId != null) {
+            return new Position(nextEventId, DataDeletionStep.first(Scope.EVENT));
+        }
+        return new Position(null, DataDeletionStep.first(Scope.ORGANIZATION));
+    }
+
+    private void registerFailure(DataDeletionJob job, Position position, int attempts, Exception e) {
+        var restartFrom = position;
+        if (e instanceof DataIntegrityViolationException) {
+            // rows have been added to a table which has already been cleaned up, so we restart from the first step
+            restartFrom = Position.START;
+        }
+        var status = attempts >= MAX_ATTEMPTS ? DataDeletionJob.Status.FAILED : DataDeletionJob.Status.IN_PROGRESS;
+        log.warn("error while deleting {} {} at step {}, attempt {}/{}", job.getTargetType(), job.getTargetId(), position, attempts, MAX_ATTEMPTS, e);
+        var nextPosition = restartFrom;
+        requiresNewTransactionTemplate.execute(s -> dataDeletionRepository.registerFailure(job.getId(), status, nextPosition.eventId(),
+            nextPosition.stepName(), e.getMessage(), (long) Math.pow(2, Math.min(attempts, 10))));
+    }
+
+    private record Position(Integer eventId, DataDeletionStep step) {
+        private static final Position START = new Position(null, null);
+
+        String stepName() {
+            return step != null ? step.name() : null;
+        }
+
+        @Override
+        public String toString() {
+            return step == null ? "start" : (eventId != null ? "event " + eventId + ", " : "") + step;
+        }
+    }
+
+    private record BatchResult(int deleted, Position next) {
+    }
+}
@@ -24,16 +24,19 @@ import alfio.model.system.EventMigration;
 import alfio.model.transaction.PaymentProxy;
 import alfio.repository.*;
 import alfio.repository.system.ConfigurationRepository;
+import alfio.repository.system.DataMigrationCheckpointRepository;
 import alfio.repository.system.EventMigrationRepository;
 import alfio.util.ClockProvider;
 import alfio.util.MonetaryUtil;
 import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -47,6 +50,11 @@ import org.springframework.transaction.support.TransactionTemplate;
 import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
@@ -80,6 +88,8 @@ public class DataMigrator {
     private final AdditionalServiceRepository additionalServiceRepository;
     private final BillingDocumentManager billingDocumentManager;
     private final ClockProvider clockProvider;
+    private final DataMigrationCheckpointRepository dataMigrationCheckpointRepository;
+    private final int migrationThreads;
 
     static {
         PRICE_UPDATE_BY_KEY.put("event", "update event set src_price_cts = :srcPriceCts, vat_status = :vatStatus where id = :eventId");
@@ -104,7 +114,9 @@ public class DataMigrator {
                         AdditionalServiceItemRepository additionalServiceItemRepository,
                         AdditionalServiceRepository additionalServiceRepository,
                         BillingDocumentManager billingDocumentManager,
-                        ClockProvider clockProvider) {
+                        ClockProvider clockProvider,
+                        DataMigrationCheckpointRepository dataMigrationCheckpointRepository,
+                        Environment environment) {
         this.eventMigrationRepository = eventMigrationRepository;
         this.eventRepository = eventRepository;
         this.ticketCategoryRepository = ticketCategoryRepository;
@@ -121,15 +133,85 @@ public class DataMigrator {
         this.additionalServiceRepository = additionalServiceRepository;
         this.billingDocumentManager = billingDocumentManager;
         this.clockProvider = clockProvider;
+        this.dataMigrationCheckpointRepository = dataMigrationCheckpointRepository;
+        this.migrationThreads = environment.getProperty("alfio.dataMigration.threads", Integer.class, Math.min(4, Runtime.getRuntime().availableProcessors()));
     }
 
     public void migrateEventsToCurrentVersion() {
         List<Event> events = eventRepository.findAll();
-        events.forEach(this::migrateEventToCurrentVersion);
-        fillReservationsLanguage();
+        migrateEvents(events);
+        runOnce("fillReservationsLanguage", this::fillReservationsLanguage);
         fillDefaultOptions();
-        fixReservationPrice(events);
-        fixVatStatus();
+        runOnce("fixReservationPrice", () -> fixReservationPrice(events));
+        runOnce("fixVatStatus", this::fixVatStatus);
+    }
+
+    /**
+     * Runs the given fix-up, unless it has already been completed by a previous run.
+     * New data is always created in the expected format, so there's no need to check it more than once.
+     */
+    private void runOnce(String name, Runnable fixUp) {
+        if(dataMigrationCheckpointRepository.isCompleted(name)) {
+            log.trace("skipping {}, as it has already been completed", name);
+            return;
+        }
+        fixUp.run();
+        dataMigrationCheckpointRepository.markCompleted(name);
+    }
+
+    private void migrateEvents(List<Event> events) {
+        var migrationsByEventId = eventMigrationRepository.loadAll().stream()
+            .collect(toMap(EventMigration::getEventId, Function.identity()));
+        var eventsToBeMigrated = events.stream()
+            .filter(e -> !migrationsByEventId.containsKey(e.getId()) || needsFixing(migrationsByEventId.get(e.getId())))
+            .collect(toList());
+        if(eventsToBeMigrated.isEmpty()) {
+            return;
+        }
+        int total = eventsToBeMigrated.size();
+        log.info("migrating {} events using {} threads", total, migrationThreads);
+        var executor = Executors.newFixedThreadPool(migrationThreads, new BasicThreadFactory.Builder()
+            .namingPattern("data-migrator-%d")
+            .build());
+        var completed = new AtomicInteger();
+        IllegalStateException failure = null;
+        try {
+            var futures = eventsToBeMigrated.stream()
+                .map(event -> executor.submit(() -> {
+                    migrateEventToCurrentVersion(event, Optional.ofNullable(migrationsByEventId.get(event.getId())));
+                    int count = completed.incrementAndGet();
+                    if(count % 100 == 0 || count == total) {
+                        log.info("migrated {}/{} events", count, total);
+                    }
+                }))
+                .collect(toList());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (CancellationException e) {
+                    // skipped because of a previous failure
+                } catch (ExecutionException e) {
+                    var shortName = eventsToBeMigrated.get(i).getShortName();
+                    log.error("cannot migrate event {}", shortName, e.getCause());
+                    if(failure == null) {
+                        failure = new IllegalStateException("cannot migrate event " + shortName, e.getCause());
+                        // the events which are already being migrated will complete, the others will be retried at the next startup
+                        futures.forEach(f -> f.cancel(false));
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("event migration has been interrupted", e);
+        } finally {
+            executor.shutdown();
+        }
+        if(failure != null) {
+            // the migration of the failed event has been rolled back, so it won't be marked as completed
+            throw failure;
+        }
     }
 
     private void fixVatStatus() {
@@ -197,8 +279,7 @@ public class DataMigrator {
         });
     }
 
-    private void migrateEventToCurrentVersion(Event event) {
-        Optional<EventMigration> optional = optionally(() -> eventMigrationRepository.loadEventMigration(event.getId()));
+    private void migrateEventToCurrentVersion(Event event, Optional<EventMigration> optional) {
         boolean alreadyDefined = optional.isPresent();
         if(!alreadyDefined || optional.filter(this::needsFixing).isPresent()) {
             transactionTemplate.execute(s -> {
@@ -95,7 +95,7 @@ public class ExternalConfiguration {
     public List<ExtensionSupport.ScriptPathNameHash> getAllExtensionsFor(String event, boolean async) {
         return extensions.stream()
             .filter(e -> e.async == async && e.isValid() && e.getEvents().contains(event))
-            .map(e -> new ExtensionSupport.ScriptPathNameHash(EXTERNAL_EXTENSION_PATH, e.getId(), DigestUtils.sha256Hex(e.file)))
+            .map(e -> new ExtensionSupport.ScriptPathNameHash(EXTERNAL_EXTENSION_PATH, e.getId(), DigestUtils.sha256Hex(e.file), e.async && e.batch))
             .collect(Collectors.toList());
     }
 
@@ -104,7 +104,7 @@ public class ExternalConfiguration {
             .map(ExtensionEvent::name).collect(Collectors.toList());
         return extensions.stream()
             .filter(e -> e.isValid() && CollectionUtils.containsAny(e.events, eventsAsString) && e.getCapabilities().contains(capability.name()))
-            .map(e -> new ExtensionSupport.ScriptPathNameHash(EXTERNAL_EXTENSION_PATH, e.getId(), DigestUtils.sha256Hex(e.file)))
+            .map(e -> new ExtensionSupport.ScriptPathNameHash(EXTERNAL_EXTENSION_PATH, e.getId(), DigestUtils.sha256Hex(e.file), false))
             .collect(Collectors.toList());
     }
 
@@ -134,6 +134,7 @@ public class ExternalConfiguration {
         private String file;
         private List<String> events;
         private boolean async;
+        private boolean batch;
         private Map<String, String> params;
         private String type = "plain"; // plain or base64
         private List<ExtensionCapabilityDetailsOverride> capabilityDetails;
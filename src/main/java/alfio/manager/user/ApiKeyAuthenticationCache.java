@@ -0,0 +1,149 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager.user;
+
+import alfio.model.system.ConfigurationKeys;
+import alfio.model.user.User;
+import alfio.repository.system.ConfigurationRepository;
+import alfio.repository.user.AuthorityRepository;
+import alfio.repository.user.UserRepository;
+import alfio.util.PostgresNotificationListener;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the details needed to authenticate API-key requests, keyed by the SHA-256 hash of the key.
+ * <p>
+ * Every change to users, roles or to the system API key triggers a PostgreSQL notification
+ * (see V205_2.0.0.58__API_KEY_AUTH_NOTIFY.sql), which is delivered to all nodes when the transaction commits
+ * and clears the cache. Entries also expire after a short time, as a safety net.
+ * The cache is bypassed while this node is not listening for notifications, so that a lost connection
+ * cannot leave a node accepting revoked keys.
+ */
+@Component
+public class ApiKeyAuthenticationCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyAuthenticationCache.class);
+    static final String CHANNEL = "alfio_api_key_auth";
+
+    private final UserRepository userRepository;
+    private final AuthorityRepository authorityRepository;
+    private final ConfigurationRepository configurationRepository;
+    private final Cache<String, ApiKeyDetails> cache;
+    // incremented on each invalidation, so that entries loaded in the meantime are not cached
+    private final AtomicLong generation = new AtomicLong();
+    private volatile boolean listening = false;
+
+    public ApiKeyAuthenticationCache(PostgresNotificationListener notificationListener,
+                                     UserRepository userRepository,
+                                     AuthorityRepository authorityRepository,
+                                     ConfigurationRepository configurationRepository,
+                                     Environment environment) {
+        this.userRepository = userRepository;
+        this.authorityRepository = authorityRepository;
+        this.configurationRepository = configurationRepository;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(environment.getProperty("alfio.apiKeyAuth.cacheSize", Integer.class, 10_000))
+            .expireAfterWrite(Duration.ofSeconds(environment.getProperty("alfio.apiKeyAuth.cacheTtlSeconds", Integer.class, 30)))
+            .build();
+        notificationListener.addHandler(CHANNEL, new PostgresNotificationListener.Handler() {
+            @Override
+            public void connected() {
+                listenerConnected();
+            }
+
+            @Override
+            public void disconnected() {
+                listenerDisconnected();
+            }
+
+            @Override
+            public void notificationsReceived(PGNotification[] notifications) {
+                log.trace("received {} API key changes", notifications.length);
+                invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * @param apiKey the API key sent by the client
+     * @return the details of the key, or an empty Optional if it doesn't match the system API key or an existing user
+     */
+    public Optional<ApiKeyDetails> find(String apiKey) {
+        String hash = DigestUtils.sha256Hex(apiKey);
+        if(listening) {
+            var cached = cache.getIfPresent(hash);
+            if(cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        long currentGeneration = generation.get();
+        var details = load(apiKey);
+        if(details.isPresent() && listening && generation.get() == currentGeneration) {
+            cache.put(hash, details.get());
+        }
+        return details;
+    }
+
+    private Optional<ApiKeyDetails> load(String apiKey) {
+        var systemApiKey = configurationRepository.findOptionalByKey(ConfigurationKeys.SYSTEM_API_KEY.name());
+        if(systemApiKey.isPresent() && MessageDigest.isEqual(apiKey.getBytes(StandardCharsets.UTF_8), systemApiKey.get().getValue().getBytes(StandardCharsets.UTF_8))) {
+            return Optional.of(new ApiKeyDetails(true, null, List.of()));
+        }
+        return userRepository.findByUsername(apiKey)
+            .map(user -> {
+                boolean canAuthenticate = user.isEnabled() && user.getType() == User.Type.API_KEY;
+                return new ApiKeyDetails(false, user, canAuthenticate ? authorityRepository.findRoles(apiKey) : List.of());
+            });
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    void listenerConnected() {
+        invalidateAll();
+        listening = true;
+    }
+
+    void listenerDisconnected() {
+        listening = false;
+        invalidateAll();
+    }
+
+    /**
+     * @param system {@code true} if the key is the system API key
+     * @param user the user identified by the key, {@code null} for the system API key
+     * @param roles the roles of the user, empty if the user cannot authenticate with an API key
+     */
+    public record ApiKeyDetails(boolean system, User user, List<String> roles) {
+    }
+}
@@ -60,13 +60,16 @@ public class ExtensionSupport {
         private final String path;
         private final String name;
         private final String hash;
+        private final boolean batch;
 
         public ScriptPathNameHash(@Column("path") String path,
                                   @Column("name") String name,
-                                  @Column("hash") String hash) {
+                                  @Column("hash") String hash,
+                                  @Column("batch") boolean batch) {
             this.path = path;
             this.name = name;
             this.hash = hash;
+            this.batch = batch;
         }
     }
 
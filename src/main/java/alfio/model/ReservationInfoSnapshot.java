@@ -0,0 +1,110 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.model;
+
+import alfio.model.support.JSONData;
+import alfio.model.transaction.PaymentProxy;
+import ch.digitalfondue.npjt.ConstructorAnnotationRowMapper.Column;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Everything needed to describe a reservation to the checkout page, except tickets and order summary,
+ * loaded with a single query.
+ */
+@Getter
+public class ReservationInfoSnapshot {
+
+    private final TicketReservation reservation;
+    private final TicketReservationAdditionalInfo additionalInfo;
+    private final ReservationMetadata metadata;
+    private final boolean paidSupplements;
+    private final boolean linkedToGroups;
+    private final boolean pendingPaymentToken;
+    private final List<CategoryInfo> categories;
+
+    public ReservationInfoSnapshot(@Column("id") String id,
+                                   @Column("validity") Date validity,
+                                   @Column("status") TicketReservation.TicketReservationStatus status,
+                                   @Column("full_name") String fullName,
+                                   @Column("first_name") String firstName,
+                                   @Column("last_name") String lastName,
+                                   @Column("email_address") String email,
+                                   @Column("billing_address") String billingAddress,
+                                   @Column("confirmation_ts") ZonedDateTime confirmationTimestamp,
+                                   @Column("latest_reminder_ts") ZonedDateTime latestReminder,
+                                   @Column("payment_method") PaymentProxy paymentMethod,
+                                   @Column("offline_payment_reminder_sent") Boolean reminderSent,
+                                   @Column("promo_code_id_fk") Integer promoCodeDiscountId,
+                                   @Column("automatic") boolean automatic,
+                                   @Column("user_language") String userLanguage,
+                                   @Column("direct_assignment") boolean directAssignmentRequested,
+                                   @Column("invoice_number") String invoiceNumber,
+                                   @Column("invoice_model") String invoiceModel,
+                                   @Column("vat_status") PriceContainer.VatStatus vatStatus,
+                                   @Column("vat_nr") String vatNr,
+                                   @Column("vat_country") String vatCountryCode,
+                                   @Column("invoice_requested") boolean invoiceRequested,
+                                   @Column("used_vat_percent") BigDecimal usedVatPercent,
+                                   @Column("vat_included") Boolean vatIncluded,
+                                   @Column("creation_ts") ZonedDateTime creationTimestamp,
+                                   @Column("customer_reference") String customerReference,
+                                   @Column("registration_ts") ZonedDateTime registrationTimestamp,
+                                   @Column("src_price_cts") Integer srcPriceCts,
+                                   @Column("final_price_cts") Integer finalPriceCts,
+                                   @Column("vat_cts") Integer vatCts,
+                                   @Column("discount_cts") Integer discountCts,
+                                   @Column("currency_code") String currencyCode,
+                                   //
+                                   @Column("billing_address_company") String billingAddressCompany,
+                                   @Column("billing_address_line1") String billingAddressLine1,
+                                   @Column("billing_address_line2") String billingAddressLine2,
+                                   @Column("billing_address_zip") String billingAddressZip,
+                                   @Column("billing_address_city") String billingAddressCity,
+                                   @Column("billing_address_state") String billingAddressState,
+                                   @Column("validated_for_overview") Boolean validated,
+                                   @Column("skip_vat_nr") Boolean skipVatNr,
+                                   @Column("add_company_billing_details") Boolean addCompanyBillingDetails,
+                                   @Column("invoicing_additional_information") @JSONData TicketReservationInvoicingAdditionalInfo invoicingAdditionalInformation,
+                                   @Column("metadata") @JSONData ReservationMetadata metadata,
+                                   //
+                                   @Column("has_paid_supplements") boolean paidSupplements,
+                                   @Column("linked_to_groups") boolean linkedToGroups,
+                                   @Column("pending_payment_token") boolean pendingPaymentToken,
+                                   @Column("categories") @JSONData CategoryInfo[] categories) {
+        this.reservation = new TicketReservation(id, validity, status, fullName, firstName, lastName, email, billingAddress,
+            confirmationTimestamp, latestReminder, paymentMethod, reminderSent, promoCodeDiscountId, automatic, userLanguage,
+            directAssignmentRequested, invoiceNumber, invoiceModel, vatStatus, vatNr, vatCountryCode, invoiceRequested,
+            usedVatPercent, vatIncluded, creationTimestamp, customerReference, registrationTimestamp, srcPriceCts,
+            finalPriceCts, vatCts, discountCts, currencyCode);
+        this.additionalInfo = new TicketReservationAdditionalInfo(billingAddressCompany, billingAddressLine1, billingAddressLine2,
+            billingAddressZip, billingAddressCity, billingAddressState, validated, skipVatNr, addCompanyBillingDetails,
+            invoicingAdditionalInformation, vatCountryCode, vatNr);
+        this.metadata = metadata;
+        this.paidSupplements = paidSupplements;
+        this.linkedToGroups = linkedToGroups;
+        this.pendingPaymentToken = pendingPaymentToken;
+        this.categories = categories != null ? List.of(categories) : List.of();
+    }
+
+    public record CategoryInfo(int id, String name, TicketCategory.TicketAccessType ticketAccessType) {
+    }
+}
@@ -18,6 +18,7 @@ package alfio.model;
 
 import alfio.util.MonetaryUtil;
 import ch.digitalfondue.npjt.ConstructorAnnotationRowMapper.Column;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.time.ZonedDateTime;
 
@@ -27,6 +28,7 @@ public class ReservationPaymentDetail {
     private final String lastName;
     private final String email;
     private final String paymentMethod;
+    private final int transactionId;
     private final String paidAmount;
     private final String currencyCode;
     private final String transactionTimestamp;
@@ -38,6 +40,7 @@ public class ReservationPaymentDetail {
                                     @Column("tr_last_name") String lastName,
                                     @Column("tr_email_address") String email,
                                     @Column("tr_payment_method") String paymentMethod,
+                                    @Column("bt_id") int transactionId,
                                     @Column("bt_price_cts") Integer paidAmount,
                                     @Column("bt_currency") String currencyCode,
                                     @Column("bt_t_timestamp") ZonedDateTime transactionTimestamp,
@@ -48,6 +51,7 @@ public class ReservationPaymentDetail {
         this.lastName = lastName;
         this.email = email;
         this.paymentMethod = paymentMethod;
+        this.transactionId = transactionId;
         this.paidAmount = MonetaryUtil.formatCents(paidAmount, currencyCode);
         this.currencyCode = currencyCode;
         this.transactionTimestamp = transactionTimestamp.toString();
@@ -75,6 +79,11 @@ public class ReservationPaymentDetail {
         return paymentMethod;
     }
 
+    @JsonIgnore
+    public int getTransactionId() {
+        return transactionId;
+    }
+
     public String getPaidAmount() {
         return paidAmount;
     }
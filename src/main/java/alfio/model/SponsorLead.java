@@ -0,0 +1,53 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.model;
+
+import ch.digitalfondue.npjt.ConstructorAnnotationRowMapper.Column;
+import lombok.Getter;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Compact projection of a sponsor scan, containing only the information needed by the sponsor apps.
+ */
+@Getter
+public class SponsorLead {
+
+    private final String ticketUuid;
+    private final ZonedDateTime timestamp;
+    private final String fullName;
+    private final String email;
+    private final String notes;
+    private final SponsorScan.LeadStatus leadStatus;
+    private final String operator;
+
+    public SponsorLead(@Column("ticket_uuid") String ticketUuid,
+                       @Column("creation") ZonedDateTime timestamp,
+                       @Column("full_name") String fullName,
+                       @Column("email_address") String email,
+                       @Column("notes") String notes,
+                       @Column("lead_status") SponsorScan.LeadStatus leadStatus,
+                       @Column("operator") String operator) {
+        this.ticketUuid = ticketUuid;
+        this.timestamp = timestamp;
+        this.fullName = fullName;
+        this.email = email;
+        this.notes = notes;
+        this.leadStatus = leadStatus;
+        this.operator = operator;
+    }
+}
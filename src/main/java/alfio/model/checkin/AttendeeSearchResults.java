@@ -28,17 +28,31 @@ public class AttendeeSearchResults {
     private final int totalPages;
     private final int numPage;
     private final List<Attendee> attendees;
+    private final String nextPageCursor;
+    private final boolean totalEstimated;
 
     public AttendeeSearchResults(int totalResults,
                                  int checkedIn,
                                  int totalPages,
                                  int numPage,
                                  List<Attendee> attendees) {
+        this(totalResults, checkedIn, totalPages, numPage, attendees, null, false);
+    }
+
+    public AttendeeSearchResults(int totalResults,
+                                 int checkedIn,
+                                 int totalPages,
+                                 int numPage,
+                                 List<Attendee> attendees,
+                                 String nextPageCursor,
+                                 boolean totalEstimated) {
         this.totalResults = totalResults;
         this.checkedIn = checkedIn;
         this.totalPages = totalPages;
         this.numPage = numPage;
         this.attendees = attendees;
+        this.nextPageCursor = nextPageCursor;
+        this.totalEstimated = totalEstimated;
     }
 
     public int getTotalResults() {
@@ -54,7 +68,7 @@ public class AttendeeSearchResults {
     }
 
     public boolean hasMorePages() {
-        return numPage < totalPages - 1;
+        return nextPageCursor != null || numPage < totalPages - 1;
     }
 
     public int getTotalPages() {
@@ -65,6 +79,20 @@ public class AttendeeSearchResults {
         return numPage;
     }
 
+    /**
+     * @return the value to pass as "after" parameter in order to load the next page, or {@code null} if there are no more results
+     */
+    public String getNextPageCursor() {
+        return nextPageCursor;
+    }
+
+    /**
+     * @return {@code true} if the counting has been stopped before reaching the end. In this case totalResults and checkedIn are lower bounds
+     */
+    public boolean isTotalEstimated() {
+        return totalEstimated;
+    }
+
     public static class Attendee {
         private final String uuid;
         private final String firstName;
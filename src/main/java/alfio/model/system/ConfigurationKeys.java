@@ -272,6 +272,11 @@ public enum ConfigurationKeys {
 
     DESCRIPTION_MAXLENGTH("Max characters in descriptions (default 4000)", false, SettingCategory.GENERAL, ComponentType.TEXT, false, EnumSet.of(SYSTEM)),
 
+    AUDITING_ARCHIVE_AFTER_MONTHS("Move auditing entries older than the given amount of months to the archive (default: 12, 0 disables archiving)", false, SettingCategory.GENERAL, ComponentType.TEXT, false, EnumSet.of(SYSTEM)),
+    AUDITING_RETENTION_MONTHS("Delete archived auditing entries older than the given amount of months (default: 0, keeps them forever)", false, SettingCategory.GENERAL, ComponentType.TEXT, false, EnumSet.of(SYSTEM)),
+
+    RESERVATION_EXPIRATION_GRACE_PERIOD_SECONDS("Seconds to wait after the expiration of a pending reservation before releasing its tickets (default: 30)", false, SettingCategory.GENERAL, ComponentType.TEXT, false, EnumSet.of(SYSTEM)),
+
     OPENID_PUBLIC_ENABLED("Enable OpenID for public users (default: false)", false, SettingCategory.OPENID, ComponentType.BOOLEAN, false, EnumSet.of(SYSTEM), BooleanUtils.FALSE),
     OPENID_CONFIGURATION_JSON("OpenID configuration", false, SettingCategory.OPENID, ComponentType.TEXTAREA, false, EnumSet.of(SYSTEM)),
 
@@ -0,0 +1,80 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.model.system;
+
+import ch.digitalfondue.npjt.ConstructorAnnotationRowMapper.Column;
+import lombok.Getter;
+
+import java.time.ZonedDateTime;
+
+@Getter
+public class DataDeletionJob {
+
+    public enum TargetType {
+        EVENT, ORGANIZATION
+    }
+
+    public enum Status {
+        PENDING, IN_PROGRESS, COMPLETED, FAILED
+    }
+
+    private final int id;
+    private final TargetType targetType;
+    private final int targetId;
+    private final Status status;
+    private final String requestedBy;
+    private final ZonedDateTime requestTimestamp;
+    private final Integer currentEventId;
+    private final String currentStep;
+    private final long deletedRows;
+    private final int attempts;
+    private final ZonedDateTime lastUpdateTimestamp;
+    private final ZonedDateTime completionTimestamp;
+    private final String errorMessage;
+
+    public DataDeletionJob(@Column("id") int id,
+                           @Column("target_type") TargetType targetType,
+                           @Column("target_id") int targetId,
+                           @Column("status") Status status,
+                           @Column("requested_by") String requestedBy,
+                           @Column("request_ts") ZonedDateTime requestTimestamp,
+                           @Column("current_event_id") Integer currentEventId,
+                           @Column("current_step") String currentStep,
+                           @Column("deleted_rows") long deletedRows,
+                           @Column("attempts") int attempts,
+                           @Column("last_update_ts") ZonedDateTime lastUpdateTimestamp,
+                           @Column("completion_ts") ZonedDateTime completionTimestamp,
+                           @Column("error_message") String errorMessage) {
+        this.id = id;
+        this.targetType = targetType;
+        this.targetId = targetId;
+        this.status = status;
+        this.requestedBy = requestedBy;
+        this.requestTimestamp = requestTimestamp;
+        this.currentEventId = currentEventId;
+        this.currentStep = currentStep;
+        this.deletedRows = deletedRows;
+        this.attempts = attempts;
+        this.lastUpdateTimestamp = lastUpdateTimestamp;
+        this.completionTimestamp = completionTimestamp;
+        this.errorMessage = errorMessage;
+    }
+
+    public boolean isActive() {
+        return status == Status.PENDING || status == Status.IN_PROGRESS;
+    }
+}
@@ -21,27 +21,81 @@ import alfio.model.Audit;
 import alfio.model.Event;
 import alfio.model.PurchaseContext;
 import alfio.model.support.JSONData;
+import alfio.repository.audit.AuditingBuffer;
 import alfio.util.Json;
 import ch.digitalfondue.npjt.Bind;
 import ch.digitalfondue.npjt.Query;
 import ch.digitalfondue.npjt.QueryRepository;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import java.time.ZonedDateTime;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
 
 @QueryRepository
 public interface AuditingRepository {
 
-    @Query("insert into auditing(reservation_id, user_id, event_id, event_type, event_time, entity_type, entity_id, modifications) " +
+    String INSERT_COLUMNS = "insert into auditing(reservation_id, user_id, event_id, event_type, event_time, entity_type, entity_id, modifications) ";
+    int MAX_ROWS_PER_INSERT = 500;
+
+    @Query(INSERT_COLUMNS +
         " values (:reservationId, :userId, :eventId, :eventType, :eventTime, :entityType, :entityId, :modifications)")
-    int insert(@Bind("reservationId") String reservationId, @Bind("userId") Integer userId,
-               @Bind("eventId") Integer eventId,
-               @Bind("eventType") Audit.EventType eventType, @Bind("eventTime") Date eventTime,
-               @Bind("entityType") Audit.EntityType entityType, @Bind("entityId") String entityId,
-               @Bind("modifications") String modifications);
+    int insertImmediately(@Bind("reservationId") String reservationId, @Bind("userId") Integer userId,
+                          @Bind("eventId") Integer eventId,
+                          @Bind("eventType") Audit.EventType eventType, @Bind("eventTime") Date eventTime,
+                          @Bind("entityType") Audit.EntityType entityType, @Bind("entityId") String entityId,
+                          @Bind("modifications") String modifications);
+
+    /**
+     * Registers an auditing row. If there is an active transaction, the row is buffered and written
+     * together with the other rows of the same transaction right before commit.
+     * See {@link AuditingBuffer}.
+     */
+    default int insert(String reservationId, Integer userId, Integer eventId, Audit.EventType eventType, Date eventTime,
+                       Audit.EntityType entityType, String entityId, String modifications) {
+        return AuditingBuffer.enqueue(this, new AuditingBuffer.PendingAudit(reservationId, userId, eventId, eventType, eventTime, entityType, entityId, modifications));
+    }
+
+    /**
+     * Writes the given rows using multi-row insert statements
+     *
+     * @param audits the rows to be written
+     * @return the number of inserted rows
+     */
+    default int insertAll(List<AuditingBuffer.PendingAudit> audits) {
+        int result = 0;
+        for (int from = 0; from < audits.size(); from += MAX_ROWS_PER_INSERT) {
+            var chunk = audits.subList(from, Math.min(audits.size(), from + MAX_ROWS_PER_INSERT));
+            var params = new MapSqlParameterSource();
+            var values = new StringJoiner(", ");
+            for (int i = 0; i < chunk.size(); i++) {
+                var audit = chunk.get(i);
+                params.addValue("reservationId" + i, audit.reservationId())
+                    .addValue("userId" + i, audit.userId())
+                    .addValue("eventId" + i, audit.eventId())
+                    .addValue("eventType" + i, audit.eventType().name())
+                    .addValue("eventTime" + i, audit.eventTime())
+                    .addValue("entityType" + i, audit.entityType() != null ? audit.entityType().name() : null)
+                    .addValue("entityId" + i, audit.entityId())
+                    .addValue("modifications" + i, audit.modifications());
+                values.add(String.format("(:reservationId%1$d, :userId%1$d, :eventId%1$d, :eventType%1$d, :eventTime%1$d, :entityType%1$d, :entityId%1$d, :modifications%1$d)", i));
+            }
+            result += getNamedParameterJdbcTemplate().update(INSERT_COLUMNS + " values " + values, params);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the buffered rows of the current transaction, if any.
+     * Must be called before running queries on the auditing table, in order to be able to read our own writes.
+     */
+    default void flushPendingAudits() {
+        AuditingBuffer.flush(this);
+    }
 
 
     default int insert(String reservationId, Integer userId, Integer eventId, Audit.EventType eventType, Date eventTime, Audit.EntityType entityType,
@@ -69,18 +123,38 @@ public interface AuditingRepository {
 
 
     @Query("select * from auditing_user where reservation_id = :reservationId order by event_time asc")
-    List<Audit> findAllForReservation(@Bind("reservationId") String reservationId);
+    List<Audit> loadAllForReservation(@Bind("reservationId") String reservationId);
+
+    default List<Audit> findAllForReservation(String reservationId) {
+        flushPendingAudits();
+        return loadAllForReservation(reservationId);
+    }
 
     @Query("select count(*) from auditing_user where reservation_id = :reservationId and event_type = :eventType")
-    Integer countAuditsOfTypeForReservation(@Bind("reservationId") String reservationId, @Bind("eventType") Audit.EventType eventType);
+    Integer loadCountAuditsOfTypeForReservation(@Bind("reservationId") String reservationId, @Bind("eventType") Audit.EventType eventType);
+
+    default Integer countAuditsOfTypeForReservation(String reservationId, Audit.EventType eventType) {
+        flushPendingAudits();
+        return loadCountAuditsOfTypeForReservation(reservationId, eventType);
+    }
 
     @Query("select count(*) from auditing_user where reservation_id = :reservationId and entity_id = :ticketId::text and event_type = :eventType")
-    Integer countAuditsOfTypeForTicket(@Bind("reservationId") String reservationId,
-                                       @Bind("ticketId") int ticketId,
-                                       @Bind("eventType") Audit.EventType eventType);
+    Integer loadCountAuditsOfTypeForTicket(@Bind("reservationId") String reservationId,
+                                           @Bind("ticketId") int ticketId,
+                                           @Bind("eventType") Audit.EventType eventType);
+
+    default Integer countAuditsOfTypeForTicket(String reservationId, int ticketId, Audit.EventType eventType) {
+        flushPendingAudits();
+        return loadCountAuditsOfTypeForTicket(reservationId, ticketId, eventType);
+    }
 
     @Query("select count(*) from auditing_user where reservation_id = :reservationId and event_type in (:eventTypes) and date_trunc('day', :referenceDate::timestamp) = date_trunc('day', event_time)")
-    Integer countAuditsOfTypesInTheSameDay(@Bind("reservationId") String reservationId, @Bind("eventTypes") Collection<String> eventTypes, @Bind("referenceDate") ZonedDateTime date);
+    Integer loadCountAuditsOfTypesInTheSameDay(@Bind("reservationId") String reservationId, @Bind("eventTypes") Collection<String> eventTypes, @Bind("referenceDate") ZonedDateTime date);
+
+    default Integer countAuditsOfTypesInTheSameDay(String reservationId, Collection<String> eventTypes, ZonedDateTime date) {
+        flushPendingAudits();
+        return loadCountAuditsOfTypesInTheSameDay(reservationId, eventTypes, date);
+    }
 
     @Query("insert into auditing(reservation_id, user_id, event_id, event_type, event_time, entity_type, entity_id, modifications) " +
         " select tickets_reservation_id, null, event_id, 'UPDATE_TICKET_CATEGORY', current_timestamp, 'TICKET', concat('', id), null from ticket where category_id = :ticketCategoryId and tickets_reservation_id is not null")
@@ -93,4 +167,6 @@ public interface AuditingRepository {
     @Query("insert into auditing(reservation_id, user_id, event_id, event_type, event_time, entity_type, entity_id, modifications) " +
         " select tickets_reservation_id, null, event_id, 'UNTAG_TICKET', current_timestamp, 'TICKET', concat('', id), :modifications from ticket where id in (:ticketIds)")
     int registerTicketUntag(@Bind("ticketIds") List<Integer> ids, @Bind("modifications") @JSONData List<Map<String, Object>> modifications);
+
+    NamedParameterJdbcTemplate getNamedParameterJdbcTemplate();
 }
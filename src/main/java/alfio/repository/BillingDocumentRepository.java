@@ -18,10 +18,11 @@ package alfio.repository;
 
 import alfio.model.BillingDocument;
 import ch.digitalfondue.npjt.*;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import java.time.ZonedDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @QueryRepository
 public interface BillingDocumentRepository {
@@ -87,4 +88,22 @@ public interface BillingDocumentRepository {
 
     @Query("select min(generation_ts) from billing_document where event_id_fk = :eventId and type = 'INVOICE' and status = 'VALID'")
     Optional<ZonedDateTime> findFirstInvoiceGenerationDate(@Bind("eventId") int eventId);
+
+    @Query("insert into billing_document_pdf(billing_document_id_fk, content) values(:id, :content) on conflict do nothing")
+    int savePdfContent(@Bind("id") long documentId, @Bind("content") byte[] content);
+
+    default Map<Long, byte[]> findPdfContent(Collection<Long> documentIds) {
+        if(documentIds.isEmpty()) {
+            return Map.of();
+        }
+        var result = new HashMap<Long, byte[]>();
+        getNamedParameterJdbcTemplate().query("select billing_document_id_fk, content from billing_document_pdf where billing_document_id_fk in (:ids)",
+            new MapSqlParameterSource("ids", documentIds),
+            rs -> {
+                result.put(rs.getLong("billing_document_id_fk"), rs.getBytes("content"));
+            });
+        return result;
+    }
+
+    NamedParameterJdbcTemplate getNamedParameterJdbcTemplate();
 }
@@ -25,11 +25,11 @@ import ch.digitalfondue.npjt.Bind;
 import ch.digitalfondue.npjt.Query;
 import ch.digitalfondue.npjt.QueryRepository;
 import ch.digitalfondue.npjt.QueryType;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import java.time.ZonedDateTime;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
 
 @QueryRepository
 public interface EmailMessageRepository {
@@ -63,6 +63,37 @@ public interface EmailMessageRepository {
                @Bind("timestamp") ZonedDateTime requestTimestamp,
                @Bind("organizationId") int organizationId);
 
+    NamedParameterJdbcTemplate getNamedParameterJdbcTemplate();
+
+    /**
+     * Loads the ids of the messages of the given event matching one of the given checksums
+     *
+     * @return a map checksum -> message id
+     */
+    default Map<String, Integer> findIdsByEventIdAndChecksums(int eventId, Collection<String> checksums) {
+        if(checksums.isEmpty()) {
+            return Map.of();
+        }
+        var result = new HashMap<String, Integer>();
+        getNamedParameterJdbcTemplate().query("select id, checksum from email_message where event_id = :eventId and checksum in (:checksums)",
+            new MapSqlParameterSource("eventId", eventId).addValue("checksums", checksums),
+            rs -> { result.putIfAbsent(rs.getString("checksum"), rs.getInt("id")); });
+        return result;
+    }
+
+    /**
+     * Batch version of {@link #insert(Integer, UUID, String, String, String, String, String, String, String, String, ZonedDateTime, int)}.
+     * Each parameter source must define the same parameters.
+     */
+    default void bulkInsert(List<MapSqlParameterSource> messages) {
+        if(messages.isEmpty()) {
+            return;
+        }
+        getNamedParameterJdbcTemplate().batchUpdate("insert into email_message (event_id, organization_id_fk, subscription_descriptor_id_fk, reservation_id, status, recipient, subject, message, html_message, attachments, checksum, request_ts, email_cc)" +
+            " values(:eventId, :organizationId, :subscriptionDescriptorId, :reservationId, 'WAITING', :recipient, :subject, :message, :htmlMessage, :attachments, :checksum, :timestamp, :emailCC)",
+            messages.toArray(new MapSqlParameterSource[0]));
+    }
+
 
     @Query("update email_message set status = :status where id = :id and checksum = :checksum and status in (:expectedStatuses)")
     int updateStatus(@Bind("id") int messageId, @Bind("checksum") String checksum, @Bind("status") String status, @Bind("expectedStatuses") List<String> expectedStatuses);
@@ -82,9 +82,9 @@ public interface ExtensionRepository {
     @Query("select * from extension_support order by path, name")
     List<ExtensionSupport> listAll();
 
-    @Query("select a3.es_id, a3.path, a3.name, a3.hash from " +
+    @Query("select a3.es_id, a3.path, a3.name, a3.hash, a3.batch from " +
         " (select a1.* from " +
-        " (select es_id, path, name, hash from extension_support where enabled = true and async = :async and (path in (:possiblePaths))) a1 " +
+        " (select es_id, path, name, hash, coalesce((metadata ->> 'batch')::boolean, false) as batch from extension_support where enabled = true and async = :async and (path in (:possiblePaths))) a1 " +
         " left outer join (select es_id, path, name from extension_support where enabled = true and async = :async and (path in (:possiblePaths))) a2 on " +
         " (a1.es_id = a2.es_id) and length(a1.path) < length(a2.path) where a2.path is null) a3 " +
         " inner join extension_event on es_id_fk = a3.es_id where event = :event order by a3.name, a3.path")
@@ -172,7 +172,7 @@ public interface ExtensionRepository {
     List<ExtensionCapabilitySummary> getSupportedCapabilities(@Bind("possiblePaths") Set<String> paths,
                                                               @Bind("capabilities") Collection<String> capabilities);
 
-    @Query("select a3.es_id, a3.path, a3.name, a3.hash from " +
+    @Query("select a3.es_id, a3.path, a3.name, a3.hash, false as batch from " +
         " (select a1.es_id, a1.path, a1.name, a1.hash from " +
         " (select es_id, path, name, hash from extension_capabilities where (path in (:possiblePaths)) and capability = :capability) a1 " +
         " left outer join (select es_id, path, name, hash from extension_capabilities where (path in (:possiblePaths)) and capability = :capability) a2 on " +
@@ -81,6 +81,12 @@ public interface GroupRepository {
     @Query("select * from group_member_active where a_group_id_fk = :groupId order by value")
     List<GroupMember> getItems(@Bind("groupId") int groupId);
 
+    @Query("select id, a_group_id_fk, value, null as description from group_member_active where a_group_id_fk = :groupId")
+    List<GroupMember> getActiveValues(@Bind("groupId") int groupId);
+
+    @Query("select * from group_member_active where id = :id and a_group_id_fk = :groupId")
+    Optional<GroupMember> findActiveItemById(@Bind("id") int id, @Bind("groupId") int groupId);
+
     @Query("select value from group_member where a_group_id_fk = :groupId order by value")
     List<String> getAllValuesIncludingNotActive(@Bind("groupId") int groupId);
 
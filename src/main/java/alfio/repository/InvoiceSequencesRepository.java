@@ -21,6 +21,10 @@ import alfio.model.support.EnumTypeAsString;
 import ch.digitalfondue.npjt.Bind;
 import ch.digitalfondue.npjt.Query;
 import ch.digitalfondue.npjt.QueryRepository;
+import ch.digitalfondue.npjt.QueryType;
+import org.apache.commons.lang3.Validate;
+
+import java.util.List;
 
 @QueryRepository
 public interface InvoiceSequencesRepository {
@@ -40,6 +44,24 @@ public interface InvoiceSequencesRepository {
         return incrementSequenceFor(orgId, BillingDocument.Type.INVOICE);
     }
 
+    @Query(value = "update invoice_sequences set invoice_sequence = invoice_sequence + 1 where organization_id_fk = :orgId and document_type = :documentType::BILLING_DOCUMENT_TYPE" +
+        " returning invoice_sequence - 1", type = QueryType.MODIFYING_WITH_RETURN)
+    List<Integer> incrementAndReturnPrevious(@Bind("orgId") int orgId, @Bind("documentType") @EnumTypeAsString BillingDocument.Type billingDocumentType);
+
+    /**
+     * Reserves the next value of the sequence with a single statement, so that the row lock is held for the shortest possible time.
+     * The caller must persist the returned value in the same transaction, in order to avoid gaps.
+     *
+     * @param orgId the organization
+     * @param billingDocumentType the document type
+     * @return the reserved value
+     */
+    default int getAndIncrement(int orgId, BillingDocument.Type billingDocumentType) {
+        var result = incrementAndReturnPrevious(orgId, billingDocumentType);
+        Validate.isTrue(result.size() == 1, "Cannot find invoice sequence for organization %d", orgId);
+        return result.get(0);
+    }
+
 
 
     @Query("insert into invoice_sequences(organization_id_fk, invoice_sequence, document_type) values" +
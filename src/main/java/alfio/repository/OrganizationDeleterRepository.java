@@ -34,6 +34,10 @@ public interface OrganizationDeleterRepository {
         " and organization_id_fk not in (" + SELECT_EMPTY_ORGANIZATIONS + ")")
     int deleteAuditingForEmptyOrganizations(@Bind("organizationIds") List<Integer> organizationIds);
 
+    @Query("delete from auditing_archive where organization_id_fk in(:organizationIds)" +
+        " and organization_id_fk not in (" + SELECT_EMPTY_ORGANIZATIONS + ")")
+    int deleteArchivedAuditingForEmptyOrganizations(@Bind("organizationIds") List<Integer> organizationIds);
+
     @Query("delete from invoice_sequences where organization_id_fk in(:organizationIds)" +
         " and organization_id_fk not in (" + SELECT_EMPTY_ORGANIZATIONS + ")")
     int deleteInvoiceSequencesForEmptyOrganizations(@Bind("organizationIds") List<Integer> organizationIds);
@@ -82,7 +86,8 @@ public interface OrganizationDeleterRepository {
         LOGGER.info("deleted {} invoice sequences", deletedSequences);
         // delete auditing
         int deletedAuditing = deleteAuditingForEmptyOrganizations(organizationIds);
-        LOGGER.info("deleted {} auditing rows", deletedAuditing);
+        int deletedArchivedAuditing = deleteArchivedAuditingForEmptyOrganizations(organizationIds);
+        LOGGER.info("deleted {} auditing rows and {} archived auditing rows", deletedAuditing, deletedArchivedAuditing);
         // delete groups
         int deletedGroupMembers = deleteGroupMembersForEmptyOrganizations(organizationIds);
         int deletedGroups = deleteGroupsForEmptyOrganizations(organizationIds);
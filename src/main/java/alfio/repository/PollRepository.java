@@ -87,20 +87,22 @@ public interface PollRepository {
     @Query("select * from poll_option where poll_id_fk = :pollId order by id")
     List<PollOption> getOptionsForPoll(@Bind("pollId") long pollId);
 
-    @Query("select count(*) from poll_option " +
-        " join poll on poll_option.poll_id_fk = poll.id" +
-        " where poll_option.id = :optionId and poll.id = :pollId and poll.event_id_fk = :eventId")
-    Integer checkPollOption(@Bind("optionId") long optionId, @Bind("pollId") long pollId, @Bind("eventId") int eventId);
-
     // answers
 
+    /**
+     * Registers the answer if the option belongs to the poll. If the ticket has already voted, the answer is replaced.
+     *
+     * @return 1 if the answer has been registered, 0 if the selection is not valid
+     */
     @Query("insert into poll_answer(poll_id_fk, poll_option_id_fk, ticket_id_fk, organization_id_fk)" +
-        " values(:pollId, :optionId, :ticketId, :orgId)" +
+        " select p.id, po.id, :ticketId, p.organization_id_fk from poll_option po" +
+        "    join poll p on po.poll_id_fk = p.id" +
+        " where po.id = :optionId and p.id = :pollId and p.event_id_fk = :eventId" +
         " on conflict(poll_id_fk, ticket_id_fk) do update set poll_option_id_fk = excluded.poll_option_id_fk")
     int registerAnswer(@Bind("pollId") long pollId,
                        @Bind("optionId") long optionId,
                        @Bind("ticketId") int ticketId,
-                       @Bind("orgId") int organizationId);
+                       @Bind("eventId") int eventId);
 
     @Query("select pa.poll_option_id_fk, count(*) as votes from poll_answer pa" +
         "    join poll p on p.id = pa.poll_id_fk " +
@@ -23,7 +23,6 @@ import ch.digitalfondue.npjt.Query;
 import ch.digitalfondue.npjt.QueryRepository;
 
 import java.time.ZonedDateTime;
-import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -95,10 +94,27 @@ public interface PromoCodeDiscountRepository {
     @Query("select count(*) from promo_code where event_id_fk = :eventId or (event_id_fk is null and organization_id_fk = :organizationId)")
     Integer countByEventAndOrganizationId(@Bind("eventId") int eventId, @Bind("organizationId") int organizationId);
 
-    @Query("select count(b.id) from tickets_reservation a, ticket b" +
-        " where (:currentId is null or a.id <> :currentId) and a.status in ('OFFLINE_PAYMENT', 'DEFERRED_OFFLINE_PAYMENT', 'COMPLETE', 'STUCK') and a.promo_code_id_fk = :id" +
-        " and b.tickets_reservation_id = a.id and (:categoriesJson is null or b.category_id in (:categories))")
-    Integer countConfirmedPromoCode(@Bind("id") int id, @Bind("categories") Collection<Integer> categories, @Bind("currentId") String currentReservationId, @Bind("categoriesJson") String categoriesJson);
+    /**
+     * Number of tickets sold using the promo code, maintained by the triggers defined in V205_2.0.0.64__PROMO_CODE_USAGE_COUNTER.sql
+     */
+    @Query("select confirmed_usage from promo_code where id = :id")
+    int getConfirmedUsage(@Bind("id") int id);
+
+    /**
+     * Checks whether confirming the given reservation would exceed the max usage of its promo code.
+     * The tickets of the reservation are added to the counter only if they have not been counted already.
+     */
+    @Query("select coalesce((select p.max_usage < p.confirmed_usage + (case when promo_code_counted_status(r.status) then 0 else promo_code_reservation_usage(p.id, r.id) end)" +
+        " from tickets_reservation r join promo_code p on p.id = r.promo_code_id_fk" +
+        " where r.id = :reservationId and p.max_usage is not null), false)")
+    boolean isUsageLimitExceeded(@Bind("reservationId") String reservationId);
+
+    /**
+     * Rebuilds the usage counter, to be called after the categories of the promo code have been modified
+     */
+    @Query("update promo_code p set confirmed_usage = coalesce((select sum(promo_code_reservation_usage(p.id, r.id))" +
+        " from tickets_reservation r where r.promo_code_id_fk = p.id and promo_code_counted_status(r.status)), 0) where p.id = :id")
+    int recalculateUsage(@Bind("id") int id);
 
     @Query("update promo_code set valid_to = :end where id = :id")
     int updateEventPromoCodeEnd(@Bind("id") int id, @Bind("end") ZonedDateTime end);
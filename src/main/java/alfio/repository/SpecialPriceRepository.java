@@ -68,9 +68,6 @@ public interface SpecialPriceRepository {
     @Query("select * from special_price where code = :code for update skip locked")
     Optional<SpecialPrice> getForUpdateByCode(@Bind("code") String code);
 
-    @Query("select count(*) from special_price where code = :code")
-    Integer countByCode(@Bind("code") String code);
-
     @Query("update special_price set status = :status, session_id = null, access_code_id_fk = :accessCodeId where id in (:ids)")
     int batchUpdateStatus(@Bind("ids") List<Integer> ids, @Bind("status") SpecialPrice.Status status, @Bind("accessCodeId") Integer accessCodeId);
 
@@ -89,8 +86,20 @@ public interface SpecialPriceRepository {
         " where id in (select special_price_id_fk from ticket where ticket.id in (:ticketIds) and special_price_id_fk is not null) ")
     int resetToFreeAndCleanupForTickets(@Bind("ticketIds") List<Integer> ticketIds);
 
-    @Query("update special_price set code = :code, status = 'FREE', sent_ts = null where id = :id")
-    int updateCode(@Bind("code") String code, @Bind("id") int id);
+    @Query("select code from special_price where code in (:codes)")
+    List<String> findExistingCodes(@Bind("codes") Collection<String> codes);
+
+    default void bulkUpdateCodes(List<Integer> ids, List<String> codes) {
+        if(ids.size() != codes.size()) {
+            throw new IllegalArgumentException("expected " + ids.size() + " codes, got " + codes.size());
+        }
+        MapSqlParameterSource[] params = new MapSqlParameterSource[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            params[i] = new MapSqlParameterSource("id", ids.get(i)).addValue("code", codes.get(i));
+        }
+        getNamedParameterJdbcTemplate()
+            .batchUpdate("update special_price set code = :code, status = 'FREE', sent_ts = null where id = :id", params);
+    }
 
     NamedParameterJdbcTemplate getNamedParameterJdbcTemplate();
 
@@ -17,6 +17,7 @@
 package alfio.repository;
 
 import alfio.model.DetailedScanData;
+import alfio.model.SponsorLead;
 import alfio.model.SponsorScan;
 import ch.digitalfondue.npjt.Bind;
 import ch.digitalfondue.npjt.Query;
@@ -26,18 +27,19 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
-import java.util.Optional;
 
 @QueryRepository
 public interface SponsorScanRepository {
 
     ZonedDateTime DEFAULT_TIMESTAMP = ZonedDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC);
 
-    @Query("select creation from sponsor_scan where user_id = :userId and event_id = :eventId and ticket_id = :ticketId and operator = :operator")
-    Optional<ZonedDateTime> getRegistrationTimestamp(@Bind("userId") int userId, @Bind("eventId") int eventId, @Bind("ticketId") int ticketId, @Bind("operator") String operator);
-
-    @Query("insert into sponsor_scan (user_id, creation, event_id, ticket_id, notes, lead_status, operator) values(:userId, :creation, :eventId, :ticketId, :notes, :leadStatus, :operator)")
-    int insert(@Bind("userId") int userId,
+    /**
+     * Registers a new scan or, if the ticket has already been scanned by the same user/operator, updates its notes and lead status.
+     * In both cases the change cursor of the row is moved forward.
+     */
+    @Query("insert into sponsor_scan (user_id, creation, event_id, ticket_id, notes, lead_status, operator) values(:userId, :creation, :eventId, :ticketId, :notes, :leadStatus, :operator)" +
+        " on conflict on constraint spsc_unique_ticket do update set notes = excluded.notes, lead_status = excluded.lead_status, change_txid = txid_current()")
+    int upsert(@Bind("userId") int userId,
                @Bind("creation") ZonedDateTime creation,
                @Bind("eventId") int eventId,
                @Bind("ticketId") int ticketId,
@@ -45,13 +47,20 @@ public interface SponsorScanRepository {
                @Bind("leadStatus") SponsorScan.LeadStatus leadStatus,
                @Bind("operator") String operator);
 
-    @Query("update sponsor_scan set notes = :notes, lead_status = :leadStatus where user_id = :userId and event_id = :eventId and ticket_id = :ticketId and operator = :operator")
-    int updateNotesAndLeadStatus(@Bind("userId") int userId,
-                                 @Bind("eventId") int eventId,
-                                 @Bind("ticketId") int ticketId,
-                                 @Bind("notes") String notes,
-                                 @Bind("leadStatus") SponsorScan.LeadStatus leadStatus,
-                                 @Bind("operator") String operator);
+    /**
+     * Returns the upper bound (exclusive) for change cursors: every transaction with a lower id is already completed,
+     * so no further changes can appear below this value.
+     */
+    @Query("select txid_snapshot_xmin(txid_current_snapshot())")
+    long getCompletedChangesUpperBound();
+
+    @Query("select t.uuid ticket_uuid, s.creation, coalesce(t.first_name || ' ' || t.last_name, t.full_name) full_name, t.email_address, s.notes, s.lead_status, s.operator" +
+        " from sponsor_scan s join ticket t on t.id = s.ticket_id" +
+        " where s.event_id = :eventId and s.user_id = :userId and s.change_txid >= :from and s.change_txid < :to order by s.change_txid, s.creation")
+    List<SponsorLead> loadChangedLeads(@Bind("eventId") int eventId,
+                                       @Bind("userId") int userId,
+                                       @Bind("from") long from,
+                                       @Bind("to") long to);
 
     @Query("select t.id t_id, t.uuid t_uuid, t.creation t_creation, t.category_id t_category_id, t.status t_status, t.event_id t_event_id," +
         " t.src_price_cts t_src_price_cts, t.final_price_cts t_final_price_cts, t.vat_cts t_vat_cts, t.discount_cts t_discount_cts, t.tickets_reservation_id t_tickets_reservation_id," +
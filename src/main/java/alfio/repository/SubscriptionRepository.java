@@ -134,6 +134,9 @@ public interface SubscriptionRepository {
     @Query("update subscription_descriptor set status = 'NOT_ACTIVE' where id = :id and organization_id_fk = :organizationId")
     int deactivateDescriptor(@Bind("id") UUID id, @Bind("organizationId") int organizationId);
 
+    @Query("update subscription_descriptor set status = 'NOT_ACTIVE', is_public = false where organization_id_fk = :organizationId")
+    int deactivateAllDescriptorsForOrganization(@Bind("organizationId") int organizationId);
+
     @Query("select * from subscription_descriptor where organization_id_fk = :organizationId" +
         " and status = 'ACTIVE'" +
         " order by on_sale_from, on_sale_to nulls last")
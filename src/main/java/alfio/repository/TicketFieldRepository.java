@@ -154,6 +154,15 @@ public interface TicketFieldRepository extends FieldRepository {
         return findDescriptions(eventId, locale.getLanguage()).stream().collect(Collectors.toMap(TicketFieldDescription::getTicketFieldConfigurationId, Function.identity()));
     }
 
+    default Map<Integer, Map<String, String>> findAllValuesByTicketIdsGrouped(Collection<Integer> ticketIds) {
+        if(ticketIds.isEmpty()) {
+            return Map.of();
+        }
+        return findAllValuesByTicketIds(ticketIds).stream()
+            .filter(t -> t.getName() != null && t.getValue() != null)
+            .collect(Collectors.groupingBy(TicketFieldValue::getTicketId, Collectors.toMap(TicketFieldValue::getName, TicketFieldValue::getValue)));
+    }
+
     default Map<String, String> findAllValuesForTicketId(int ticketId) {
         return findNameAndValue(ticketId).stream().filter(t -> t.getName() != null && t.getValue() != null).collect(Collectors.toMap(FieldNameAndValue::getName, FieldNameAndValue::getValue));
     }
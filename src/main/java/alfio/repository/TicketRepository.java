@@ -27,6 +27,7 @@ import alfio.model.support.Array;
 import alfio.model.support.EnumTypeAsString;
 import alfio.model.support.JSONData;
 import alfio.util.Json;
+import alfio.util.PinGenerator;
 import ch.digitalfondue.npjt.Bind;
 import ch.digitalfondue.npjt.Query;
 import ch.digitalfondue.npjt.QueryRepository;
@@ -240,6 +241,9 @@ public interface TicketRepository {
     @Query("select id from ticket where tickets_reservation_id = :reservationId " + SORT_TICKETS + " LIMIT 1 OFFSET 0")
     Optional<Integer> findFirstTicketIdInReservation(@Bind("reservationId") String reservationId);
 
+    @Query("select distinct on (tickets_reservation_id) id from ticket where tickets_reservation_id in (:reservationIds) order by tickets_reservation_id, category_id asc, uuid asc")
+    List<Integer> findFirstTicketIdInReservations(@Bind("reservationIds") Collection<String> reservationIds);
+
     @Query("select count(*) from ticket where tickets_reservation_id = :reservationId ")
     Integer countTicketsInReservation(@Bind("reservationId") String reservationId);
     
@@ -255,8 +259,17 @@ public interface TicketRepository {
     @Query("select * from ticket where uuid = :uuid for update")
     Optional<Ticket> findByUUIDForUpdate(@Bind("uuid") String uuid);
 
-    @Query("select * from ticket where event_id = :eventId and status = :status and uuid like :uuid for update")
-    List<Ticket> findByEventIdAndPartialUUIDForUpdate(@Bind("eventId") int eventId, @Bind("uuid") String partialUUID, @Bind("status") Ticket.TicketStatus status);
+    @Query("select * from ticket where uuid in (:uuids) order by id for update")
+    List<Ticket> findByUUIDsForUpdate(@Bind("uuids") Collection<String> uuids);
+
+    @Query("update ticket set status = 'CHECKED_IN', locked_assignment = true where id in (:ids) and status = 'ACQUIRED'")
+    int checkInTickets(@Bind("ids") Collection<Integer> ticketIds);
+
+    /**
+     * Resolves a PIN without locking the ticket. The expression must match the ticket_checked_in_pin_idx index.
+     */
+    @Query("select id from ticket where event_id = :eventId and status = 'CHECKED_IN' and left(uuid, " + PinGenerator.UUID_PREFIX_LENGTH + ") = :uuidPrefix limit 2")
+    List<Integer> findCheckedInTicketIdsByUUIDPrefix(@Bind("eventId") int eventId, @Bind("uuidPrefix") String uuidPrefix);
 
     @Query("update ticket set email_address = :email, full_name = :fullName, first_name = :firstName, last_name = :lastName where uuid = :ticketIdentifier")
     int updateTicketOwner(@Bind("ticketIdentifier") String ticketIdentifier, @Bind("email") String email, @Bind("fullName") String fullName, @Bind("firstName") String firstName, @Bind("lastName") String lastName);
@@ -330,8 +343,12 @@ public interface TicketRepository {
             " and t.full_name is not null and t.email_address is not null and (coalesce(ltu.last_update, t.creation) > :changedSince)  order by t.id asc")
     List<Integer> findAllAssignedByEventIdForCheckIn(@Bind("eventId") int eventId, @Bind("changedSince") Date changedSince);
 
-    @Query("select * from reservation_and_ticket_and_tx where t_id is not null and t_status in (" + CONFIRMED + ") and t_event_id = :eventId order by tr_confirmation_ts, t_id")
-    List<TicketWithReservationAndTransaction> findAllConfirmedForCSV(@Bind("eventId") int eventId);
+    @Query("select t.id from ticket t inner join tickets_reservation tr on t.tickets_reservation_id = tr.id" +
+        " where t.event_id = :eventId and t.status in (" + CONFIRMED + ") order by tr.confirmation_ts, t.id")
+    List<Integer> findAllConfirmedIdsForExport(@Bind("eventId") int eventId);
+
+    @Query("select * from reservation_and_ticket_and_tx where t_id in (:ticketIds) and t_event_id = :eventId order by tr_confirmation_ts, t_id")
+    List<TicketWithReservationAndTransaction> findAllForExport(@Bind("eventId") int eventId, @Bind("ticketIds") List<Integer> ticketIds);
 
     @Query("select a.*, b.confirmation_ts from ticket a, tickets_reservation b where a.event_id = :eventId and a.status in(" + CONFIRMED + ") and a.tickets_reservation_id = b.id order by b.confirmation_ts")
     List<Ticket> findAllConfirmed(@Bind("eventId") int eventId);
@@ -428,21 +445,33 @@ public interface TicketRepository {
     @Query("select * from checkin_ticket_event_and_category_info where t_uuid = :ticketUUID and e_short_name = :eventShortName and (e_format = 'ONLINE' or tc_ticket_access_type = 'ONLINE') ")
     Optional<CheckInFullInfo> getFullInfoForOnlineCheckin(@Bind("eventShortName") String eventShortName, @Bind("ticketUUID") String ticketUUID);
 
-    @Query("select * from checkin_ticket_event_and_category_info where e_id = :eventId " +
+    String SEARCH_ATTENDEES_FILTER = "e_id = :eventId " +
         "and (" + TicketSearchRepository.BASE_FILTER + " or lower(tc_name) like lower(:search)) "+
-        "and (e_format = 'IN_PERSON' or tc_ticket_access_type = 'IN_PERSON') " +
-        "order by t_last_name, t_first_name, t_uuid limit :limit offset :offset")
+        "and (e_format = 'IN_PERSON' or tc_ticket_access_type = 'IN_PERSON') ";
+
+    /**
+     * Search attendees, ordered by last name, first name and uuid. Missing names are sorted as empty strings, so that
+     * tickets not yet assigned are not skipped by the keyset.
+     * If {@code after} is defined, results start after the given ticket (keyset pagination), otherwise after {@code offset} results.
+     */
+    @Query("select * from checkin_ticket_event_and_category_info where " + SEARCH_ATTENDEES_FILTER +
+        "and (:after is null or (coalesce(t_last_name, ''), coalesce(t_first_name, ''), t_uuid) > " +
+        "    (select coalesce(last_name, ''), coalesce(first_name, ''), uuid from ticket where uuid = :after and event_id = :eventId)) " +
+        "order by coalesce(t_last_name, ''), coalesce(t_first_name, ''), t_uuid limit :limit offset :offset")
     List<CheckInFullInfo> searchAttendees(@Bind("eventId") int eventId,
                                           @Bind("search") String search,
+                                          @Bind("after") String after,
                                           @Bind("limit") int limit,
                                           @Bind("offset") int offset);
 
-    @Query("select count(*) as total, count(*) filter (where t_status = 'CHECKED_IN') as checked_in " +
-        "from checkin_ticket_event_and_category_info where e_id = :eventId " +
-        "and (" + TicketSearchRepository.BASE_FILTER + " or lower(tc_name) like lower(:search)) "+
-        "and (e_format = 'IN_PERSON' or tc_ticket_access_type = 'IN_PERSON') ")
+    /**
+     * Counts at most {@code maxResults} attendees matching the search, so that the cost of the count is bounded
+     */
+    @Query("select count(*) as total, count(*) filter (where t_status = 'CHECKED_IN') as checked_in from (" +
+        "select t_status from checkin_ticket_event_and_category_info where " + SEARCH_ATTENDEES_FILTER + " limit :maxResults) as d_tbl")
     AttendeeSearchResultsCount countSearchResults(@Bind("eventId") int eventId,
-                                                  @Bind("search") String search);
+                                                  @Bind("search") String search,
+                                                  @Bind("maxResults") int maxResults);
 
     @Query("update ticket set status = 'CHECKED_IN', locked_assignment = true where uuid = :uuid and event_id = :eventId and status = 'ACQUIRED'")
     int performCheckIn(@Bind("uuid") String ticketUUID, @Bind("eventId") int eventId);
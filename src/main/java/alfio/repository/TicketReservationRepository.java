@@ -112,6 +112,19 @@ public interface TicketReservationRepository {
     @Query("select * from tickets_reservation where id = :id")
     TicketReservation findReservationById(@Bind("id") String id);
 
+    /**
+     * The version changes every time the reservation is modified, or when it is bumped through {@link #bumpVersion(Collection)}.
+     */
+    @Query("select version from tickets_reservation where id = :id")
+    Optional<Long> findVersion(@Bind("id") String id);
+
+    /**
+     * Assigns a new version to the given reservations. Must be called when the price of tickets, additional items
+     * or subscriptions in a reservation changes without the reservation itself being updated.
+     */
+    @Query("update tickets_reservation set version = nextval('tickets_reservation_version_seq') where id in (:reservationIds)")
+    int bumpVersion(@Bind("reservationIds") Collection<String> reservationIds);
+
     @Query("select * from tickets_reservation where id = :id for update")
     TicketReservation findReservationByIdForUpdate(@Bind("id") String id);
 
@@ -124,9 +137,24 @@ public interface TicketReservationRepository {
     @Query("select status, validated_for_overview from tickets_reservation where id = :id")
     Optional<TicketReservationStatusAndValidation> findOptionalStatusAndValidationById(@Bind("id") String id);
 
+    @Query("select id, status, validated_for_overview from tickets_reservation where id in (:ids)")
+    List<ReservationIdStatusAndValidation> findStatusAndValidationByIds(@Bind("ids") Collection<String> ids);
+
     @Query("select id from tickets_reservation where validity < :date and status = 'PENDING' for update skip locked")
     List<String> findExpiredReservationForUpdate(@Bind("date") Date date);
 
+    @Query("select id from tickets_reservation where validity < :date and status = 'PENDING' order by validity limit :limit")
+    List<String> findExpiredReservationIds(@Bind("date") Date date, @Bind("limit") int limit);
+
+    @Query("select id from tickets_reservation where id in (:reservationIds) and validity < :date and status = 'PENDING' for update skip locked")
+    List<String> lockExpiredReservations(@Bind("reservationIds") Collection<String> reservationIds, @Bind("date") Date date);
+
+    @Query("select id, validity from tickets_reservation where status = 'PENDING' and validity < :date order by validity limit :limit")
+    List<ReservationIdAndValidity> findPendingReservationsExpiringBefore(@Bind("date") Date date, @Bind("limit") int limit);
+
+    @Query("select id, validity from tickets_reservation where status = 'PENDING' and id in (:reservationIds)")
+    List<ReservationIdAndValidity> findPendingReservationsValidity(@Bind("reservationIds") Collection<String> reservationIds);
+
     @Query("select distinct tr.* from tickets_reservation tr join b_transaction tx on tx.reservation_id = tr.id where tr.id in (:reservationIds) and tr.status = 'PENDING'")
     List<TicketReservation> findReservationsWithPendingTransaction(@Bind("reservationIds") Collection<String> reservationIds);
 
@@ -237,6 +265,17 @@ public interface TicketReservationRepository {
     @JSONData
     ReservationMetadata getMetadata(@Bind("id") String reservationId);
 
+    @Query("select tr.*," +
+        " exists(select 1 from additional_service_item asi join additional_service a on asi.additional_service_id_fk = a.id" +
+        "   where a.service_type = 'SUPPLEMENT' and asi.tickets_reservation_uuid = tr.id and asi.final_price_cts > 0) as has_paid_supplements," +
+        " exists(select 1 from ticket t join group_link_active gl on gl.event_id_fk = t.event_id and (gl.ticket_category_id_fk is null or gl.ticket_category_id_fk = t.category_id)" +
+        "   where t.tickets_reservation_id = tr.id) as linked_to_groups," +
+        " exists(select 1 from b_transaction bt where bt.reservation_id = tr.id and bt.status = 'PENDING' and bt.metadata->>'PAYMENT_TOKEN' is not null) as pending_payment_token," +
+        " (select json_agg(json_build_object('id', tc.id, 'name', tc.name, 'ticketAccessType', tc.ticket_access_type) order by tc.ordinal, tc.id) from ticket_category tc" +
+        "   where tc.id in (select t.category_id from ticket t where t.tickets_reservation_id = tr.id)) as categories" +
+        " from tickets_reservation tr where tr.id = :id")
+    Optional<ReservationInfoSnapshot> findReservationInfoSnapshot(@Bind("id") String reservationId);
+
     @Query("select metadata->'finalized' = 'true' as finalized from tickets_reservation where id = :id")
     Boolean checkIfFinalized(@Bind("id") String reservationId);
 
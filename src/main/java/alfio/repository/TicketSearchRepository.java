@@ -34,11 +34,13 @@ import java.util.UUID;
 @QueryRepository
 public interface TicketSearchRepository {
 
-    String BASE_FILTER = ":search is null or (lower(tr_id) like lower(:search) or lower(t_uuid) like lower(:search) or lower(t_full_name) like lower(:search) or lower(t_first_name) like lower(:search) or lower(t_last_name) like lower(:search) or lower(t_email_address) like lower(:search) or " +
-        "  lower(tr_full_name) like lower(:search) or lower(tr_first_name) like lower(:search) or lower(tr_last_name) like lower(:search) or lower(tr_email_address) like lower(:search) or lower(tr_customer_reference) like lower(:search) " +
-        "  or (tr_invoice_number is not null and lower(tr_invoice_number) like lower(:search)) )";
+    // search_text is maintained by the database and contains the lower-cased searchable fields (ids, names, emails, customer reference,
+    // invoice number, promo code / token). The search text of a ticket includes the one of its reservation.
+    // If pg_trgm is available, both columns are backed by a trigram index.
+    String BASE_FILTER = ":search is null or t_search_text like lower(:search)";
 
-    String APPLY_FILTER = " (" + BASE_FILTER + " or lower(promo_code) like lower(:search) or lower(special_price_token) like lower(:search)) ";
+    // reservations without tickets can only be matched by their own search text
+    String APPLY_FILTER = " (" + BASE_FILTER + " or tr_search_text like lower(:search)) ";
 
     String APPLY_FILTER_SUBSCRIPTION = " (:search is null or (lower(tr_id) like lower(:search) or lower(s_id::text) like lower(:search) or lower(s_first_name) like lower(:search) or lower(s_last_name) like lower(:search) or lower(s_email_address) like lower(:search) " +
         "  or lower(tr_first_name) like lower(:search) or lower(tr_last_name) like lower(:search) or lower(tr_email_address) like lower(:search) or lower(tr_customer_reference) like lower(:search) or lower(promo_code) like lower(:search) )) ";
@@ -47,9 +49,22 @@ public interface TicketSearchRepository {
 
     String FIND_ALL_CONFIRMED_TICKETS_FOR_EVENT = "select * from reservation_and_ticket_and_tx where t_id is not null and t_status in ('ACQUIRED', 'TO_BE_PAID', 'CHECKED_IN') and t_event_id = :eventId and " + APPLY_FILTER;
 
-    String FIND_ALL_PAYMENTS_FOR_EVENT = "select * from reservation_and_ticket_and_tx where tr_status in (:reservationStatus) and tr_payment_method in (:paymentMethods) and t_id is not null and t_status in ('ACQUIRED', 'TO_BE_PAID', 'CHECKED_IN') and t_event_id = :eventId and " + APPLY_FILTER;
+    // filters on tickets_reservation directly, so that the listing can be paginated using tickets_reservation_listing_idx
+    String FIND_RESERVATIONS_FOR_EVENT_FILTER = "tr.event_id_fk = :eventId and tr.status in (:status)" +
+        " and (:search is null or tr.search_text like lower(:search)" +
+        "   or exists(select 1 from ticket t where t.tickets_reservation_id = tr.id and t.search_text like lower(:search)))";
 
-    String FIND_ALL_TICKETS_INCLUDING_NEW = "select * from reservation_and_ticket_and_tx where tr_event_id = :eventId and tr_id is not null and tr_status in (:status) and " + APPLY_FILTER;
+    String RESERVATION_LISTING_SORT_KEY = "coalesce(tr.confirmation_ts, '-infinity'::timestamptz)";
+
+    String RESERVATION_LISTING_AFTER_SORT_KEY = "(select coalesce(confirmation_ts, '-infinity'::timestamptz) from tickets_reservation where id = :after and event_id_fk = :eventId)";
+
+    String PAYMENT_FIELDS = "tr.id tr_id, tr.first_name tr_first_name, tr.last_name tr_last_name, tr.email_address tr_email_address, tr.payment_method tr_payment_method," +
+        " bt.id bt_id, bt.price_cts bt_price_cts, bt.currency bt_currency, bt.t_timestamp bt_t_timestamp, bt.metadata ->> '"+ Transaction.NOTES_KEY + "' as bt_notes, tr.invoice_number tr_invoice_number";
+
+    String FIND_PAYMENTS_FOR_EVENT_FILTER = "tickets_reservation tr join b_transaction bt on bt.reservation_id = tr.id and bt.status <> 'INVALID'" +
+        " where tr.event_id_fk = :eventId and tr.status in (:reservationStatus) and tr.payment_method in (:paymentMethods)" +
+        " and exists(select 1 from ticket t where t.tickets_reservation_id = tr.id and t.event_id = :eventId and t.status in ('ACQUIRED', 'TO_BE_PAID', 'CHECKED_IN')" +
+        "   and (:search is null or t.search_text like lower(:search) or tr.search_text like lower(:search)))";
 
     String FIND_ALL_SUBSCRIPTION_INCLUDING_NEW = "select * from reservation_and_subscription_and_tx where s_descriptor_id = :subscriptionDescriptorId::uuid and tr_id is not null and tr_status in (:status) and " + APPLY_FILTER_SUBSCRIPTION;
 
@@ -90,24 +105,40 @@ public interface TicketSearchRepository {
                                                                  @Bind("categoryId") int categoryId,
                                                                  @Bind("search") String search);
 
-    @Query("select distinct "+RESERVATION_FIELDS+" from (" + FIND_ALL_TICKETS_INCLUDING_NEW + ") as d_tbl order by tr_confirmation_ts desc nulls last, tr_validity limit :pageSize offset :page")
+    /**
+     * Reservations of the event, ordered by confirmation date (most recent first), then by validity and id.
+     * If {@code after} is defined, results start after the given reservation (keyset pagination), otherwise after {@code offset} results.
+     * The sort keys must match the tickets_reservation_listing_idx index.
+     */
+    @Query("select * from tickets_reservation tr where " + FIND_RESERVATIONS_FOR_EVENT_FILTER +
+        " and (:after is null or (" + RESERVATION_LISTING_SORT_KEY + " <= " + RESERVATION_LISTING_AFTER_SORT_KEY +
+        "   and (" + RESERVATION_LISTING_SORT_KEY + " < " + RESERVATION_LISTING_AFTER_SORT_KEY +
+        "     or (tr.validity, tr.id) > (select validity, id from tickets_reservation where id = :after and event_id_fk = :eventId)))) " +
+        " order by " + RESERVATION_LISTING_SORT_KEY + " desc, tr.validity, tr.id limit :limit offset :offset")
     List<TicketReservation> findReservationsForEvent(@Bind("eventId") int eventId,
-                                                     @Bind("page") int page,
-                                                     @Bind("pageSize") int pageSize,
                                                      @Bind("search") String search,
-                                                     @Bind("status") List<String> toFilter);
-
-    @Query("select distinct tr_id, tr_first_name, tr_last_name, tr_email_address, tr_payment_method, bt_price_cts, bt_currency, bt_t_timestamp, bt_metadata ->> '"+ Transaction.NOTES_KEY + "'" +
-        " as bt_notes, tr_invoice_number from (" + FIND_ALL_PAYMENTS_FOR_EVENT + ") as d_tbl order by bt_t_timestamp desc nulls last limit :pageSize offset :page")
+                                                     @Bind("status") List<String> toFilter,
+                                                     @Bind("after") String after,
+                                                     @Bind("limit") int limit,
+                                                     @Bind("offset") int offset);
+
+    /**
+     * Confirmed payments of the event, ordered by transaction timestamp (most recent first) and id.
+     * If {@code after} is defined, results start after the given transaction (keyset pagination), otherwise after {@code offset} results.
+     * The transactions are looked up starting from the reservations of the event, using b_transaction_listing_idx.
+     */
+    @Query("select " + PAYMENT_FIELDS + " from " + FIND_PAYMENTS_FOR_EVENT_FILTER +
+        " and (:after is null or (bt.t_timestamp, bt.id) < (select t_timestamp, id from b_transaction where id = :after::integer))" +
+        " order by bt.t_timestamp desc, bt.id desc limit :limit offset :offset")
     List<ReservationPaymentDetail> findAllPaymentsForEvent(@Bind("eventId") int eventId,
-                                                           @Bind("page") int page,
-                                                           @Bind("pageSize") int pageSize,
                                                            @Bind("search") String search,
                                                            @Bind("reservationStatus") List<String> toFilter,
-                                                           @Bind("paymentMethods") List<String> paymentMethods);
+                                                           @Bind("paymentMethods") List<String> paymentMethods,
+                                                           @Bind("after") String after,
+                                                           @Bind("limit") int limit,
+                                                           @Bind("offset") int offset);
 
-    @Query("select distinct tr_id, tr_first_name, tr_last_name, tr_email_address, tr_payment_method, bt_price_cts, bt_currency, bt_t_timestamp, bt_metadata ->> '"+ Transaction.NOTES_KEY + "'" +
-        " as bt_notes, tr_invoice_number from (" + FIND_ALL_PAYMENTS_FOR_EVENT + ") as d_tbl order by bt_t_timestamp desc nulls last")
+    @Query("select " + PAYMENT_FIELDS + " from " + FIND_PAYMENTS_FOR_EVENT_FILTER + " order by bt.t_timestamp desc, bt.id desc")
     List<ReservationPaymentDetail> findAllEventPaymentsForExport(@Bind("eventId") int eventId,
                                                                  @Bind("search") String search,
                                                                  @Bind("reservationStatus") List<String> toFilter,
@@ -132,21 +163,29 @@ public interface TicketSearchRepository {
     @Query("select distinct on(tr_id) "+RESERVATION_SEARCH_FIELD+", "+TRANSACTION_FIELDS+"," +PROMO_CODE_FIELDS+" from reservation_and_ticket_and_tx where tr_id in (:reservationIds)")
     List<TicketReservationWithTransaction> findAllReservationsById(@Bind("reservationIds") Collection<String> reservationIds);
 
-    @Query("select count(distinct tr_id) from (" + FIND_ALL_TICKETS_INCLUDING_NEW +" ) as d_tbl")
+    /**
+     * Counts at most {@code maxResults} reservations matching the filter, so that the cost of the count is bounded
+     */
+    @Query("select count(*) from (select tr.id from tickets_reservation tr where " + FIND_RESERVATIONS_FOR_EVENT_FILTER + " limit :maxResults) as d_tbl")
     Integer countReservationsForEvent(@Bind("eventId") int eventId,
                                       @Bind("search") String search,
-                                      @Bind("status") List<String> toFilter);
+                                      @Bind("status") List<String> toFilter,
+                                      @Bind("maxResults") int maxResults);
 
     @Query("select count(distinct tr_id) from (" + FIND_ALL_SUBSCRIPTION_INCLUDING_NEW +" ) as d_tbl")
     Integer countReservationsForSubscription(@Bind("subscriptionDescriptorId") UUID subscriptionDescriptorId,
                                              @Bind("search") String search,
                                              @Bind("status") List<String> toFilter);
 
-    @Query("select count(distinct tr_id) from (" + FIND_ALL_PAYMENTS_FOR_EVENT +") as d_tbl")
+    /**
+     * Counts at most {@code maxResults} payments matching the filter, so that the cost of the count is bounded
+     */
+    @Query("select count(*) from (select bt.id from " + FIND_PAYMENTS_FOR_EVENT_FILTER + " limit :maxResults) as d_tbl")
     Integer countConfirmedPaymentsForEvent(@Bind("eventId") int eventId,
                                            @Bind("search") String search,
                                            @Bind("reservationStatus") List<String> toFilter,
-                                           @Bind("paymentMethods") List<String> paymentMethods);
+                                           @Bind("paymentMethods") List<String> paymentMethods,
+                                           @Bind("maxResults") int maxResults);
 
     @Query("select * from reservation_and_ticket_and_tx where tr_event_id = :eventId and tickets_count > 0 and tr_id in (:reservationIds)")
     List<TicketWithReservationAndTransaction> loadAllReservationsWithTickets(@Bind("eventId") int eventId, @Bind("reservationIds") Collection<String> reservationIds);
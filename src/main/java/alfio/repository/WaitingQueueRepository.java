@@ -18,6 +18,9 @@ package alfio.repository;
 
 import alfio.model.WaitingQueueSubscription;
 import ch.digitalfondue.npjt.*;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -56,6 +59,30 @@ public interface WaitingQueueRepository {
     @Query("update waiting_queue set ticket_reservation_id = :ticketReservationId, status = 'PENDING' where id = :id")
     int flagAsPending(@Bind("ticketReservationId") String ticketReservationId, @Bind("id") int id);
 
+    /**
+     * Flags the given subscriptions as pending in a single batch
+     *
+     * @param reservationsBySubscription pairs of (subscription id, reservation id)
+     */
+    default void bulkFlagAsPending(List<Pair<Integer, String>> reservationsBySubscription) {
+        if(reservationsBySubscription.isEmpty()) {
+            return;
+        }
+        var params = reservationsBySubscription.stream()
+            .map(p -> new MapSqlParameterSource("id", p.getLeft()).addValue("ticketReservationId", p.getRight()))
+            .toArray(MapSqlParameterSource[]::new);
+        getNamedParameterJdbcTemplate().batchUpdate("update waiting_queue set ticket_reservation_id = :ticketReservationId, status = 'PENDING' where id = :id", params);
+    }
+
+    NamedParameterJdbcTemplate getNamedParameterJdbcTemplate();
+
+    /**
+     * Tries to acquire a transaction-scoped lock on the waiting list of the given event.
+     * Returns false if the waiting list is already being processed, either by another thread or by another node.
+     */
+    @Query("select pg_try_advisory_xact_lock(hashtext('waiting_queue'), :eventId)")
+    boolean tryLockForDistribution(@Bind("eventId") int eventId);
+
     @Query("update waiting_queue set status = :newStatus where id = :id and status = :expectedStatus")
     int updateStatus(@Bind("id") int id, @Bind("newStatus") WaitingQueueSubscription.Status newStatus, @Bind("expectedStatus") WaitingQueueSubscription.Status expectedStatus);
 }
@@ -0,0 +1,71 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.repository.audit;
+
+import ch.digitalfondue.npjt.Bind;
+import ch.digitalfondue.npjt.Query;
+import ch.digitalfondue.npjt.QueryRepository;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+@QueryRepository
+public interface AuditingArchiveRepository {
+
+    String PARTITION_PREFIX = "auditing_archive_";
+    DateTimeFormatter PARTITION_SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM");
+    String AUDITING_COLUMNS = "reservation_id, user_id, event_type, event_time, entity_type, entity_id, modifications, event_id, organization_id_fk";
+
+    @Query("select distinct to_char(event_time, 'YYYY_MM') from auditing where event_time < :threshold::timestamp")
+    List<String> findMonthsToArchive(@Bind("threshold") ZonedDateTime threshold);
+
+    @Query("with moved as (" +
+        "   delete from auditing where ctid in (select ctid from auditing where event_time < :threshold::timestamp limit :limit for update skip locked)" +
+        "   returning " + AUDITING_COLUMNS +
+        ") insert into auditing_archive(" + AUDITING_COLUMNS + ") select " + AUDITING_COLUMNS + " from moved")
+    int moveToArchive(@Bind("threshold") ZonedDateTime threshold, @Bind("limit") int limit);
+
+    @Query("select c.relname from pg_inherits i" +
+        " join pg_class c on c.oid = i.inhrelid" +
+        " join pg_class p on p.oid = i.inhparent" +
+        " where p.relname = 'auditing_archive'")
+    List<String> findPartitions();
+
+    default void createPartitionIfNeeded(YearMonth month) {
+        String name = PARTITION_PREFIX + PARTITION_SUFFIX_FORMAT.format(month);
+        // partition name and bounds are derived from a YearMonth, so they're safe to be concatenated
+        var jdbcTemplate = getNamedParameterJdbcTemplate().getJdbcTemplate();
+        jdbcTemplate.execute("create table if not exists " + name + " partition of auditing_archive" +
+            " for values from ('" + month.atDay(1) + "') to ('" + month.plusMonths(1).atDay(1) + "')");
+        jdbcTemplate.execute("create index if not exists " + name + "_reservation_id_event_type_idx on " + name + "(reservation_id, event_type)");
+        jdbcTemplate.execute("create index if not exists " + name + "_organization_id_fk_idx on " + name + "(organization_id_fk)");
+    }
+
+    default void dropPartition(YearMonth month) {
+        getNamedParameterJdbcTemplate().getJdbcTemplate()
+            .execute("drop table if exists " + PARTITION_PREFIX + PARTITION_SUFFIX_FORMAT.format(month));
+    }
+
+    static YearMonth parsePartitionMonth(String name) {
+        return YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX_FORMAT);
+    }
+
+    NamedParameterJdbcTemplate getNamedParameterJdbcTemplate();
+}
@@ -0,0 +1,163 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.repository.audit;
+
+import alfio.model.Audit;
+import alfio.repository.AuditingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the auditing rows written during a transaction and writes them with a single multi-row insert
+ * right before commit.
+ * <p>
+ * The buffer is bound to the transaction synchronization, so it is suspended/resumed together with the
+ * surrounding transaction (e.g. {@code PROPAGATION_REQUIRES_NEW}) and discarded in case of rollback.
+ * Savepoints are tracked by {@code DataSourceConfiguration}, in order to discard the rows which have been
+ * written after a savepoint, if the transaction is rolled back to it.
+ * <p>
+ * Reads on the auditing table must call {@link AuditingRepository#flushPendingAudits()} before querying.
+ */
+public class AuditingBuffer implements TransactionSynchronization {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditingBuffer.class);
+
+    private final List<PendingAudit> pending = new ArrayList<>();
+    private final Map<Object, Integer> savepointMarks = new LinkedHashMap<>();
+    private AuditingRepository auditingRepository;
+    private boolean committing = false;
+
+    private AuditingBuffer() {
+    }
+
+    public static int enqueue(AuditingRepository auditingRepository, PendingAudit audit) {
+        var buffer = currentBuffer(true);
+        if(buffer == null || buffer.committing) {
+            return auditingRepository.insertImmediately(audit.reservationId(), audit.userId(), audit.eventId(),
+                audit.eventType(), audit.eventTime(), audit.entityType(), audit.entityId(), audit.modifications());
+        }
+        buffer.auditingRepository = auditingRepository;
+        buffer.pending.add(audit);
+        return 1;
+    }
+
+    public static void flush(AuditingRepository auditingRepository) {
+        var buffer = currentBuffer(false);
+        if(buffer != null) {
+            buffer.auditingRepository = auditingRepository;
+            buffer.flush();
+        }
+    }
+
+    public static void savepointCreated(Object savepoint) {
+        var buffer = currentBuffer(true);
+        if(buffer != null) {
+            buffer.savepointMarks.put(savepoint, buffer.pending.size());
+        }
+    }
+
+    public static void rolledBackToSavepoint(Object savepoint) {
+        var buffer = currentBuffer(false);
+        if(buffer == null) {
+            return;
+        }
+        Integer mark = buffer.savepointMarks.get(savepoint);
+        if(mark == null) {
+            return;
+        }
+        if(mark < buffer.pending.size()) {
+            log.trace("discarding {} auditing rows after rollback to savepoint", buffer.pending.size() - mark);
+            buffer.pending.subList(mark, buffer.pending.size()).clear();
+        }
+        // savepoints created after the given one are not valid anymore
+        boolean found = false;
+        for (Iterator<Object> iterator = buffer.savepointMarks.keySet().iterator(); iterator.hasNext();) {
+            var key = iterator.next();
+            if(found) {
+                iterator.remove();
+            }
+            found = found || key == savepoint;
+        }
+    }
+
+    public static void savepointReleased(Object savepoint) {
+        var buffer = currentBuffer(false);
+        if(buffer != null) {
+            buffer.savepointMarks.remove(savepoint);
+        }
+    }
+
+    private static AuditingBuffer currentBuffer(boolean create) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive() || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if(synchronization instanceof AuditingBuffer) {
+                return (AuditingBuffer) synchronization;
+            }
+        }
+        if(!create) {
+            return null;
+        }
+        var buffer = new AuditingBuffer();
+        TransactionSynchronizationManager.registerSynchronization(buffer);
+        return buffer;
+    }
+
+    @Override
+    public void flush() {
+        if(pending.isEmpty()) {
+            return;
+        }
+        int inserted = auditingRepository.insertAll(List.copyOf(pending));
+        log.trace("flushed {} auditing rows", inserted);
+        pending.clear();
+        // all the rows written so far are now handled by the database in case of rollback
+        savepointMarks.replaceAll((k, v) -> 0);
+    }
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+        flush();
+        committing = true;
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        pending.clear();
+        savepointMarks.clear();
+    }
+
+    public record PendingAudit(String reservationId,
+                               Integer userId,
+                               Integer eventId,
+                               Audit.EventType eventType,
+                               Date eventTime,
+                               Audit.EntityType entityType,
+                               String entityId,
+                               String modifications) {
+    }
+}
@@ -22,13 +22,22 @@ import alfio.model.audit.ScanAudit;
 import ch.digitalfondue.npjt.Bind;
 import ch.digitalfondue.npjt.Query;
 import ch.digitalfondue.npjt.QueryRepository;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
 
 @QueryRepository
 public interface ScanAuditRepository {
-    @Query("insert into scan_audit(ticket_uuid, event_id_fk, scan_ts, username, check_in_status, operation) values(:ticketUuid, :eventId, :scanTs, :username, :status, :operation)")
+
+    String INSERT = "insert into scan_audit(ticket_uuid, event_id_fk, scan_ts, username, check_in_status, operation) values(:ticketUuid, :eventId, :scanTs, :username, :status, :operation)";
+
+    NamedParameterJdbcTemplate getNamedParameterJdbcTemplate();
+
+    @Query(INSERT)
     Integer insert(@Bind("ticketUuid") String ticketUuid,
                    @Bind("eventId") int eventId,
                    @Bind("scanTs") ZonedDateTime timestamp,
@@ -36,6 +45,32 @@ public interface ScanAuditRepository {
                    @Bind("status") CheckInStatus checkInStatus,
                    @Bind("operation") ScanAudit.Operation operation);
 
+    /**
+     * Inserts one scan row for each ticket, using a single batch statement
+     *
+     * @param statusByTicketUuid the check-in status to record, by ticket UUID
+     */
+    default void insertAll(Map<String, CheckInStatus> statusByTicketUuid,
+                           int eventId,
+                           ZonedDateTime timestamp,
+                           String username,
+                           ScanAudit.Operation operation) {
+        if(statusByTicketUuid.isEmpty()) {
+            return;
+        }
+        // timestamps are stored in UTC
+        var scanTs = timestamp.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+        MapSqlParameterSource[] params = statusByTicketUuid.entrySet().stream()
+            .map(e -> new MapSqlParameterSource("ticketUuid", e.getKey())
+                .addValue("eventId", eventId)
+                .addValue("scanTs", scanTs)
+                .addValue("username", username)
+                .addValue("status", e.getValue().name())
+                .addValue("operation", operation.name()))
+            .toArray(MapSqlParameterSource[]::new);
+        getNamedParameterJdbcTemplate().batchUpdate(INSERT, params);
+    }
+
     @Query("select * from scan_audit where event_id_fk = :eventId")
     List<ScanAudit> findAllForEvent(@Bind("eventId") int eventId);
 
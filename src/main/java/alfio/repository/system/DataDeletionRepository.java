@@ -0,0 +1,96 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.repository.system;
+
+import alfio.model.system.DataDeletionJob;
+import alfio.model.system.DataDeletionJob.TargetType;
+import ch.digitalfondue.npjt.Bind;
+import ch.digitalfondue.npjt.Query;
+import ch.digitalfondue.npjt.QueryRepository;
+import ch.digitalfondue.npjt.QueryType;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+@QueryRepository
+public interface DataDeletionRepository {
+
+    String ACTIVE = "status in ('PENDING', 'IN_PROGRESS')";
+    String LEASE = "locked_until = now() + :leaseSeconds * interval '1 second'";
+
+    @Query("insert into data_deletion_job(target_type, target_id, requested_by) values(:targetType, :targetId, :requestedBy)" +
+        " on conflict do nothing")
+    int schedule(@Bind("targetType") TargetType targetType,
+                 @Bind("targetId") int targetId,
+                 @Bind("requestedBy") String requestedBy);
+
+    @Query("select * from data_deletion_job where id = :id")
+    DataDeletionJob findById(@Bind("id") int id);
+
+    @Query("select * from data_deletion_job where target_type = :targetType and target_id = :targetId order by id desc limit 1")
+    Optional<DataDeletionJob> findLatest(@Bind("targetType") TargetType targetType, @Bind("targetId") int targetId);
+
+    /**
+     * Acquires a lease on the oldest active job which is not being processed by another node
+     */
+    @Query(value = "update data_deletion_job set status = 'IN_PROGRESS', " + LEASE + ", last_update_ts = now()" +
+        " where id = (select id from data_deletion_job where " + ACTIVE + " and (locked_until is null or locked_until < now())" +
+        " order by id limit 1 for update skip locked) returning id", type = QueryType.MODIFYING_WITH_RETURN)
+    List<Integer> acquireNext(@Bind("leaseSeconds") int leaseSeconds);
+
+    @Query("update data_deletion_job set current_event_id = :eventId, current_step = :step, deleted_rows = deleted_rows + :deleted," +
+        " attempts = 0, error_message = null, " + LEASE + ", last_update_ts = now() where id = :id")
+    int updateProgress(@Bind("id") int id,
+                       @Bind("eventId") Integer eventId,
+                       @Bind("step") String step,
+                       @Bind("deleted") int deleted,
+                       @Bind("leaseSeconds") int leaseSeconds);
+
+    @Query("update data_deletion_job set status = 'COMPLETED', current_event_id = null, current_step = null, deleted_rows = deleted_rows + :deleted," +
+        " attempts = 0, error_message = null, locked_until = null, last_update_ts = now(), completion_ts = now() where id = :id")
+    int markAsCompleted(@Bind("id") int id, @Bind("deleted") int deleted);
+
+    @Query("update data_deletion_job set status = :status, current_event_id = :eventId, current_step = :step, attempts = attempts + 1," +
+        " error_message = :errorMessage, locked_until = now() + :delaySeconds * interval '1 second', last_update_ts = now() where id = :id")
+    int registerFailure(@Bind("id") int id,
+                        @Bind("status") DataDeletionJob.Status status,
+                        @Bind("eventId") Integer eventId,
+                        @Bind("step") String step,
+                        @Bind("errorMessage") String errorMessage,
+                        @Bind("delaySeconds") long delaySeconds);
+
+    @Query("update data_deletion_job set locked_until = null where id = :id and " + ACTIVE)
+    int releaseLease(@Bind("id") int id);
+
+    @Query("select min(id) from event where org_id = :organizationId")
+    Integer findNextEventForOrganization(@Bind("organizationId") int organizationId);
+
+    /**
+     * Prevents a batch from waiting on the locks held by the public traffic. The setting is reset at the end of the transaction
+     */
+    @Query("select set_config('lock_timeout', :timeout, true)")
+    String setLocalLockTimeout(@Bind("timeout") String timeout);
+
+    default int deleteBatch(DataDeletionStep step, int targetId, int batchSize) {
+        return getNamedParameterJdbcTemplate().update(step.batchDeleteQuery(), new MapSqlParameterSource("targetId", targetId)
+            .addValue("batchSize", batchSize));
+    }
+
+    NamedParameterJdbcTemplate getNamedParameterJdbcTemplate();
+}
@@ -0,0 +1,123 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.repository.system;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The tables to clean up when deleting an event or an organization, in an order which respects the foreign keys.
+ * Each step deletes the rows of a single table matching its condition; the condition refers to the ID of the
+ * event or organization as {@code :targetId}.
+ *
+ * @see alfio.repository.EventDeleterRepository#deleteAllForEvent(int)
+ * @see alfio.repository.OrganizationDeleterRepository#deleteEmptyOrganizations(java.util.List)
+ */
+public enum DataDeletionStep {
+
+    POLL_ANSWER(Scope.EVENT, "poll_answer", "poll_id_fk in (select id from poll where event_id_fk = :targetId)"),
+    POLL(Scope.EVENT, "poll", "event_id_fk = :targetId"),
+    WAITING_QUEUE(Scope.EVENT, "waiting_queue", "event_id = :targetId"),
+    WHITELISTED_TICKET(Scope.EVENT, "whitelisted_ticket", "group_link_id_fk in (select id from group_link where event_id_fk = :targetId)"),
+    GROUP_LINK(Scope.EVENT, "group_link", "event_id_fk = :targetId"),
+    CONFIGURATION_EVENT(Scope.EVENT, "configuration_event", "event_id_fk = :targetId"),
+    CONFIGURATION_TICKET_CATEGORY(Scope.EVENT, "configuration_ticket_category", "event_id_fk = :targetId"),
+    EMAIL_MESSAGE(Scope.EVENT, "email_message", "event_id = :targetId"),
+    TICKET_FIELD_VALUE(Scope.EVENT, "ticket_field_value", "ticket_field_configuration_id_fk in (select id from ticket_field_configuration where event_id_fk = :targetId and context = 'ATTENDEE')"),
+    TICKET_FIELD_DESCRIPTION(Scope.EVENT, "ticket_field_description", "ticket_field_configuration_id_fk in (select id from ticket_field_configuration where event_id_fk = :targetId)"),
+    ADDITIONAL_SERVICE_FIELD_VALUE(Scope.EVENT, "additional_service_field_value", "ticket_field_configuration_id_fk in (select id from ticket_field_configuration where event_id_fk = :targetId and context = 'ADDITIONAL_SERVICE')"),
+    ADDITIONAL_SERVICE_DESCRIPTION(Scope.EVENT, "additional_service_description", "additional_service_id_fk in (select id from additional_service where event_id_fk = :targetId)"),
+    ADDITIONAL_SERVICE_ITEM(Scope.EVENT, "additional_service_item", "additional_service_id_fk in (select id from additional_service where event_id_fk = :targetId)"),
+    TICKET_FIELD_CONFIGURATION(Scope.EVENT, "ticket_field_configuration", "event_id_fk = :targetId"),
+    ADDITIONAL_SERVICE(Scope.EVENT, "additional_service", "event_id_fk = :targetId"),
+    EVENT_MIGRATION(Scope.EVENT, "event_migration", "event_id = :targetId"),
+    SPONSOR_SCAN(Scope.EVENT, "sponsor_scan", "event_id = :targetId"),
+    TICKET(Scope.EVENT, "ticket", "event_id = :targetId"),
+    TRANSACTION(Scope.EVENT, "b_transaction", "reservation_id in (select id from tickets_reservation where event_id_fk = :targetId)"),
+    BILLING_DOCUMENT(Scope.EVENT, "billing_document", "event_id_fk = :targetId"),
+    RESERVATION(Scope.EVENT, "tickets_reservation", "event_id_fk = :targetId"),
+    SPECIAL_PRICE(Scope.EVENT, "special_price", "ticket_category_id in (select id from ticket_category where event_id = :targetId)"),
+    EVENT_PROMO_CODE(Scope.EVENT, "promo_code", "event_id_fk = :targetId"),
+    TICKET_CATEGORY_TEXT(Scope.EVENT, "ticket_category_text", "ticket_category_id_fk in (select id from ticket_category where event_id = :targetId)"),
+    TICKET_CATEGORY(Scope.EVENT, "ticket_category", "event_id = :targetId"),
+    EVENT_DESCRIPTION(Scope.EVENT, "event_description_text", "event_id_fk = :targetId"),
+    RESOURCE_EVENT(Scope.EVENT, "resource_event", "event_id_fk = :targetId"),
+    SCAN_AUDIT(Scope.EVENT, "scan_audit", "event_id_fk = :targetId"),
+    SUBSCRIPTION_EVENT(Scope.EVENT, "subscription_event", "event_id_fk = :targetId"),
+    EVENT(Scope.EVENT, "event", "id = :targetId"),
+
+    USER_ORGANIZATION(Scope.ORGANIZATION, "j_user_organization", "org_id = :targetId"),
+    INVOICE_SEQUENCES(Scope.ORGANIZATION, "invoice_sequences", "organization_id_fk = :targetId"),
+    AUDITING(Scope.ORGANIZATION, "auditing", "organization_id_fk = :targetId"),
+    AUDITING_ARCHIVE(Scope.ORGANIZATION, "auditing_archive", "organization_id_fk = :targetId"),
+    GROUP_MEMBER(Scope.ORGANIZATION, "group_member", "organization_id_fk = :targetId"),
+    GROUP(Scope.ORGANIZATION, "a_group", "organization_id_fk = :targetId"),
+    CONFIGURATION_ORGANIZATION(Scope.ORGANIZATION, "configuration_organization", "organization_id_fk = :targetId"),
+    RESOURCE_ORGANIZER(Scope.ORGANIZATION, "resource_organizer", "organization_id_fk = :targetId"),
+    ORGANIZATION_EMAIL_MESSAGE(Scope.ORGANIZATION, "email_message", "organization_id_fk = :targetId"),
+    SUBSCRIPTION(Scope.ORGANIZATION, "subscription", "organization_id_fk = :targetId"),
+    SUBSCRIPTION_DESCRIPTOR(Scope.ORGANIZATION, "subscription_descriptor", "organization_id_fk = :targetId"),
+    ORGANIZATION_TRANSACTION(Scope.ORGANIZATION, "b_transaction", "reservation_id in (select id from tickets_reservation where organization_id_fk = :targetId)"),
+    ORGANIZATION_BILLING_DOCUMENT(Scope.ORGANIZATION, "billing_document", "organization_id_fk = :targetId"),
+    ORGANIZATION_RESERVATION(Scope.ORGANIZATION, "tickets_reservation", "organization_id_fk = :targetId"),
+    ADMIN_RESERVATION_REQUEST(Scope.ORGANIZATION, "admin_reservation_request", "organization_id_fk = :targetId"),
+    ORGANIZATION_PROMO_CODE(Scope.ORGANIZATION, "promo_code", "organization_id_fk = :targetId"),
+    ORGANIZATION(Scope.ORGANIZATION, "organization", "id = :targetId");
+
+    public enum Scope {
+        EVENT, ORGANIZATION
+    }
+
+    private final Scope scope;
+    private final String table;
+    private final String condition;
+
+    DataDeletionStep(Scope scope, String table, String condition) {
+        this.scope = scope;
+        this.table = table;
+        this.condition = condition;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Deletes at most {@code :batchSize} rows. The outer condition is repeated because the {@code ctid}
+     * of a row is unique only within a partition.
+     */
+    String batchDeleteQuery() {
+        return "delete from " + table + " where " + condition +
+            " and ctid = any(array(select ctid from " + table + " where " + condition + " limit :batchSize))";
+    }
+
+    public static DataDeletionStep first(Scope scope) {
+        return Arrays.stream(values()).filter(s -> s.scope == scope).findFirst().orElseThrow();
+    }
+
+    /**
+     * @return the step to be executed after this one, if any
+     */
+    public Optional<DataDeletionStep> next() {
+        var values = values();
+        int nextIndex = ordinal() + 1;
+        if (nextIndex < values.length && values[nextIndex].scope == scope) {
+            return Optional.of(values[nextIndex]);
+        }
+        return Optional.empty();
+    }
+}
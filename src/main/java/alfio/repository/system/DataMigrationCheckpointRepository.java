@@ -0,0 +1,32 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.repository.system;
+
+import ch.digitalfondue.npjt.Bind;
+import ch.digitalfondue.npjt.Query;
+import ch.digitalfondue.npjt.QueryRepository;
+
+@QueryRepository
+public interface DataMigrationCheckpointRepository {
+
+    @Query("select count(*) > 0 from data_migration_checkpoint where name = :name")
+    boolean isCompleted(@Bind("name") String name);
+
+    @Query("insert into data_migration_checkpoint(name, completed_ts) values(:name, now())" +
+        " on conflict(name) do update set completed_ts = excluded.completed_ts")
+    int markCompleted(@Bind("name") String name);
+}
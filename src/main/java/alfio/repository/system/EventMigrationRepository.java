@@ -22,6 +22,7 @@ import ch.digitalfondue.npjt.Query;
 import ch.digitalfondue.npjt.QueryRepository;
 
 import java.time.ZonedDateTime;
+import java.util.List;
 
 @QueryRepository
 public interface EventMigrationRepository {
@@ -29,12 +30,12 @@ public interface EventMigrationRepository {
     @Query("select * from event_migration where event_id = :eventId")
     EventMigration loadEventMigration(@Bind("eventId") int eventId);
 
+    @Query("select * from event_migration")
+    List<EventMigration> loadAll();
+
     @Query("update event_migration set current_version = :currentVersion, build_ts = :currentTimestamp, status = :status where id = :id")
     int updateMigrationData(@Bind("id") int id, @Bind("currentVersion") String currentVersion, @Bind("currentTimestamp") ZonedDateTime currentTimestamp, @Bind("status") String status);
 
     @Query("insert into event_migration (event_id, current_version, build_ts, status) values(:eventId, :currentVersion, :currentTimestamp, :status)")
     int insertMigrationData(@Bind("eventId") int eventId, @Bind("currentVersion") String currentVersion, @Bind("currentTimestamp") ZonedDateTime currentTimestamp, @Bind("status") String status);
-
-
-
 }
@@ -0,0 +1,138 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.util;
+
+import java.util.*;
+
+/**
+ * A hierarchical timing wheel, with two levels and an overflow queue.
+ * <p>
+ * The first level contains the keys expiring within {@code wheelSize} ticks, the second level the keys expiring
+ * within {@code wheelSize * wheelSize} ticks. Keys expiring later are kept in an overflow queue and moved to the
+ * wheel when they come within range. Scheduling and advancing are O(1), except for the overflow queue.
+ * <p>
+ * Scheduling a key which is already present replaces its deadline.
+ * This class is thread-safe.
+ *
+ * @param <K> the type of the keys
+ */
+public final class HierarchicalTimingWheel<K> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<List<Entry<K>>> firstLevel;
+    private final List<List<Entry<K>>> secondLevel;
+    private final PriorityQueue<Entry<K>> overflow = new PriorityQueue<>(Comparator.comparingLong(Entry::deadlineTick));
+    private final List<Entry<K>> expired = new ArrayList<>();
+    private final Map<K, Long> deadlines = new HashMap<>();
+    private long currentTick;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("invalid wheel configuration");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.firstLevel = createLevel(wheelSize);
+        this.secondLevel = createLevel(wheelSize);
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    public synchronized void schedule(K key, long deadlineMillis) {
+        // round up, so that keys are never returned before their deadline
+        long deadlineTick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        deadlines.put(key, deadlineTick);
+        place(new Entry<>(key, deadlineTick));
+    }
+
+    public synchronized void cancel(K key) {
+        deadlines.remove(key);
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Advances the wheel up to the given time
+     *
+     * @return the keys whose deadline is before or at the given time
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        var result = new ArrayList<K>();
+        drainExpired(result);
+        while (currentTick < targetTick) {
+            currentTick++;
+            if (currentTick % wheelSize == 0) {
+                cascade(secondLevel.get((int) ((currentTick / wheelSize) % wheelSize)));
+                long secondLevelSpan = (long) wheelSize * wheelSize;
+                while (!overflow.isEmpty() && overflow.peek().deadlineTick() - currentTick < secondLevelSpan) {
+                    place(overflow.poll());
+                }
+            }
+            cascade(firstLevel.get((int) (currentTick % wheelSize)));
+            drainExpired(result);
+        }
+        return result;
+    }
+
+    private void cascade(List<Entry<K>> slot) {
+        if (slot.isEmpty()) {
+            return;
+        }
+        var entries = new ArrayList<>(slot);
+        slot.clear();
+        entries.forEach(this::place);
+    }
+
+    private void place(Entry<K> entry) {
+        long delta = entry.deadlineTick() - currentTick;
+        if (delta <= 0) {
+            expired.add(entry);
+        } else if (delta < wheelSize) {
+            firstLevel.get((int) (entry.deadlineTick() % wheelSize)).add(entry);
+        } else if (delta < (long) wheelSize * wheelSize) {
+            secondLevel.get((int) ((entry.deadlineTick() / wheelSize) % wheelSize)).add(entry);
+        } else {
+            overflow.add(entry);
+        }
+    }
+
+    private void drainExpired(List<K> result) {
+        for (Entry<K> entry : expired) {
+            // ignore entries which have been cancelled or rescheduled
+            Long deadline = deadlines.get(entry.key());
+            if (deadline != null && deadline == entry.deadlineTick()) {
+                deadlines.remove(entry.key());
+                result.add(entry.key());
+            }
+        }
+        expired.clear();
+    }
+
+    private static <K> List<List<Entry<K>>> createLevel(int size) {
+        var level = new ArrayList<List<Entry<K>>>(size);
+        for (int i = 0; i < size; i++) {
+            level.add(new ArrayList<>());
+        }
+        return level;
+    }
+
+    private record Entry<K>(K key, long deadlineTick) {
+    }
+}
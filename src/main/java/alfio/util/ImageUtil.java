@@ -34,6 +34,8 @@ import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.EnumMap;
 import java.util.Map;
 
@@ -55,6 +57,15 @@ public final class ImageUtil {
 
 
     private static final String DEJA_VU_SANS = "/alfio/font/DejaVuSansMono.ttf";
+    private static final int DEFAULT_QR_CODE_SIZE = 200;
+    private static final long QR_CODE_CACHE_MAX_BYTES = 16L * 1024 * 1024;
+
+    // generated QR codes, keyed by content, size and format. Eviction is based on the total size of the cached images
+    private static final Cache<QRCodeKey, byte[]> QR_CODE_CACHE = Caffeine.newBuilder()
+        .maximumWeight(QR_CODE_CACHE_MAX_BYTES)
+        .weigher((QRCodeKey key, byte[] value) -> value.length + key.text().length() + (key.description() != null ? key.description().length() : 0))
+        .expireAfterAccess(Duration.ofHours(12))
+        .build();
 
     private static File loadDejaVuFont(String classPathResource) {
         try {
@@ -83,10 +94,47 @@ public final class ImageUtil {
     private ImageUtil() {
     }
 
+    private enum QRCodeFormat {
+        PNG, SVG, PNG_WITH_DESCRIPTION
+    }
+
+    private record QRCodeKey(String text, int size, QRCodeFormat format, String description) {
+        private QRCodeKey(String text, int size, QRCodeFormat format) {
+            this(text, size, format, null);
+        }
+    }
+
     public static byte[] createQRCode(String text) {
+        return createQRCode(text, DEFAULT_QR_CODE_SIZE);
+    }
+
+    /**
+     * Generates a PNG image of the given size containing the QR code for the given text.
+     * Generated images are cached, since the same QR code is typically rendered more than once
+     * (ticket PDF, re-sent emails, check-in page...)
+     *
+     * @return the PNG image. A new copy is returned on each call.
+     */
+    public static byte[] createQRCode(String text, int size) {
+        byte[] image = QR_CODE_CACHE.get(new QRCodeKey(text, size, QRCodeFormat.PNG), ImageUtil::encodePng);
+        return image.clone();
+    }
+
+    /**
+     * Generates an SVG image containing the QR code for the given text. The image is drawn using a single path,
+     * so no raster encoding is performed.
+     *
+     * @return the SVG document, UTF-8 encoded
+     */
+    public static byte[] createQRCodeSvg(String text, int size) {
+        byte[] image = QR_CODE_CACHE.get(new QRCodeKey(text, size, QRCodeFormat.SVG), ImageUtil::encodeSvg);
+        return image.clone();
+    }
+
+    private static byte[] encodePng(QRCodeKey key) {
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            BitMatrix matrix = drawQRCode(text);
+            BitMatrix matrix = drawQRCode(key.text(), key.size());
             MatrixToImageWriter.writeToStream(matrix, "png", baos);
             return baos.toByteArray();
         } catch (WriterException | IOException e) {
@@ -94,15 +142,56 @@ public final class ImageUtil {
         }
     }
 
+    private static byte[] encodeSvg(QRCodeKey key) {
+        try {
+            // size 0 means: use the minimum size, i.e. one unit per module
+            BitMatrix matrix = drawQRCode(key.text(), 0);
+            int width = matrix.getWidth();
+            int height = matrix.getHeight();
+            var path = new StringBuilder();
+            for (int y = 0; y < height; y++) {
+                int x = 0;
+                while (x < width) {
+                    if (!matrix.get(x, y)) {
+                        x++;
+                        continue;
+                    }
+                    int start = x;
+                    while (x < width && matrix.get(x, y)) {
+                        x++;
+                    }
+                    path.append('M').append(start).append(' ').append(y).append('h').append(x - start).append("v1h-").append(x - start).append('z');
+                }
+            }
+            String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + key.size() + "\" height=\"" + key.size() + "\"" +
+                " viewBox=\"0 0 " + width + " " + height + "\" shape-rendering=\"crispEdges\">" +
+                "<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>" +
+                "<path fill=\"#000\" d=\"" + path + "\"/></svg>";
+            return svg.getBytes(StandardCharsets.UTF_8);
+        } catch (WriterException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private static BitMatrix drawQRCode(String text) throws WriterException {
+        return drawQRCode(text, DEFAULT_QR_CODE_SIZE);
+    }
+
+    private static BitMatrix drawQRCode(String text, int size) throws WriterException {
         Map<EncodeHintType, Object> hintMap = new EnumMap<>(EncodeHintType.class);
         hintMap.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.H);
-        return new MultiFormatWriter().encode(text, BarcodeFormat.QR_CODE, 200, 200, hintMap);
+        return new MultiFormatWriter().encode(text, BarcodeFormat.QR_CODE, size, size, hintMap);
     }
 
     public static byte[] createQRCodeWithDescription(String text, String description) {
+        byte[] image = QR_CODE_CACHE.get(new QRCodeKey(text, DEFAULT_QR_CODE_SIZE, QRCodeFormat.PNG_WITH_DESCRIPTION, description), ImageUtil::encodePngWithDescription);
+        return image.clone();
+    }
+
+    private static byte[] encodePngWithDescription(QRCodeKey key) {
+        String description = key.description();
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            BitMatrix matrix = drawQRCode(text);
+            BitMatrix matrix = drawQRCode(key.text());
             BufferedImage bufferedImage = MatrixToImageWriter.toBufferedImage(matrix);
             BufferedImage scaled = new BufferedImage(200, 230, BufferedImage.TYPE_INT_ARGB);
             Graphics2D graphics = (Graphics2D)scaled.getGraphics();
@@ -28,6 +28,10 @@ public final class PinGenerator {
     private static final String ALLOWED_CHARS = "ACDEFGHJKLMNPQRTUVWXY34679";
     private static final Pattern VALIDATION_PATTERN = Pattern.compile("^["+ALLOWED_CHARS+"]+$");
     private static final int PIN_LENGTH = 6;
+    /**
+     * Length of the UUID prefix encoded by a PIN
+     */
+    public static final int UUID_PREFIX_LENGTH = PIN_LENGTH + 1;
 
     private PinGenerator() {
     }
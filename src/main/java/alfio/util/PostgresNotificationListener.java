@@ -0,0 +1,175 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.util;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Listens for PostgreSQL notifications on a single dedicated connection and background thread, shared by all the
+ * channels of the application.
+ * <p>
+ * The connection must not be taken from the application's connection pool, since it is held as long as the
+ * application is running. The listener starts once the application context has been refreshed; channels registered
+ * after that are listened to within {@value #LISTEN_TIMEOUT_MILLIS} ms.
+ * The connection is re-opened if lost; handlers are told when notifications may have been missed.
+ */
+public class PostgresNotificationListener implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresNotificationListener.class);
+    private static final int LISTEN_TIMEOUT_MILLIS = 10_000;
+    private static final long RECONNECT_DELAY_MILLIS = 5_000;
+
+    private final DataSource dataSource;
+    private final Map<String, List<Handler>> handlers = new ConcurrentHashMap<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean running = true;
+    private volatile Thread listenerThread;
+
+    /**
+     * @param dataSource provides the dedicated connection. It must not be the application's connection pool
+     */
+    public PostgresNotificationListener(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Registers a handler for the notifications sent on the given channel.
+     * {@link Handler#connected()} is called once the channel is being listened to.
+     */
+    public void addHandler(String channel, Handler handler) {
+        handlers.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        start();
+    }
+
+    /**
+     * Starts the listener thread, if not already started.
+     */
+    public void start() {
+        if(started.compareAndSet(false, true)) {
+            var thread = new Thread(this::listen, "postgres-notification-listener");
+            thread.setDaemon(true);
+            listenerThread = thread;
+            thread.start();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        var thread = listenerThread;
+        if(thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void listen() {
+        while(running) {
+            var listenedChannels = new HashSet<String>();
+            try(Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                var pgConnection = connection.unwrap(PGConnection.class);
+                while(running) {
+                    listenToNewChannels(connection, listenedChannels);
+                    PGNotification[] notifications = pgConnection.getNotifications(LISTEN_TIMEOUT_MILLIS);
+                    if(notifications != null && notifications.length > 0) {
+                        dispatch(notifications);
+                    }
+                }
+            } catch(SQLException | RuntimeException e) {
+                listenedChannels.forEach(channel -> forEachHandler(channel, Handler::disconnected));
+                if(running) {
+                    log.warn("error while listening on channels {}. Reconnecting in {} ms", handlers.keySet(), RECONNECT_DELAY_MILLIS, e);
+                    sleepBeforeReconnect();
+                }
+            }
+        }
+    }
+
+    private void listenToNewChannels(Connection connection, Set<String> listenedChannels) throws SQLException {
+        for (String channel : handlers.keySet()) {
+            if(!listenedChannels.contains(channel)) {
+                try(var statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                listenedChannels.add(channel);
+                forEachHandler(channel, Handler::connected);
+            }
+        }
+    }
+
+    private void dispatch(PGNotification[] notifications) {
+        var byChannel = new HashMap<String, List<PGNotification>>();
+        for (PGNotification notification : notifications) {
+            byChannel.computeIfAbsent(notification.getName(), k -> new ArrayList<>()).add(notification);
+        }
+        byChannel.forEach((channel, channelNotifications) -> {
+            var array = channelNotifications.toArray(new PGNotification[0]);
+            forEachHandler(channel, handler -> handler.notificationsReceived(array));
+        });
+    }
+
+    private void forEachHandler(String channel, Consumer<Handler> callback) {
+        for (Handler handler : handlers.getOrDefault(channel, List.of())) {
+            try {
+                callback.accept(handler);
+            } catch(RuntimeException e) {
+                // a failing handler must not close the connection shared with the other channels
+                log.error("error while handling notifications on channel {}", channel, e);
+            }
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    public interface Handler {
+        /**
+         * Called once the channel is being listened to. Notifications sent before this call might have been missed.
+         */
+        void connected();
+
+        /**
+         * Called when the connection is lost. Notifications won't be received until the next {@link #connected()}.
+         */
+        void disconnected();
+
+        void notificationsReceived(PGNotification[] notifications);
+    }
+}
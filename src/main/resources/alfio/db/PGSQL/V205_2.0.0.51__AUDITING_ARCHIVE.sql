@@ -0,0 +1,72 @@
+--
+-- This file is part of alf.io.
+--
+-- alf.io is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- alf.io is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- most of the lookups done during the reservation process filter by reservation_id and event_type
+create index auditing_reservation_id_event_type_idx on auditing(reservation_id, event_type);
+drop index if exists auditing_reservation_id_idx;
+create index auditing_event_time_idx on auditing(event_time);
+
+-- archived auditing rows, partitioned by month.
+-- Partitions are created on demand by the archival job, see AuditingArchiveManager
+create table auditing_archive (
+    reservation_id varchar(512),
+    user_id int,
+    event_type varchar(128),
+    event_time timestamp not null,
+    entity_type varchar(64),
+    entity_id varchar(512),
+    modifications text,
+    event_id int,
+    organization_id_fk integer
+) partition by range (event_time);
+
+alter table auditing_archive enable row level security;
+alter table auditing_archive force row level security;
+create policy auditing_archive_access_policy on auditing_archive to public
+    using (alfio_check_row_access(organization_id_fk))
+    with check (alfio_check_row_access(organization_id_fk));
+
+-- keep archived rows in sync when an event or a subscription descriptor is transferred to another organization
+create or replace function propagate_event_organization_change_to_auditing_archive() returns trigger
+as $$
+BEGIN
+    if new.org_id <> old.org_id then
+        update auditing_archive set organization_id_fk = new.org_id where event_id = old.id;
+    end if;
+    return new;
+END
+$$ language plpgsql;
+
+create trigger event_update_org_id_fk_auditing_archive_trigger
+    after update on event
+    for each row execute procedure propagate_event_organization_change_to_auditing_archive();
+
+create or replace function propagate_subscription_organization_change_to_auditing_archive() returns trigger
+as $$
+BEGIN
+    if new.organization_id_fk <> old.organization_id_fk then
+        update auditing_archive set organization_id_fk = new.organization_id_fk
+            from subscription s
+            where s.reservation_id_fk = auditing_archive.reservation_id and s.subscription_descriptor_fk = old.id;
+    end if;
+    return new;
+END
+$$ language plpgsql;
+
+create trigger subscription_update_org_id_fk_auditing_archive_trigger
+    after update on subscription_descriptor
+    for each row execute procedure propagate_subscription_organization_change_to_auditing_archive();
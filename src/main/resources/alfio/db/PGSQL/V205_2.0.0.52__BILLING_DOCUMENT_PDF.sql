@@ -0,0 +1,30 @@
+--
+-- This file is part of alf.io.
+--
+-- alf.io is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- alf.io is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- rendered PDFs of billing documents, so that they don't have to be generated again on each export
+create table billing_document_pdf (
+    billing_document_id_fk bigint primary key references billing_document(id) on delete cascade,
+    content bytea not null,
+    creation_ts timestamp with time zone not null default now()
+);
+
+-- access is granted if the referenced billing document is visible to the current user
+alter table billing_document_pdf enable row level security;
+alter table billing_document_pdf force row level security;
+create policy billing_document_pdf_access_policy on billing_document_pdf to public
+    using (exists (select 1 from billing_document d where d.id = billing_document_id_fk))
+    with check (exists (select 1 from billing_document d where d.id = billing_document_id_fk));
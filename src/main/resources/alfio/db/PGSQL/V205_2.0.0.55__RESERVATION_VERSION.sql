@@ -0,0 +1,39 @@
+--
+-- This file is part of alf.io.
+--
+-- alf.io is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- alf.io is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- the version of a reservation changes every time the reservation is modified.
+-- Code paths which change the price of tickets, additional items or subscriptions without updating the reservation
+-- must bump the version explicitly (see TicketReservationRepository.bumpVersion).
+-- Values are taken from a sequence so that a version is never reused, even if the transaction that generated it is rolled back
+create sequence tickets_reservation_version_seq;
+
+alter table tickets_reservation add column version bigint not null default 0;
+alter table tickets_reservation alter column version set default nextval('tickets_reservation_version_seq');
+
+create or replace function bump_reservation_version() returns trigger
+as $$
+begin
+    if new.version = old.version then
+        new.version := nextval('tickets_reservation_version_seq');
+    end if;
+    return new;
+end
+$$ language plpgsql;
+
+create trigger tickets_reservation_version_trigger
+    before update on tickets_reservation
+    for each row execute procedure bump_reservation_version();
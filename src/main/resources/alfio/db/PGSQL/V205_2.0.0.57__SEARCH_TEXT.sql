@@ -0,0 +1,94 @@
+--
+-- This file is part of alf.io.
+--
+-- alf.io is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- alf.io is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- denormalized, lower-cased search text for tickets and reservations, used by the admin and check-in searches.
+-- Values are separated by a newline, so that a search term can only match within a single field.
+alter table tickets_reservation add column search_text text;
+alter table ticket add column search_text text;
+
+create or replace function reservation_search_text(r tickets_reservation) returns text
+as $$
+    select lower(concat_ws(chr(10), r.id, r.full_name, r.first_name, r.last_name, r.email_address, r.customer_reference, r.invoice_number,
+        (select promo_code from promo_code where id = r.promo_code_id_fk)))
+$$ language sql stable;
+
+-- the search text of a ticket includes the one of its reservation, so that ticket searches can be answered by a single index
+create or replace function ticket_search_text(t ticket) returns text
+as $$
+    select concat_ws(chr(10), lower(concat_ws(chr(10), t.uuid, t.full_name, t.first_name, t.last_name, t.email_address,
+        (select code from special_price where id = t.special_price_id_fk))),
+        (select search_text from tickets_reservation where id = t.tickets_reservation_id))
+$$ language sql stable;
+
+create or replace function update_reservation_search_text() returns trigger
+as $$
+begin
+    new.search_text := reservation_search_text(new);
+    return new;
+end
+$$ language plpgsql;
+
+create trigger tickets_reservation_search_text_trigger
+    before insert or update of id, full_name, first_name, last_name, email_address, customer_reference, invoice_number, promo_code_id_fk on tickets_reservation
+    for each row execute procedure update_reservation_search_text();
+
+create or replace function propagate_reservation_search_text() returns trigger
+as $$
+begin
+    update ticket set search_text = ticket_search_text(ticket) where tickets_reservation_id = new.id;
+    return null;
+end
+$$ language plpgsql;
+
+create trigger tickets_reservation_propagate_search_text_trigger
+    after update of id, full_name, first_name, last_name, email_address, customer_reference, invoice_number, promo_code_id_fk on tickets_reservation
+    for each row when (old.search_text is distinct from new.search_text)
+    execute procedure propagate_reservation_search_text();
+
+create or replace function update_ticket_search_text() returns trigger
+as $$
+begin
+    new.search_text := ticket_search_text(new);
+    return new;
+end
+$$ language plpgsql;
+
+create trigger ticket_search_text_trigger
+    before insert or update of uuid, full_name, first_name, last_name, email_address, special_price_id_fk, tickets_reservation_id on ticket
+    for each row execute procedure update_ticket_search_text();
+
+update tickets_reservation set search_text = reservation_search_text(tickets_reservation);
+update ticket set search_text = ticket_search_text(ticket) where tickets_reservation_id is not null;
+
+-- pg_trgm allows to index "like '%term%'" searches. If the extension cannot be installed (e.g. missing privileges)
+-- the search still works, without index.
+do $$
+begin
+    create extension if not exists pg_trgm;
+exception when others then
+    raise notice 'pg_trgm is not available (%), search text will not be indexed', sqlerrm;
+end
+$$;
+
+do $$
+begin
+    if exists(select 1 from pg_extension where extname = 'pg_trgm') then
+        create index tickets_reservation_search_text_idx on tickets_reservation using gin (search_text gin_trgm_ops);
+        create index ticket_search_text_idx on ticket using gin (search_text gin_trgm_ops);
+    end if;
+end
+$$;
@@ -0,0 +1,49 @@
+--
+-- This file is part of alf.io.
+--
+-- alf.io is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- alf.io is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- notifies all the nodes that API-key authentication details have changed.
+-- Notifications are delivered on commit, and duplicates within the same transaction are collapsed.
+create or replace function notify_api_key_auth_change() returns trigger
+as $$
+begin
+    perform pg_notify('alfio_api_key_auth', '');
+    return null;
+end
+$$ language plpgsql;
+
+create trigger ba_user_api_key_auth_notify
+    after insert or update or delete on ba_user
+    for each statement execute procedure notify_api_key_auth_change();
+
+create trigger authority_api_key_auth_notify
+    after insert or update or delete on authority
+    for each statement execute procedure notify_api_key_auth_change();
+
+create trigger configuration_insert_api_key_auth_notify
+    after insert on configuration
+    for each row when (new.c_key = 'SYSTEM_API_KEY')
+    execute procedure notify_api_key_auth_change();
+
+create trigger configuration_update_api_key_auth_notify
+    after update on configuration
+    for each row when (old.c_key = 'SYSTEM_API_KEY' or new.c_key = 'SYSTEM_API_KEY')
+    execute procedure notify_api_key_auth_change();
+
+create trigger configuration_delete_api_key_auth_notify
+    after delete on configuration
+    for each row when (old.c_key = 'SYSTEM_API_KEY')
+    execute procedure notify_api_key_auth_change();
@@ -0,0 +1,42 @@
+--
+-- This file is part of alf.io.
+--
+-- alf.io is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- alf.io is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- notifies all the nodes that the organizations accessible by a user might have changed.
+-- Notifications are delivered on commit, and duplicates within the same transaction are collapsed.
+create or replace function notify_organization_scope_change() returns trigger
+as $$
+begin
+    perform pg_notify('alfio_organization_scope', '');
+    return null;
+end
+$$ language plpgsql;
+
+create trigger j_user_organization_scope_notify
+    after insert or update or delete on j_user_organization
+    for each statement execute procedure notify_organization_scope_change();
+
+create trigger ba_user_organization_scope_notify
+    after update or delete on ba_user
+    for each statement execute procedure notify_organization_scope_change();
+
+create trigger authority_organization_scope_notify
+    after insert or update or delete on authority
+    for each statement execute procedure notify_organization_scope_change();
+
+create trigger organization_scope_notify
+    after insert or delete on organization
+    for each statement execute procedure notify_organization_scope_change();
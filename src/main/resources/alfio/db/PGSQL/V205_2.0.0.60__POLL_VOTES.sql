@@ -0,0 +1,38 @@
+--
+-- This file is part of alf.io.
+--
+-- alf.io is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- alf.io is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- supports resolving a PIN (the first 7 characters of the ticket UUID) without scanning the event's tickets.
+-- The expression must match TicketRepository.findCheckedInTicketIdsByUUIDPrefix
+create index ticket_checked_in_pin_idx on ticket(event_id, left(uuid, 7)) where status = 'CHECKED_IN';
+
+-- notifies all the nodes that the results of a poll have changed. Notifications are delivered on commit,
+-- and duplicates within the same transaction are collapsed.
+create or replace function notify_poll_answer_change() returns trigger
+as $$
+begin
+    if tg_op = 'DELETE' then
+        perform pg_notify('alfio_poll_answer', old.poll_id_fk::text);
+    else
+        perform pg_notify('alfio_poll_answer', new.poll_id_fk::text);
+    end if;
+    return null;
+end
+$$ language plpgsql;
+
+create trigger poll_answer_notify
+    after insert or update or delete on poll_answer
+    for each row execute procedure notify_poll_answer_change();
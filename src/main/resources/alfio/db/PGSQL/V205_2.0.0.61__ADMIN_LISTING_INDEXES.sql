@@ -0,0 +1,25 @@
+--
+-- This file is part of alf.io.
+--
+-- alf.io is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- alf.io is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- backs the keyset pagination of the reservations list (TicketSearchRepository.findReservationsForEvent):
+-- most recently confirmed first, then not yet confirmed ordered by validity
+create index tickets_reservation_listing_idx on tickets_reservation(event_id_fk, (coalesce(confirmation_ts, '-infinity'::timestamptz)) desc, validity, id);
+
+-- backs the keyset pagination of the payments list (TicketSearchRepository.findAllPaymentsForEvent):
+-- the event's reservations are selected first using tickets_reservation(event_id_fk), then their transactions
+-- are fetched already ordered, so that only the payments of the current event are sorted
+create index b_transaction_listing_idx on b_transaction(reservation_id, t_timestamp desc, id desc) where status <> 'INVALID';
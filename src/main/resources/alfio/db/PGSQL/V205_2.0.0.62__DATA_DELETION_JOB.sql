@@ -0,0 +1,46 @@
+--
+-- This file is part of alf.io.
+--
+-- alf.io is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- alf.io is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- progress of the background deletion of events and organizations (DataDeletionManager).
+-- current_event_id and current_step point to the next batch to be deleted, so that the job can be resumed after a crash
+create table data_deletion_job (
+    id serial primary key not null,
+    target_type varchar(32) not null,
+    target_id integer not null,
+    status varchar(32) not null default 'PENDING',
+    requested_by varchar(255),
+    request_ts timestamp with time zone not null default now(),
+    current_event_id integer,
+    current_step varchar(64),
+    deleted_rows bigint not null default 0,
+    attempts integer not null default 0,
+    locked_until timestamp with time zone,
+    last_update_ts timestamp with time zone not null default now(),
+    completion_ts timestamp with time zone,
+    error_message text
+);
+
+-- at most one active job for each target
+create unique index data_deletion_job_active_target_idx on data_deletion_job(target_type, target_id) where status in ('PENDING', 'IN_PROGRESS');
+
+-- each batch selects the rows to delete by event / organization: without these indexes every batch would scan the whole table
+create index if not exists auditing_organization_id_fk_idx on auditing(organization_id_fk);
+create index if not exists email_message_organization_id_fk_idx on email_message(organization_id_fk);
+create index if not exists tickets_reservation_organization_id_fk_idx on tickets_reservation(organization_id_fk);
+create index if not exists billing_document_event_id_fk_idx on billing_document(event_id_fk);
+create index if not exists billing_document_organization_id_fk_idx on billing_document(organization_id_fk);
+create index if not exists scan_audit_event_id_fk_idx on scan_audit(event_id_fk);
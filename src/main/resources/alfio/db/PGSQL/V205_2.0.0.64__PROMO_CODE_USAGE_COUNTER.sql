@@ -0,0 +1,154 @@
+--
+-- This file is part of alf.io.
+--
+-- alf.io is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- alf.io is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- number of tickets sold using the promo code, kept up to date by the triggers defined below
+alter table promo_code add column confirmed_usage integer not null default 0;
+
+-- tickets are counted as soon as the payment starts, so that the max usage is enforced before the customer pays.
+-- If the payment fails, the reservation goes back to PENDING and the tickets are released
+create or replace function promo_code_counted_status(status text) returns boolean
+as $$
+    select status in ('IN_PAYMENT', 'EXTERNAL_PROCESSING_PAYMENT', 'WAITING_EXTERNAL_CONFIRMATION', 'OFFLINE_PAYMENT',
+        'DEFERRED_OFFLINE_PAYMENT', 'FINALIZING', 'OFFLINE_FINALIZING', 'COMPLETE', 'STUCK')
+$$ language sql immutable;
+
+-- must be kept in sync with PromoCodeDiscount.categoriesOrNull
+create or replace function promo_code_applies_to_category(code_type text, categories text, hidden_category_id integer, category_id integer) returns boolean
+as $$
+    select case
+        when code_type = 'DYNAMIC' then true
+        when code_type = 'DISCOUNT' then
+            case
+                when coalesce(categories, 'null') in ('null', '[]') then true
+                else category_id in (select value::integer from json_array_elements_text(categories::json))
+            end
+        else category_id = hidden_category_id
+    end
+$$ language sql immutable;
+
+-- number of tickets in the reservation which are counted for the given promo code
+create or replace function promo_code_reservation_usage(p_promo_code_id integer, p_reservation_id text) returns integer
+as $$
+    select count(t.id)::integer
+    from promo_code p
+        join ticket t on t.tickets_reservation_id = p_reservation_id
+    where p.id = p_promo_code_id
+        and promo_code_applies_to_category(p.code_type, p.categories, p.hidden_category_id, t.category_id)
+$$ language sql stable;
+
+-- the counter is incremented only if the max usage is not exceeded. Concurrent transitions using the same promo code
+-- are serialized by the row lock on promo_code, and the second one re-evaluates the condition after the first one commits
+create or replace function update_promo_code_usage_for_reservation() returns trigger
+as $$
+declare
+    old_counted boolean := old.promo_code_id_fk is not null and promo_code_counted_status(old.status);
+    new_counted boolean := new.promo_code_id_fk is not null and promo_code_counted_status(new.status);
+    new_usage integer;
+begin
+    if old_counted and (not new_counted or old.promo_code_id_fk <> new.promo_code_id_fk) then
+        update promo_code set confirmed_usage = confirmed_usage - promo_code_reservation_usage(old.promo_code_id_fk, old.id)
+            where id = old.promo_code_id_fk;
+    end if;
+    if new_counted and (not old_counted or old.promo_code_id_fk <> new.promo_code_id_fk) then
+        new_usage := promo_code_reservation_usage(new.promo_code_id_fk, new.id);
+        update promo_code set confirmed_usage = confirmed_usage + new_usage
+            where id = new.promo_code_id_fk and (max_usage is null or new_usage = 0 or confirmed_usage + new_usage <= max_usage);
+        if not found then
+            raise 'PROMO_CODE_USAGE_EXCEEDED' using detail = ('{ "promoCodeId": ' || new.promo_code_id_fk || ', "requested": ' || new_usage || '}');
+        end if;
+    end if;
+    return null;
+end
+$$ language plpgsql;
+
+create trigger tickets_reservation_promo_code_usage_trigger
+    after update of status, promo_code_id_fk on tickets_reservation
+    for each row
+    when (old.status is distinct from new.status or old.promo_code_id_fk is distinct from new.promo_code_id_fk)
+    execute procedure update_promo_code_usage_for_reservation();
+
+-- deleted reservations (e.g. by the background deletion of an event) release the tickets which are still linked to them.
+-- Tickets deleted before their reservation are released by ticket_promo_code_usage_delete_trigger
+create or replace function release_promo_code_usage_for_reservation() returns trigger
+as $$
+begin
+    if old.promo_code_id_fk is not null and promo_code_counted_status(old.status) then
+        update promo_code set confirmed_usage = confirmed_usage - promo_code_reservation_usage(old.promo_code_id_fk, old.id)
+            where id = old.promo_code_id_fk;
+    end if;
+    return null;
+end
+$$ language plpgsql;
+
+create trigger tickets_reservation_promo_code_usage_delete_trigger
+    after delete on tickets_reservation
+    for each row
+    execute procedure release_promo_code_usage_for_reservation();
+
+-- tickets added to / removed from a reservation which is already counted (e.g. cancellation of a single ticket),
+-- or deleted while still linked to it
+create or replace function update_promo_code_usage_for_ticket() returns trigger
+as $$
+begin
+    if old.tickets_reservation_id is not null then
+        update promo_code p set confirmed_usage = p.confirmed_usage - 1
+            from tickets_reservation r
+            where r.id = old.tickets_reservation_id and p.id = r.promo_code_id_fk and promo_code_counted_status(r.status)
+                and promo_code_applies_to_category(p.code_type, p.categories, p.hidden_category_id, old.category_id);
+    end if;
+    if tg_op = 'DELETE' then
+        return null;
+    end if;
+    if new.tickets_reservation_id is not null then
+        update promo_code p set confirmed_usage = p.confirmed_usage + 1
+            from tickets_reservation r
+            where r.id = new.tickets_reservation_id and p.id = r.promo_code_id_fk and promo_code_counted_status(r.status)
+                and promo_code_applies_to_category(p.code_type, p.categories, p.hidden_category_id, new.category_id);
+    end if;
+    return null;
+end
+$$ language plpgsql;
+
+create trigger ticket_promo_code_usage_trigger
+    after update of tickets_reservation_id, category_id on ticket
+    for each row
+    when (old.tickets_reservation_id is distinct from new.tickets_reservation_id or old.category_id is distinct from new.category_id)
+    execute procedure update_promo_code_usage_for_ticket();
+
+create trigger ticket_promo_code_usage_delete_trigger
+    after delete on ticket
+    for each row
+    when (old.tickets_reservation_id is not null)
+    execute procedure update_promo_code_usage_for_ticket();
+
+update promo_code p set confirmed_usage = coalesce((select sum(promo_code_reservation_usage(p.id, r.id))
+    from tickets_reservation r where r.promo_code_id_fk = p.id and promo_code_counted_status(r.status)), 0);
+
+-- notifies all the nodes that the cached promo code definitions must be reloaded.
+-- Changes to confirmed_usage are not notified, since the counter is not cached.
+create or replace function notify_promo_code_change() returns trigger
+as $$
+begin
+    perform pg_notify('alfio_promo_code', '');
+    return null;
+end
+$$ language plpgsql;
+
+create trigger promo_code_definition_notify
+    after insert or delete or update of promo_code, event_id_fk, organization_id_fk, valid_from, valid_to, discount_amount, discount_type,
+        categories, max_usage, description, email_reference, code_type, hidden_category_id, currency_code on promo_code
+    for each statement execute procedure notify_promo_code_change();
@@ -30,5 +30,9 @@ CREATE VIEW auditing_user AS
     ba_user.last_name,
     ba_user.email_address,
     ba_user.enabled
-   FROM auditing
-     LEFT JOIN ba_user ON auditing.user_id = ba_user.id;
\ No newline at end of file
+   FROM (
+        SELECT reservation_id, user_id, event_type, event_time, entity_type, entity_id, modifications FROM auditing
+        UNION ALL
+        SELECT reservation_id, user_id, event_type, event_time, entity_type, entity_id, modifications FROM auditing_archive
+     ) auditing
+     LEFT JOIN ba_user ON auditing.user_id = ba_user.id;
@@ -16,5 +16,9 @@
 --
 
 CREATE VIEW latest_ticket_update as
-select cast(entity_id as int) ticket_id, event_id, max(event_time) last_update from auditing
-where entity_type = 'TICKET' group by ticket_id, event_id;
+select cast(entity_id as int) ticket_id, event_id, max(event_time) last_update from (
+    SELECT entity_id, event_id, event_time FROM auditing where entity_type = 'TICKET'
+    UNION ALL
+    SELECT entity_id, event_id, event_time FROM auditing_archive where entity_type = 'TICKET'
+) auditing
+group by ticket_id, event_id;
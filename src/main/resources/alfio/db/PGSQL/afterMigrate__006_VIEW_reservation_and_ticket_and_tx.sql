@@ -58,6 +58,7 @@ create view reservation_and_ticket_and_tx as (select
     tickets_reservation.vat_cts tr_vat_cts,
     tickets_reservation.discount_cts tr_discount_cts,
     tickets_reservation.currency_code tr_currency_code,
+    tickets_reservation.search_text tr_search_text,
 
     ticket.id t_id,
     ticket.uuid t_uuid,
@@ -81,6 +82,7 @@ create view reservation_and_ticket_and_tx as (select
     ticket.tags t_tags,
     ticket.subscription_id_fk t_subscription_id,
     ticket.vat_status t_vat_status,
+    ticket.search_text t_search_text,
 
     b_transaction.id bt_id,
     b_transaction.gtw_tx_id bt_gtw_tx_id,
@@ -42,6 +42,7 @@ create view checkin_ticket_event_and_category_info as
         t.tags                              t_tags,
         t.subscription_id_fk                t_subscription_id,
         t.vat_status                        t_vat_status,
+        t.search_text                       t_search_text,
 
         -- ticket reservation
 
@@ -86,6 +87,7 @@ create view checkin_ticket_event_and_category_info as
         tr.vat_cts                          tr_vat_cts,
         tr.discount_cts                     tr_discount_cts,
         tr.currency_code                    tr_currency_code,
+        tr.search_text                      tr_search_text,
 
         -- ticket category
         tc.id                               tc_id,
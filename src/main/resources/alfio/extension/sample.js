@@ -1,6 +1,6 @@
 /**
  * The script metadata object describes whether or not your extension should be invoked asynchronously, and which events it supports
- * @returns {{ async: boolean, events: string[] }}
+ * @returns {{ async: boolean, batch: boolean, events: string[] }}
  */
 function getScriptMetadata() {
     return {
@@ -8,6 +8,9 @@ function getScriptMetadata() {
         displayName: 'My Extension', //mandatory: the name displayed in the configuration page
         version: 0, // optional
         async: false,
+        // optional, async only: events raised within the same operation are delivered with a single invocation,
+        // after commit. The payloads are available in the 'events' array.
+        batch: false,
         events: [
             //supported values:
             //'RESERVATION_CONFIRMED', //fired on reservation confirmation. No results expected.
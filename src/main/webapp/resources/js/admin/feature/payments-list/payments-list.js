@@ -29,6 +29,10 @@
         ctrl.updateFilteredData = loadData;
         ctrl.editPaymentDetails = editPaymentDetails;
 
+        // cursor for loading the next page, which is faster than loading it by page number
+        var nextPage = null;
+        var lastSearch = ctrl.toSearch;
+
         this.$onInit = function() {
             loadData();
         };
@@ -40,8 +44,15 @@
                 search: ctrl.toSearch
             });
 
-            PurchaseContextService.findAllPayments(ctrl.purchaseContextType, ctrl.purchaseContext.publicIdentifier, ctrl.currentPage - 1, ctrl.toSearch)
+            if(lastSearch !== ctrl.toSearch) {
+                nextPage = null;
+                lastSearch = ctrl.toSearch;
+            }
+            var after = nextPage && nextPage.page === ctrl.currentPage ? nextPage.cursor : undefined;
+            var requestedPage = ctrl.currentPage;
+            PurchaseContextService.findAllPayments(ctrl.purchaseContextType, ctrl.purchaseContext.publicIdentifier, ctrl.currentPage - 1, ctrl.toSearch, after)
                 .then(function (res) {
+                    nextPage = {page: requestedPage + 1, cursor: res.data.nextPageCursor};
                     ctrl.reservations = res.data.left;
                     ctrl.foundReservations = res.data.right;
                     setTimeout(function() {
@@ -54,12 +54,18 @@
         ctrl.updateFilteredData = loadData;
         ctrl.onTabSelected = onTabSelected;
 
+        // cursors for loading the next page of each list, which is faster than loading it by page number
+        var cursors = {};
+
         this.$onInit = function() {
             loadData();
         };
 
         function loadData(loadPartially) {
 
+            if(!loadPartially) {
+                cursors = {};
+            }
             loadPartially = loadPartially || {pending: true, completed: true, paymentPending: true, cancelled: true, stuck: true, credited: true};
 
             $location.search({
@@ -72,31 +78,40 @@
             });
 
             if(loadPartially.completed) {
-                PurchaseContextService.findAllReservations(ctrl.purchaseContextType, ctrl.purchaseContext.publicIdentifier, ctrl.currentPage - 1, ctrl.toSearch, ['COMPLETE']).then(function (res) {
-                    ctrl.reservations = res.data.left;
-                    ctrl.foundReservations = res.data.right;
-                });
+                PurchaseContextService.findAllReservations(ctrl.purchaseContextType, ctrl.purchaseContext.publicIdentifier, ctrl.currentPage - 1, ctrl.toSearch, ['COMPLETE'], cursorFor('completed', ctrl.currentPage))
+                    .then(storeCursor('completed', ctrl.currentPage))
+                    .then(function(res) {
+                        ctrl.reservations = res.data.left;
+                        ctrl.foundReservations = res.data.right;
+                        ctrl.foundReservationsEstimated = res.data.totalEstimated;
+                    });
             }
 
             if(loadPartially.paymentPending) {
-                PurchaseContextService.findAllReservations(ctrl.purchaseContextType, ctrl.purchaseContext.publicIdentifier, ctrl.currentPagePendingPayment - 1, ctrl.toSearch, ['IN_PAYMENT', 'EXTERNAL_PROCESSING_PAYMENT', 'WAITING_EXTERNAL_CONFIRMATION', 'OFFLINE_PAYMENT', 'DEFERRED_OFFLINE_PAYMENT']).then(function (res) {
-                    ctrl.paymentPendingReservations = res.data.left;
-                    ctrl.paymentPendingFoundReservations = res.data.right;
-                });
+                PurchaseContextService.findAllReservations(ctrl.purchaseContextType, ctrl.purchaseContext.publicIdentifier, ctrl.currentPagePendingPayment - 1, ctrl.toSearch, ['IN_PAYMENT', 'EXTERNAL_PROCESSING_PAYMENT', 'WAITING_EXTERNAL_CONFIRMATION', 'OFFLINE_PAYMENT', 'DEFERRED_OFFLINE_PAYMENT'], cursorFor('paymentPending', ctrl.currentPagePendingPayment))
+                    .then(storeCursor('paymentPending', ctrl.currentPagePendingPayment))
+                    .then(function(res) {
+                        ctrl.paymentPendingReservations = res.data.left;
+                        ctrl.paymentPendingFoundReservations = res.data.right;
+                    });
             }
 
             if(loadPartially.pending) {
-                PurchaseContextService.findAllReservations(ctrl.purchaseContextType, ctrl.purchaseContext.publicIdentifier, ctrl.currentPagePending -1, ctrl.toSearch, ['PENDING']).then(function(res) {
-                    ctrl.pendingReservations = res.data.left;
-                    ctrl.foundPendingReservations = res.data.right;
-                });
+                PurchaseContextService.findAllReservations(ctrl.purchaseContextType, ctrl.purchaseContext.publicIdentifier, ctrl.currentPagePending -1, ctrl.toSearch, ['PENDING'], cursorFor('pending', ctrl.currentPagePending))
+                    .then(storeCursor('pending', ctrl.currentPagePending))
+                    .then(function(res) {
+                        ctrl.pendingReservations = res.data.left;
+                        ctrl.foundPendingReservations = res.data.right;
+                    });
             }
 
             if(loadPartially.cancelled) {
-                PurchaseContextService.findAllReservations(ctrl.purchaseContextType, ctrl.purchaseContext.publicIdentifier, ctrl.currentPageCancelled -1, ctrl.toSearch, ['CANCELLED']).then(function(res) {
-                    ctrl.cancelledReservations = res.data.left;
-                    ctrl.foundCancelledReservations = res.data.right;
-                });
+                PurchaseContextService.findAllReservations(ctrl.purchaseContextType, ctrl.purchaseContext.publicIdentifier, ctrl.currentPageCancelled -1, ctrl.toSearch, ['CANCELLED'], cursorFor('cancelled', ctrl.currentPageCancelled))
+                    .then(storeCursor('cancelled', ctrl.currentPageCancelled))
+                    .then(function(res) {
+                        ctrl.cancelledReservations = res.data.left;
+                        ctrl.foundCancelledReservations = res.data.right;
+                    });
             }
 
             if(loadPartially.stuck) {
@@ -117,6 +132,18 @@
             ctrl.purchaseContextTitle = ctrl.purchaseContext.title[keys[0]];
         }
 
+        function cursorFor(list, page) {
+            var cursor = cursors[list];
+            return cursor && cursor.page === page ? cursor.value : undefined;
+        }
+
+        function storeCursor(list, page) {
+            return function(res) {
+                cursors[list] = {page: page + 1, value: res.data.nextPageCursor};
+                return res;
+            };
+        }
+
         function formatFullName(r) {
             if(r.firstName && r.lastName) {
                 return r.firstName + ' ' + r.lastName;
@@ -36,15 +36,15 @@
 
     baseServices.service('PurchaseContextService', function(EventService, SubscriptionService, AdminReservationService, $http, HttpErrorHandler) {
         return {
-            findAllReservations: function(type, contextName, page, search, status) {
+            findAllReservations: function(type, contextName, page, search, status, after) {
                 if(type === 'event') {
-                    return EventService.findAllReservations(contextName, page, search, status);
+                    return EventService.findAllReservations(contextName, page, search, status, after);
                 } else {
                     return SubscriptionService.findAllReservations(contextName, page, search, status);
                 }
             },
-            findAllPayments: function(type, contextName, page, search) {
-                return $http.get('/admin/api/payments/'+ type + '/' + contextName + '/list', {params: {page: page, search: search}});
+            findAllPayments: function(type, contextName, page, search, after) {
+                return $http.get('/admin/api/payments/'+ type + '/' + contextName + '/list', {params: {page: page, after: after, search: search}});
             },
             editPaymentDetails: function(reservationId, purchaseContextType, publicIdentifier) {
                 var infoLoader = AdminReservationService.paymentInfo(purchaseContextType, publicIdentifier, reservationId);
@@ -338,8 +338,8 @@
             getAllReservationStatus : function(eventName) {
                 return $http.get('/admin/api/reservation/event/'+eventName+'/reservations/all-status');
             },
-            findAllReservations: function(eventName, page, search, status) {
-                return $http.get('/admin/api/reservation/event/'+eventName+'/reservations/list', {params: {page: page, search: search, status: status}});
+            findAllReservations: function(eventName, page, search, status, after) {
+                return $http.get('/admin/api/reservation/event/'+eventName+'/reservations/list', {params: {page: page, after: after, search: search, status: status}});
             },
             deleteEvent: function(event) {
                 var modal = $uibModal.open({
@@ -0,0 +1,78 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.config.support;
+
+import alfio.util.PostgresNotificationListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class OrganizationScopeCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private OrganizationScopeCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // the tests control the state of the listener
+        var notificationListener = mock(PostgresNotificationListener.class);
+        cache = new OrganizationScopeCache(notificationListener, new MockEnvironment());
+    }
+
+    @Test
+    void cachedWhileListening() throws SQLException {
+        cache.listenerConnected();
+        assertEquals(Set.of(1, 2), cache.get("user", this::load));
+        assertEquals(Set.of(1, 2), cache.get("user", this::load));
+        assertEquals(1, loads.get());
+        cache.get("another-user", this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void reloadedAfterInvalidation() throws SQLException {
+        cache.listenerConnected();
+        cache.get("user", this::load);
+        cache.invalidateAll();
+        cache.get("user", this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void bypassedWhenNotListening() throws SQLException {
+        cache.get("user", this::load);
+        cache.get("user", this::load);
+        assertEquals(2, loads.get());
+        cache.listenerConnected();
+        cache.get("user", this::load);
+        cache.listenerDisconnected();
+        cache.get("user", this::load);
+        assertEquals(4, loads.get());
+    }
+
+    private Set<Integer> load(String username) {
+        loads.incrementAndGet();
+        return Set.of(1, 2);
+    }
+}
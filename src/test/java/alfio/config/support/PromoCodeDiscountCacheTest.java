@@ -0,0 +1,79 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.config.support;
+
+import alfio.model.PromoCodeDiscount;
+import alfio.repository.PromoCodeDiscountRepository;
+import alfio.util.PostgresNotificationListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+class PromoCodeDiscountCacheTest {
+
+    private PromoCodeDiscountRepository repository;
+    private PromoCodeDiscountCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // the tests control the state of the listener
+        var notificationListener = mock(PostgresNotificationListener.class);
+        repository = mock(PromoCodeDiscountRepository.class);
+        when(repository.findPromoCodeInEventOrOrganization(1, "CODE")).thenReturn(Optional.of(mock(PromoCodeDiscount.class)));
+        when(repository.findPublicPromoCodeInEventOrOrganization(1, "CODE")).thenReturn(Optional.empty());
+        cache = new PromoCodeDiscountCache(notificationListener, repository, new MockEnvironment());
+    }
+
+    @Test
+    void cachedWhileListening() {
+        cache.listenerConnected();
+        assertTrue(cache.findPromoCodeInEventOrOrganization(1, "CODE").isPresent());
+        assertTrue(cache.findPromoCodeInEventOrOrganization(1, "CODE").isPresent());
+        verify(repository, times(1)).findPromoCodeInEventOrOrganization(1, "CODE");
+        // not found is cached as well, separately from the non-public lookup
+        assertTrue(cache.findPublicPromoCodeInEventOrOrganization(1, "CODE").isEmpty());
+        assertTrue(cache.findPublicPromoCodeInEventOrOrganization(1, "CODE").isEmpty());
+        verify(repository, times(1)).findPublicPromoCodeInEventOrOrganization(1, "CODE");
+    }
+
+    @Test
+    void reloadedAfterInvalidation() {
+        cache.listenerConnected();
+        cache.findPromoCodeInEventOrOrganization(1, "CODE");
+        cache.invalidateAll();
+        cache.findPromoCodeInEventOrOrganization(1, "CODE");
+        verify(repository, times(2)).findPromoCodeInEventOrOrganization(1, "CODE");
+    }
+
+    @Test
+    void bypassedWhenNotListening() {
+        cache.findPromoCodeInEventOrOrganization(1, "CODE");
+        cache.findPromoCodeInEventOrOrganization(1, "CODE");
+        verify(repository, times(2)).findPromoCodeInEventOrOrganization(1, "CODE");
+        cache.listenerConnected();
+        cache.findPromoCodeInEventOrOrganization(1, "CODE");
+        cache.listenerDisconnected();
+        cache.findPromoCodeInEventOrOrganization(1, "CODE");
+        assertEquals(4, mockingDetails(repository).getInvocations().size());
+    }
+}
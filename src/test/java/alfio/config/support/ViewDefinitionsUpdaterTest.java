@@ -0,0 +1,42 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.config.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewDefinitionsUpdaterTest {
+
+    @Test
+    void scriptsAreLoadedInOrder() {
+        var scripts = ViewDefinitionsUpdater.loadScripts();
+        assertTrue(scripts.size() > 1);
+        // the first script drops all the views
+        assertTrue(scripts.get(0).contains("drop view if exists"));
+    }
+
+    @Test
+    void checksumDependsOnContentAndOrder() {
+        var checksum = ViewDefinitionsUpdater.checksum(List.of("a", "b"));
+        assertEquals(checksum, ViewDefinitionsUpdater.checksum(List.of("a", "b")));
+        assertNotEquals(checksum, ViewDefinitionsUpdater.checksum(List.of("b", "a")));
+        assertNotEquals(checksum, ViewDefinitionsUpdater.checksum(List.of("a", "c")));
+    }
+}
@@ -1049,7 +1049,7 @@ public abstract class BaseReservationFlowTest extends BaseIntegrationTest {
                 String eventName = context.event.getShortName();
 
                 // try to search ticket
-                var results = checkInApiController.searchAttendees(eventName, fullTicketInfo.getEmail(), 0, principal);
+                var results = checkInApiController.searchAttendees(eventName, fullTicketInfo.getEmail(), 0, null, principal);
                 switch (context.event.getFormat()) {
                     case IN_PERSON:
                     case HYBRID:
@@ -1198,6 +1198,11 @@ public abstract class BaseReservationFlowTest extends BaseIntegrationTest {
                     assertEquals(CheckInStatus.SUCCESS, attendeeApiController.scanBadge(new AttendeeApiController.SponsorScanRequest(eventName, ticketwc.getUuid(), null, null), sponsorPrincipal, null).getBody().getResult().getStatus());
                     // scanned badges returns only unique values for a limited subset of columns
                     assertEquals(1, attendeeApiController.getScannedBadges(context.event.getShortName(), EventUtil.JSON_DATETIME_FORMATTER.format(LocalDateTime.of(1970, 1, 1, 0, 0)), sponsorPrincipal).getBody().size());
+                    var leadsDelta = requireNonNull(attendeeApiController.getChangedLeads(context.event.getShortName(), 0L, sponsorPrincipal).getBody());
+                    assertEquals(1, leadsDelta.getLeads().size());
+                    assertEquals(ticketwc.getUuid(), leadsDelta.getLeads().get(0).getTicketId());
+                    // nothing has changed since the last call
+                    assertTrue(requireNonNull(attendeeApiController.getChangedLeads(context.event.getShortName(), leadsDelta.getCursor(), sponsorPrincipal).getBody()).getLeads().isEmpty());
 
                     // check export
                     MockHttpServletResponse response = new MockHttpServletResponse();
@@ -1218,6 +1223,11 @@ public abstract class BaseReservationFlowTest extends BaseIntegrationTest {
                     assertEquals(CheckInStatus.SUCCESS, attendeeApiController.scanBadge(new AttendeeApiController.SponsorScanRequest(eventName, ticket.getUuid(), "this is a very good lead!", "HOT"), sponsorPrincipal, null).getBody().getResult().getStatus());
                     var scannedBadges = attendeeApiController.getScannedBadges(context.event.getShortName(), EventUtil.JSON_DATETIME_FORMATTER.format(LocalDateTime.of(1970, 1, 1, 0, 0)), sponsorPrincipal).getBody();
                     assertEquals(1, requireNonNull(scannedBadges).size());
+                    // the updated lead is returned as a change
+                    var changedLeads = requireNonNull(attendeeApiController.getChangedLeads(context.event.getShortName(), leadsDelta.getCursor(), sponsorPrincipal).getBody()).getLeads();
+                    assertEquals(1, changedLeads.size());
+                    assertEquals("this is a very good lead!", changedLeads.get(0).getNotes());
+                    assertEquals(SponsorScan.LeadStatus.HOT, changedLeads.get(0).getLeadStatus());
                     assertEquals(CheckInStatus.SUCCESS, attendeeApiController.scanBadge(new AttendeeApiController.SponsorScanRequest(eventName, ticket.getUuid(), "this is a very good lead!", "HOT"), sponsorPrincipal, null).getBody().getResult().getStatus());
                     scannedBadges = attendeeApiController.getScannedBadges(context.event.getShortName(), EventUtil.JSON_DATETIME_FORMATTER.format(LocalDateTime.of(1970, 1, 1, 0, 0)), sponsorPrincipal).getBody();
                     assertEquals(1, requireNonNull(scannedBadges).size());
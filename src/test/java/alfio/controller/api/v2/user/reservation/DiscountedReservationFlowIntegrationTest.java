@@ -206,5 +206,7 @@ class DiscountedReservationFlowIntegrationTest extends BaseReservationFlowTest {
         assertEquals(1, usageDetail.getReservations().size());
         assertEquals(reservationId, usageDetail.getReservations().get(0).getId());
         assertEquals(1, usageDetail.getReservations().get(0).getTickets().size());
+        // counter maintained by the database
+        assertEquals(1, promoCodeRequestManager.countUsage(promoCodeId));
     }
 }
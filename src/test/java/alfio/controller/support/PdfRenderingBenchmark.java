@@ -0,0 +1,84 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.controller.support;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the PDF throughput (documents/sec) of {@link PdfRenderingEngine}.
+ * <p>
+ * Not executed during the normal build. Run it with
+ * {@code ./gradlew test --tests alfio.controller.support.PdfRenderingBenchmark -Dalfio.benchmark=true}
+ */
+@EnabledIfSystemProperty(named = "alfio.benchmark", matches = "true")
+class PdfRenderingBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfRenderingBenchmark.class);
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int ITERATIONS = 500;
+
+    private static final String TICKET = "<!DOCTYPE html><html lang=\"en\"><head><title>ticket</title></head><body>" +
+        "<h1>Event</h1><h2>Ticket category</h2><p>Attendee name</p>" +
+        "<pre style=\"font-family: 'DejaVu Sans Mono'\">12345678-1234-1234-1234-123456789012</pre></body></html>";
+    private static final int CONCURRENT_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+
+    @Test
+    void ticketsPerSecond() throws Exception {
+        measure("tickets", TICKET, 1);
+        measure("tickets", TICKET, CONCURRENT_THREADS);
+    }
+
+    @Test
+    void invoicesPerSecond() throws Exception {
+        measure("invoices", PdfRenderingEngineTest.PAGE, 1);
+        measure("invoices", PdfRenderingEngineTest.PAGE, CONCURRENT_THREADS);
+    }
+
+    private static void measure(String type, String page, int threads) throws Exception {
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            run(executor, page, WARMUP_ITERATIONS);
+            long start = System.nanoTime();
+            run(executor, page, ITERATIONS);
+            long elapsed = System.nanoTime() - start;
+            double perSecond = ITERATIONS / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+            log.info("{} - threads: {}, documents: {}, {} {}/sec", type, threads, ITERATIONS, String.format("%.2f", perSecond), type);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void run(ExecutorService executor, String page, int iterations) throws Exception {
+        var futures = new ArrayList<Future<byte[]>>(iterations);
+        for (int i = 0; i < iterations; i++) {
+            futures.add(executor.submit((Callable<byte[]>) () -> PdfRenderingEngineTest.render(page)));
+        }
+        for (var future : futures) {
+            future.get();
+        }
+    }
+}
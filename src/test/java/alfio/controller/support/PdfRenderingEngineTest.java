@@ -0,0 +1,71 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.controller.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfRenderingEngineTest {
+
+    static final String PAGE = "<!DOCTYPE html><html lang=\"en\"><head><title>test</title><style>" +
+        "@font-face { font-family: 'DejaVu Sans'; src: url('alfio-internal:/DejaVuSans.ttf'); }" +
+        "body { font-family: 'DejaVu Sans', sans-serif; }</style></head>" +
+        "<body><h1>Invoice</h1><table><tr><td>Ticket</td><td>CHF 100.00</td></tr></table>" +
+        "<pre style=\"font-family: 'DejaVu Sans Mono'\">ABCD-1234</pre></body></html>";
+
+    @Test
+    void renderPdf() throws Exception {
+        var pdf = render();
+        assertTrue(new String(pdf, 0, 5, StandardCharsets.US_ASCII).startsWith("%PDF"));
+    }
+
+    @Test
+    void permitsAreReleasedAfterConcurrentRenderings() throws Exception {
+        int permits = PdfRenderingEngine.availablePermits();
+        var executor = Executors.newFixedThreadPool(permits * 2);
+        try {
+            var futures = new ArrayList<Future<byte[]>>();
+            for (int i = 0; i < permits * 4; i++) {
+                futures.add(executor.submit((Callable<byte[]>) PdfRenderingEngineTest::render));
+            }
+            for (var future : futures) {
+                assertTrue(future.get().length > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(permits, PdfRenderingEngine.availablePermits());
+    }
+
+    static byte[] render() throws Exception {
+        return render(PAGE);
+    }
+
+    static byte[] render(String page) throws Exception {
+        var os = new ByteArrayOutputStream();
+        PdfRenderingEngine.render(page, os);
+        return os.toByteArray();
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.extension;
+
+import alfio.extension.ExtensionEventBuffer.PendingEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtensionEventBufferTest {
+
+    private final List<List<PendingEvent>> dispatched = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void notEnqueuedWithoutTransaction() {
+        assertFalse(ExtensionEventBuffer.enqueue(event("1"), dispatched::add));
+        assertTrue(dispatched.isEmpty());
+    }
+
+    @Test
+    void dispatchAllEventsAfterCommit() {
+        beginTransaction();
+        assertTrue(ExtensionEventBuffer.enqueue(event("1"), dispatched::add));
+        assertTrue(ExtensionEventBuffer.enqueue(event("2"), dispatched::add));
+        assertTrue(dispatched.isEmpty());
+        commit();
+        assertEquals(List.of(List.of("1", "2")), dispatchedReservationIds());
+    }
+
+    @Test
+    void discardEventsAfterRollbackToSavepoint() {
+        beginTransaction();
+        ExtensionEventBuffer.enqueue(event("1"), dispatched::add);
+        var savepoint = new Object();
+        ExtensionEventBuffer.savepointCreated(savepoint);
+        ExtensionEventBuffer.enqueue(event("2"), dispatched::add);
+        ExtensionEventBuffer.rolledBackToSavepoint(savepoint);
+        ExtensionEventBuffer.enqueue(event("3"), dispatched::add);
+        commit();
+        assertEquals(List.of(List.of("1", "3")), dispatchedReservationIds());
+    }
+
+    @Test
+    void discardEverythingOnRollback() {
+        beginTransaction();
+        ExtensionEventBuffer.enqueue(event("1"), dispatched::add);
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertTrue(dispatched.isEmpty());
+    }
+
+    private List<List<String>> dispatchedReservationIds() {
+        return dispatched.stream()
+            .map(events -> events.stream().map(e -> (String) e.payload().get("reservationId")).toList())
+            .toList();
+    }
+
+    private static void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    private static void commit() {
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    private static PendingEvent event(String reservationId) {
+        return new PendingEvent("RESERVATION_CONFIRMED", "-0-1", Map.of("reservationId", reservationId));
+    }
+}
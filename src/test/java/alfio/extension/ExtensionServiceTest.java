@@ -18,14 +18,20 @@ package alfio.extension;
 
 import alfio.manager.support.extension.ExtensionCapability;
 import alfio.manager.support.extension.ExtensionEvent;
+import alfio.extension.ExtensionEventBuffer.PendingEvent;
 import alfio.manager.system.ExternalConfiguration;
+import alfio.model.ExtensionSupport.ScriptPathNameHash;
+import alfio.repository.ExtensionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -33,15 +39,20 @@ import static alfio.manager.support.extension.ExtensionCapability.CREATE_GUEST_L
 import static alfio.manager.support.extension.ExtensionCapability.CREATE_VIRTUAL_ROOM;
 import static alfio.manager.support.extension.ExtensionEvent.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.Mockito.mock;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
 
 class ExtensionServiceTest {
 
     ExtensionService extensionService;
+    ScriptingExecutionService scriptingExecutionService;
+    ExtensionRepository extensionRepository;
 
     @BeforeEach
     void setUp() {
-        extensionService = new ExtensionService(null, null, null, mock(PlatformTransactionManager.class), mock(ExternalConfiguration.class), mock(NamedParameterJdbcTemplate.class));
+        scriptingExecutionService = mock(ScriptingExecutionService.class);
+        extensionRepository = mock(ExtensionRepository.class);
+        extensionService = new ExtensionService(scriptingExecutionService, extensionRepository, null, mock(PlatformTransactionManager.class), mock(ExternalConfiguration.class), mock(NamedParameterJdbcTemplate.class), new MockEnvironment());
     }
 
     @Test
@@ -62,11 +73,34 @@ class ExtensionServiceTest {
         assertThrows(IllegalArgumentException.class, () -> extensionService.validateCapabilities(metadata));
     }
 
+    @Test
+    void dispatchAsyncEventsInBatch() {
+        var event = TICKET_ASSIGNED.name();
+        when(extensionRepository.findActive(anySet(), eq(true), eq(event)))
+            .thenReturn(List.of(new ScriptPathNameHash("-", "batch", "hash1", true), new ScriptPathNameHash("-", "single", "hash2", false)));
+        when(extensionRepository.findActive(anySet(), eq(true), eq(RESERVATION_CONFIRMED.name()))).thenReturn(List.of());
+        extensionService.dispatchAsyncEvents(List.of(
+            new PendingEvent(event, "-0-1", Map.of("ticket", 1)),
+            new PendingEvent(RESERVATION_CONFIRMED.name(), "-0-1", Map.of("reservation", "r1")),
+            new PendingEvent(event, "-0-1", Map.of("ticket", 2))
+        ));
+        // one invocation for the whole group
+        verify(scriptingExecutionService).executeScriptAsync(eq("-"), eq("batch"), eq("hash1"), any(),
+            argThat(context -> context.get("events") instanceof List<?> events && events.size() == 2), any());
+        // one invocation per event
+        verify(scriptingExecutionService).executeScriptAsync(eq("-"), eq("single"), eq("hash2"), any(),
+            argThat(context -> Integer.valueOf(1).equals(context.get("ticket"))), any());
+        verify(scriptingExecutionService).executeScriptAsync(eq("-"), eq("single"), eq("hash2"), any(),
+            argThat(context -> Integer.valueOf(2).equals(context.get("ticket"))), any());
+        verifyNoMoreInteractions(scriptingExecutionService);
+    }
+
     private ExtensionMetadata generateMetadata(Collection<ExtensionEvent> events, Collection<ExtensionCapability> capabilities) {
         return new ExtensionMetadata("id",
             "displayName",
             1,
             true,
+            false,
             events.stream().map(ExtensionEvent::name).collect(Collectors.toList()),
             null,
             capabilities.stream().map(ExtensionCapability::name).collect(Collectors.toList()),
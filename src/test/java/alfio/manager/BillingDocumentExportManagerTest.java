@@ -0,0 +1,123 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.model.BillingDocument;
+import alfio.model.Event;
+import alfio.model.TicketReservation;
+import alfio.model.TicketReservationWithTransaction;
+import alfio.repository.BillingDocumentRepository;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class BillingDocumentExportManagerTest {
+
+    private static final int DOCUMENTS = 120;
+    private TicketReservationManager ticketReservationManager;
+    private BillingDocumentRepository billingDocumentRepository;
+    private BillingDocumentExportManager exportManager;
+    private Event event;
+
+    @BeforeEach
+    void setUp() {
+        ticketReservationManager = mock(TicketReservationManager.class);
+        billingDocumentRepository = mock(BillingDocumentRepository.class);
+        event = mock(Event.class);
+        when(event.getId()).thenReturn(1);
+        when(event.getShortName()).thenReturn("event");
+        when(event.getZoneId()).thenReturn(ZoneId.of("Europe/Zurich"));
+        exportManager = new BillingDocumentExportManager(ticketReservationManager, billingDocumentRepository,
+            mock(TemplateManager.class), mock(FileUploadManager.class), mock(ExtensionManager.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportManager.destroy();
+    }
+
+    @Test
+    void storedPdfsAreWrittenInOrder() throws IOException {
+        var documents = IntStream.range(0, DOCUMENTS)
+            .mapToObj(i -> new BillingDocument(i, 1, "reservation-" + i, null, BillingDocument.Type.RECEIPT, "{}", ZonedDateTime.now(), BillingDocument.Status.VALID, null))
+            .collect(Collectors.toList());
+        when(ticketReservationManager.streamAllDocumentsFor(1)).thenReturn(documents.stream().map(this::withReservation));
+        when(billingDocumentRepository.findPdfContent(anyCollection())).thenAnswer(invocation -> {
+            var ids = invocation.<Collection<Long>>getArgument(0);
+            return ids.stream().collect(Collectors.toMap(id -> id, id -> ("pdf-" + id).getBytes(StandardCharsets.UTF_8)));
+        });
+
+        var os = new ByteArrayOutputStream();
+        exportManager.writeAllDocuments(event, os);
+
+        var names = new ArrayList<String>();
+        try (var zis = new ZipInputStream(new ByteArrayInputStream(os.toByteArray()))) {
+            for (var entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                int index = names.size();
+                names.add(entry.getName());
+                assertArrayEquals(("pdf-" + index).getBytes(StandardCharsets.UTF_8), zis.readAllBytes());
+            }
+        }
+        var expected = IntStream.range(0, DOCUMENTS).mapToObj(i -> "receipt-event-reservation-" + i + ".pdf").collect(Collectors.toList());
+        assertEquals(expected, names);
+        // one lookup per chunk
+        verify(billingDocumentRepository, times(3)).findPdfContent(anyCollection());
+        verify(billingDocumentRepository, never()).savePdfContent(anyLong(), any());
+    }
+
+    @Test
+    void emptyExport() throws IOException {
+        when(ticketReservationManager.streamAllDocumentsFor(1)).thenReturn(Stream.empty());
+        var os = new ByteArrayOutputStream();
+        exportManager.writeAllDocuments(event, os);
+        try (var zis = new ZipInputStream(new ByteArrayInputStream(os.toByteArray()))) {
+            assertNull(zis.getNextEntry());
+        }
+        verify(billingDocumentRepository, never()).findPdfContent(anyCollection());
+    }
+
+    private Pair<TicketReservationWithTransaction, List<BillingDocument>> withReservation(BillingDocument document) {
+        var reservation = mock(TicketReservation.class);
+        when(reservation.getId()).thenReturn(document.getReservationId());
+        var withTransaction = mock(TicketReservationWithTransaction.class);
+        when(withTransaction.getTicketReservation()).thenReturn(reservation);
+        return Pair.of(withTransaction, List.of(document));
+    }
+}
@@ -120,8 +120,7 @@ class BillingDocumentManagerTest {
         when(spec.isInvoiceRequested()).thenReturn("1".equals(invoiceRequested));
         assertTrue(billingDocumentManager.generateInvoiceNumber(spec, totalPrice).isEmpty());
         verify(configurationManager, never()).getFor(ConfigurationKeys.INVOICE_NUMBER_PATTERN, configurationLevel);
-        verify(invoiceSequencesRepository, never()).lockSequenceForUpdate(ORG_ID);
-        verify(invoiceSequencesRepository, never()).incrementSequenceFor(ORG_ID);
+        verify(invoiceSequencesRepository, never()).getAndIncrement(ORG_ID, BillingDocument.Type.INVOICE);
     }
 
     @Test
@@ -131,13 +130,13 @@ class BillingDocumentManagerTest {
         when(spec.isInvoiceRequested()).thenReturn(true);
         when(extensionManager.handleInvoiceGeneration(eq(spec), eq(totalPrice), eq(billingDetails), any()))
             .thenReturn(Optional.empty());
-        when(invoiceSequencesRepository.lockSequenceForUpdate(ORG_ID)).thenReturn(123);
+        when(invoiceSequencesRepository.getAndIncrement(ORG_ID, BillingDocument.Type.INVOICE)).thenReturn(123);
         when(configurationManager.getFor(ConfigurationKeys.INVOICE_NUMBER_PATTERN, configurationLevel))
             .thenReturn(MaybeConfigurationBuilder.missing(ConfigurationKeys.INVOICE_NUMBER_PATTERN));
         var invoiceNumberOptional = billingDocumentManager.generateInvoiceNumber(spec, totalPrice);
         assertTrue(invoiceNumberOptional.isPresent());
         assertEquals("123", invoiceNumberOptional.get());
-        verify(invoiceSequencesRepository).incrementSequenceFor(ORG_ID);
+        verify(invoiceSequencesRepository).getAndIncrement(ORG_ID, BillingDocument.Type.INVOICE);
         verify(auditingRepository, never()).insert(eq(RESERVATION_ID), any(), eq(purchaseContext), eq(EXTERNAL_INVOICE_NUMBER), any(), eq(RESERVATION), eq(RESERVATION_ID), any());
     }
 
@@ -152,13 +151,13 @@ class BillingDocumentManagerTest {
         when(spec.isInvoiceRequested()).thenReturn(true);
         when(extensionManager.handleInvoiceGeneration(eq(spec), eq(totalPrice), eq(billingDetails), any()))
             .thenReturn(Optional.empty());
-        when(invoiceSequencesRepository.lockSequenceForUpdate(ORG_ID)).thenReturn(123);
+        when(invoiceSequencesRepository.getAndIncrement(ORG_ID, BillingDocument.Type.INVOICE)).thenReturn(123);
         when(configurationManager.getFor(ConfigurationKeys.INVOICE_NUMBER_PATTERN, configurationLevel))
             .thenReturn(MaybeConfigurationBuilder.existing(ConfigurationKeys.INVOICE_NUMBER_PATTERN, pattern));
         var invoiceNumberOptional = billingDocumentManager.generateInvoiceNumber(spec, totalPrice);
         assertTrue(invoiceNumberOptional.isPresent());
         assertEquals(expected, invoiceNumberOptional.get());
-        verify(invoiceSequencesRepository).incrementSequenceFor(ORG_ID);
+        verify(invoiceSequencesRepository).getAndIncrement(ORG_ID, BillingDocument.Type.INVOICE);
         verify(auditingRepository, never()).insert(eq(RESERVATION_ID), any(), eq(purchaseContext), eq(EXTERNAL_INVOICE_NUMBER), any(), eq(RESERVATION), eq(RESERVATION_ID), any());
     }
 
@@ -175,8 +174,7 @@ class BillingDocumentManagerTest {
         assertTrue(invoiceNumberOptional.isPresent());
         assertEquals("external", invoiceNumberOptional.get());
         verify(configurationManager, never()).getFor(ConfigurationKeys.INVOICE_NUMBER_PATTERN, configurationLevel);
-        verify(invoiceSequencesRepository, never()).lockSequenceForUpdate(ORG_ID);
-        verify(invoiceSequencesRepository, never()).incrementSequenceFor(ORG_ID);
+        verify(invoiceSequencesRepository, never()).getAndIncrement(ORG_ID, BillingDocument.Type.INVOICE);
         verify(auditingRepository).insert(eq(RESERVATION_ID), any(), eq(purchaseContext), eq(EXTERNAL_INVOICE_NUMBER), any(), eq(RESERVATION), eq(RESERVATION_ID), eq(List.of(Map.of("invoiceNumber", "external"))));
     }
 
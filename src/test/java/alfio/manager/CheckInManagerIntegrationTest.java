@@ -20,6 +20,7 @@ import alfio.TestConfiguration;
 import alfio.config.DataSourceConfiguration;
 import alfio.config.Initializer;
 import alfio.manager.payment.PaymentSpecification;
+import alfio.manager.support.CheckInStatus;
 import alfio.manager.support.PaymentResult;
 import alfio.manager.user.UserManager;
 import alfio.model.*;
@@ -30,6 +31,7 @@ import alfio.model.transaction.PaymentProxy;
 import alfio.repository.EventRepository;
 import alfio.repository.TicketCategoryRepository;
 import alfio.repository.TicketRepository;
+import alfio.repository.audit.ScanAuditRepository;
 import alfio.repository.system.ConfigurationRepository;
 import alfio.repository.user.OrganizationRepository;
 import alfio.test.util.AlfioIntegrationTest;
@@ -48,10 +50,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
-import java.util.Date;
-import java.util.List;
-import java.util.Locale;
-import java.util.Optional;
+import java.util.*;
 
 import static alfio.test.util.IntegrationTestUtil.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -80,6 +79,8 @@ class CheckInManagerIntegrationTest {
     private TicketReservationManager ticketReservationManager;
     @Autowired
     private TicketRepository ticketRepository;
+    @Autowired
+    private ScanAuditRepository scanAuditRepository;
 
     @Test
     void testReturnOnlyOnce() {
@@ -141,4 +142,63 @@ class CheckInManagerIntegrationTest {
 
     }
 
+    @Test
+    void testBulkCheckIn() {
+        IntegrationTestUtil.ensureMinimalConfiguration(configurationRepository);
+        List<TicketCategoryModification> categories = List.of(
+            new TicketCategoryModification(null, "default", TicketCategory.TicketAccessType.INHERIT, AVAILABLE_SEATS,
+                new DateTimeModification(LocalDate.now(ClockProvider.clock()).minusDays(1), LocalTime.now(ClockProvider.clock())),
+                new DateTimeModification(LocalDate.now(ClockProvider.clock()).plusDays(1), LocalTime.now(ClockProvider.clock())),
+                DESCRIPTION, BigDecimal.TEN, false,
+                "", false, null, null, null, null, null, 0, null, null, AlfioMetadata.empty())
+        );
+        Pair<Event, String> eventAndUser = initEvent(categories, organizationRepository, userManager, eventManager, eventRepository);
+        var event = eventAndUser.getLeft();
+        var username = eventAndUser.getRight();
+        var category = ticketCategoryRepository.findAllTicketCategories(event.getId()).get(0);
+        TicketReservationModification tr = new TicketReservationModification();
+        tr.setQuantity(3);
+        tr.setTicketCategoryId(category.getId());
+        var tickets = new TicketReservationWithOptionalCodeModification(tr, Optional.empty());
+        String reservationId = ticketReservationManager.createTicketReservation(event, List.of(tickets), List.of(), DateUtils.addDays(new Date(), 1), Optional.empty(), Locale.ENGLISH, false, null);
+        TotalPrice reservationCost = ticketReservationManager.totalReservationCostWithVAT(reservationId).getLeft();
+        PaymentSpecification specification = new PaymentSpecification(reservationId, null, reservationCost.priceWithVAT(),
+            event, "email@example.com", new CustomerName("full name", "full", "name", event.mustUseFirstAndLastName()),
+            "billing address", null, Locale.ENGLISH, true, false, null, "IT", "123456", PriceContainer.VatStatus.INCLUDED, true, false);
+        PaymentResult result = ticketReservationManager.performPayment(specification, reservationCost, PaymentProxy.OFFLINE, PaymentMethod.BANK_TRANSFER, null);
+        assertTrue(result.isSuccessful());
+        ticketReservationManager.confirmOfflinePayment(event, reservationId, null, username);
+
+        var reservationTickets = ticketReservationManager.findTicketsInReservation(reservationId);
+        assertEquals(3, reservationTickets.size());
+        var first = reservationTickets.get(0);
+        var second = reservationTickets.get(1);
+        var third = reservationTickets.get(2);
+        Map<String, String> codes = new LinkedHashMap<>();
+        codes.put(first.getUuid(), first.ticketCode(event.getPrivateKey(), event.supportsQRCodeCaseInsensitive()));
+        codes.put(second.getUuid(), second.ticketCode(event.getPrivateKey(), event.supportsQRCodeCaseInsensitive()));
+        codes.put(third.getUuid(), "wrong-code");
+        codes.put("not-existing", "code");
+
+        var results = checkInManager.bulkCheckIn(event.getShortName(), codes, username, username, false);
+        assertEquals(4, results.size());
+        assertEquals(CheckInStatus.SUCCESS, results.get(first.getUuid()).getResult().getStatus());
+        assertEquals(CheckInStatus.SUCCESS, results.get(second.getUuid()).getResult().getStatus());
+        assertEquals(CheckInStatus.INVALID_TICKET_CODE, results.get(third.getUuid()).getResult().getStatus());
+        assertEquals(CheckInStatus.TICKET_NOT_FOUND, results.get("not-existing").getResult().getStatus());
+        assertEquals(Ticket.TicketStatus.CHECKED_IN, ticketRepository.findByUUID(first.getUuid()).getStatus());
+        assertEquals(Ticket.TicketStatus.CHECKED_IN, ticketRepository.findByUUID(second.getUuid()).getStatus());
+        assertEquals(Ticket.TicketStatus.ACQUIRED, ticketRepository.findByUUID(third.getUuid()).getStatus());
+        assertTrue(ticketRepository.findByUUID(first.getUuid()).getLockedAssignment());
+        assertEquals(2, scanAuditRepository.findAllForEvent(event.getId()).size());
+
+        // uploading the same scans again must not check in the tickets twice
+        var secondRun = checkInManager.bulkCheckIn(event.getShortName(), codes, username, username, false);
+        assertEquals(CheckInStatus.ALREADY_CHECK_IN, secondRun.get(first.getUuid()).getResult().getStatus());
+        assertEquals(CheckInStatus.ALREADY_CHECK_IN, secondRun.get(second.getUuid()).getResult().getStatus());
+
+        var wrongEvent = checkInManager.bulkCheckIn("not-existing", codes, username, username, false);
+        assertTrue(wrongEvent.values().stream().allMatch(r -> r.getResult().getStatus() == CheckInStatus.EVENT_NOT_FOUND));
+    }
+
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ import alfio.manager.user.UserManager;
 import alfio.model.Event;
 import alfio.model.Ticket;
 import alfio.model.TicketCategory;
+import alfio.model.TicketFieldConfiguration;
 import alfio.model.metadata.AlfioMetadata;
 import alfio.model.modification.*;
 import alfio.model.result.ErrorCode;
@@ -51,6 +52,7 @@ import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static alfio.test.util.IntegrationTestUtil.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -92,6 +94,8 @@ class EventManagerIntegrationTest extends BaseIntegrationTest {
     private ClockProvider clockProvider;
     @Autowired
     private NamedParameterJdbcTemplate jdbcTemplate;
+    @Autowired
+    private TicketFieldRepository ticketFieldRepository;
 
     @Test
     void testUnboundedTicketsGeneration() {
@@ -151,6 +155,31 @@ class EventManagerIntegrationTest extends BaseIntegrationTest {
         BaseIntegrationTest.testTransferEventToAnotherOrg(event.getId(), event.getOrganizationId(), eventAndUsername.getRight(), jdbcTemplate);
     }
 
+    @Test
+    void testStreamConfirmedTicketsForExport() {
+        List<TicketCategoryModification> categories = Collections.singletonList(
+                new TicketCategoryModification(null, "default", TicketCategory.TicketAccessType.INHERIT, 10,
+                        new DateTimeModification(LocalDate.now(clockProvider.getClock()), LocalTime.now(clockProvider.getClock())),
+                        new DateTimeModification(LocalDate.now(clockProvider.getClock()), LocalTime.now(clockProvider.getClock())),
+                        DESCRIPTION, BigDecimal.TEN, false, "", true, null, null, null, null, null, 0, null, null, AlfioMetadata.empty()));
+        var eventAndUsername = initEvent(categories, organizationRepository, userManager, eventManager, eventRepository);
+        Event event = eventAndUsername.getKey();
+        TicketCategory category = ticketCategoryRepository.findAllTicketCategories(event.getId()).get(0);
+        String reservationId = UUID.randomUUID().toString();
+        ticketReservationRepository.createNewReservation(reservationId, ZonedDateTime.now(clockProvider.getClock()), DateUtils.addDays(new Date(), 1), null, "en", event.getId(), event.getVat(), event.isVatIncluded(), event.getCurrency(), event.getOrganizationId(), null);
+        List<Integer> ticketIds = ticketRepository.selectTicketInCategoryForUpdate(event.getId(), category.getId(), 3, List.of(TicketRepository.FREE));
+        ticketRepository.reserveTickets(reservationId, ticketIds, category, "en", event.getVatStatus(), i -> null);
+        ticketRepository.updateTicketsStatusWithReservationId(reservationId, Ticket.TicketStatus.ACQUIRED.name());
+        int fieldId = ticketFieldRepository.insertConfiguration(event.getId(), "company", 0, "input:text", null, null, null, false, TicketFieldConfiguration.Context.ATTENDEE, null, null).getKey();
+        ticketFieldRepository.insertValue(ticketIds.get(1), fieldId, "ACME");
+
+        var exported = eventManager.streamConfirmedTicketsForExport(event.getShortName(), eventAndUsername.getValue()).toList();
+        assertEquals(ticketIds.stream().sorted().toList(), exported.stream().map(p -> p.getLeft().getTicket().getId()).toList());
+        var values = exported.stream().collect(Collectors.toMap(p -> p.getLeft().getTicket().getId(), Pair::getRight));
+        assertEquals(Map.of("company", "ACME"), values.get(ticketIds.get(1)));
+        assertTrue(values.get(ticketIds.get(0)).isEmpty());
+    }
+
     @Test
     void testEventGenerationWithUnboundedCategory() {
         List<TicketCategoryModification> categories = Arrays.asList(
@@ -0,0 +1,131 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.manager.support.PaymentResult;
+import alfio.manager.support.PaymentWebhookResult;
+import alfio.model.PurchaseContext;
+import alfio.model.TicketReservation;
+import alfio.model.transaction.PaymentProvider;
+import alfio.repository.TicketReservationRepository;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ExpiredReservationSweeperTest {
+
+    private static final String PENDING_RESERVATION_ID = "pending";
+    private final Date now = new Date();
+    private TicketReservationManager ticketReservationManager;
+    private TicketReservationRepository ticketReservationRepository;
+    private PurchaseContextManager purchaseContextManager;
+    private ExpiredReservationSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        ticketReservationManager = mock(TicketReservationManager.class);
+        ticketReservationRepository = mock(TicketReservationRepository.class);
+        purchaseContextManager = mock(PurchaseContextManager.class);
+        sweeper = new ExpiredReservationSweeper(ticketReservationManager, ticketReservationRepository, purchaseContextManager, mock(PlatformTransactionManager.class));
+        when(ticketReservationRepository.lockExpiredReservations(anyCollection(), eq(now)))
+            .thenAnswer(invocation -> List.copyOf(invocation.<List<String>>getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweeper.destroy();
+    }
+
+    @Test
+    void deleteInChunks() {
+        var ids = IntStream.range(0, ExpiredReservationSweeper.CHUNK_SIZE + 10).mapToObj(String::valueOf).collect(Collectors.toList());
+        when(ticketReservationRepository.findExpiredReservationIds(now, ExpiredReservationSweeper.MAX_RESERVATIONS_PER_RUN)).thenReturn(ids);
+
+        var statistics = sweeper.sweep(now);
+
+        verify(ticketReservationManager).deleteExpiredReservations(ids.subList(0, ExpiredReservationSweeper.CHUNK_SIZE));
+        verify(ticketReservationManager).deleteExpiredReservations(ids.subList(ExpiredReservationSweeper.CHUNK_SIZE, ids.size()));
+        verify(ticketReservationManager, never()).checkPendingTransactionStatus(any(), any());
+        assertEquals(ids.size(), statistics.getDeleted());
+        assertEquals(0, statistics.getSkipped());
+    }
+
+    @Test
+    void doNotDeleteIfPaymentIsSuccessful() {
+        var purchaseContext = initPendingReservation();
+        var providerResult = Pair.of(mock(PaymentProvider.class), PaymentWebhookResult.pending());
+        when(ticketReservationManager.checkPendingTransactionStatus(eq(purchaseContext), any())).thenReturn(Optional.of(providerResult));
+        when(ticketReservationManager.applyTransactionCheckResult(eq(purchaseContext), any(), eq(providerResult)))
+            .thenReturn(Optional.of(PaymentResult.successful("id")));
+
+        var statistics = sweeper.sweep(now);
+
+        verify(ticketReservationManager).deleteExpiredReservations(List.of("expired"));
+        verify(ticketReservationManager, never()).cancelPendingPayment(anyString(), any());
+        assertEquals(1, statistics.getDeleted());
+        assertEquals(1, statistics.getSkipped());
+    }
+
+    @Test
+    void cancelPendingPaymentIfFailed() {
+        var purchaseContext = initPendingReservation();
+        var providerResult = Pair.of(mock(PaymentProvider.class), PaymentWebhookResult.failed("failed"));
+        when(ticketReservationManager.checkPendingTransactionStatus(eq(purchaseContext), any())).thenReturn(Optional.of(providerResult));
+        when(ticketReservationManager.applyTransactionCheckResult(eq(purchaseContext), any(), eq(providerResult)))
+            .thenReturn(Optional.of(PaymentResult.failed("failed")));
+
+        sweeper.sweep(now);
+
+        verify(ticketReservationManager).cancelPendingPayment(PENDING_RESERVATION_ID, purchaseContext);
+        verify(ticketReservationManager).deleteExpiredReservations(List.of("expired", PENDING_RESERVATION_ID));
+    }
+
+    @Test
+    void skipIfProviderCheckFails() {
+        var purchaseContext = initPendingReservation();
+        when(ticketReservationManager.checkPendingTransactionStatus(eq(purchaseContext), any())).thenThrow(new IllegalStateException("network error"));
+
+        var statistics = sweeper.sweep(now);
+
+        verify(ticketReservationManager, never()).applyTransactionCheckResult(any(), any(), any());
+        verify(ticketReservationManager).deleteExpiredReservations(List.of("expired"));
+        assertEquals(1, statistics.getSkipped());
+    }
+
+    private PurchaseContext initPendingReservation() {
+        var ids = List.of("expired", PENDING_RESERVATION_ID);
+        when(ticketReservationRepository.findExpiredReservationIds(now, ExpiredReservationSweeper.MAX_RESERVATIONS_PER_RUN)).thenReturn(ids);
+        var reservation = mock(TicketReservation.class);
+        when(reservation.getId()).thenReturn(PENDING_RESERVATION_ID);
+        when(ticketReservationRepository.findReservationsWithPendingTransaction(anyCollection())).thenReturn(List.of(reservation));
+        var purchaseContext = mock(PurchaseContext.class);
+        when(purchaseContextManager.findByReservationId(PENDING_RESERVATION_ID)).thenReturn(Optional.of(purchaseContext));
+        return purchaseContext;
+    }
+}
@@ -186,4 +186,37 @@ class GroupManagerIntegrationTest extends BaseIntegrationTest {
         assertEquals("This is a test &lt; 1", persistedGroup.getDescription());
         assertEquals("test &gt; 1", persistedGroup.getName());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testMembershipIsRefreshedAfterModifications() {
+        List<TicketCategoryModification> categories = Collections.singletonList(
+            new TicketCategoryModification(null, "default", TicketCategory.TicketAccessType.INHERIT, 10,
+                new DateTimeModification(LocalDate.now(ClockProvider.clock()).plusDays(1), LocalTime.now(ClockProvider.clock())),
+                new DateTimeModification(LocalDate.now(ClockProvider.clock()).plusDays(2), LocalTime.now(ClockProvider.clock())),
+                DESCRIPTION, BigDecimal.TEN, false, "", false, null, null, null, null, null, 0, null, null, AlfioMetadata.empty()));
+        Pair<Event, String> pair = initEvent(categories, organizationRepository, userManager, eventManager, eventRepository);
+        Event event = pair.getKey();
+        Group group = groupManager.createNew("test", "This is a test", event.getOrganizationId());
+        LinkedGroupModification modification = new LinkedGroupModification(null, group.getId(), event.getId(), null, LinkedGroup.Type.UNLIMITED, LinkedGroup.MatchType.EMAIL_DOMAIN, null);
+        var link = groupManager.createLink(group.getId(), event.getId(), modification);
+        int categoryId = eventManager.loadTicketCategories(event).get(0).getId();
+        assertTrue(groupManager.insertMembers(group.getId(), List.of(new GroupMemberModification(null, "test@test.ch", "description"))).isSuccess());
+
+        assertTrue(groupManager.isAllowed(" TEST@test.ch ", event.getId(), categoryId));
+        assertTrue(groupManager.isAllowed("other@test.ch", event.getId(), categoryId));
+        assertFalse(groupManager.isAllowed("test@example.org", event.getId(), categoryId));
+
+        groupManager.update(group.getId(), new GroupModification(group.getId(), "test", "This is a test", event.getOrganizationId(), List.of(new GroupMemberModification(null, "test@example.org", "description"))));
+        var valid = new GroupManager.WhitelistValidationItem(categoryId, "test@example.org");
+        var invalid = new GroupManager.WhitelistValidationItem(categoryId, "test@example.com");
+        assertEquals(Set.of(invalid), groupManager.findNotAllowed(event.getId(), List.of(valid, invalid)));
+
+        var memberId = groupRepository.getItems(group.getId()).stream().filter(m -> m.getValue().equals("test@test.ch")).findFirst().orElseThrow().getId();
+        assertTrue(groupManager.deactivateMembers(List.of(memberId), group.getId()));
+        assertFalse(groupManager.isAllowed("test@test.ch", event.getId(), categoryId));
+        assertTrue(groupManager.isAllowed("test@example.org", event.getId(), categoryId));
+
+        groupManager.disableLink(link.getId());
+        assertTrue(groupManager.isAllowed("test@test.ch", event.getId(), categoryId), "Group is not linked anymore, therefore every value is allowed");
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.TestConfiguration;
+import alfio.config.DataSourceConfiguration;
+import alfio.config.Initializer;
+import alfio.config.WebSecurityConfig;
+import alfio.manager.payment.PaymentSpecification;
+import alfio.manager.support.RetryFinalizeReservation;
+import alfio.manager.user.UserManager;
+import alfio.model.*;
+import alfio.model.metadata.AlfioMetadata;
+import alfio.model.modification.*;
+import alfio.model.system.command.FinalizeReservation;
+import alfio.model.transaction.PaymentProxy;
+import alfio.repository.EventRepository;
+import alfio.repository.InvoiceSequencesRepository;
+import alfio.repository.TicketCategoryRepository;
+import alfio.repository.TicketReservationRepository;
+import alfio.repository.system.ConfigurationRepository;
+import alfio.repository.user.OrganizationRepository;
+import alfio.test.util.AlfioIntegrationTest;
+import alfio.test.util.IntegrationTestUtil;
+import alfio.util.BaseIntegrationTest;
+import alfio.util.ClockProvider;
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static alfio.model.TicketReservation.TicketReservationStatus.OFFLINE_FINALIZING;
+import static alfio.model.TicketReservation.TicketReservationStatus.OFFLINE_PAYMENT;
+import static alfio.test.util.IntegrationTestUtil.AVAILABLE_SEATS;
+import static alfio.test.util.IntegrationTestUtil.DESCRIPTION;
+import static alfio.test.util.IntegrationTestUtil.initEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+@AlfioIntegrationTest
+@ContextConfiguration(classes = {DataSourceConfiguration.class, WebSecurityConfig.class, TestConfiguration.class})
+@ActiveProfiles({Initializer.PROFILE_DEV, Initializer.PROFILE_DISABLE_JOBS, Initializer.PROFILE_INTEGRATION_TEST})
+class InvoiceNumberConcurrentIntegrationTest extends BaseIntegrationTest {
+
+    private static final int FINALIZATIONS = 200;
+
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private OrganizationRepository organizationRepository;
+    @Autowired
+    private EventManager eventManager;
+    @Autowired
+    private UserManager userManager;
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+    @Autowired
+    private TicketReservationManager ticketReservationManager;
+    @Autowired
+    private TicketReservationRepository ticketReservationRepository;
+    @Autowired
+    private InvoiceSequencesRepository invoiceSequencesRepository;
+    @Autowired
+    private ReservationFinalizer reservationFinalizer;
+    @Autowired
+    private ConfigurationRepository configurationRepository;
+
+    private Event event;
+    private List<String> reservationIds;
+
+    @BeforeEach
+    void setUp() {
+        IntegrationTestUtil.ensureMinimalConfiguration(configurationRepository);
+        var categories = List.of(new TicketCategoryModification(null, "default", TicketCategory.TicketAccessType.INHERIT, AVAILABLE_SEATS,
+            new DateTimeModification(LocalDate.now(ClockProvider.clock()).minusDays(1), LocalTime.now(ClockProvider.clock())),
+            new DateTimeModification(LocalDate.now(ClockProvider.clock()).plusDays(1), LocalTime.now(ClockProvider.clock())),
+            DESCRIPTION, BigDecimal.TEN, false, "", false, null, null, null, null, null, 0, null, null,
+            AlfioMetadata.empty()));
+        var eventAndUser = initEvent(categories, organizationRepository, userManager, eventManager, eventRepository);
+        event = eventAndUser.getKey();
+        // one ticket for each reservation
+        var eventModification = new EventModification(event.getId(), null, null, null,
+            null, null, null, null, null, null, event.getOrganizationId(), null,
+            null, null, null, null, null, null, BigDecimal.TEN, "CHF", FINALIZATIONS,
+            BigDecimal.ONE, true, List.of(PaymentProxy.OFFLINE), List.of(), false, null, 0, List.of(),
+            List.of(), AlfioMetadata.empty(), null);
+        eventManager.updateEventPrices(event, eventModification, eventAndUser.getValue());
+        event = eventRepository.findById(event.getId());
+        int categoryId = ticketCategoryRepository.findAllTicketCategories(event.getId()).get(0).getId();
+        reservationIds = IntStream.range(0, FINALIZATIONS)
+            .mapToObj(i -> {
+                var tr = new TicketReservationModification();
+                tr.setQuantity(1);
+                tr.setTicketCategoryId(categoryId);
+                var mod = new TicketReservationWithOptionalCodeModification(tr, Optional.empty());
+                return ticketReservationManager.createTicketReservation(event, List.of(mod), List.of(), DateUtils.addDays(new Date(), 1), Optional.empty(), Locale.ENGLISH, false, null);
+            })
+            .toList();
+    }
+
+    @Test
+    void noGapsOrDuplicatesUnderConcurrentFinalizations() throws Exception {
+        var finalizations = new ArrayList<FinalizeReservation>();
+        for (int i = 0; i < FINALIZATIONS; i++) {
+            var reservationId = reservationIds.get(i);
+            // one finalization out of ten fails after the invoice number has been assigned, because the reservation
+            // is not in a compatible state. The finalizer then schedules a retry
+            if (i % 10 != 0) {
+                ticketReservationRepository.updateReservationStatus(reservationId, OFFLINE_FINALIZING.name());
+            }
+            finalizations.add(new FinalizeReservation(paymentSpecification(reservationId), PaymentProxy.OFFLINE, false, false, null, OFFLINE_PAYMENT));
+        }
+
+        var pool = Executors.newFixedThreadPool(FINALIZATIONS);
+        try {
+            var start = new CountDownLatch(1);
+            var calls = finalizations.stream()
+                .map(finalization -> (Callable<Void>) () -> {
+                    start.await();
+                    reservationFinalizer.finalizeCommandReceived(finalization);
+                    return null;
+                })
+                .toList();
+            var futures = calls.stream().map(pool::submit).toList();
+            start.countDown();
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // retry the failed finalizations, as the job would do
+        for (int i = 0; i < FINALIZATIONS; i += 10) {
+            ticketReservationRepository.updateReservationStatus(reservationIds.get(i), OFFLINE_FINALIZING.name());
+            reservationFinalizer.retryFinalizeReservation(RetryFinalizeReservation.fromFinalizeReservation(finalizations.get(i)));
+        }
+
+        var reservations = reservationIds.stream()
+            .map(ticketReservationRepository::findReservationById)
+            .toList();
+        assertTrue(reservations.stream().allMatch(r -> r.getStatus() == OFFLINE_PAYMENT));
+        var numbers = reservations.stream()
+            .map(TicketReservation::getInvoiceNumber)
+            .map(Integer::parseInt)
+            .sorted()
+            .collect(Collectors.toList());
+        assertEquals(IntStream.rangeClosed(1, FINALIZATIONS).boxed().toList(), numbers);
+        assertEquals(FINALIZATIONS + 1, invoiceSequencesRepository.lockSequenceForUpdate(event.getOrganizationId(), BillingDocument.Type.INVOICE));
+    }
+
+    private PaymentSpecification paymentSpecification(String reservationId) {
+        var reservationCost = ticketReservationManager.totalReservationCostWithVAT(reservationId).getLeft();
+        return new PaymentSpecification(reservationId, null, reservationCost.priceWithVAT(),
+            event, "email@example.com", new CustomerName("full name", "full", "name", event.mustUseFirstAndLastName()),
+            "billing address", null, Locale.ENGLISH, true, false, null, "IT", "123456", PriceContainer.VatStatus.INCLUDED, true, false);
+    }
+}
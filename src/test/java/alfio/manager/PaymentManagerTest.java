@@ -49,7 +49,7 @@ class PaymentManagerTest {
         mollie = mock(MollieWebhookPaymentManager.class);
         when(mollie.isActive(any())).thenReturn(true);
         when(mollie.getPaymentProxy()).thenCallRealMethod();
-        paymentManager = new PaymentManager(null, null, null, null, null,
+        paymentManager = new PaymentManager(null, null, null, null, null, null,
             List.of(stripe, mollie));
     }
 
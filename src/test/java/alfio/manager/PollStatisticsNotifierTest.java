@@ -0,0 +1,147 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.model.poll.PollOptionStatistics;
+import alfio.model.poll.PollStatistics;
+import alfio.util.PostgresNotificationListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PollStatisticsNotifierTest {
+
+    private static final long POLL_ID = 1L;
+    private final AtomicInteger loads = new AtomicInteger();
+    private PollStatisticsNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        // the tests control the state of the listener
+        var notificationListener = mock(PostgresNotificationListener.class);
+        // changes are dispatched explicitly by the tests
+        notifier = new PollStatisticsNotifier(notificationListener, new MockEnvironment(), 3_600_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        notifier.destroy();
+    }
+
+    @Test
+    void votesCachedUntilChanged() {
+        notifier.listenerConnected();
+        assertEquals(1, notifier.getVotes(POLL_ID, this::loadVotes).size());
+        notifier.getVotes(POLL_ID, this::loadVotes);
+        assertEquals(1, loads.get());
+        notifier.pollChanged(2L);
+        notifier.getVotes(POLL_ID, this::loadVotes);
+        assertEquals(1, loads.get());
+        notifier.pollChanged(POLL_ID);
+        notifier.getVotes(POLL_ID, this::loadVotes);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void votesNotCachedWhenNotListening() {
+        notifier.getVotes(POLL_ID, this::loadVotes);
+        notifier.getVotes(POLL_ID, this::loadVotes);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void changesDispatchedOncePerPoll() {
+        notifier.listenerConnected();
+        var first = new ArrayList<PollStatistics>();
+        var second = new ArrayList<PollStatistics>();
+        assertTrue(notifier.subscribe(POLL_ID, this::loadStatistics, first::add).isPresent());
+        assertTrue(notifier.subscribe(POLL_ID, this::loadStatistics, second::add).isPresent());
+        notifier.pollChanged(POLL_ID);
+        notifier.pollChanged(POLL_ID);
+        notifier.dispatchChanges();
+        assertEquals(1, loads.get());
+        assertEquals(1, first.size());
+        assertEquals(1, second.size());
+        // nothing changed since the last dispatch
+        notifier.dispatchChanges();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void allSubscribersRefreshedWhenNotListening() {
+        var received = new ArrayList<PollStatistics>();
+        assertTrue(notifier.subscribe(POLL_ID, this::loadStatistics, received::add).isPresent());
+        notifier.dispatchChanges();
+        notifier.dispatchChanges();
+        assertEquals(2, received.size());
+    }
+
+    @Test
+    void nullDeliveredIfPollDoesNotExist() {
+        notifier.listenerConnected();
+        var received = new ArrayList<PollStatistics>();
+        assertTrue(notifier.subscribe(POLL_ID, Optional::empty, received::add).isPresent());
+        notifier.pollChanged(POLL_ID);
+        notifier.dispatchChanges();
+        assertEquals(1, received.size());
+        assertNull(received.get(0));
+    }
+
+    @Test
+    void cancelAndFailedDelivery() {
+        notifier.listenerConnected();
+        var subscription = notifier.subscribe(POLL_ID, this::loadStatistics, s -> {}).orElseThrow();
+        notifier.subscribe(POLL_ID, this::loadStatistics, s -> { throw new IOException("broken pipe"); }).orElseThrow();
+        assertEquals(2, notifier.getSubscriberCount());
+        notifier.pollChanged(POLL_ID);
+        notifier.dispatchChanges();
+        assertEquals(1, notifier.getSubscriberCount());
+        subscription.cancel();
+        assertEquals(0, notifier.getSubscriberCount());
+    }
+
+    @Test
+    void subscribersPerPollAreLimited() {
+        var subscriptions = IntStream.range(0, 50)
+            .mapToObj(i -> notifier.subscribe(POLL_ID, this::loadStatistics, s -> {}))
+            .toList();
+        assertTrue(subscriptions.stream().allMatch(Optional::isPresent));
+        assertTrue(notifier.subscribe(POLL_ID, this::loadStatistics, s -> {}).isEmpty());
+        assertTrue(notifier.subscribe(2L, this::loadStatistics, s -> {}).isPresent());
+        assertEquals(51, notifier.getSubscriberCount());
+    }
+
+    private List<PollOptionStatistics> loadVotes() {
+        loads.incrementAndGet();
+        return List.of(new PollOptionStatistics(10, 1L));
+    }
+
+    private Optional<PollStatistics> loadStatistics() {
+        return Optional.of(new PollStatistics(10, 20, loadVotes()));
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.TestConfiguration;
+import alfio.config.DataSourceConfiguration;
+import alfio.config.Initializer;
+import alfio.manager.payment.PaymentSpecification;
+import alfio.manager.support.PaymentResult;
+import alfio.manager.user.UserManager;
+import alfio.model.*;
+import alfio.model.metadata.AlfioMetadata;
+import alfio.model.modification.DateTimeModification;
+import alfio.model.modification.TicketCategoryModification;
+import alfio.model.modification.TicketReservationModification;
+import alfio.model.modification.TicketReservationWithOptionalCodeModification;
+import alfio.model.transaction.PaymentMethod;
+import alfio.model.transaction.PaymentProxy;
+import alfio.repository.EventDeleterRepository;
+import alfio.repository.EventRepository;
+import alfio.repository.PromoCodeDiscountRepository;
+import alfio.repository.TicketCategoryRepository;
+import alfio.repository.system.ConfigurationRepository;
+import alfio.repository.user.OrganizationRepository;
+import alfio.test.util.AlfioIntegrationTest;
+import alfio.test.util.IntegrationTestUtil;
+import alfio.util.ClockProvider;
+import alfio.util.ErrorsCode;
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static alfio.manager.TicketReservationManagerIntegrationTest.DESCRIPTION;
+import static alfio.test.util.IntegrationTestUtil.AVAILABLE_SEATS;
+import static alfio.test.util.IntegrationTestUtil.initEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+@AlfioIntegrationTest
+@ContextConfiguration(classes = {DataSourceConfiguration.class, TestConfiguration.class})
+@ActiveProfiles({Initializer.PROFILE_DEV, Initializer.PROFILE_DISABLE_JOBS, Initializer.PROFILE_INTEGRATION_TEST})
+class PromoCodeUsageConcurrentTest {
+
+    private static final String PROMO_CODE = "LIMITED";
+
+    @Autowired
+    private OrganizationRepository organizationRepository;
+    @Autowired
+    private UserManager userManager;
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+    @Autowired
+    private TicketReservationManager ticketReservationManager;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private EventManager eventManager;
+    @Autowired
+    private PromoCodeDiscountRepository promoCodeDiscountRepository;
+    @Autowired
+    private ConfigurationRepository configurationRepository;
+    @Autowired
+    private EventDeleterRepository eventDeleterRepository;
+
+    private Event event;
+    private String username;
+    private int categoryId;
+
+    @BeforeEach
+    void setUp() {
+        IntegrationTestUtil.ensureMinimalConfiguration(configurationRepository);
+        List<TicketCategoryModification> categories = List.of(
+            new TicketCategoryModification(null, "default", TicketCategory.TicketAccessType.INHERIT, AVAILABLE_SEATS,
+                new DateTimeModification(LocalDate.now(ClockProvider.clock()).minusDays(1), LocalTime.now(ClockProvider.clock())),
+                new DateTimeModification(LocalDate.now(ClockProvider.clock()).plusDays(1), LocalTime.now(ClockProvider.clock())),
+                DESCRIPTION, BigDecimal.TEN, false,
+                "", false, null, null, null, null, null, 0, null, null, AlfioMetadata.empty())
+        );
+        var eventAndUser = initEvent(categories, organizationRepository, userManager, eventManager, eventRepository);
+        event = eventAndUser.getLeft();
+        username = eventAndUser.getRight();
+        categoryId = ticketCategoryRepository.findAllTicketCategories(event.getId()).get(0).getId();
+        var now = ZonedDateTime.now(ClockProvider.clock());
+        eventManager.addPromoCode(PROMO_CODE, event.getId(), null, now.minusDays(1), now.plusDays(1), 10,
+            PromoCodeDiscount.DiscountType.PERCENTAGE, null, 1, "description", "email@reference.ch", PromoCodeDiscount.CodeType.DISCOUNT, null, null);
+    }
+
+    @Test
+    void maxUsageIsEnforcedForConcurrentConfirmations() throws InterruptedException, ExecutionException {
+        // both reservations are created before any of them is confirmed, so they both pass the checks done at creation
+        var reservationIds = List.of(createReservation(), createReservation());
+        var pool = Executors.newFixedThreadPool(reservationIds.size());
+        try {
+            var callables = reservationIds.stream()
+                .map(id -> (Callable<PaymentResult>) () -> confirm(id))
+                .toList();
+            var results = new ArrayList<PaymentResult>();
+            for (Future<PaymentResult> future : pool.invokeAll(callables)) {
+                results.add(future.get());
+            }
+            assertEquals(1, results.stream().filter(PaymentResult::isSuccessful).count());
+            var failed = results.stream().filter(PaymentResult::isFailed).toList();
+            assertEquals(1, failed.size());
+            assertEquals(Optional.of(ErrorsCode.STEP_2_DISCOUNT_CODE_USAGE_EXCEEDED), failed.get(0).getErrorCode());
+        } finally {
+            pool.shutdownNow();
+        }
+        var promoCode = promoCodeDiscountRepository.findPromoCodeInEventOrOrganization(event.getId(), PROMO_CODE).orElseThrow();
+        assertEquals(1, promoCodeDiscountRepository.getConfirmedUsage(promoCode.getId()));
+        var statuses = reservationIds.stream()
+            .map(id -> ticketReservationManager.findById(id).orElseThrow().getStatus())
+            .toList();
+        assertTrue(statuses.contains(TicketReservation.TicketReservationStatus.OFFLINE_PAYMENT));
+        assertTrue(statuses.contains(TicketReservation.TicketReservationStatus.PENDING));
+    }
+
+    @Test
+    void usageIsReleasedWhenTicketsAreDeleted() {
+        var reservationId = createReservation();
+        assertTrue(confirm(reservationId).isSuccessful());
+        var promoCodeId = promoCodeDiscountRepository.findPromoCodeInEventOrOrganization(event.getId(), PROMO_CODE).orElseThrow().getId();
+        assertEquals(1, promoCodeDiscountRepository.getConfirmedUsage(promoCodeId));
+        // same order used by the background deletion of the event
+        eventDeleterRepository.deleteTicket(event.getId());
+        assertEquals(0, promoCodeDiscountRepository.getConfirmedUsage(promoCodeId));
+    }
+
+    private String createReservation() {
+        var tr = new TicketReservationModification();
+        tr.setQuantity(1);
+        tr.setTicketCategoryId(categoryId);
+        var mod = new TicketReservationWithOptionalCodeModification(tr, Optional.empty());
+        return ticketReservationManager.createTicketReservation(event, List.of(mod), List.of(), DateUtils.addDays(new Date(), 1), Optional.of(PROMO_CODE), Locale.ENGLISH, false, null);
+    }
+
+    private PaymentResult confirm(String reservationId) {
+        var reservationCost = ticketReservationManager.totalReservationCostWithVAT(reservationId).getLeft();
+        var specification = new PaymentSpecification(reservationId, null, reservationCost.priceWithVAT(),
+            event, "email@example.com", new CustomerName("full name", "full", "name", event.mustUseFirstAndLastName()),
+            "billing address", null, Locale.ENGLISH, true, false, null, "IT", "123456", PriceContainer.VatStatus.INCLUDED, true, false);
+        return ticketReservationManager.performPayment(specification, reservationCost, PaymentProxy.OFFLINE, PaymentMethod.BANK_TRANSFER, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventManager.deleteEvent(event.getId(), username);
+    }
+}
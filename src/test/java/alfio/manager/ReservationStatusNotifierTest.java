@@ -0,0 +1,117 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.model.ReservationIdStatusAndValidation;
+import alfio.model.TicketReservationStatusAndValidation;
+import alfio.model.system.command.NotifyReservationStatusChange;
+import alfio.repository.TicketReservationRepository;
+import alfio.util.PostgresNotificationListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static alfio.model.TicketReservation.TicketReservationStatus.COMPLETE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReservationStatusNotifierTest {
+
+    private static final String RESERVATION_ID = "reservationId";
+    private TicketReservationRepository ticketReservationRepository;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private ReservationStatusNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        var notificationListener = mock(PostgresNotificationListener.class);
+        jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        ticketReservationRepository = mock(TicketReservationRepository.class);
+        notifier = new ReservationStatusNotifier(notificationListener, jdbcTemplate, ticketReservationRepository, new MockEnvironment());
+    }
+
+    @AfterEach
+    void tearDown() {
+        notifier.destroy();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void statusChangeIsSentThroughPostgres() {
+        notifier.statusChanged(new NotifyReservationStatusChange(RESERVATION_ID));
+        verify(jdbcTemplate).query(eq("select pg_notify(:channel, :reservationId)"),
+            argThat((MapSqlParameterSource p) -> ReservationStatusNotifier.CHANNEL.equals(p.getValue("channel")) && RESERVATION_ID.equals(p.getValue("reservationId"))),
+            any(ResultSetExtractor.class));
+    }
+
+    @Test
+    void dispatchToSubscribers() {
+        var received = new ArrayList<TicketReservationStatusAndValidation>();
+        assertTrue(notifier.subscribe(RESERVATION_ID, received::add).isPresent());
+        when(ticketReservationRepository.findStatusAndValidationByIds(List.of(RESERVATION_ID)))
+            .thenReturn(List.of(new ReservationIdStatusAndValidation(RESERVATION_ID, COMPLETE, true)));
+        notifier.dispatch(List.of(RESERVATION_ID));
+        assertEquals(1, received.size());
+        assertEquals(COMPLETE, received.get(0).getStatus());
+        assertTrue(received.get(0).getValidated());
+    }
+
+    @Test
+    void deletedReservation() {
+        var received = new ArrayList<TicketReservationStatusAndValidation>();
+        notifier.subscribe(RESERVATION_ID, received::add);
+        when(ticketReservationRepository.findStatusAndValidationByIds(anyCollection())).thenReturn(List.of());
+        notifier.dispatch(List.of(RESERVATION_ID));
+        assertEquals(1, received.size());
+        assertNull(received.get(0));
+    }
+
+    @Test
+    void limitSubscribersPerReservation() {
+        var subscriptions = IntStream.range(0, 10)
+            .mapToObj(i -> notifier.subscribe(RESERVATION_ID, s -> {}))
+            .toList();
+        assertEquals(5, subscriptions.stream().filter(Optional::isPresent).count());
+        assertEquals(5, notifier.getSubscriberCount());
+        assertTrue(notifier.subscribe("another", s -> {}).isPresent());
+        subscriptions.get(0).orElseThrow().cancel();
+        assertEquals(5, notifier.getSubscriberCount());
+        assertTrue(notifier.subscribe(RESERVATION_ID, s -> {}).isPresent());
+    }
+
+    @Test
+    void failingSubscriberIsRemoved() {
+        notifier.subscribe(RESERVATION_ID, s -> {
+            throw new IOException("broken pipe");
+        });
+        when(ticketReservationRepository.findStatusAndValidationByIds(anyCollection()))
+            .thenReturn(List.of(new ReservationIdStatusAndValidation(RESERVATION_ID, COMPLETE, false)));
+        notifier.dispatch(List.of(RESERVATION_ID));
+        assertEquals(0, notifier.getSubscriberCount());
+    }
+}
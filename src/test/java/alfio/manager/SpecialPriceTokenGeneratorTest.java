@@ -0,0 +1,125 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager;
+
+import alfio.manager.system.ConfigurationLevel;
+import alfio.manager.system.ConfigurationManager;
+import alfio.manager.testSupport.MaybeConfigurationBuilder;
+import alfio.model.EventAndOrganizationId;
+import alfio.model.SpecialPrice;
+import alfio.model.TicketCategory;
+import alfio.model.system.ConfigurationKeys;
+import alfio.repository.EventRepository;
+import alfio.repository.SpecialPriceRepository;
+import alfio.repository.TicketCategoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class SpecialPriceTokenGeneratorTest {
+
+    private static final int CATEGORY_ID = 1;
+    private SpecialPriceRepository specialPriceRepository;
+    private SpecialPriceTokenGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        specialPriceRepository = mock(SpecialPriceRepository.class);
+        var ticketCategoryRepository = mock(TicketCategoryRepository.class);
+        var eventRepository = mock(EventRepository.class);
+        var configurationManager = mock(ConfigurationManager.class);
+        var ticketCategory = mock(TicketCategory.class);
+        when(ticketCategory.getId()).thenReturn(CATEGORY_ID);
+        when(ticketCategory.getEventId()).thenReturn(2);
+        when(ticketCategoryRepository.getByIdAndActive(CATEGORY_ID)).thenReturn(Optional.of(ticketCategory));
+        when(eventRepository.findEventAndOrganizationIdById(2)).thenReturn(new EventAndOrganizationId(2, 3));
+        when(configurationManager.getFor(eq(ConfigurationKeys.SPECIAL_PRICE_CODE_LENGTH), any(ConfigurationLevel.class)))
+            .thenReturn(MaybeConfigurationBuilder.existing(ConfigurationKeys.SPECIAL_PRICE_CODE_LENGTH, "8"));
+        generator = new SpecialPriceTokenGenerator(configurationManager, specialPriceRepository, ticketCategoryRepository,
+            eventRepository, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void generateCodesInChunks() {
+        int count = SpecialPriceTokenGenerator.CHUNK_SIZE * 2 + 10;
+        when(specialPriceRepository.findWaitingElementsForCategory(CATEGORY_ID)).thenReturn(waitingElements(count));
+        when(specialPriceRepository.findExistingCodes(anyCollection())).thenReturn(List.of());
+
+        generator.generatePendingCodesForCategory(CATEGORY_ID);
+
+        // one collision check and one batch update per chunk
+        verify(specialPriceRepository, times(3)).findExistingCodes(anyCollection());
+        var codesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(specialPriceRepository, times(3)).bulkUpdateCodes(anyList(), codesCaptor.capture());
+        var codes = codesCaptor.getAllValues().stream().flatMap(l -> ((List<String>) l).stream()).collect(Collectors.toList());
+        assertEquals(count, codes.size());
+        assertEquals(count, new HashSet<>(codes).size());
+        assertTrue(codes.stream().allMatch(c -> c.length() == 8));
+    }
+
+    @Test
+    void existingCodesAreReplaced() {
+        when(specialPriceRepository.findWaitingElementsForCategory(CATEGORY_ID)).thenReturn(waitingElements(10));
+        when(specialPriceRepository.findExistingCodes(anyCollection()))
+            .thenAnswer(invocation -> {
+                Collection<String> candidates = invocation.getArgument(0);
+                return List.of(candidates.iterator().next());
+            })
+            .thenReturn(List.of());
+
+        generator.generatePendingCodesForCategory(CATEGORY_ID);
+
+        var candidatesCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(specialPriceRepository, times(2)).findExistingCodes(candidatesCaptor.capture());
+        assertEquals(1, candidatesCaptor.getAllValues().get(1).size());
+        var codesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(specialPriceRepository).bulkUpdateCodes(anyList(), codesCaptor.capture());
+        var rejected = candidatesCaptor.getAllValues().get(0).iterator().next();
+        assertEquals(10, codesCaptor.getValue().size());
+        assertFalse(codesCaptor.getValue().contains(rejected));
+    }
+
+    @Test
+    void retryOnDuplicates() {
+        when(specialPriceRepository.findWaitingElementsForCategory(CATEGORY_ID)).thenReturn(waitingElements(10));
+        when(specialPriceRepository.findExistingCodes(anyCollection())).thenReturn(List.of());
+        doThrow(new DuplicateKeyException("duplicate"))
+            .doNothing()
+            .when(specialPriceRepository).bulkUpdateCodes(anyList(), anyList());
+
+        generator.generatePendingCodesForCategory(CATEGORY_ID);
+
+        verify(specialPriceRepository, times(2)).bulkUpdateCodes(anyList(), anyList());
+    }
+
+    private static List<SpecialPrice.SpecialPriceTicketCategoryId> waitingElements(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> new SpecialPrice.SpecialPriceTicketCategoryId(i, CATEGORY_ID))
+            .collect(Collectors.toList());
+    }
+}
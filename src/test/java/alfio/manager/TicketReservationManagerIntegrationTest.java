@@ -170,7 +170,7 @@ class TicketReservationManagerIntegrationTest extends BaseIntegrationTest {
         TicketReservationWithOptionalCodeModification mod2 = new TicketReservationWithOptionalCodeModification(tr2, Optional.empty());
         String reservationId = ticketReservationManager.createTicketReservation(event, List.of(mod, mod2), Collections.emptyList(), DateUtils.addDays(new Date(), 1), Optional.empty(), Locale.ENGLISH, false, null);
 
-        List<TicketReservation> reservations = purchaseContextSearchManager.findAllReservationsFor(event, 0, null, null).getKey();
+        List<TicketReservation> reservations = purchaseContextSearchManager.findAllReservationsFor(event, 0, null, null, null).results();
         assertEquals(1, reservations.size());
         assertEquals(reservationId, reservations.get(0).getId());
 
@@ -16,6 +16,7 @@
  */
 package alfio.manager;
 
+import alfio.config.support.PromoCodeDiscountCache;
 import alfio.manager.i18n.MessageSourceManager;
 import alfio.manager.support.reservation.OrderSummaryGenerator;
 import alfio.manager.support.reservation.ReservationCostCalculator;
@@ -37,6 +38,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.MessageSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
@@ -44,6 +46,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -168,7 +171,8 @@ class TicketReservationManagerUnitTest {
             reservationCostCalculator,
             mock(ReservationEmailContentHelper.class),
             mock(ReservationFinalizer.class),
-            mock(OrderSummaryGenerator.class));
+            mock(OrderSummaryGenerator.class),
+            mock(PromoCodeDiscountCache.class));
     }
 
     @Test
@@ -192,7 +196,8 @@ class TicketReservationManagerUnitTest {
         void setUp() {
             var subscriptionRepository = mock(SubscriptionRepository.class);
             generator = new OrderSummaryGenerator(ticketReservationRepository, auditingRepository, paymentManager, ticketCategoryRepository, additionalServiceTextRepository, subscriptionRepository, ticketRepository, messageSourceManager,
-                new ReservationCostCalculator(ticketReservationRepository, mock(PurchaseContextManager.class), promoCodeDiscountRepository, subscriptionRepository, ticketRepository, additionalServiceRepository, additionalServiceItemRepository));
+                new ReservationCostCalculator(ticketReservationRepository, mock(PurchaseContextManager.class), promoCodeDiscountRepository, subscriptionRepository, ticketRepository, additionalServiceRepository, additionalServiceItemRepository, new MockEnvironment()),
+                new MockEnvironment());
         }
 
         @Test
@@ -293,7 +298,7 @@ class TicketReservationManagerUnitTest {
         when(additionalServiceItemRepository.findByReservationUuid(eq(TICKET_RESERVATION_ID))).thenReturn(Collections.singletonList(additionalServiceItem));
         when(additionalServiceItem.getAdditionalServiceId()).thenReturn(1);
         when(additionalServiceRepository.loadAllForEvent(eq(1))).thenReturn(List.of(additionalService));
-        when(additionalServiceRepository.getById(eq(1), eq(1))).thenReturn(additionalService);
+        when(additionalServiceRepository.getByIds(eq(Set.of(1)), eq(1))).thenReturn(List.of(additionalService));
         when(additionalServiceItem.getSrcPriceCts()).thenReturn(asSrcPrice);
         when(additionalService.getVatType()).thenReturn(additionalServiceVatType);
         AdditionalServiceItemRepository additionalServiceItemRepository = mock(AdditionalServiceItemRepository.class);
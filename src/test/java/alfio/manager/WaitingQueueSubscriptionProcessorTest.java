@@ -17,7 +17,6 @@
 package alfio.manager;
 
 import alfio.manager.i18n.MessageSourceManager;
-import alfio.manager.support.TemplateGenerator;
 import alfio.manager.system.ConfigurationManager;
 import alfio.model.Event;
 import alfio.model.WaitingQueueSubscription;
@@ -26,10 +25,13 @@ import alfio.model.system.ConfigurationKeyValuePathLevel;
 import alfio.repository.TicketRepository;
 import alfio.repository.WaitingQueueRepository;
 import alfio.util.TemplateManager;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.context.MessageSource;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.ZoneId;
@@ -94,7 +96,13 @@ public class WaitingQueueSubscriptionProcessorTest {
             templateManager,
             ticketRepository,
             transactionManager,
-            clockProvider());
+            clockProvider(),
+            new MockEnvironment());
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.destroy();
     }
 
     @Test
@@ -107,6 +115,21 @@ public class WaitingQueueSubscriptionProcessorTest {
 
         processor.handleWaitingTickets();
         verify(waitingQueueManager, never()).distributeSeats(eq(event));
+        verify(eventManager).resetReleasedTickets(eq(event));
+    }
+
+    @Test
+    void skipEventIfWaitingListIsLocked() {
+        when(configurationManager.getFor(eq(Set.of(ENABLE_WAITING_QUEUE, ENABLE_PRE_REGISTRATION)), any()))
+            .thenReturn(Map.of(
+                ENABLE_WAITING_QUEUE, new ConfigurationManager.MaybeConfiguration(ENABLE_WAITING_QUEUE, new ConfigurationKeyValuePathLevel( "", "true", null)),
+                ENABLE_PRE_REGISTRATION, new ConfigurationManager.MaybeConfiguration(ENABLE_PRE_REGISTRATION)
+            ));
+        when(waitingQueueRepository.tryLockForDistribution(eq(1))).thenReturn(false);
+
+        processor.handleWaitingTickets();
+        verify(waitingQueueManager, never()).distributeSeats(eq(event));
+        verify(transactionManager).commit(any());
     }
 
     @Test
@@ -125,8 +148,15 @@ public class WaitingQueueSubscriptionProcessorTest {
         when(waitingQueueManager.distributeSeats(eq(event))).thenReturn(Stream.of(Triple.of(subscription, reservation, expiration)));
         String reservationId = "reservation-id";
         when(ticketReservationManager.createTicketReservation(eq(event), anyList(), anyList(), any(Date.class), eq(Optional.empty()), any(Locale.class), eq(true), isNull())).thenReturn(reservationId);
+        when(subscription.getId()).thenReturn(42);
+        when(waitingQueueRepository.tryLockForDistribution(eq(1))).thenReturn(true);
         processor.handleWaitingTickets();
         verify(ticketReservationManager).createTicketReservation(eq(event), eq(Collections.singletonList(reservation)), anyList(), eq(Date.from(expiration.toInstant())), eq(Optional.empty()), eq(Locale.ENGLISH), eq(true), isNull());
-        verify(notificationManager).sendSimpleEmail(eq(event), eq(reservationId), eq("me"), eq("subject"), any(TemplateGenerator.class));
+        verify(eventManager).loadOrganizerUsingSystemPrincipal(eq(event));
+        verify(waitingQueueRepository).bulkFlagAsPending(eq(List.of(Pair.of(42, reservationId))));
+        verify(notificationManager).sendSimpleEmails(eq(event), argThat(emails -> emails.size() == 1
+            && emails.get(0).reservationId().equals(reservationId)
+            && emails.get(0).recipient().equals("me")
+            && emails.get(0).subject().equals("subject")));
     }
 }
\ No newline at end of file
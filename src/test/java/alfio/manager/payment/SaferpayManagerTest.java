@@ -30,6 +30,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.io.IOException;
 import java.net.http.HttpClient;
@@ -80,7 +81,7 @@ class SaferpayManagerTest {
         when(maybeConfiguration.getRequiredValue()).thenReturn("");
         when(configuration.get(any(ConfigurationKeys.class))).thenReturn(maybeConfiguration);
         when(paymentContext.getPurchaseContext()).thenReturn(event);
-        manager = new SaferpayManager(configurationManager, httpClient, ticketReservationRepository, transactionRepository, ticketRepository, TestUtil.clockProvider());
+        manager = new SaferpayManager(configurationManager, httpClient, ticketReservationRepository, transactionRepository, ticketRepository, TestUtil.clockProvider(), mock(ApplicationEventPublisher.class));
     }
 
     @Test
@@ -23,15 +23,18 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
 
 import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 class ReservationCostCalculatorTest {
 
@@ -76,7 +79,8 @@ class ReservationCostCalculatorTest {
             mock(SubscriptionRepository.class),
             ticketRepository,
             additionalServiceRepository,
-            additionalServiceItemRepository
+            additionalServiceItemRepository,
+            new MockEnvironment()
         );
     }
 
@@ -151,6 +155,21 @@ class ReservationCostCalculatorTest {
         Assertions.assertEquals(1, fourth.VAT());
     }
 
+    @Test
+    void costIsCachedUntilReservationVersionChanges() {
+        initReservationWithTicket(10, true);
+        when(ticketReservationRepository.findVersion(eq(TICKET_RESERVATION_ID))).thenReturn(Optional.of(1L));
+        var first = calculator.totalReservationCostWithVAT(TICKET_RESERVATION_ID);
+        assertSame(first, calculator.totalReservationCostWithVAT(TICKET_RESERVATION_ID));
+        verify(ticketRepository, times(1)).findTicketsInReservation(eq(TICKET_RESERVATION_ID));
+
+        when(ticketReservationRepository.findVersion(eq(TICKET_RESERVATION_ID))).thenReturn(Optional.of(2L));
+        var second = calculator.totalReservationCostWithVAT(TICKET_RESERVATION_ID);
+        assertNotSame(first, second);
+        Assertions.assertEquals(first.getLeft(), second.getLeft());
+        verify(ticketRepository, times(2)).findTicketsInReservation(eq(TICKET_RESERVATION_ID));
+    }
+
     private void initReservationWithTicket(int ticketPaidPrice, boolean eventVatIncluded) {
         when(event.isVatIncluded()).thenReturn(eventVatIncluded);
         when(event.getVatStatus()).thenReturn(eventVatIncluded ? PriceContainer.VatStatus.INCLUDED : PriceContainer.VatStatus.NOT_INCLUDED);
@@ -179,7 +198,7 @@ class ReservationCostCalculatorTest {
         when(additionalServiceItemRepository.findByReservationUuid(eq(TICKET_RESERVATION_ID))).thenReturn(Collections.singletonList(additionalServiceItem));
         when(additionalServiceItem.getAdditionalServiceId()).thenReturn(1);
         when(additionalServiceRepository.loadAllForEvent(eq(1))).thenReturn(List.of(additionalService));
-        when(additionalServiceRepository.getById(eq(1), eq(1))).thenReturn(additionalService);
+        when(additionalServiceRepository.getByIds(eq(Set.of(1)), eq(1))).thenReturn(List.of(additionalService));
         when(additionalServiceItem.getSrcPriceCts()).thenReturn(asSrcPrice);
         when(additionalService.getVatType()).thenReturn(additionalServiceVatType);
         AdditionalServiceItemRepository additionalServiceItemRepository = mock(AdditionalServiceItemRepository.class);
@@ -0,0 +1,148 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager.system;
+
+import alfio.TestConfiguration;
+import alfio.config.DataSourceConfiguration;
+import alfio.config.Initializer;
+import alfio.config.WebSecurityConfig;
+import alfio.manager.EventManager;
+import alfio.manager.user.UserManager;
+import alfio.model.Event;
+import alfio.model.TicketCategory;
+import alfio.model.metadata.AlfioMetadata;
+import alfio.model.modification.DateTimeModification;
+import alfio.model.modification.TicketCategoryModification;
+import alfio.model.system.DataDeletionJob;
+import alfio.repository.EventRepository;
+import alfio.repository.TicketCategoryRepository;
+import alfio.repository.TicketRepository;
+import alfio.repository.TicketReservationRepository;
+import alfio.repository.system.DataDeletionRepository;
+import alfio.repository.system.DataDeletionStep;
+import alfio.repository.system.DataDeletionStep.Scope;
+import alfio.repository.user.OrganizationRepository;
+import alfio.test.util.AlfioIntegrationTest;
+import alfio.util.BaseIntegrationTest;
+import alfio.util.ClockProvider;
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static alfio.test.util.IntegrationTestUtil.DESCRIPTION;
+import static alfio.test.util.IntegrationTestUtil.initEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+@AlfioIntegrationTest
+@ContextConfiguration(classes = {DataSourceConfiguration.class, WebSecurityConfig.class, TestConfiguration.class})
+@ActiveProfiles({Initializer.PROFILE_DEV, Initializer.PROFILE_DISABLE_JOBS, Initializer.PROFILE_INTEGRATION_TEST})
+class DataDeletionManagerIntegrationTest extends BaseIntegrationTest {
+
+    private static final String RESERVATION_ID = "3f0c9a7e-6b2d-4c1f-8e5a-9d4b7c2e1f60";
+
+    @Autowired
+    private DataDeletionManager dataDeletionManager;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private OrganizationRepository organizationRepository;
+    @Autowired
+    private EventManager eventManager;
+    @Autowired
+    private UserManager userManager;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+    @Autowired
+    private TicketReservationRepository ticketReservationRepository;
+    @Autowired
+    private DataDeletionRepository dataDeletionRepository;
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private Event event;
+
+    @BeforeEach
+    void setUp() {
+        var categories = List.of(new TicketCategoryModification(null, "default", TicketCategory.TicketAccessType.INHERIT, 10,
+            new DateTimeModification(LocalDate.now(ClockProvider.clock()), LocalTime.now(ClockProvider.clock())),
+            new DateTimeModification(LocalDate.now(ClockProvider.clock()), LocalTime.now(ClockProvider.clock())),
+            DESCRIPTION, BigDecimal.TEN, false, "", true, null, null, null, null, null, 0, null, null,
+            AlfioMetadata.empty()));
+        event = initEvent(categories, organizationRepository, userManager, eventManager, eventRepository).getKey();
+        var category = ticketCategoryRepository.findAllTicketCategories(event.getId()).get(0);
+        ticketReservationRepository.createNewReservation(RESERVATION_ID, ZonedDateTime.now(ClockProvider.clock()), DateUtils.addDays(new Date(), 1), null, "en", event.getId(), event.getVat(), event.isVatIncluded(), event.getCurrency(), event.getOrganizationId(), null);
+        var ids = ticketRepository.selectTicketInCategoryForUpdate(event.getId(), category.getId(), 2, List.of(TicketRepository.FREE));
+        ticketRepository.reserveTickets(RESERVATION_ID, ids, category, "en", event.getVatStatus(), i -> null);
+    }
+
+    @Test
+    void deleteEventInBackground() {
+        var job = dataDeletionManager.scheduleEventDeletion(event.getId(), "test");
+        assertEquals(DataDeletionJob.Status.PENDING, job.getStatus());
+        assertEquals(Event.Status.DISABLED, eventRepository.findById(event.getId()).getStatus());
+        // scheduling twice must not create a new job
+        assertEquals(job.getId(), dataDeletionManager.scheduleEventDeletion(event.getId(), "test").getId());
+
+        assertTrue(dataDeletionManager.processPendingJobs(Duration.ofMinutes(1)) > 0);
+        var completed = dataDeletionManager.findLatestJob(DataDeletionJob.TargetType.EVENT, event.getId()).orElseThrow();
+        assertEquals(DataDeletionJob.Status.COMPLETED, completed.getStatus());
+        assertNull(completed.getCurrentStep());
+        assertFalse(eventRepository.existsById(event.getId()));
+        assertEquals(0, countRows("select count(*) from tickets_reservation where id = :id", Map.of("id", RESERVATION_ID)));
+        // the organization is still there
+        assertEquals(event.getOrganizationId(), organizationRepository.getById(event.getOrganizationId()).getId());
+    }
+
+    @Test
+    void resumeOrganizationDeletion() {
+        int organizationId = event.getOrganizationId();
+        var job = dataDeletionManager.scheduleOrganizationDeletion(organizationId, "test");
+        assertEquals(Event.Status.DISABLED, eventRepository.findById(event.getId()).getStatus());
+        // simulate a crash of the node holding the lease, right before the deletion of the tickets
+        for (var step = DataDeletionStep.first(Scope.EVENT); step != DataDeletionStep.TICKET; step = step.next().orElseThrow()) {
+            dataDeletionRepository.deleteBatch(step, event.getId(), DataDeletionManager.DEFAULT_BATCH_SIZE);
+        }
+        jdbcTemplate.update("update data_deletion_job set status = 'IN_PROGRESS', current_event_id = :eventId, current_step = 'TICKET', locked_until = now() - interval '1 minute' where id = :id",
+            Map.of("eventId", event.getId(), "id", job.getId()));
+
+        assertTrue(dataDeletionManager.processPendingJobs(Duration.ofMinutes(1)) > 0);
+        var completed = dataDeletionManager.findLatestJob(DataDeletionJob.TargetType.ORGANIZATION, organizationId).orElseThrow();
+        assertEquals(DataDeletionJob.Status.COMPLETED, completed.getStatus());
+        assertTrue(completed.getDeletedRows() > 0);
+        assertFalse(eventRepository.existsById(event.getId()));
+        assertEquals(0, countRows("select count(*) from organization where id = :id", Map.of("id", organizationId)));
+    }
+
+    private int countRows(String query, Map<String, Object> params) {
+        return jdbcTemplate.queryForObject(query, params, Integer.class);
+    }
+}
@@ -35,6 +35,7 @@ import alfio.repository.EventRepository;
 import alfio.repository.TicketCategoryRepository;
 import alfio.repository.TicketRepository;
 import alfio.repository.TicketReservationRepository;
+import alfio.repository.system.DataMigrationCheckpointRepository;
 import alfio.repository.system.EventMigrationRepository;
 import alfio.repository.user.OrganizationRepository;
 import alfio.test.util.AlfioIntegrationTest;
@@ -86,6 +87,8 @@ class DataMigratorIntegrationTest extends BaseIntegrationTest {
     private TicketCategoryRepository ticketCategoryRepository;
     @Autowired
     private TicketReservationRepository ticketReservationRepository;
+    @Autowired
+    private DataMigrationCheckpointRepository dataMigrationCheckpointRepository;
     @Value("${alfio.version}")
     private String currentVersion;
 
@@ -303,4 +306,12 @@ class DataMigratorIntegrationTest extends BaseIntegrationTest {
         dataMigrator.fixStuckTickets(event.getId());
         assertSame(Ticket.TicketStatus.RELEASED, ticketRepository.findByUUID(uuid).getStatus());
     }
+
+    @Test
+    void testFixUpsAreCheckpointed() {
+        dataMigrator.migrateEventsToCurrentVersion();
+        assertTrue(dataMigrationCheckpointRepository.isCompleted("fillReservationsLanguage"));
+        assertTrue(dataMigrationCheckpointRepository.isCompleted("fixReservationPrice"));
+        assertTrue(dataMigrationCheckpointRepository.isCompleted("fixVatStatus"));
+    }
 }
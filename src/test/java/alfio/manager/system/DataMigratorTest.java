@@ -16,13 +16,23 @@
  */
 package alfio.manager.system;
 
+import alfio.model.Event;
+import alfio.repository.EventRepository;
+import alfio.repository.system.DataMigrationCheckpointRepository;
+import alfio.repository.system.EventMigrationRepository;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.List;
 
 import static alfio.manager.system.DataMigrator.parseVersion;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
 
 @DisplayName("DataMigrator: parse version")
 public class DataMigratorTest {
@@ -52,4 +62,25 @@ public class DataMigratorTest {
     void zeroIfUnknown() {
         assertEquals(BigDecimal.ZERO, parseVersion("NOT_VALID"));
     }
+
+    @Test
+    @DisplayName("abort if an event cannot be migrated")
+    void abortIfEventMigrationFails() {
+        var eventRepository = mock(EventRepository.class);
+        var eventMigrationRepository = mock(EventMigrationRepository.class);
+        var checkpointRepository = mock(DataMigrationCheckpointRepository.class);
+        var event = mock(Event.class);
+        when(event.getId()).thenReturn(1);
+        when(event.getShortName()).thenReturn("event");
+        when(event.now(any())).thenThrow(new IllegalStateException("cannot migrate"));
+        when(eventRepository.findAll()).thenReturn(List.of(event));
+        when(eventMigrationRepository.loadAll()).thenReturn(List.of());
+        var dataMigrator = new DataMigrator(eventMigrationRepository, eventRepository, null, "2.0-SNAPSHOT",
+            ZonedDateTime.now().toString(), mock(PlatformTransactionManager.class), null, null, null, null, null,
+            null, null, null, null, checkpointRepository, new MockEnvironment());
+
+        assertThrows(IllegalStateException.class, dataMigrator::migrateEventsToCurrentVersion);
+        verify(eventMigrationRepository, never()).insertMigrationData(anyInt(), anyString(), any(), anyString());
+        verify(checkpointRepository, never()).markCompleted(anyString());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.manager.user;
+
+import alfio.model.system.Configuration;
+import alfio.model.system.ConfigurationKeys;
+import alfio.model.system.ConfigurationPathLevel;
+import alfio.model.user.User;
+import alfio.repository.system.ConfigurationRepository;
+import alfio.repository.user.AuthorityRepository;
+import alfio.repository.user.UserRepository;
+import alfio.util.PostgresNotificationListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ApiKeyAuthenticationCacheTest {
+
+    private static final String API_KEY = "api-key";
+    private UserRepository userRepository;
+    private AuthorityRepository authorityRepository;
+    private ConfigurationRepository configurationRepository;
+    private ApiKeyAuthenticationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // the tests control the state of the listener
+        var notificationListener = mock(PostgresNotificationListener.class);
+        userRepository = mock(UserRepository.class);
+        authorityRepository = mock(AuthorityRepository.class);
+        configurationRepository = mock(ConfigurationRepository.class);
+        when(configurationRepository.findOptionalByKey(ConfigurationKeys.SYSTEM_API_KEY.name()))
+            .thenReturn(Optional.of(new Configuration(1, ConfigurationKeys.SYSTEM_API_KEY.name(), "system-key", ConfigurationPathLevel.SYSTEM)));
+        when(userRepository.findByUsername(API_KEY)).thenReturn(Optional.of(apiKeyUser(true)));
+        when(authorityRepository.findRoles(API_KEY)).thenReturn(List.of("ROLE_OPERATOR"));
+        cache = new ApiKeyAuthenticationCache(notificationListener, userRepository, authorityRepository, configurationRepository, new MockEnvironment());
+    }
+
+    @Test
+    void cachedWhileListening() {
+        cache.listenerConnected();
+        var first = cache.find(API_KEY).orElseThrow();
+        var second = cache.find(API_KEY).orElseThrow();
+        assertSame(first, second);
+        assertEquals(List.of("ROLE_OPERATOR"), second.roles());
+        verify(userRepository, times(1)).findByUsername(API_KEY);
+        verify(authorityRepository, times(1)).findRoles(API_KEY);
+    }
+
+    @Test
+    void reloadedAfterInvalidation() {
+        cache.listenerConnected();
+        cache.find(API_KEY);
+        cache.invalidateAll();
+        when(userRepository.findByUsername(API_KEY)).thenReturn(Optional.of(apiKeyUser(false)));
+        var details = cache.find(API_KEY).orElseThrow();
+        assertFalse(details.user().isEnabled());
+        assertTrue(details.roles().isEmpty());
+        verify(userRepository, times(2)).findByUsername(API_KEY);
+    }
+
+    @Test
+    void bypassedWhenNotListening() {
+        cache.find(API_KEY);
+        cache.find(API_KEY);
+        verify(userRepository, times(2)).findByUsername(API_KEY);
+        cache.listenerConnected();
+        cache.find(API_KEY);
+        cache.listenerDisconnected();
+        cache.find(API_KEY);
+        verify(userRepository, times(4)).findByUsername(API_KEY);
+    }
+
+    @Test
+    void systemApiKey() {
+        cache.listenerConnected();
+        var details = cache.find("system-key").orElseThrow();
+        assertTrue(details.system());
+        assertNull(details.user());
+        verify(userRepository, never()).findByUsername(anyString());
+    }
+
+    @Test
+    void unknownKeysAreNotCached() {
+        cache.listenerConnected();
+        when(userRepository.findByUsername("unknown")).thenReturn(Optional.empty());
+        assertTrue(cache.find("unknown").isEmpty());
+        assertTrue(cache.find("unknown").isEmpty());
+        verify(userRepository, times(2)).findByUsername("unknown");
+    }
+
+    private static User apiKeyUser(boolean enabled) {
+        return new User(1, API_KEY, null, null, null, enabled, User.Type.API_KEY, null, "description");
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.repository;
+
+import alfio.TestConfiguration;
+import alfio.config.DataSourceConfiguration;
+import alfio.config.Initializer;
+import alfio.config.WebSecurityConfig;
+import alfio.manager.EventManager;
+import alfio.manager.user.UserManager;
+import alfio.model.*;
+import alfio.model.metadata.AlfioMetadata;
+import alfio.model.modification.DateTimeModification;
+import alfio.model.modification.TicketCategoryModification;
+import alfio.repository.user.OrganizationRepository;
+import alfio.test.util.AlfioIntegrationTest;
+import alfio.util.BaseIntegrationTest;
+import alfio.util.ClockProvider;
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static alfio.test.util.IntegrationTestUtil.DESCRIPTION;
+import static alfio.test.util.IntegrationTestUtil.initEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+@AlfioIntegrationTest
+@ContextConfiguration(classes = {DataSourceConfiguration.class, WebSecurityConfig.class, TestConfiguration.class})
+@ActiveProfiles({Initializer.PROFILE_DEV, Initializer.PROFILE_DISABLE_JOBS, Initializer.PROFILE_INTEGRATION_TEST})
+class ReservationInfoSnapshotIntegrationTest extends BaseIntegrationTest {
+
+    private static final String RESERVATION_ID = "a6f6f7a4-1a4b-4b4e-9d8a-6a7c8d5e1f20";
+
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private OrganizationRepository organizationRepository;
+    @Autowired
+    private EventManager eventManager;
+    @Autowired
+    private UserManager userManager;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+    @Autowired
+    private TicketReservationRepository ticketReservationRepository;
+    @Autowired
+    private AdditionalServiceItemRepository additionalServiceItemRepository;
+
+    private Event event;
+
+    @BeforeEach
+    void setUp() {
+        var categories = List.of(
+            category("first", 2),
+            category("second", 2));
+        event = initEvent(categories, organizationRepository, userManager, eventManager, eventRepository).getKey();
+        ticketReservationRepository.createNewReservation(RESERVATION_ID, ZonedDateTime.now(ClockProvider.clock()), DateUtils.addDays(new Date(), 1), null, "en", event.getId(), event.getVat(), event.isVatIncluded(), event.getCurrency(), event.getOrganizationId(), null);
+        for (TicketCategory category : ticketCategoryRepository.findAllTicketCategories(event.getId())) {
+            var ids = ticketRepository.selectTicketInCategoryForUpdate(event.getId(), category.getId(), 1, List.of(TicketRepository.FREE));
+            ticketRepository.reserveTickets(RESERVATION_ID, ids, category, "en", event.getVatStatus(), i -> null);
+        }
+    }
+
+    @Test
+    void snapshotMatchesSingleLookups() {
+        var snapshot = ticketReservationRepository.findReservationInfoSnapshot(RESERVATION_ID).orElseThrow();
+        var reservation = ticketReservationRepository.findReservationById(RESERVATION_ID);
+        var additionalInfo = ticketReservationRepository.getAdditionalInfo(RESERVATION_ID);
+
+        assertEquals(reservation.getId(), snapshot.getReservation().getId());
+        assertEquals(reservation.getStatus(), snapshot.getReservation().getStatus());
+        assertEquals(reservation.getValidity(), snapshot.getReservation().getValidity());
+        assertEquals(additionalInfo.hasBeenValidated(), snapshot.getAdditionalInfo().hasBeenValidated());
+        assertEquals(additionalInfo.getBillingDetails().getCountry(), snapshot.getAdditionalInfo().getBillingDetails().getCountry());
+        assertEquals(additionalServiceItemRepository.hasPaidSupplements(RESERVATION_ID), snapshot.isPaidSupplements());
+        assertFalse(snapshot.isLinkedToGroups());
+        assertFalse(snapshot.isPendingPaymentToken());
+
+        var categoryIds = ticketRepository.findTicketsInReservation(RESERVATION_ID).stream().map(Ticket::getCategoryId).distinct().sorted().toList();
+        assertEquals(categoryIds, snapshot.getCategories().stream().map(ReservationInfoSnapshot.CategoryInfo::id).sorted().toList());
+        snapshot.getCategories().forEach(c -> {
+            var category = ticketCategoryRepository.getByIdAndActive(c.id(), event.getId());
+            assertEquals(category.getName(), c.name());
+            assertEquals(category.getTicketAccessType(), c.ticketAccessType());
+        });
+    }
+
+    @Test
+    void emptyReservation() {
+        ticketReservationRepository.createNewReservation("empty", ZonedDateTime.now(ClockProvider.clock()), DateUtils.addDays(new Date(), 1), null, "en", event.getId(), event.getVat(), event.isVatIncluded(), event.getCurrency(), event.getOrganizationId(), null);
+        var snapshot = ticketReservationRepository.findReservationInfoSnapshot("empty").orElseThrow();
+        assertTrue(snapshot.getCategories().isEmpty());
+        assertTrue(ticketReservationRepository.findReservationInfoSnapshot("not-existing").isEmpty());
+    }
+
+    /**
+     * Compares the latency of the consolidated query with the single lookups it replaces.
+     * Run it with {@code ./gradlew test --tests alfio.repository.ReservationInfoSnapshotIntegrationTest -Dalfio.benchmark=true}
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "alfio.benchmark", matches = "true")
+    void benchmark() {
+        int iterations = 2000;
+        Supplier<Object> singleLookups = () -> {
+            var reservation = ticketReservationRepository.findReservationById(RESERVATION_ID);
+            var additionalInfo = ticketReservationRepository.getAdditionalInfo(RESERVATION_ID);
+            var metadata = ticketReservationRepository.getMetadata(RESERVATION_ID);
+            var billingDetails = ticketReservationRepository.getBillingDetailsForReservation(RESERVATION_ID);
+            boolean paidSupplements = additionalServiceItemRepository.hasPaidSupplements(RESERVATION_ID);
+            var categories = ticketRepository.findTicketsInReservation(RESERVATION_ID).stream()
+                .map(Ticket::getCategoryId)
+                .distinct()
+                .map(id -> ticketCategoryRepository.getByIdAndActive(id, event.getId()))
+                .toList();
+            return List.of(reservation, additionalInfo, billingDetails, paidSupplements, categories, metadata == null);
+        };
+        Supplier<Object> snapshot = () -> ticketReservationRepository.findReservationInfoSnapshot(RESERVATION_ID).orElseThrow();
+        measure("single lookups", singleLookups, iterations);
+        measure("snapshot", snapshot, iterations);
+    }
+
+    private static void measure(String name, Supplier<Object> supplier, int iterations) {
+        for (int i = 0; i < iterations / 10; i++) {
+            assertNotNull(supplier.get());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            assertNotNull(supplier.get());
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s: %d iterations, avg %.3f ms%n", name, iterations, elapsed / (double) iterations / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static TicketCategoryModification category(String name, int maxTickets) {
+        return new TicketCategoryModification(null, name, TicketCategory.TicketAccessType.INHERIT, maxTickets,
+            new DateTimeModification(LocalDate.now(ClockProvider.clock()), LocalTime.now(ClockProvider.clock())),
+            new DateTimeModification(LocalDate.now(ClockProvider.clock()), LocalTime.now(ClockProvider.clock())),
+            DESCRIPTION, BigDecimal.TEN, false, "", true, null, null, null, null, null, 0, null, null, AlfioMetadata.empty());
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.repository;
+
+import alfio.TestConfiguration;
+import alfio.config.DataSourceConfiguration;
+import alfio.config.Initializer;
+import alfio.config.WebSecurityConfig;
+import alfio.manager.EventManager;
+import alfio.manager.support.reservation.OrderSummaryGenerator;
+import alfio.manager.user.UserManager;
+import alfio.model.Event;
+import alfio.model.TicketCategory;
+import alfio.model.metadata.AlfioMetadata;
+import alfio.model.modification.DateTimeModification;
+import alfio.model.modification.TicketCategoryModification;
+import alfio.repository.user.OrganizationRepository;
+import alfio.test.util.AlfioIntegrationTest;
+import alfio.util.BaseIntegrationTest;
+import alfio.util.ClockProvider;
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+import static alfio.test.util.IntegrationTestUtil.DESCRIPTION;
+import static alfio.test.util.IntegrationTestUtil.initEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+@AlfioIntegrationTest
+@ContextConfiguration(classes = {DataSourceConfiguration.class, WebSecurityConfig.class, TestConfiguration.class})
+@ActiveProfiles({Initializer.PROFILE_DEV, Initializer.PROFILE_DISABLE_JOBS, Initializer.PROFILE_INTEGRATION_TEST})
+class ReservationVersionIntegrationTest extends BaseIntegrationTest {
+
+    private static final String RESERVATION_ID = "0c1e5a3d-2f4b-4a6c-8d9e-7b5a3c1e9f42";
+
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private OrganizationRepository organizationRepository;
+    @Autowired
+    private EventManager eventManager;
+    @Autowired
+    private UserManager userManager;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+    @Autowired
+    private TicketReservationRepository ticketReservationRepository;
+    @Autowired
+    private OrderSummaryGenerator orderSummaryGenerator;
+
+    private Event event;
+    private TicketCategory category;
+
+    @BeforeEach
+    void setUp() {
+        var categories = List.of(new TicketCategoryModification(null, "default", TicketCategory.TicketAccessType.INHERIT, 10,
+            new DateTimeModification(LocalDate.now(ClockProvider.clock()), LocalTime.now(ClockProvider.clock())),
+            new DateTimeModification(LocalDate.now(ClockProvider.clock()), LocalTime.now(ClockProvider.clock())),
+            DESCRIPTION, BigDecimal.TEN, false, "", true, null, null, null, null, null, 0, null, null,
+            AlfioMetadata.empty()));
+        event = initEvent(categories, organizationRepository, userManager, eventManager, eventRepository).getKey();
+        category = ticketCategoryRepository.findAllTicketCategories(event.getId()).get(0);
+        ticketReservationRepository.createNewReservation(RESERVATION_ID, ZonedDateTime.now(ClockProvider.clock()), DateUtils.addDays(new Date(), 1), null, "en", event.getId(), event.getVat(), event.isVatIncluded(), event.getCurrency(), event.getOrganizationId(), null);
+    }
+
+    @Test
+    void versionChangesWhenReservationIsModifiedOrBumped() {
+        long initial = ticketReservationRepository.findVersion(RESERVATION_ID).orElseThrow();
+
+        // writes on the items don't touch the reservation row
+        reserveTickets(2);
+        assertEquals(initial, ticketReservationRepository.findVersion(RESERVATION_ID).orElseThrow());
+
+        ticketReservationRepository.updateReservationStatus(RESERVATION_ID, "IN_PAYMENT");
+        long afterStatusChange = ticketReservationRepository.findVersion(RESERVATION_ID).orElseThrow();
+        assertNotEquals(initial, afterStatusChange);
+
+        assertEquals(1, ticketReservationRepository.bumpVersion(List.of(RESERVATION_ID)));
+        assertNotEquals(afterStatusChange, ticketReservationRepository.findVersion(RESERVATION_ID).orElseThrow());
+        assertTrue(ticketReservationRepository.findVersion("not-existing").isEmpty());
+    }
+
+    @Test
+    void orderSummaryReflectsModifications() {
+        reserveTickets(1);
+        var first = orderSummaryGenerator.orderSummaryForReservationId(RESERVATION_ID, event);
+        assertSame(first, orderSummaryGenerator.orderSummaryForReservationId(RESERVATION_ID, event));
+        assertEquals(1, first.getTicketAmount());
+
+        reserveTickets(1);
+        ticketReservationRepository.bumpVersion(List.of(RESERVATION_ID));
+        var second = orderSummaryGenerator.orderSummaryForReservationId(RESERVATION_ID, event);
+        assertNotSame(first, second);
+        assertEquals(2, second.getTicketAmount());
+        assertEquals(2 * first.getOriginalTotalPrice().priceWithVAT(), second.getOriginalTotalPrice().priceWithVAT());
+    }
+
+    private void reserveTickets(int count) {
+        var ids = ticketRepository.selectTicketInCategoryForUpdate(event.getId(), category.getId(), count, List.of(TicketRepository.FREE));
+        ticketRepository.reserveTickets(RESERVATION_ID, ids, category, "en", event.getVatStatus(), i -> null);
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.repository;
+
+import alfio.TestConfiguration;
+import alfio.config.DataSourceConfiguration;
+import alfio.config.Initializer;
+import alfio.config.WebSecurityConfig;
+import alfio.manager.EventManager;
+import alfio.manager.user.UserManager;
+import alfio.model.Event;
+import alfio.model.Ticket;
+import alfio.model.TicketCategory;
+import alfio.model.TicketReservation;
+import alfio.model.checkin.CheckInFullInfo;
+import alfio.model.metadata.AlfioMetadata;
+import alfio.model.modification.DateTimeModification;
+import alfio.model.modification.TicketCategoryModification;
+import alfio.repository.user.OrganizationRepository;
+import alfio.test.util.AlfioIntegrationTest;
+import alfio.util.BaseIntegrationTest;
+import alfio.util.ClockProvider;
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static alfio.test.util.IntegrationTestUtil.DESCRIPTION;
+import static alfio.test.util.IntegrationTestUtil.initEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+@AlfioIntegrationTest
+@ContextConfiguration(classes = {DataSourceConfiguration.class, WebSecurityConfig.class, TestConfiguration.class})
+@ActiveProfiles({Initializer.PROFILE_DEV, Initializer.PROFILE_DISABLE_JOBS, Initializer.PROFILE_INTEGRATION_TEST})
+class TicketSearchIntegrationTest extends BaseIntegrationTest {
+
+    private static final String RESERVATION_ID = "5b1d7e2a-9c3f-4e8b-a6d4-2f7c9e1b3a58";
+    private static final String SECOND_RESERVATION_ID = "8e4a2c6f-1d7b-4f3e-9a5c-6b2d8f0e4c17";
+    private static final List<String> ALL_STATUSES = Arrays.stream(TicketReservation.TicketReservationStatus.values()).map(Enum::name).toList();
+
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private OrganizationRepository organizationRepository;
+    @Autowired
+    private EventManager eventManager;
+    @Autowired
+    private UserManager userManager;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private TicketCategoryRepository ticketCategoryRepository;
+    @Autowired
+    private TicketReservationRepository ticketReservationRepository;
+    @Autowired
+    private TicketSearchRepository ticketSearchRepository;
+
+    private Event event;
+
+    @BeforeEach
+    void setUp() {
+        var categories = List.of(new TicketCategoryModification(null, "default", TicketCategory.TicketAccessType.INHERIT, 10,
+            new DateTimeModification(LocalDate.now(ClockProvider.clock()), LocalTime.now(ClockProvider.clock())),
+            new DateTimeModification(LocalDate.now(ClockProvider.clock()), LocalTime.now(ClockProvider.clock())),
+            DESCRIPTION, BigDecimal.TEN, false, "", true, null, null, null, null, null, 0, null, null,
+            AlfioMetadata.empty()));
+        event = initEvent(categories, organizationRepository, userManager, eventManager, eventRepository).getKey();
+        var category = ticketCategoryRepository.findAllTicketCategories(event.getId()).get(0);
+        ticketReservationRepository.createNewReservation(RESERVATION_ID, ZonedDateTime.now(ClockProvider.clock()), DateUtils.addDays(new Date(), 1), null, "en", event.getId(), event.getVat(), event.isVatIncluded(), event.getCurrency(), event.getOrganizationId(), null);
+        var ids = ticketRepository.selectTicketInCategoryForUpdate(event.getId(), category.getId(), 3, List.of(TicketRepository.FREE));
+        ticketRepository.reserveTickets(RESERVATION_ID, ids, category, "en", event.getVatStatus(), i -> null);
+        ticketRepository.updateTicketOwnerById(ids.get(0), "anna@example.org", "Anna Zed", "Anna", "Zed");
+        ticketRepository.updateTicketOwnerById(ids.get(1), "bob@example.org", "Bob Zed", "Bob", "Zed");
+        ticketRepository.updateTicketOwnerById(ids.get(2), "carl@example.org", "Carl Young", "Carl", "Young");
+        ticketRepository.updateTicketsStatusWithReservationId(RESERVATION_ID, Ticket.TicketStatus.ACQUIRED.name());
+    }
+
+    @Test
+    void searchTextFollowsTicketAndReservationChanges() {
+        assertEquals(1, ticketRepository.searchAttendees(event.getId(), "%ANNA@%", null, 10, 0).size());
+        assertEquals(0, ticketRepository.searchAttendees(event.getId(), "%inv-42%", null, 10, 0).size());
+
+        ticketReservationRepository.setInvoiceNumber(RESERVATION_ID, "INV-42");
+        assertEquals(3, ticketRepository.searchAttendees(event.getId(), "%inv-42%", null, 10, 0).size());
+        assertEquals(1, ticketSearchRepository.countReservationsForEvent(event.getId(), "%Inv-42%", ALL_STATUSES, 100));
+        assertEquals(1, ticketSearchRepository.findReservationsForEvent(event.getId(), "%bob@%", ALL_STATUSES, null, 10, 0).size());
+    }
+
+    @Test
+    void searchAttendeesAfterCursor() {
+        var firstPage = ticketRepository.searchAttendees(event.getId(), "%example.org%", null, 2, 0);
+        assertEquals(List.of("Carl", "Anna"), firstPage.stream().map(fi -> fi.getTicket().getFirstName()).toList());
+        var cursor = firstPage.get(firstPage.size() - 1).getTicket().getUuid();
+        List<CheckInFullInfo> secondPage = ticketRepository.searchAttendees(event.getId(), "%example.org%", cursor, 2, 0);
+        assertEquals(List.of("Bob"), secondPage.stream().map(fi -> fi.getTicket().getFirstName()).toList());
+    }
+
+    @Test
+    void searchAttendeesAfterCursorIncludesTicketsWithoutName() {
+        var category = ticketCategoryRepository.findAllTicketCategories(event.getId()).get(0);
+        var ids = ticketRepository.selectTicketInCategoryForUpdate(event.getId(), category.getId(), 2, List.of(TicketRepository.FREE));
+        ticketRepository.reserveTickets(RESERVATION_ID, ids, category, "en", event.getVatStatus(), i -> null);
+        ticketRepository.updateTicketsStatusWithReservationId(RESERVATION_ID, Ticket.TicketStatus.ACQUIRED.name());
+        ticketReservationRepository.setInvoiceNumber(RESERVATION_ID, "INV-42");
+
+        var allResults = ticketRepository.searchAttendees(event.getId(), "%inv-42%", null, 10, 0).stream()
+            .map(fi -> fi.getTicket().getUuid())
+            .toList();
+        assertEquals(5, allResults.size());
+
+        var paged = new ArrayList<String>();
+        String cursor = null;
+        List<CheckInFullInfo> page;
+        do {
+            page = ticketRepository.searchAttendees(event.getId(), "%inv-42%", cursor, 2, 0);
+            page.forEach(fi -> paged.add(fi.getTicket().getUuid()));
+            cursor = page.isEmpty() ? null : page.get(page.size() - 1).getTicket().getUuid();
+        } while (page.size() == 2);
+        assertEquals(allResults, paged);
+        // tickets without name come first
+        assertNull(ticketRepository.searchAttendees(event.getId(), "%inv-42%", null, 1, 0).get(0).getTicket().getLastName());
+    }
+
+    @Test
+    void findReservationsAfterCursor() {
+        // reservations not yet confirmed are sorted by validity
+        ticketReservationRepository.createNewReservation(SECOND_RESERVATION_ID, ZonedDateTime.now(ClockProvider.clock()), DateUtils.addDays(new Date(), 2), null, "en", event.getId(), event.getVat(), event.isVatIncluded(), event.getCurrency(), event.getOrganizationId(), null);
+        var firstPage = ticketSearchRepository.findReservationsForEvent(event.getId(), null, ALL_STATUSES, null, 1, 0);
+        assertEquals(List.of(RESERVATION_ID), firstPage.stream().map(TicketReservation::getId).toList());
+        var secondPage = ticketSearchRepository.findReservationsForEvent(event.getId(), null, ALL_STATUSES, RESERVATION_ID, 1, 0);
+        assertEquals(List.of(SECOND_RESERVATION_ID), secondPage.stream().map(TicketReservation::getId).toList());
+        assertTrue(ticketSearchRepository.findReservationsForEvent(event.getId(), null, ALL_STATUSES, SECOND_RESERVATION_ID, 1, 0).isEmpty());
+        assertEquals(2, ticketSearchRepository.countReservationsForEvent(event.getId(), null, ALL_STATUSES, 100));
+        assertEquals(1, ticketSearchRepository.countReservationsForEvent(event.getId(), null, ALL_STATUSES, 1));
+    }
+
+    @Test
+    void countSearchResultsIsBounded() {
+        assertEquals(3, ticketRepository.countSearchResults(event.getId(), "%example.org%", 100).getTotal());
+        assertEquals(2, ticketRepository.countSearchResults(event.getId(), "%example.org%", 2).getTotal());
+    }
+}
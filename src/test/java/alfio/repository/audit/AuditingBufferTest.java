@@ -0,0 +1,125 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.repository.audit;
+
+import alfio.model.Audit;
+import alfio.repository.AuditingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AuditingBufferTest {
+
+    private AuditingRepository auditingRepository;
+
+    @BeforeEach
+    void setUp() {
+        auditingRepository = mock(AuditingRepository.class);
+        when(auditingRepository.insertAll(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void insertImmediatelyWithoutTransaction() {
+        AuditingBuffer.enqueue(auditingRepository, audit("1"));
+        verify(auditingRepository).insertImmediately(eq("1"), any(), any(), any(), any(), any(), any(), any());
+        verify(auditingRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    void flushBeforeCommit() {
+        beginTransaction();
+        AuditingBuffer.enqueue(auditingRepository, audit("1"));
+        AuditingBuffer.enqueue(auditingRepository, audit("2"));
+        verify(auditingRepository, never()).insertAll(anyList());
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+        assertEquals(List.of("1", "2"), captureFlushedReservationIds());
+        verify(auditingRepository, never()).insertImmediately(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void discardRowsAfterRollbackToSavepoint() {
+        beginTransaction();
+        AuditingBuffer.enqueue(auditingRepository, audit("1"));
+        var savepoint = new Object();
+        AuditingBuffer.savepointCreated(savepoint);
+        AuditingBuffer.enqueue(auditingRepository, audit("2"));
+        AuditingBuffer.rolledBackToSavepoint(savepoint);
+        AuditingBuffer.enqueue(auditingRepository, audit("3"));
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+        assertEquals(List.of("1", "3"), captureFlushedReservationIds());
+    }
+
+    @Test
+    void discardNothingIfRowsHaveBeenFlushedAlready() {
+        beginTransaction();
+        var savepoint = new Object();
+        AuditingBuffer.savepointCreated(savepoint);
+        AuditingBuffer.enqueue(auditingRepository, audit("1"));
+        AuditingBuffer.flush(auditingRepository);
+        AuditingBuffer.enqueue(auditingRepository, audit("2"));
+        AuditingBuffer.rolledBackToSavepoint(savepoint);
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+        // row "1" has been rolled back by the database, row "2" has been discarded by the buffer
+        assertEquals(List.of("1"), captureFlushedReservationIds());
+    }
+
+    @Test
+    void discardEverythingOnRollback() {
+        beginTransaction();
+        AuditingBuffer.enqueue(auditingRepository, audit("1"));
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        verify(auditingRepository, never()).insertAll(anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> captureFlushedReservationIds() {
+        ArgumentCaptor<List<AuditingBuffer.PendingAudit>> captor = ArgumentCaptor.forClass(List.class);
+        verify(auditingRepository, atLeastOnce()).insertAll(captor.capture());
+        return captor.getAllValues().stream()
+            .flatMap(List::stream)
+            .map(AuditingBuffer.PendingAudit::reservationId)
+            .toList();
+    }
+
+    private static void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    private static AuditingBuffer.PendingAudit audit(String reservationId) {
+        return new AuditingBuffer.PendingAudit(reservationId, null, 1, Audit.EventType.UPDATE_TICKET, new Date(), Audit.EntityType.RESERVATION, reservationId, null);
+    }
+}
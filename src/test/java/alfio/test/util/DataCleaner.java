@@ -18,6 +18,7 @@ package alfio.test.util;
 
 import alfio.config.authentication.support.APITokenAuthentication;
 import alfio.manager.OrganizationDeleter;
+import alfio.manager.system.DataDeletionManager;
 import alfio.util.RefreshableDataSource;
 import org.junit.jupiter.api.extension.AfterEachCallback;
 import org.junit.jupiter.api.extension.BeforeEachCallback;
@@ -29,6 +30,7 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -63,6 +65,8 @@ public class DataCleaner implements AfterEachCallback, BeforeEachCallback {
                 var organizationDeleter = applicationContext.getBean(OrganizationDeleter.class);
                 jdbc.queryForList("select id from organization", Map.of(), Integer.class)
                     .forEach(orgId -> organizationDeleter.deleteOrganization(orgId, new APITokenAuthentication("TEST", "", List.of(new SimpleGrantedAuthority("ROLE_" + SYSTEM_API_CLIENT)))));
+                applicationContext.getBean(DataDeletionManager.class).processPendingJobs(Duration.ofMinutes(5));
+                assertTrue(jdbc.update("delete from data_deletion_job", Map.of()) >= 0);
                 assertTrue(jdbc.queryForList("select id from organization", Map.of(), Integer.class).isEmpty());
                 jdbc.update("delete from user_profile", Map.of());
                 jdbc.update("delete from ba_user", Map.of());
@@ -0,0 +1,98 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void returnsKeysInDeadlineOrder() {
+        var wheel = new HierarchicalTimingWheel<String>(1000, 8, START);
+        wheel.schedule("b", START + 3000);
+        wheel.schedule("a", START + 1000);
+        wheel.schedule("c", START + 5000);
+        assertEquals(List.of(), wheel.advance(START + 500));
+        assertEquals(List.of("a", "b"), wheel.advance(START + 3000));
+        assertEquals(List.of("c"), wheel.advance(START + 10_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void neverFiresBeforeDeadline() {
+        var wheel = new HierarchicalTimingWheel<String>(1000, 8, START);
+        wheel.schedule("a", START + 1500);
+        assertEquals(List.of(), wheel.advance(START + 1000));
+        assertEquals(List.of(), wheel.advance(START + 1999));
+        assertEquals(List.of("a"), wheel.advance(START + 2000));
+    }
+
+    @Test
+    void pastDeadlinesFireAtNextAdvance() {
+        var wheel = new HierarchicalTimingWheel<String>(1000, 8, START);
+        wheel.schedule("a", START - 10_000);
+        assertEquals(List.of("a"), wheel.advance(START));
+    }
+
+    @Test
+    void cascadeFromSecondLevelAndOverflow() {
+        var wheel = new HierarchicalTimingWheel<Integer>(1000, 8, START);
+        // first level: < 8 ticks, second level: < 64 ticks, overflow: the rest
+        int[] delays = {3, 7, 8, 15, 40, 63, 64, 100, 500};
+        for (int delay : delays) {
+            wheel.schedule(delay, START + delay * 1000L);
+        }
+        var fired = new ArrayList<Integer>();
+        for (long now = START; now <= START + 600_000; now += 1000) {
+            for (Integer key : wheel.advance(now)) {
+                assertEquals(START + key * 1000L, now, "key " + key + " fired at the wrong time");
+                fired.add(key);
+            }
+        }
+        assertEquals(List.of(3, 7, 8, 15, 40, 63, 64, 100, 500), fired);
+    }
+
+    @Test
+    void advanceWithLargeGap() {
+        var wheel = new HierarchicalTimingWheel<Integer>(1000, 4, START);
+        for (int i = 1; i <= 100; i++) {
+            wheel.schedule(i, START + i * 1000L);
+        }
+        assertEquals(50, wheel.advance(START + 50_000).size());
+        assertEquals(50, wheel.advance(START + 100_000).size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rescheduleAndCancel() {
+        var wheel = new HierarchicalTimingWheel<String>(1000, 8, START);
+        wheel.schedule("a", START + 2000);
+        wheel.schedule("b", START + 2000);
+        wheel.schedule("a", START + 20_000);
+        wheel.cancel("b");
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(), wheel.advance(START + 10_000));
+        assertEquals(List.of("a"), wheel.advance(START + 20_000));
+    }
+}
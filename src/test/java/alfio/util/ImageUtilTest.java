@@ -18,11 +18,13 @@ package alfio.util;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ImageUtilTest {
 
@@ -34,4 +36,25 @@ public class ImageUtilTest {
         byte[] array = ImageUtil.createQRCodeWithDescription(Json.GSON.toJson(info), "1234567890123456789012345");
         assertNotNull(array);
     }
+
+    @Test
+    public void qrCodeIsCached() {
+        String text = UUID.randomUUID().toString();
+        byte[] first = ImageUtil.createQRCode(text);
+        first[0] = 0;
+        byte[] second = ImageUtil.createQRCode(text);
+        assertNotSame(first, second);
+        assertEquals((byte) 0x89, second[0]); // PNG signature, cached image must not be affected
+        assertArrayEquals(second, ImageUtil.createQRCode(text, 200));
+        assertFalse(Arrays.equals(second, ImageUtil.createQRCode(text, 300)));
+    }
+
+    @Test
+    public void createQRCodeSvg() {
+        String svg = new String(ImageUtil.createQRCodeSvg(UUID.randomUUID().toString(), 150), StandardCharsets.UTF_8);
+        assertTrue(svg.startsWith("<svg "));
+        assertTrue(svg.contains("width=\"150\" height=\"150\""));
+        assertTrue(svg.contains("<path fill=\"#000\" d=\"M"));
+        assertTrue(svg.endsWith("</svg>"));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+/**
+ * This file is part of alf.io.
+ *
+ * alf.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * alf.io is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with alf.io.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package alfio.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class PostgresNotificationListenerTest {
+
+    private PostgresNotificationListener listener;
+
+    @AfterEach
+    void tearDown() {
+        if(listener != null) {
+            listener.stop();
+        }
+    }
+
+    @Test
+    void channelsShareTheSameConnection() throws Exception {
+        var dataSource = mock(DataSource.class);
+        var connection = mock(Connection.class);
+        var statement = mock(Statement.class);
+        var pgConnection = mock(PGConnection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        var first = notification("first", "1");
+        var second = notification("second", "2");
+        when(pgConnection.getNotifications(anyInt()))
+            .thenReturn(new PGNotification[] { first, second })
+            .thenAnswer(invocation -> {
+                try {
+                    Thread.sleep(invocation.<Integer>getArgument(0));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new PGNotification[0];
+            });
+
+        var received = new CopyOnWriteArrayList<String>();
+        var latch = new CountDownLatch(2);
+        listener = new PostgresNotificationListener(dataSource);
+        listener.addHandler("first", new RecordingHandler(received, latch));
+        listener.addHandler("second", new RecordingHandler(received, latch));
+        listener.start();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(2, received.size());
+        assertTrue(received.containsAll(List.of("1", "2")));
+        verify(dataSource, times(1)).getConnection();
+        verify(statement).execute("LISTEN first");
+        verify(statement).execute("LISTEN second");
+    }
+
+    private static PGNotification notification(String channel, String parameter) {
+        var notification = mock(PGNotification.class);
+        when(notification.getName()).thenReturn(channel);
+        when(notification.getParameter()).thenReturn(parameter);
+        return notification;
+    }
+
+    private static class RecordingHandler implements PostgresNotificationListener.Handler {
+        private final List<String> received;
+        private final CountDownLatch latch;
+
+        private RecordingHandler(List<String> received, CountDownLatch latch) {
+            this.received = received;
+            this.latch = latch;
+        }
+
+        @Override
+        public void connected() {
+        }
+
+        @Override
+        public void disconnected() {
+        }
+
+        @Override
+        public void notificationsReceived(PGNotification[] notifications) {
+            for (PGNotification notification : notifications) {
+                received.add(notification.getParameter());
+                latch.countDown();
+            }
+        }
+    }
+}